@@ -19,6 +19,11 @@ import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.params.HttpProtocolParams;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
  * A basic implementation of {@link HttpClientProvider} with multiple hooks for
  * extending or modifying built in behavior.
@@ -33,10 +38,48 @@ public class BasicHttpClientProvider implements HttpClientProvider{
 	 * @see #setMaxConnections(int)
 	 */
 	public int getMaxConnections() { return maxConnections; }
-	public void setMaxConnections(int connections) { 
+	/**
+	 * Sets the maximum number of connections. By default the pool of the
+	 * client is sized for exactly the maximum, so changing it creates a new
+	 * client. If a larger pool capacity has been set, a client which has
+	 * already been created is kept along with its open connections as long as
+	 * its pool is large enough, and only a new client is created if the pool
+	 * is too small. Lowering the maximum then relies on whoever uses the
+	 * client to limit its concurrent requests, as the
+	 * {@link RequestExecutionPool} of a
+	 * {@link com.raizlabs.webservicemanager.webservicemanager.WebServiceManager} does.
+	 * @param connections The maximum number of connections.
+	 * @see #setPoolCapacity(int)
+	 */
+	public synchronized void setMaxConnections(int connections) { 
 		this.maxConnections = connections;
-		init();
+		if (client != null && getPoolCapacity() != clientPoolCapacity &&
+				(connections > clientPoolCapacity || poolCapacity <= 0)) {
+			init();
+		}
 	}
+	
+	private int poolCapacity;
+	/**
+	 * The number of connections the pool of the current client was sized for.
+	 */
+	private int clientPoolCapacity;
+	/**
+	 * @return The number of connections the connection pool is sized for,
+	 * which is at least the maximum number of connections.
+	 * @see #setPoolCapacity(int)
+	 */
+	public int getPoolCapacity() { return Math.max(poolCapacity, maxConnections); }
+	/**
+	 * Sets the number of connections the connection pool is sized for, so
+	 * that the maximum number of connections may later be raised up to this
+	 * without creating a new client and losing its open connections. This
+	 * only applies to clients which are created afterwards. Defaults to zero,
+	 * which sizes the pool for the maximum number of connections.
+	 * @param capacity The number of connections.
+	 * @see Constants.Defaults#ConnectionPoolCapacity
+	 */
+	public void setPoolCapacity(int capacity) { this.poolCapacity = capacity; }
 
 	
 	private int connectionTimeout = Constants.Defaults.ConnectionTimeoutMillis;
@@ -122,7 +165,14 @@ public class BasicHttpClientProvider implements HttpClientProvider{
 	/**
 	 * The {@link HttpClient} we will be reusing.
 	 */
-	private HttpClient client;
+	private volatile HttpClient client;
+	/**
+	 * Clients which have been replaced, but which may still have requests
+	 * executing. They are shut down once all of their connections have been
+	 * returned.
+	 */
+	private final List<HttpClient> retiredClients = new ArrayList<HttpClient>();
+	private volatile boolean hasRetiredClients;
 	
 	/**
 	 * Constructs a {@link BasicHttpClientProvider} with default values.
@@ -146,15 +196,59 @@ public class BasicHttpClientProvider implements HttpClientProvider{
 	/**
 	 * Does some initialization and population of this {@link BasicHttpClientProvider}
 	 * which needs to be run before a client is given. This will be called lazily, but
-	 * you may call this earlier to prevent start up delays.
+	 * you may call this earlier, such as from a background thread, to prevent start
+	 * up delays. Any client which was already created is left to finish the
+	 * requests it is executing, and is shut down once they have all finished.
+	 * @see com.raizlabs.webservicemanager.webservicemanager.WebServiceManager#warmUp()
 	 */
-	public void init() {
+	public synchronized void init() {
 		// Populate our params, and construct a client from them
 		HttpParams connParams = getConnectionParams();
 		SchemeRegistry schemeRegistry = getSchemeRegistry();
 		ClientConnectionManager connManager = getClientConnectionManager(connParams, schemeRegistry);
 		
+		HttpClient oldClient = client;
+		clientPoolCapacity = getPoolCapacity();
 		client = createClient(connManager, connParams);
+		// Close the connections of the replaced client rather than leaking
+		// them, but only once the requests using them have finished
+		if (oldClient != null) {
+			retiredClients.add(oldClient);
+			hasRetiredClients = true;
+			shutDownRetiredClients();
+		}
+	}
+	
+	/**
+	 * Closes the idle connections of the clients which have been replaced,
+	 * and shuts down those which no longer have any connections in use.
+	 */
+	private synchronized void shutDownRetiredClients() {
+		Iterator<HttpClient> iterator = retiredClients.iterator();
+		while (iterator.hasNext()) {
+			ClientConnectionManager manager = iterator.next().getConnectionManager();
+			manager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+			if (isDrained(manager)) {
+				manager.shutdown();
+				iterator.remove();
+			}
+		}
+		hasRetiredClients = !retiredClients.isEmpty();
+	}
+	
+	/**
+	 * Called to determine whether a {@link ClientConnectionManager} of a
+	 * replaced client no longer has any connections in use, and so may be
+	 * shut down. Subclasses which provide a different manager may override
+	 * this to support it; by default only a {@link ThreadSafeClientConnManager}
+	 * is shut down, and other managers only have their idle connections
+	 * closed.
+	 * @param manager The {@link ClientConnectionManager} to check.
+	 * @return True if none of the connections of the manager are in use.
+	 */
+	protected boolean isDrained(ClientConnectionManager manager) {
+		return manager instanceof ThreadSafeClientConnManager &&
+				((ThreadSafeClientConnManager) manager).getConnectionsInPool() == 0;
 	}
 
 	/**
@@ -184,9 +278,11 @@ public class BasicHttpClientProvider implements HttpClientProvider{
 	 */
 	protected HttpParams getConnectionParams() {
 		HttpParams params = new BasicHttpParams();
-		ConnManagerParams.setMaxTotalConnections(params, getMaxConnections());
+		// Size the pool for the capacity so that the maximum may be changed
+		// without replacing the pool
+		ConnManagerParams.setMaxTotalConnections(params, getPoolCapacity());
 		ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRoute() {
-			final int maxConnections = getMaxConnections();
+			final int maxConnections = getPoolCapacity();
 			@Override
 			public int getMaxForRoute(HttpRoute route) {
 				return maxConnections;
@@ -235,8 +331,18 @@ public class BasicHttpClientProvider implements HttpClientProvider{
 	
 	@Override
 	public HttpClient getClient() {
+		if (hasRetiredClients) {
+			shutDownRetiredClients();
+		}
+		HttpClient client = this.client;
 		if (client == null) {
-			init();
+			synchronized (this) {
+				// Another thread may have initialized it while we waited
+				if (this.client == null) {
+					init();
+				}
+				client = this.client;
+			}
 		}
 		return client;
 	}
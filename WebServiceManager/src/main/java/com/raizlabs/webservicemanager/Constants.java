@@ -4,5 +4,26 @@ public class Constants {
 	public static class Defaults {
 		public static final int ConnectionTimeoutMillis = 30 * 1000;
 		public static final int ReadTimeoutMillis = 30 * 1000;
+		/**
+		 * The most bytes of an unread response body which are read and
+		 * discarded so that its connection may be reused.
+		 */
+		public static final int MaxDrainBytes = 16 * 1024;
+		/**
+		 * The largest response body which is buffered in memory rather than in
+		 * a temporary file.
+		 */
+		public static final int MaxBufferedResponseMemoryBytes = 256 * 1024;
+		/**
+		 * How long connections which are opened ahead of use are kept idle
+		 * before they are closed.
+		 */
+		public static final int PreconnectKeepAliveMillis = 60 * 1000;
+		/**
+		 * The number of connections the pool of the HttpClient of a
+		 * WebServiceManager is sized for, so that the maximum number of
+		 * connections may be raised up to this without replacing the client.
+		 */
+		public static final int ConnectionPoolCapacity = 32;
 	}
 }
@@ -12,7 +12,8 @@ import org.apache.http.conn.scheme.SocketFactory;
 public interface HttpClientProvider {
 	/**
 	 * Sets the maximum number of connections that this {@link HttpClientProvider}
-	 * will provide.
+	 * will provide. Implementations should avoid discarding clients which are
+	 * already in use, along with their open connections, where possible.
 	 * @param maxConnections The maximum number of connections.
 	 */
 	public void setMaxConnections(int maxConnections);
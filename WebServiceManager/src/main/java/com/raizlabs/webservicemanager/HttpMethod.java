@@ -77,6 +77,14 @@ public enum HttpMethod {
 	public abstract HttpRequestBase createRequest();
 	public abstract String getMethodName();
 	
+	/**
+	 * @return True if repeating a request with this method has the same effect
+	 * as sending it once, meaning it is safe to retry after a failure.
+	 */
+	public boolean isIdempotent() {
+		return this != Post;
+	}
+	
 	public static HttpMethod fromName(String name) {
 		for (HttpMethod method : values()) {
 			if (method.getMethodName().equalsIgnoreCase(name)) {
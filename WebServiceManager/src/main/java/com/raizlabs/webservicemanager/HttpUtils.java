@@ -5,6 +5,7 @@ import com.raizlabs.webservicemanager.responses.Response;
 import org.apache.http.HttpResponse;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 
 /**
@@ -58,4 +59,56 @@ public class HttpUtils {
 	public static boolean isResponseOK(int statusCode) {
 		return statusCode / 100 == 2;
 	}
+	
+	/**
+	 * Reads and discards the rest of the given stream, up to the given number
+	 * of bytes. Reading a response body to its end allows its connection to
+	 * be kept alive and reused.
+	 * @param stream The stream to drain.
+	 * @param maxBytes The most bytes to read.
+	 * @return True if the end of the stream was reached, false if it was
+	 * longer than the maximum.
+	 * @throws IOException if reading the stream fails.
+	 */
+	public static boolean drain(InputStream stream, long maxBytes) throws IOException {
+		long remaining = Math.max(0, maxBytes);
+		// Read one byte past the maximum to tell whether the stream ends there,
+		// without overflowing when there is no real maximum
+		byte[] buffer = new byte[(remaining >= 4096) ? 4096 : (int) remaining + 1];
+		while (remaining >= 0) {
+			int count = (remaining >= buffer.length) ? buffer.length : (int) remaining + 1;
+			int read = stream.read(buffer, 0, count);
+			if (read < 0) {
+				return true;
+			}
+			remaining -= read;
+		}
+		return false;
+	}
+	
+	/**
+	 * Reads and discards the rest of the given stream, up to the given number
+	 * of bytes, and then closes it.
+	 * @param stream The stream to drain. May be null.
+	 * @param maxBytes The most bytes to read.
+	 * @return True if the end of the stream was reached, false if it was
+	 * longer than the maximum or reading it failed.
+	 * @see #drain(InputStream, long)
+	 */
+	public static boolean drainAndClose(InputStream stream, long maxBytes) {
+		if (stream == null) {
+			return true;
+		}
+		boolean drained = false;
+		try {
+			drained = drain(stream, maxBytes);
+		} catch (IOException e) {
+			drained = false;
+		} finally {
+			try {
+				stream.close();
+			} catch (IOException e) { }
+		}
+		return drained;
+	}
 }
@@ -0,0 +1,119 @@
+package com.raizlabs.webservicemanager;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link HttpEntity} which decides how to release the connection of a
+ * response once its content is consumed. If little enough of the body is
+ * left, it is drained so that the connection may be reused. Otherwise, the
+ * request is aborted and the connection discarded, rather than downloading
+ * the rest of a large body only to throw it away.
+ *
+ * @see RequestExecutionPool#setMaxDrainBytes(long)
+ */
+class ReleasingEntity extends HttpEntityWrapper {
+
+	/**
+	 * {@link InputStream} which counts the bytes read through it.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		long count;
+
+		public CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long count) throws IOException {
+			long skipped = super.skip(count);
+			this.count += skipped;
+			return skipped;
+		}
+	}
+
+	private final RequestExecutionPool pool;
+	private final HttpUriRequest request;
+	private CountingInputStream content;
+	private boolean released;
+
+	public ReleasingEntity(HttpEntity wrapped, RequestExecutionPool pool, HttpUriRequest request) {
+		super(wrapped);
+		this.pool = pool;
+		this.request = request;
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		if (content == null) {
+			InputStream wrappedContent = super.getContent();
+			if (wrappedContent == null) {
+				return null;
+			}
+			content = new CountingInputStream(wrappedContent);
+		}
+		return content;
+	}
+
+	@Override
+	public void consumeContent() throws IOException {
+		if (released) {
+			return;
+		}
+		released = true;
+
+		long maxDrainBytes = pool.getMaxDrainBytes();
+		long length = getContentLength();
+		long remaining = (length < 0) ? -1 : length - ((content == null) ? 0 : content.count);
+		if (remaining > maxDrainBytes || request.isAborted()) {
+			abort();
+			return;
+		}
+
+		boolean drained = false;
+		try {
+			InputStream stream = getContent();
+			drained = (stream == null) || HttpUtils.drain(stream, maxDrainBytes);
+		} catch (IOException e) {
+			// The connection is broken, so it can't be reused anyway
+		}
+
+		if (drained) {
+			// The body has been read to the end, so closing releases the
+			// connection for reuse
+			super.consumeContent();
+			pool.onResponseDrained();
+		} else {
+			abort();
+		}
+	}
+
+	private void abort() {
+		// Don't close the stream, as that would read the rest of the body
+		pool.abortRequest(request);
+		pool.onResponseAborted();
+	}
+}
@@ -2,14 +2,35 @@ package com.raizlabs.webservicemanager;
 
 import android.util.Log;
 
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.impl.client.AbstractHttpClient;
+import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
 
 import java.io.IOException;
-import java.util.HashSet;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A class which maintains a set of executing requests.
@@ -32,9 +53,79 @@ public class RequestExecutionPool {
 	public void setClientProvider(HttpClientProvider clientProvider) { this.clientProvider = clientProvider; }
 	
 	/**
-	 * The set of the currently executing requests
+	 * Executor which aborts requests for every pool by default. Aborting may
+	 * block, so it is done off the calling thread, but a single thread is
+	 * enough no matter how many requests are aborted at once. The thread
+	 * stops when it has been idle for a while.
 	 */
-	private HashSet<HttpUriRequest> pendingRequests;
+	private static final Executor DEFAULT_ABORT_EXECUTOR = new ThreadPoolExecutor(0, 1, 5, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "RequestExecutionPool Abort");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+	
+	private Executor abortExecutor = DEFAULT_ABORT_EXECUTOR;
+	/**
+	 * Sets the {@link Executor} which aborts requests passed to
+	 * {@link #abortRequest(HttpUriRequest)}. By default, a single thread
+	 * shared by every {@link RequestExecutionPool} is used.
+	 * @param executor The {@link Executor} to abort requests on.
+	 */
+	public void setAbortExecutor(Executor executor) {
+		this.abortExecutor = (executor == null) ? DEFAULT_ABORT_EXECUTOR : executor;
+	}
+	
+	private volatile long maxDrainBytes = Constants.Defaults.MaxDrainBytes;
+	/**
+	 * @return The most bytes of an unread response body which are drained so
+	 * that its connection may be reused.
+	 * @see #setMaxDrainBytes(long)
+	 */
+	public long getMaxDrainBytes() { return maxDrainBytes; }
+	/**
+	 * Sets the most bytes of an unread response body which are drained so
+	 * that its connection may be reused, when the content of a response
+	 * returned by this pool is consumed. If more than this is left, or the
+	 * request was aborted, the request is aborted and its connection
+	 * discarded instead of downloading the rest only to throw it away.
+	 * @param maxBytes The most bytes to drain, or zero to only reuse
+	 * connections whose body has been read to the end.
+	 * @see #getDrainedResponseCount()
+	 * @see #getAbortedResponseCount()
+	 */
+	public void setMaxDrainBytes(long maxBytes) { this.maxDrainBytes = maxBytes; }
+	
+	private final AtomicLong drainedResponses = new AtomicLong();
+	private final AtomicLong abortedResponses = new AtomicLong();
+	/**
+	 * @return The number of responses whose connection was kept for reuse when
+	 * they were released.
+	 * @see #setMaxDrainBytes(long)
+	 */
+	public long getDrainedResponseCount() { return drainedResponses.get(); }
+	/**
+	 * @return The number of responses whose connection was aborted and
+	 * discarded when they were released.
+	 * @see #setMaxDrainBytes(long)
+	 */
+	public long getAbortedResponseCount() { return abortedResponses.get(); }
+	
+	void onResponseDrained() {
+		drainedResponses.incrementAndGet();
+	}
+	
+	void onResponseAborted() {
+		abortedResponses.incrementAndGet();
+	}
+	
+	/**
+	 * The set of the currently executing requests. Only the keys are used.
+	 */
+	private ConcurrentHashMap<HttpUriRequest, Boolean> pendingRequests;
 	
 	/**
 	 * Constructs a new {@link RequestExecutionPool} with default parameters.
@@ -66,7 +157,7 @@ public class RequestExecutionPool {
 	}
 	
 	private void init() {
-		pendingRequests = new HashSet<HttpUriRequest>();
+		pendingRequests = new ConcurrentHashMap<HttpUriRequest, Boolean>();
 	}
 	
 	/**
@@ -81,7 +172,7 @@ public class RequestExecutionPool {
 		addRequest(request);
 		HttpContext context = new BasicHttpContext();
 		try {
-			return getClientProvider().getClient().execute(request, context);
+			return wrapResponse(getClientProvider().getClient().execute(request, context), request);
 		} catch (ClientProtocolException e) {
 			if (BuildConfig.DEBUG) {
 				Log.e(getClass().getName(), e.getMessage(), e);
@@ -106,46 +197,148 @@ public class RequestExecutionPool {
 	 */
 	public HttpResponse doRequestOrThrow(HttpUriRequest request) throws ClientProtocolException, IOException {
 		addRequest(request);
-		HttpResponse response = clientProvider.getClient().execute(request);
-		removeRequest(request);
+		try {
+			return wrapResponse(clientProvider.getClient().execute(request), request);
+		} finally {
+			removeRequest(request);
+		}
+	}
+	
+	/**
+	 * Opens connections to the host of the given {@link URI}, including any TLS
+	 * handshake, and leaves them idle in the connection pool of the current
+	 * client so that the next requests to the host don't have to set them up.
+	 * Connections which are already idle in the pool count towards the total.
+	 * This blocks until the connections are open, so it should not be called
+	 * on the main thread.
+	 * @param uri The {@link URI} of the host to connect to. Only the scheme,
+	 * host and port are used.
+	 * @param count The number of connections to have open. This should not be
+	 * more than the connection pool allows to a single host.
+	 * @param keepAliveMillis How long the connections may be left idle before
+	 * they are closed.
+	 * @return The number of connections which are open and idle.
+	 * @throws IOException if a connection could not be opened. Any which were
+	 * opened are still left in the pool.
+	 */
+	public int preconnect(URI uri, int count, long keepAliveMillis) throws IOException {
+		HttpClient client = getClientProvider().getClient();
+		ClientConnectionManager connManager = client.getConnectionManager();
+		HttpRoute route = getRoute(client, uri);
+		long timeout = HttpConnectionParams.getConnectionTimeout(client.getParams());
+		
+		// Hold every connection until they're all open, so that the pool
+		// gives us a different one each time
+		List<ManagedClientConnection> connections = new ArrayList<ManagedClientConnection>(count);
+		int opened = 0;
+		try {
+			for (int i = 0; i < count; i++) {
+				ManagedClientConnection connection;
+				try {
+					connection = connManager.requestConnection(route, null).getConnection(timeout, TimeUnit.MILLISECONDS);
+				} catch (ConnectionPoolTimeoutException e) {
+					// The pool is busy, so there is nothing to gain
+					break;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				connections.add(connection);
+				if (!connection.isOpen()) {
+					connection.open(route, new BasicHttpContext(), client.getParams());
+				}
+				connection.markReusable();
+				opened++;
+			}
+		} finally {
+			for (ManagedClientConnection connection : connections) {
+				if (!connection.isOpen()) {
+					connection.unmarkReusable();
+				}
+				connManager.releaseConnection(connection, keepAliveMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+		return opened;
+	}
+	
+	/**
+	 * Gets the route which requests to the given {@link URI} will take, so that
+	 * connections opened for it are reused by those requests.
+	 */
+	private static HttpRoute getRoute(HttpClient client, URI uri) throws IOException {
+		HttpHost target = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
+		if (client instanceof AbstractHttpClient) {
+			try {
+				return ((AbstractHttpClient) client).getRoutePlanner()
+						.determineRoute(target, new HttpHead(uri), new BasicHttpContext());
+			} catch (HttpException e) {
+				throw new IOException(e.getMessage());
+			}
+		}
+		Scheme scheme = client.getConnectionManager().getSchemeRegistry().getScheme(target.getSchemeName());
+		return new HttpRoute(target, null, scheme.isLayered());
+	}
+	
+	/**
+	 * Wraps the entity of the given response so that consuming its content
+	 * releases the connection according to {@link #setMaxDrainBytes(long)}.
+	 */
+	private HttpResponse wrapResponse(HttpResponse response, HttpUriRequest request) {
+		HttpEntity entity = (response == null) ? null : response.getEntity();
+		if (entity != null) {
+			response.setEntity(new ReleasingEntity(entity, this, request));
+		}
 		return response;
 	}
 	
 	private void addRequest(HttpUriRequest request) {
-		synchronized (pendingRequests) {
-			pendingRequests.add(request);
-		}
+		pendingRequests.put(request, Boolean.TRUE);
 	}
 	
 	private boolean removeRequest(HttpUriRequest request) {
-		synchronized (pendingRequests) {
-			return pendingRequests.remove(request);
-		}
+		return pendingRequests.remove(request) != null;
+	}
+	
+	/**
+	 * @return A snapshot of the requests which are currently executing.
+	 */
+	public List<HttpUriRequest> getPendingRequests() {
+		return new ArrayList<HttpUriRequest>(pendingRequests.keySet());
+	}
+	
+	/**
+	 * @return The number of requests which are currently executing.
+	 */
+	public int getPendingRequestCount() {
+		return pendingRequests.size();
 	}
 	
 	/**
-	 * Aborts the given {@link HttpUriRequest}.
+	 * Aborts the given {@link HttpUriRequest} asynchronously, via the abort
+	 * executor.
 	 * @param request
+	 * @see #setAbortExecutor(Executor)
 	 */
 	public void abortRequest(final HttpUriRequest request) {
-		new Thread(new Runnable() {
+		abortExecutor.execute(new Runnable() {
 			@Override
 			public void run() {
 				request.abort();
 				removeRequest(request);
 			}
-		}).start();
+		});
 	}
 	
 	/**
-	 * Aborts all currently executing requests.
+	 * Aborts all currently executing requests. Requests which start while
+	 * this is running may or may not be aborted.
 	 */
 	public void abortAllRequests() {
-		synchronized (pendingRequests) {
-			for (HttpUriRequest request : pendingRequests) {
+		for (HttpUriRequest request : pendingRequests.keySet()) {
+			// Only abort each request once, even if this is called concurrently
+			if (removeRequest(request)) {
 				request.abort();
 			}
-			pendingRequests.clear();
 		}
 	}
 }
@@ -0,0 +1,30 @@
+package com.raizlabs.webservicemanager.caching;
+
+import java.util.HashMap;
+
+/**
+ * Class which manages a set of locks for keys of a given type.
+ * @param <KeyType> The type of key which locks will be mapped to.
+ */
+class LockManager<KeyType> {
+	private HashMap<KeyType, Object> locks;
+
+	public LockManager() {
+		locks = new HashMap<KeyType, Object>();
+	}
+
+	public Object getLockForKey(KeyType key) {
+		Object lock = locks.get(key);
+		if (lock == null) {
+			synchronized (this) {
+				lock = locks.get(key);
+				if (lock == null) {
+					lock = new Object();
+					locks.put(key, lock);
+				}
+			}
+		}
+
+		return lock;
+	}
+}
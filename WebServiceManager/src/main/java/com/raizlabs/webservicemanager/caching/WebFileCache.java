@@ -14,6 +14,7 @@ import com.raizlabs.coreutils.concurrent.Prioritized.Priority;
 import com.raizlabs.coreutils.functions.Delegate;
 import com.raizlabs.webservicemanager.requests.RequestBuilder;
 import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+import com.raizlabs.webservicemanager.webservicemanager.RequestFuture;
 import com.raizlabs.webservicemanager.webservicemanager.ResultInfo;
 import com.raizlabs.webservicemanager.webservicemanager.WebServiceManager;
 import com.raizlabs.webservicemanager.webservicemanager.WebServiceRequestListener;
@@ -174,33 +175,6 @@ public abstract class WebFileCache<Key> {
 		}
 	}
 
-	/**
-	 * Class which manages a set of locks for keys of a given type.
-	 * @param <KeyType> The type of key which locks will be mapped to.
-	 */
-	private static class LockManager<KeyType> {
-		private HashMap<KeyType, Object> locks;
-
-		public LockManager() {
-			locks = new HashMap<KeyType, Object>();
-		}
-
-		public Object getLockForKey(KeyType key) {
-			Object lock = locks.get(key);
-			if (lock == null) {
-				synchronized (this) {
-					lock = locks.get(key);
-					if (lock == null) {
-						lock = new Object();
-						locks.put(key, lock);
-					}
-				}
-			}
-
-			return lock;
-		}
-	}
-
 
 	/**
 	 * Map of Events for download completion, containing all listeners.
@@ -210,6 +184,12 @@ public abstract class WebFileCache<Key> {
 	 * Set of keys which are currently downloading.
 	 */
 	private HashSet<Key> currentDownloads;
+	/**
+	 * Map of keys which are currently downloading to the futures for their
+	 * downloads, so that their priority can be raised. This is shared between
+	 * keys, which are locked separately, so it must be concurrent.
+	 */
+	private ConcurrentHashMap<Key, RequestFuture<Boolean>> downloadFutures;
 
 	private LockManager<Key> lockManager;
 
@@ -234,6 +214,7 @@ public abstract class WebFileCache<Key> {
 		this.webServiceManager = webManager;
 		cacheListeners = new ConcurrentHashMap<Key, CacheListenerSet>();
 		currentDownloads = new HashSet<Key>();
+		downloadFutures = new ConcurrentHashMap<Key, RequestFuture<Boolean>>();
 
 		HandlerThread handlerThread = new HandlerThread("WebFileCache(" + name + ") Background");
 		handlerThread.start();
@@ -361,6 +342,11 @@ public abstract class WebFileCache<Key> {
 						requestInfo.onFailed(info);
 					}
 				});
+				// Make sure the download runs at least as soon as this caller needs it
+				RequestFuture<Boolean> download = downloadFutures.get(key);
+				if (download != null && priority > download.getPriority()) {
+					download.setPriority(priority);
+				}
 				requestInfo.setCompleted(false);
 				requestInfo.addCacheListener(cacheListener);
 				return requestInfo;
@@ -403,7 +389,12 @@ public abstract class WebFileCache<Key> {
 			// Execute the request in the background with the specified priority
 			final WebServiceRequest<Boolean> download = getRequest(request, localFile);
 			requestInfo.request = download;
-			webServiceManager.doRequestInBackground(download, listener, priority);
+			RequestFuture<Boolean> future = webServiceManager.doRequestInBackground(download, listener, priority);
+			// The download may already have completed and been removed on this
+			// thread, in which case there is nothing left to prioritize
+			if (!future.isDone()) {
+				downloadFutures.put(key, future);
+			}
 			requestInfo.setCompleted(false);
 		}
 		return requestInfo;
@@ -609,6 +600,7 @@ public abstract class WebFileCache<Key> {
 		// while someone is subscribing
 		synchronized (getLockForKey(key)) {
 			currentDownloads.remove(key);
+			downloadFutures.remove(key);
 			completedDownloads.onDownloadComplete(file);
 
 			// Remove the event from the downloads, so no one can subscribe anymore
@@ -10,6 +10,8 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
 
 import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Arrays;
 import java.util.HashSet;
 
 /**
@@ -21,7 +23,7 @@ import java.util.HashSet;
  *
  * @param <ResultType> The type of object that this request will return.
  */
-public abstract class BaseWebServiceRequest<ResultType> implements WebServiceRequest<ResultType> {		
+public abstract class BaseWebServiceRequest<ResultType> implements ManagedWebServiceRequest<ResultType> {		
 	
 	/**
 	 * Gets the {@link RequestBuilder} to be used to execute this request.
@@ -37,7 +39,8 @@ public abstract class BaseWebServiceRequest<ResultType> implements WebServiceReq
 	/**
 	 * @return The {@link RequestBuilder} for this request. Only built once.
 	 */
-	private RequestBuilder getRequest() {
+	@Override
+	public RequestBuilder getBuilder() {
 		if (requestBuilder == null) {
 			requestBuilder = getRequestBuilder();
 		}
@@ -141,16 +144,98 @@ public abstract class BaseWebServiceRequest<ResultType> implements WebServiceReq
 		}
 	}
 	
+	@Override
+	public URI getURI() {
+		// Get the URI via the RequestBuilder
+		return getBuilder().getURI();
+	}
+	
+	/**
+	 * Called to determine whether this request may share its execution with
+	 * other equivalent requests. Subclasses should only return true if their
+	 * result depends on nothing but the response, so that it may be delivered
+	 * for every equivalent request. Defaults to false.
+	 * @return True if this request may share its execution.
+	 * @see #getCoalescingKey()
+	 */
+	protected boolean isCoalescable() {
+		return false;
+	}
+	
+	@Override
+	public Object getCoalescingKey() {
+		if (isCoalescable()) {
+			RequestBuilder builder = getBuilder();
+			Object requestKey = (builder == null) ? null : builder.getRequestKey();
+			if (requestKey != null) {
+				// Different request types translate the same response differently
+				return Arrays.asList(getClass(), requestKey);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Called to determine whether this request may be combined with other
+	 * requests to the same server into a single batch request. Subclasses
+	 * should only return true if the server supports batching and the
+	 * {@link com.raizlabs.webservicemanager.webservicemanager.BatchCodec} in
+	 * use knows how to encode this request and decode its result. Defaults to
+	 * false.
+	 * @return True if this request may be batched.
+	 * @see #getBatchKey()
+	 */
+	protected boolean isBatchable() {
+		return false;
+	}
+	
+	@Override
+	public Object getBatchKey() {
+		if (isBatchable()) {
+			URI uri = getURI();
+			if (uri != null && uri.getAuthority() != null) {
+				// Requests are batched per server
+				return uri.getScheme() + "://" + uri.getAuthority();
+			}
+		}
+		return null;
+	}
+	
+	private Object tag;
+	
+	/**
+	 * Sets the tag which groups this request with others so that they can be
+	 * cancelled together.
+	 * @see com.raizlabs.webservicemanager.webservicemanager.WebServiceManager#cancelGroup(Object)
+	 * @param tag The tag, or null to remove this request from its group.
+	 * @return This {@link BaseWebServiceRequest} to allow for chaining of calls.
+	 */
+	public BaseWebServiceRequest<ResultType> setTag(Object tag) {
+		this.tag = tag;
+		return this;
+	}
+	
+	@Override
+	public Object getTag() {
+		return tag;
+	}
+	
+	@Override
+	public long getDeadlineMillis() {
+		RequestBuilder builder = getBuilder();
+		return (builder == null) ? 0 : builder.getDeadlineMillis();
+	}
+	
 	@Override
 	public HttpURLConnection getUrlConnection() {
 		// Get the URL Connection via the RequestBuilder
-		return getRequest().getConnection();
+		return getBuilder().getConnection();
 	}
 
 	@Override
 	public HttpUriRequest getHttpUriRequest() {
 		// Get the URI Request via the RequestBuilder
-		return getRequest().getRequest();
+		return getBuilder().getRequest();
 	}
 
 	/**
@@ -163,26 +248,28 @@ public abstract class BaseWebServiceRequest<ResultType> implements WebServiceReq
 	public ResultType translateHTTPResponse(HttpResponse response, HttpMethod requestMethod) {
 		// Wrap the HttpResponse into a Response implementation
 		// and have subclasses translate it
-		final Response wrappedResponse = new HttpClientResponse(response, requestMethod);
-		ResultType result = translate(wrappedResponse);
-		// Close the response to free any resources
-		wrappedResponse.close();
-		return result;
+		return translateResponse(new HttpClientResponse(response, requestMethod));
 	}
 	public ResultType translateConnection(HttpURLConnection connection) {
 		// Wrap the connection into a Response implementation
 		// and have subclasses translate it
-		final Response wrappedResponse = new HttpURLConnectionResponse(connection);
-		ResultType result = translate(wrappedResponse);
-		// Close the response to free any resources
-		wrappedResponse.close();
-		return result;
-	};
+		return translateResponse(new HttpURLConnectionResponse(connection));
+	}
+	@Override
+	public ResultType translateResponse(Response response) {
+		try {
+			return translate(response);
+		} finally {
+			// Close the response to free any resources, even if translating
+			// it failed
+			response.close();
+		}
+	}
 	
 	@Override
 	public void onConnected(HttpURLConnection connection) {
 		// OnConnected, call the RequestBuilder
-		getRequest().onConnected(connection);
+		getBuilder().onConnected(connection);
 	}
 
 }
@@ -37,6 +37,11 @@ public class JSONArrayRequest extends BaseWebServiceRequest<JSONArray>{
 	protected RequestBuilder getRequestBuilder() {
 		return builder;
 	}
+	
+	@Override
+	protected boolean isCoalescable() {
+		return true;
+	}
 
 	@Override
 	protected JSONArray translate(Response response) {
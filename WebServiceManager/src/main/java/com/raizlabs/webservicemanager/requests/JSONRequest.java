@@ -37,6 +37,11 @@ public class JSONRequest extends BaseWebServiceRequest<JSONObject>{
 	protected RequestBuilder getRequestBuilder() {
 		return builder;
 	}
+	
+	@Override
+	protected boolean isCoalescable() {
+		return true;
+	}
 
 	@Override
 	protected JSONObject translate(Response response) {
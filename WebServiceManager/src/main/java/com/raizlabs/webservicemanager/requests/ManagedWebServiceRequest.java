@@ -0,0 +1,75 @@
+package com.raizlabs.webservicemanager.requests;
+
+import com.raizlabs.webservicemanager.responses.Response;
+
+import java.net.URI;
+
+/**
+ * Optional extension of {@link WebServiceRequest} which describes a request to
+ * the {@link com.raizlabs.webservicemanager.webservicemanager.WebServiceManager}
+ * executing it, enabling per host scheduling, coalescing, batching, groups,
+ * deadlines, pipelined translation and custom transports. Requests which only
+ * implement {@link WebServiceRequest} are still executed, just without these,
+ * unless the manager is subclassed to describe them instead.
+ * <br><br>
+ * {@link BaseWebServiceRequest} implements this interface.
+ *
+ * @param <ResultType> The type that this will return after the request is complete.
+ */
+public interface ManagedWebServiceRequest<ResultType> extends WebServiceRequest<ResultType> {
+	/**
+	 * @return The {@link URI} this request targets, or null if it is unknown.
+	 * This is used to determine which host the request will connect to.
+	 */
+	URI getURI();
+
+	/**
+	 * Gets a key which identifies the result of this request. Requests with
+	 * equal keys are expected to produce equivalent results, so one execution
+	 * may be shared between them.
+	 * @return The key, or null if this request may not share its execution.
+	 */
+	Object getCoalescingKey();
+
+	/**
+	 * Gets a key which identifies the batch endpoint this request may be sent
+	 * through. Requests with equal keys may be combined into a single request
+	 * by the {@link com.raizlabs.webservicemanager.webservicemanager.BatchCodec}
+	 * of the manager executing them.
+	 * @return The key, or null if this request may not be batched.
+	 */
+	Object getBatchKey();
+
+	/**
+	 * Gets the tag which groups this request with others, such as every request
+	 * made for one screen, so that they can be cancelled together.
+	 * @see com.raizlabs.webservicemanager.webservicemanager.WebServiceManager#cancelGroup(Object)
+	 * @return The tag, or null if this request isn't in a group.
+	 */
+	Object getTag();
+
+	/**
+	 * @return The total time, in milliseconds, this request may take from when
+	 * it is submitted, including time spent waiting to be executed, connecting,
+	 * transferring and translating. Zero if the request has no deadline.
+	 */
+	long getDeadlineMillis();
+
+	/**
+	 * Gets the transport neutral description of this request, which transports
+	 * other than {@link java.net.HttpURLConnection} and HttpClient may encode
+	 * it from.
+	 * @return The {@link RequestBuilder} for this request, or null if it only
+	 * supports the built in transports.
+	 */
+	RequestBuilder getBuilder();
+
+	/**
+	 * Translates the given {@link Response} into a ResultType object, and
+	 * closes it, even if translating it fails.
+	 * @param response The {@link Response} which was the result of this
+	 * request.
+	 * @return A ResultType object representing this response.
+	 */
+	ResultType translateResponse(Response response);
+}
@@ -34,6 +34,7 @@ import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -64,6 +65,7 @@ public class RequestBuilder {
 	protected LinkedHashMap<String, String> headers;
 	protected UsernamePasswordCredentials basicAuthCredentials;
 	protected int paramLocation = ParamLocation.AUTO;
+	protected long deadlineMillis;
 	
 	/**
 	 * Constructs a {@link RequestBuilder} using the given {@link HttpMethod}
@@ -108,6 +110,71 @@ public class RequestBuilder {
 		this.uri = uri;
 		return this;
 	}
+
+	/**
+	 * @return The target {@link URI} of this {@link RequestBuilder}, not
+	 * including any parameters.
+	 */
+	public URI getURI() {
+		return uri;
+	}
+
+	/**
+	 * @return The {@link HttpMethod} this {@link RequestBuilder} will use.
+	 */
+	public HttpMethod getMethod() {
+		return method;
+	}
+
+	/**
+	 * Sets the total time the request may take from when it is submitted to a
+	 * {@link com.raizlabs.webservicemanager.webservicemanager.WebServiceManager},
+	 * including time spent waiting to be executed, connecting, transferring and
+	 * translating. If the deadline passes while the request is queued, it is
+	 * dropped without being executed. If it passes while executing, the request
+	 * is aborted. Either way, the result is marked as expired.
+	 * @param deadlineMillis The deadline in milliseconds, or zero for no deadline.
+	 * @return This {@link RequestBuilder} object to allow for chaining of calls.
+	 */
+	public RequestBuilder setDeadlineMillis(long deadlineMillis) {
+		this.deadlineMillis = deadlineMillis;
+		return this;
+	}
+
+	/**
+	 * @return The total time the request may take, in milliseconds, or zero if
+	 * it has no deadline.
+	 * @see #setDeadlineMillis(long)
+	 */
+	public long getDeadlineMillis() {
+		return deadlineMillis;
+	}
+
+	/**
+	 * Gets a key which identifies the request that this {@link RequestBuilder}
+	 * will build, taking into account the method, URL, parameters and headers.
+	 * Builders which will build identical requests return equal keys.
+	 * @return The key for the request, or null if it is not a GET or HEAD request
+	 * without a body, in which case it can't be identified this way.
+	 */
+	public Object getRequestKey() {
+		if (method != HttpMethod.Get && method != HttpMethod.Head) {
+			return null;
+		}
+		if (inputStream != null || forcedBodyParams.size() > 0 ||
+				(params.size() > 0 && getParamLocationResolved() == ParamLocation.BODY)) {
+			return null;
+		}
+
+		String authUser = null, authPassword = null;
+		if (basicAuthCredentials != null) {
+			authUser = basicAuthCredentials.getUserName();
+			authPassword = basicAuthCredentials.getPassword();
+		}
+
+		return Arrays.asList(method, uri, new LinkedHashMap<String, String>(params),
+				new LinkedHashMap<String, String>(headers), authUser, authPassword);
+	}
 	
 	/**
 	 * Adds a parameter to this request.
@@ -579,44 +646,122 @@ public class RequestBuilder {
 	 * @param connection The opened connection
 	 */
 	public void onConnected(HttpURLConnection connection) {
-		// If we have params and this is a put, we need to write them here
-		boolean shouldAddNormalParams = (params.size() > 0 && (getParamLocationResolved() == ParamLocation.BODY));
-		boolean shouldAddForcedBodyParams = (forcedBodyParams.size() > 0);
-		LinkedHashMap<String, String> bodyParams = null;
-		
-		if (shouldAddNormalParams && shouldAddForcedBodyParams) {
-			bodyParams = new LinkedHashMap<String, String>();
-			bodyParams.putAll(params);
-			bodyParams.putAll(forcedBodyParams);
-		} else if (shouldAddNormalParams) {
-			bodyParams = params;
-		} else if (shouldAddForcedBodyParams) {
-			bodyParams = forcedBodyParams;
-		}
-		
-		if (bodyParams != null) {
-			// Convert the params to a query string, and write it to the body.
-			String query = getQueryString(bodyParams);
+		if (hasBody()) {
 			try {
-				connection.getOutputStream().write(query.getBytes());
+				writeBody(connection.getOutputStream());
 			} catch (IOException e) {
 				if (BuildConfig.DEBUG) {
 					Log.e(getClass().getName(), e.getMessage(), e);
 				}
 			}
 		}
+	}
+	
+	/**
+	 * Gets the URL to request, including any params which are sent in the URL.
+	 * Used by transports which don't use {@link #getConnection()} or
+	 * {@link #getRequest()}.
+	 * @return The URL to request.
+	 */
+	public String getRequestUrl() {
+		return getUrl();
+	}
+	
+	/**
+	 * Gets the headers to send, including any basic auth.
+	 * @return A map of header names to values.
+	 */
+	public Map<String, String> getRequestHeaders() {
+		LinkedHashMap<String, String> requestHeaders = new LinkedHashMap<String, String>(headers);
+		if (basicAuthCredentials != null) {
+			Header authHeader = BasicScheme.authenticate(basicAuthCredentials, Charset.defaultCharset().name(), false);
+			requestHeaders.put(authHeader.getName(), authHeader.getValue());
+		}
+		return requestHeaders;
+	}
+	
+	/**
+	 * @return True if the request this builder builds can be sent again after
+	 * a failed attempt. This is not the case for requests which send the
+	 * contents of an input stream, as the stream is consumed by the first
+	 * attempt.
+	 */
+	public boolean canResend() {
+		return inputStream == null;
+	}
+	
+	/**
+	 * @return True if this request sends a body, written by
+	 * {@link #writeBody(OutputStream)}.
+	 */
+	public boolean hasBody() {
+		return (getBodyParams() != null) || (inputStream != null);
+	}
+	
+	/**
+	 * @return The content type of the body, or null if it isn't known, such as
+	 * when the body is given by an input stream.
+	 */
+	public String getBodyContentType() {
+		if (inputStream == null && getBodyParams() != null) {
+			return "application/x-www-form-urlencoded";
+		}
+		return null;
+	}
+	
+	/**
+	 * @return The length of the body in bytes, or zero if there is no body.
+	 */
+	public long getBodyLength() {
+		long length = 0;
+		LinkedHashMap<String, String> bodyParams = getBodyParams();
+		if (bodyParams != null) {
+			length += getQueryString(bodyParams).getBytes().length;
+		}
+		if (inputStream != null) {
+			length += inputStreamLength;
+		}
+		return length;
+	}
+	
+	/**
+	 * Writes the body of this request to the given stream. Any params which
+	 * are sent in the body are written first, followed by the input stream.
+	 * The stream is closed if there was an input stream to write.
+	 * @param out The stream to write to.
+	 * @throws IOException if writing failed.
+	 */
+	public void writeBody(OutputStream out) throws IOException {
+		LinkedHashMap<String, String> bodyParams = getBodyParams();
+		if (bodyParams != null) {
+			// Convert the params to a query string, and write it to the body.
+			out.write(getQueryString(bodyParams).getBytes());
+		}
 		
 		// If we have an input stream, we need to write it to the body
 		if (inputStream != null) {
-			try {
-				OutputStream out = connection.getOutputStream();
-				writeToStream(out);
-			} catch (IOException e) {
-				if (BuildConfig.DEBUG) {
-					Log.e(getClass().getName(), e.getMessage(), e);
-				}
-			}
+			writeToStream(out);
+		}
+	}
+	
+	/**
+	 * @return The params which are sent in the body, or null if there are none.
+	 */
+	private LinkedHashMap<String, String> getBodyParams() {
+		boolean shouldAddNormalParams = (params.size() > 0 && (getParamLocationResolved() == ParamLocation.BODY));
+		boolean shouldAddForcedBodyParams = (forcedBodyParams.size() > 0);
+		
+		if (shouldAddNormalParams && shouldAddForcedBodyParams) {
+			LinkedHashMap<String, String> bodyParams = new LinkedHashMap<String, String>();
+			bodyParams.putAll(params);
+			bodyParams.putAll(forcedBodyParams);
+			return bodyParams;
+		} else if (shouldAddNormalParams) {
+			return params;
+		} else if (shouldAddForcedBodyParams) {
+			return forcedBodyParams;
 		}
+		return null;
 	}
 
 	/**
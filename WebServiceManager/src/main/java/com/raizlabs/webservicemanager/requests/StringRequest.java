@@ -35,6 +35,11 @@ public class StringRequest extends BaseWebServiceRequest<String>{
 	protected RequestBuilder getRequestBuilder() {
 		return builder;
 	}
+	
+	@Override
+	protected boolean isCoalescable() {
+		return true;
+	}
 
 	@Override
 	protected String translate(Response response) {
@@ -0,0 +1,324 @@
+package com.raizlabs.webservicemanager.responses;
+
+import android.text.TextUtils;
+
+import com.raizlabs.coreutils.io.IOUtils;
+import com.raizlabs.webservicemanager.Constants;
+import com.raizlabs.webservicemanager.HttpMethod;
+import com.raizlabs.webservicemanager.HttpUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link Response} implementation which holds a copy of a response whose
+ * body has already been read to the end. This allows the connection to be
+ * released before the response is translated, so that slow translations,
+ * such as decoding large JSON or images, don't hold on to a connection.
+ * <br><br>
+ * The body is held in chunks from a {@link ResponseBufferPool}, or in a
+ * temporary file if it is too large. Both are released when the response
+ * is closed, so the content must not be read after that.
+ */
+public class BufferedResponse extends BaseResponse {
+
+	/**
+	 * Reads the response of the given connection, including its body, into a
+	 * {@link BufferedResponse}. Once this returns, the connection has been
+	 * released so that the platform may reuse it, or disconnected if its
+	 * body couldn't be read to the end.
+	 * @param connection The {@link HttpURLConnection} to read.
+	 * @param pool The {@link ResponseBufferPool} to hold the body in.
+	 * @return The {@link BufferedResponse}, which must be closed once it is
+	 * no longer needed.
+	 * @throws IOException if reading the response fails.
+	 */
+	public static BufferedResponse read(HttpURLConnection connection, ResponseBufferPool pool) throws IOException {
+		return read(connection, pool, Constants.Defaults.MaxDrainBytes);
+	}
+
+	/**
+	 * Reads the response of the given connection, including its body, into a
+	 * {@link BufferedResponse}.
+	 * @param connection The {@link HttpURLConnection} to read.
+	 * @param pool The {@link ResponseBufferPool} to hold the body in.
+	 * @param maxDrainBytes The most bytes of an error body which are read
+	 * and discarded so that the connection may be reused. If more than this
+	 * is left, the connection is disconnected instead.
+	 * @return The {@link BufferedResponse}, which must be closed once it is
+	 * no longer needed.
+	 * @throws IOException if reading the response fails.
+	 * @see #read(HttpURLConnection, ResponseBufferPool)
+	 */
+	public static BufferedResponse read(HttpURLConnection connection, ResponseBufferPool pool, long maxDrainBytes)
+			throws IOException {
+		BufferedResponse response = new BufferedResponse(connection, pool);
+
+		InputStream content;
+		try {
+			content = connection.getInputStream();
+		} catch (IOException e) {
+			// Error responses have no body stream, so keep the failure to
+			// report when the content is requested, as the connection would
+			response.contentException = e;
+			InputStream errorContent = connection.getErrorStream();
+			if (errorContent == null || !HttpUtils.drainAndClose(errorContent, maxDrainBytes)) {
+				connection.disconnect();
+			}
+			return response;
+		}
+
+		try {
+			response.readContent(content);
+		} catch (IOException e) {
+			response.close();
+			throw e;
+		} finally {
+			IOUtils.safeClose(content);
+		}
+		return response;
+	}
+
+	private final ResponseBufferPool pool;
+	private final int responseCode;
+	private final String responseMessage;
+	private final String contentEncoding;
+	private final long contentLength;
+	private final String contentType;
+	private final HttpMethod requestMethod;
+	private final Map<String, String> headers;
+
+	private final List<byte[]> chunks = new ArrayList<byte[]>();
+	private long length;
+	private File file;
+	private IOException contentException;
+	private boolean closed;
+
+	private BufferedResponse(HttpURLConnection connection, ResponseBufferPool pool) throws IOException {
+		this.pool = pool;
+		this.responseCode = connection.getResponseCode();
+		this.responseMessage = connection.getResponseMessage();
+		this.contentEncoding = connection.getContentEncoding();
+		this.contentLength = connection.getContentLength();
+		this.contentType = connection.getContentType();
+		this.requestMethod = HttpMethod.fromName(connection.getRequestMethod());
+
+		// Header names are case insensitive, and like the connection, we
+		// return the last value of a repeated header
+		this.headers = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		Map<String, List<String>> fields = connection.getHeaderFields();
+		if (fields != null) {
+			for (Map.Entry<String, List<String>> field : fields.entrySet()) {
+				List<String> values = field.getValue();
+				// The status line is keyed by null
+				if (field.getKey() != null && values != null && !values.isEmpty()) {
+					headers.put(field.getKey(), values.get(values.size() - 1));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the given stream to its end, into chunks from the pool while it
+	 * fits in memory, and into a temporary file after that.
+	 */
+	private void readContent(InputStream content) throws IOException {
+		long maxMemoryBytes = pool.getMaxMemoryBytes();
+		while (length < maxMemoryBytes) {
+			byte[] chunk = pool.obtain();
+			chunks.add(chunk);
+			int count = fill(content, chunk);
+			length += count;
+			if (count < chunk.length) {
+				return;
+			}
+		}
+
+		// Only move to a file if there is actually more to read
+		int next = content.read();
+		if (next < 0) {
+			return;
+		}
+
+		file = File.createTempFile("response", null, pool.getTempDirectory());
+		OutputStream out = null;
+		byte[] buffer = null;
+		try {
+			out = new FileOutputStream(file);
+			for (int i = 0; i < chunks.size(); i++) {
+				out.write(chunks.get(i), 0, getChunkLength(i));
+			}
+			releaseChunks();
+
+			out.write(next);
+			length++;
+			buffer = pool.obtain();
+			int read;
+			while ((read = content.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+				length += read;
+			}
+		} finally {
+			IOUtils.safeClose(out);
+			if (buffer != null) {
+				pool.recycle(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Reads from the given stream until the given chunk is full or the end of
+	 * the stream is reached.
+	 * @return The number of bytes read.
+	 */
+	private static int fill(InputStream content, byte[] chunk) throws IOException {
+		int count = 0;
+		while (count < chunk.length) {
+			int read = content.read(chunk, count, chunk.length - count);
+			if (read < 0) {
+				break;
+			}
+			count += read;
+		}
+		return count;
+	}
+
+	private int getChunkLength(int index) {
+		long start = (long) index * pool.getChunkSize();
+		return (int) Math.min(pool.getChunkSize(), length - start);
+	}
+
+	private void releaseChunks() {
+		for (byte[] chunk : chunks) {
+			pool.recycle(chunk);
+		}
+		chunks.clear();
+	}
+
+	/**
+	 * @return The number of bytes of the body which were read.
+	 */
+	public long getBufferedLength() {
+		return length;
+	}
+
+	@Override
+	public boolean containsHeader(String name) {
+		return !TextUtils.isEmpty(getHeaderValue(name));
+	}
+
+	@Override
+	public String getHeaderValue(String name) {
+		return (name == null) ? null : headers.get(name);
+	}
+
+	@Override
+	public int getResponseCode() {
+		return responseCode;
+	}
+
+	@Override
+	public String getResponseMessage() {
+		return responseMessage;
+	}
+
+	@Override
+	public String getContentEncoding() {
+		return contentEncoding;
+	}
+
+	@Override
+	public long getContentLength() {
+		return contentLength;
+	}
+
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public synchronized InputStream getContentStream() throws IOException {
+		if (contentException != null) {
+			throw contentException;
+		}
+		if (closed) {
+			return null;
+		}
+		if (file != null) {
+			return new FileInputStream(file);
+		}
+		return new ChunkInputStream();
+	}
+
+	@Override
+	public HttpMethod getRequestMethod() {
+		return requestMethod;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			closed = true;
+			releaseChunks();
+			if (file != null) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * {@link InputStream} which reads the chunks of the body in order.
+	 */
+	private class ChunkInputStream extends InputStream {
+		private long position;
+
+		@Override
+		public int read() throws IOException {
+			if (position >= length) {
+				return -1;
+			}
+			int chunkSize = pool.getChunkSize();
+			byte b = chunks.get((int) (position / chunkSize))[(int) (position % chunkSize)];
+			position++;
+			return b & 0xff;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int count) throws IOException {
+			if (count == 0) {
+				return 0;
+			}
+			if (position >= length) {
+				return -1;
+			}
+			int chunkSize = pool.getChunkSize();
+			int chunkOffset = (int) (position % chunkSize);
+			int read = (int) Math.min(Math.min(count, chunkSize - chunkOffset), length - position);
+			System.arraycopy(chunks.get((int) (position / chunkSize)), chunkOffset, buffer, offset, read);
+			position += read;
+			return read;
+		}
+
+		@Override
+		public long skip(long count) throws IOException {
+			long skipped = Math.max(0, Math.min(count, length - position));
+			position += skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(Integer.MAX_VALUE, length - position);
+		}
+	}
+}
@@ -109,6 +109,8 @@ public class HttpClientResponse extends BaseResponse {
 		// Not doing this may leave the connection open and can be dangerous
 		// if reusing the client.
 		// See: https://groups.google.com/forum/?fromgroups=#!topic/android-developers/uL8ah41voW4
+		// For responses from a RequestExecutionPool, this drains the rest of a
+		// small body, or aborts the connection if a large body is left.
 		if (response != null) {
 			HttpEntity entity = response.getEntity();
 			if (entity != null) {
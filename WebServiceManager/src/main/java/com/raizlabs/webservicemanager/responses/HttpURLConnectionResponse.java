@@ -2,27 +2,91 @@ package com.raizlabs.webservicemanager.responses;
 
 import android.text.TextUtils;
 
+import com.raizlabs.coreutils.io.IOUtils;
+import com.raizlabs.webservicemanager.Constants;
 import com.raizlabs.webservicemanager.HttpMethod;
+import com.raizlabs.webservicemanager.HttpUtils;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 
 /**
  * {@link Response} implementation which wraps an {@link HttpURLConnection}.
+ * Closing the response disconnects the connection, unless it was created to
+ * reuse the connection.
  * @author Dylan James
  *
  */
 public class HttpURLConnectionResponse extends BaseResponse {
+	/**
+	 * {@link InputStream} which drains what is left of the body when it is
+	 * closed, so that the connection may be reused.
+	 */
+	private static class DrainingInputStream extends FilterInputStream {
+		private final long maxDrainBytes;
+		private boolean closed;
+
+		public DrainingInputStream(InputStream in, long maxDrainBytes) {
+			super(in);
+			this.maxDrainBytes = maxDrainBytes;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				closed = true;
+				HttpUtils.drainAndClose(in, maxDrainBytes);
+			}
+		}
+	}
+
 	private HttpURLConnection connection;
+	private boolean reuseConnection;
+	private long maxDrainBytes;
+	private InputStream content;
 	
 	/**
 	 * Creates an {@link HttpURLConnectionResponse} from the given
-	 * {@link HttpURLConnection}.
+	 * {@link HttpURLConnection}, which disconnects the connection when it is
+	 * closed.
 	 * @param connection The actual connection.
 	 */
 	public HttpURLConnectionResponse(HttpURLConnection connection) {
+		this(connection, false);
+	}
+
+	/**
+	 * Creates an {@link HttpURLConnectionResponse} from the given
+	 * {@link HttpURLConnection}.
+	 * @param connection The actual connection.
+	 * @param reuseConnection True to release the connection when the response
+	 * is closed rather than disconnecting it, once its body has been opened:
+	 * the rest of a small body is read and the stream closed, so that the
+	 * platform may keep the connection alive and reuse it. Whoever executed
+	 * the request is then responsible for disconnecting the connection if it
+	 * should not be reused.
+	 */
+	public HttpURLConnectionResponse(HttpURLConnection connection, boolean reuseConnection) {
+		this(connection, reuseConnection, Constants.Defaults.MaxDrainBytes);
+	}
+
+	/**
+	 * Creates an {@link HttpURLConnectionResponse} from the given
+	 * {@link HttpURLConnection}.
+	 * @param connection The actual connection.
+	 * @param reuseConnection True to release the connection when the response
+	 * is closed rather than disconnecting it.
+	 * @param maxDrainBytes The most bytes of the body which are read when the
+	 * response is closed so that the connection may be reused. If more than
+	 * this is left, the connection isn't released.
+	 * @see #HttpURLConnectionResponse(HttpURLConnection, boolean)
+	 */
+	public HttpURLConnectionResponse(HttpURLConnection connection, boolean reuseConnection, long maxDrainBytes) {
 		this.connection = connection;
+		this.reuseConnection = reuseConnection;
+		this.maxDrainBytes = maxDrainBytes;
 	}
 
 	@Override
@@ -70,7 +134,16 @@ public class HttpURLConnectionResponse extends BaseResponse {
 
 	@Override
 	public InputStream getContentStream() throws IOException {
-		return connection == null ? null : connection.getInputStream();
+		if (connection == null) {
+			return null;
+		}
+		if (!reuseConnection) {
+			return connection.getInputStream();
+		}
+		if (content == null) {
+			content = new DrainingInputStream(connection.getInputStream(), maxDrainBytes);
+		}
+		return content;
 	}
 	
 	@Override
@@ -81,7 +154,20 @@ public class HttpURLConnectionResponse extends BaseResponse {
 	@Override
 	public void close() {
 		if (connection != null) {
-			connection.disconnect();
+			if (!reuseConnection) {
+				connection.disconnect();
+			} else if (content != null) {
+				IOUtils.safeClose(content);
+			} else {
+				// Error responses have their body in the error stream, which
+				// is only available once a response has been received
+				InputStream errorContent = connection.getErrorStream();
+				if (errorContent == null || !HttpUtils.drainAndClose(errorContent, maxDrainBytes)) {
+					// Opening the body now could start connecting again, so
+					// the connection can't be released
+					connection.disconnect();
+				}
+			}
 		}
 	}
 }
@@ -0,0 +1,105 @@
+package com.raizlabs.webservicemanager.responses;
+
+import com.raizlabs.webservicemanager.Constants;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class which provides the memory that {@link BufferedResponse}s read their
+ * bodies into. Bodies are held in fixed size chunks, which are kept for
+ * reuse once a response is closed, up to a limit. Bodies which are larger
+ * than {@link #getMaxMemoryBytes()} are written to a temporary file instead.
+ * <br><br>
+ * This class is thread-safe.
+ */
+public class ResponseBufferPool {
+	private static final int DEFAULT_CHUNK_SIZE = 8 * 1024;
+	private static final int DEFAULT_MAX_POOLED_CHUNKS = 32;
+
+	private final int chunkSize;
+	private final int maxPooledChunks;
+	private final ConcurrentLinkedQueue<byte[]> chunks = new ConcurrentLinkedQueue<byte[]>();
+	private final AtomicInteger pooledChunkCount = new AtomicInteger();
+
+	/**
+	 * Constructs a {@link ResponseBufferPool} with the default chunk size,
+	 * which keeps up to 256KB of chunks for reuse.
+	 */
+	public ResponseBufferPool() {
+		this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_POOLED_CHUNKS);
+	}
+
+	/**
+	 * Constructs a {@link ResponseBufferPool}.
+	 * @param chunkSize The size of each chunk in bytes.
+	 * @param maxPooledChunks The most chunks to keep for reuse. Any more which
+	 * are released are left to be garbage collected.
+	 */
+	public ResponseBufferPool(int chunkSize, int maxPooledChunks) {
+		this.chunkSize = chunkSize;
+		this.maxPooledChunks = maxPooledChunks;
+	}
+
+	/**
+	 * @return The size of each chunk in bytes.
+	 */
+	public int getChunkSize() { return chunkSize; }
+
+	private volatile long maxMemoryBytes = Constants.Defaults.MaxBufferedResponseMemoryBytes;
+	/**
+	 * @return The largest body which is held in memory.
+	 * @see #setMaxMemoryBytes(long)
+	 */
+	public long getMaxMemoryBytes() { return maxMemoryBytes; }
+	/**
+	 * Sets the largest body which is held in memory. Larger bodies are
+	 * written to a temporary file in {@link #getTempDirectory()}.
+	 * @param maxBytes The most bytes of a single body to hold in memory.
+	 */
+	public void setMaxMemoryBytes(long maxBytes) { this.maxMemoryBytes = maxBytes; }
+
+	private volatile File tempDirectory;
+	/**
+	 * @return The directory that large bodies are written to, or null to use
+	 * the default temporary directory.
+	 * @see #setTempDirectory(File)
+	 */
+	public File getTempDirectory() { return tempDirectory; }
+	/**
+	 * Sets the directory that bodies which are too large to hold in memory
+	 * are written to. Applications will usually want to pass their cache
+	 * directory.
+	 * @param directory The directory to write to, or null to use the default
+	 * temporary directory.
+	 */
+	public void setTempDirectory(File directory) { this.tempDirectory = directory; }
+
+	/**
+	 * @return A chunk of {@link #getChunkSize()} bytes, reused if possible.
+	 */
+	byte[] obtain() {
+		byte[] chunk = chunks.poll();
+		if (chunk != null) {
+			pooledChunkCount.decrementAndGet();
+			return chunk;
+		}
+		return new byte[chunkSize];
+	}
+
+	/**
+	 * Returns the given chunk to the pool, so that it may be reused.
+	 * @param chunk The chunk, which must no longer be used.
+	 */
+	void recycle(byte[] chunk) {
+		if (chunk.length != chunkSize) {
+			return;
+		}
+		if (pooledChunkCount.incrementAndGet() <= maxPooledChunks) {
+			chunks.offer(chunk);
+		} else {
+			pooledChunkCount.decrementAndGet();
+		}
+	}
+}
@@ -30,6 +30,24 @@ import javax.net.ssl.SSLSocket;
  */
 public class SimpleSSLSocketFactory implements SocketFactory, LayeredSocketFactory {
 
+	/**
+	 * Interface for a listener which is told when TLS handshakes start and
+	 * end. It is called on the thread which is opening the connection.
+	 */
+	public interface HandshakeListener {
+		/**
+		 * Called when a handshake with the given host starts.
+		 * @param host The host being connected to.
+		 */
+		public void onHandshakeStart(String host);
+		/**
+		 * Called when a handshake with the given host ends.
+		 * @param host The host being connected to.
+		 * @param succeeded True if the handshake completed successfully.
+		 */
+		public void onHandshakeEnd(String host, boolean succeeded);
+	}
+
 	private static SSLContext createSSLContext(@NonNull TrustManager trustManager, @NonNull TLS tls) {
 		try {
 			SSLContext context = SSLContext.getInstance(tls.getVersion());
@@ -50,17 +68,26 @@ public class SimpleSSLSocketFactory implements SocketFactory, LayeredSocketFacto
 	 * Sets the {@link TrustManager} to use to verify SSL Sockets.
 	 * @param manager The trust manager to use.
 	 */
-	public void setTrustManager(TrustManager manager, @NonNull TLS tls) {
+	public synchronized void setTrustManager(TrustManager manager, @NonNull TLS tls) {
 		this.trustManager = manager;
 		this.tls = tls;
 		this.sslContext = null;
 	}
 	
+	private HandshakeListener handshakeListener;
+	/**
+	 * Sets the listener to tell about TLS handshakes.
+	 * @param listener The {@link HandshakeListener} to call, or null.
+	 */
+	public void setHandshakeListener(HandshakeListener listener) {
+		this.handshakeListener = listener;
+	}
+	
 	private SSLContext sslContext;
 	/**
 	 * @return The SSL Context to use to create sockets
 	 */
-	public SSLContext getSSLContext() {
+	public synchronized SSLContext getSSLContext() {
 		if (sslContext == null) {
 			sslContext = createSSLContext(trustManager, tls);
 		}
@@ -81,6 +108,7 @@ public class SimpleSSLSocketFactory implements SocketFactory, LayeredSocketFacto
 	public Socket createSocket(Socket socket, String host, int port,
 			boolean autoClose) throws IOException {
 		SSLSocket sslSock = (SSLSocket) getSSLContext().getSocketFactory().createSocket(socket, host, port, autoClose);
+		handshake(host, sslSock);
 		if (!verifySocket(host, sslSock)) {
 			throw new IOException("Server was not trusted!");
 		}
@@ -118,9 +146,29 @@ public class SimpleSSLSocketFactory implements SocketFactory, LayeredSocketFacto
 		}
 		sslsock.connect(remoteAddress, connTimeout);
 		sslsock.setSoTimeout(soTimeout);
+		handshake(host, sslsock);
 		return sslsock;
 	}
 
+	/**
+	 * Performs the handshake of the given socket now, rather than when it is
+	 * first used, so that it can be reported to the {@link HandshakeListener}.
+	 */
+	private void handshake(String host, SSLSocket socket) throws IOException {
+		HandshakeListener listener = handshakeListener;
+		if (listener == null) {
+			return;
+		}
+		listener.onHandshakeStart(host);
+		boolean succeeded = false;
+		try {
+			socket.startHandshake();
+			succeeded = true;
+		} finally {
+			listener.onHandshakeEnd(host, succeeded);
+		}
+	}
+
 	private boolean verifySocket(String host, SSLSocket socket) {
 		return trustManager == null || trustManager.verify(host, socket.getSession());
 	}
@@ -0,0 +1,72 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+/**
+ * {@link ConcurrencyLimit} which uses additive increase, multiplicative
+ * decrease. The limit grows by one for each successful request made while at
+ * least half of the limit is in use, and is reduced by a ratio whenever a
+ * request is dropped or takes longer than the timeout.
+ */
+public class AIMDConcurrencyLimit implements ConcurrencyLimit {
+
+	private static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+	private int minLimit;
+	private int maxLimit;
+	private double backoffRatio;
+	private long timeoutMillis;
+
+	private int limit;
+
+	/**
+	 * Constructs an {@link AIMDConcurrencyLimit} which backs off by 10% when a
+	 * request is dropped.
+	 * @param initialLimit The limit to start with.
+	 * @param minLimit The lowest the limit may go.
+	 * @param maxLimit The highest the limit may go.
+	 * @param timeoutMillis The time, in milliseconds, after which a successful
+	 * request is still treated as dropped.
+	 */
+	public AIMDConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long timeoutMillis) {
+		this(initialLimit, minLimit, maxLimit, timeoutMillis, DEFAULT_BACKOFF_RATIO);
+	}
+
+	/**
+	 * Constructs an {@link AIMDConcurrencyLimit}.
+	 * @param initialLimit The limit to start with.
+	 * @param minLimit The lowest the limit may go.
+	 * @param maxLimit The highest the limit may go.
+	 * @param timeoutMillis The time, in milliseconds, after which a successful
+	 * request is still treated as dropped.
+	 * @param backoffRatio The ratio to multiply the limit by when a request is
+	 * dropped, which must be between 0 and 1.
+	 */
+	public AIMDConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long timeoutMillis, double backoffRatio) {
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= maxLimit");
+		}
+		if (backoffRatio <= 0 || backoffRatio >= 1) {
+			throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+		}
+
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.timeoutMillis = timeoutMillis;
+		this.backoffRatio = backoffRatio;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+	}
+
+	@Override
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public void onSample(long rttMillis, int inFlight, boolean dropped) {
+		if (dropped || rttMillis > timeoutMillis) {
+			limit = Math.max(minLimit, (int) (limit * backoffRatio));
+		} else if (inFlight * 2 >= limit) {
+			// Only grow while the limit is actually being used
+			limit = Math.min(maxLimit, limit + 1);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+
+/**
+ * {@link RequestEventListener} which does nothing, so that implementations
+ * only need to override the events they are interested in.
+ */
+public abstract class BaseRequestEventListener implements RequestEventListener {
+
+	@Override
+	public void onRequestQueued(WebServiceRequest<?> request, long time) { }
+
+	@Override
+	public void onRequestDequeued(WebServiceRequest<?> request, long time) { }
+
+	@Override
+	public void onConnectionAcquired(WebServiceRequest<?> request, long time) { }
+
+	@Override
+	public void onConnectStart(WebServiceRequest<?> request, long time) { }
+
+	@Override
+	public void onSecureConnectStart(WebServiceRequest<?> request, long time) { }
+
+	@Override
+	public void onSecureConnectEnd(WebServiceRequest<?> request, long time) { }
+
+	@Override
+	public void onConnectEnd(WebServiceRequest<?> request, long time) { }
+
+	@Override
+	public void onResponseHeaders(WebServiceRequest<?> request, long time, int responseCode) { }
+
+	@Override
+	public void onResponseBodyRead(WebServiceRequest<?> request, long time, long byteCount) { }
+
+	@Override
+	public void onTranslateStart(WebServiceRequest<?> request, long time) { }
+
+	@Override
+	public void onTranslateEnd(WebServiceRequest<?> request, long time) { }
+
+	@Override
+	public void onConnectionReleased(WebServiceRequest<?> request, long time) { }
+
+	@Override
+	public void onRequestComplete(WebServiceRequest<?> request, long time, ResultInfo<?> result) { }
+}
@@ -20,7 +20,7 @@ import java.util.Date;
  *
  * @param <ResultType> The type of the result which will be returned
  */
-public class BasicResultInfo<ResultType> implements ResultInfo<ResultType>{
+public class BasicResultInfo<ResultType> implements ManagedResultInfo<ResultType>{
 	Date RequestDate;
 	public Date getRequestDate() { return RequestDate; }
 	ResultType Result;
@@ -40,6 +40,27 @@ public class BasicResultInfo<ResultType> implements ResultInfo<ResultType>{
 	public boolean wasCancelled() { return cancelled; }
 	public void setCancelled(boolean cancelled) { this.cancelled = cancelled; }
 	
+	boolean expired;
+	/**
+	 * @return True if the deadline of the request passed before it completed.
+	 */
+	public boolean wasExpired() { return expired; }
+	public void setExpired(boolean expired) { this.expired = expired; }
+	
+	boolean rejected;
+	/**
+	 * @return True if the request was rejected because the queue was full.
+	 */
+	public boolean wasRejected() { return rejected; }
+	public void setRejected(boolean rejected) { this.rejected = rejected; }
+	
+	RequestTimings timings;
+	/**
+	 * @return The summary of where the time of the request went.
+	 */
+	public RequestTimings getTimings() { return timings; }
+	public void setTimings(RequestTimings timings) { this.timings = timings; }
+	
 	/**
 	 * Creates a {@link BasicResultInfo} by wrapping the given result and
 	 * {@link HttpURLConnection}.
@@ -66,6 +87,20 @@ public class BasicResultInfo<ResultType> implements ResultInfo<ResultType>{
 	}
 	
 	
+	/**
+	 * Creates a {@link BasicResultInfo} for a result which wasn't read directly
+	 * from a connection, such as one part of the response to a batch request.
+	 * @param result The result of the request.
+	 * @param requestDate The {@link Date} the request was completed.
+	 * @param responseCode The response code of the request.
+	 * @param responseMessage The response message of the request, or null.
+	 */
+	public BasicResultInfo(ResultType result, Date requestDate, int responseCode, String responseMessage) {
+		this(result, requestDate);
+		this.ResponseCode = responseCode;
+		this.ResponseMessage = responseMessage;
+	}
+	
 	private BasicResultInfo(ResultType result, Date requestDate) {
 		this.Result = result;
 		this.RequestDate = requestDate;
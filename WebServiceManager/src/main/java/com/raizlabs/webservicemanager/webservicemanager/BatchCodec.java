@@ -0,0 +1,28 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+
+import java.util.List;
+
+/**
+ * Interface which combines a set of batchable requests into a single request
+ * to a batch endpoint, and splits the response of that request back into the
+ * results of each of the combined requests.
+ *
+ * @see WebServiceManager#setBatching(BatchCodec, long, int)
+ * @see WebServiceManager#getBatchKey(WebServiceRequest)
+ */
+public interface BatchCodec {
+	/**
+	 * Creates the request which executes all of the given requests at once.
+	 * The result of the returned request must contain one {@link ResultInfo}
+	 * for each of the given requests, in the same order, whose result is of
+	 * the result type of that request. {@link BasicResultInfo} may be used to
+	 * build these. If the result is null or has the wrong number of parts,
+	 * every request fails.
+	 * @param batchKey The batch key shared by the requests.
+	 * @param requests The requests to combine. There are always at least two.
+	 * @return The combined request, which may not be null.
+	 */
+	WebServiceRequest<List<ResultInfo<?>>> createBatchRequest(Object batchKey, List<WebServiceRequest<?>> requests);
+}
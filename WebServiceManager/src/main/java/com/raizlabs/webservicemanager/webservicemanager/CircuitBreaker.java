@@ -0,0 +1,326 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import java.util.HashMap;
+
+/**
+ * Class which tracks the failures of requests to each host and stops sending
+ * requests to hosts which appear to be down, so that they fail fast instead
+ * of each waiting for a timeout while holding a connection.
+ * <br><br>
+ * The circuit for each host starts {@link State#CLOSED}, letting every request
+ * through. Once enough of the recent requests to a host have failed, it
+ * opens, failing requests without sending them. After a while it becomes
+ * {@link State#HALF_OPEN} and lets a few probe requests through: if they
+ * succeed the circuit closes, otherwise it opens again. Only the outcomes
+ * of the probes themselves count while half open, so that a request which
+ * was let through before the circuit opened can't close it.
+ *
+ * @see WebServiceManager#setCircuitBreaker(CircuitBreaker)
+ */
+public class CircuitBreaker {
+
+	/**
+	 * Returned by {@link #allowRequest(String)} when the request should fail
+	 * fast instead of being sent.
+	 */
+	public static final long REJECTED = -1;
+	/**
+	 * Returned by {@link #allowRequest(String)} when the request may be sent
+	 * and isn't a probe.
+	 */
+	public static final long ALLOWED = 0;
+
+	/**
+	 * Enum of the states of the circuit for a host.
+	 */
+	public enum State {
+		/**
+		 * Requests are sent normally.
+		 */
+		CLOSED,
+		/**
+		 * Requests fail immediately without being sent.
+		 */
+		OPEN,
+		/**
+		 * A limited number of probe requests are sent to test whether the
+		 * host has recovered.
+		 */
+		HALF_OPEN,
+	}
+
+	/**
+	 * The state of the circuit for a single host.
+	 */
+	private static class HostCircuit {
+		State state = State.CLOSED;
+
+		/**
+		 * The outcomes of the most recent requests, as a ring buffer.
+		 */
+		boolean[] failures;
+		int nextIndex;
+		int recorded;
+		int failureCount;
+
+		long openedTime;
+		long probeStartTime;
+		/**
+		 * The permit given to the probes of the current round.
+		 */
+		long probePermit;
+		int probesStarted;
+		int probesSucceeded;
+
+		public HostCircuit(int windowSize) {
+			failures = new boolean[windowSize];
+		}
+
+		void record(boolean failed) {
+			if (recorded == failures.length) {
+				// Overwrite the oldest outcome
+				if (failures[nextIndex]) {
+					failureCount--;
+				}
+			} else {
+				recorded++;
+			}
+
+			failures[nextIndex] = failed;
+			if (failed) {
+				failureCount++;
+			}
+			nextIndex = (nextIndex + 1) % failures.length;
+		}
+
+		void reset() {
+			for (int i = 0; i < failures.length; i++) {
+				failures[i] = false;
+			}
+			nextIndex = 0;
+			recorded = 0;
+			failureCount = 0;
+		}
+	}
+
+	private int windowSize = 20;
+	private int minimumRequests = 10;
+	private double failureRateThreshold = 0.5;
+	private long openDurationMillis = 10000;
+	private int probeCount = 1;
+	private long lastProbePermit = ALLOWED;
+
+	private final HashMap<String, HostCircuit> circuits = new HashMap<String, HostCircuit>();
+
+	/**
+	 * Sets the number of recent requests to each host which the failure rate
+	 * is measured over. Changing this resets every circuit.
+	 * @param windowSize The number of requests.
+	 * @return This {@link CircuitBreaker} object to allow for chaining of calls.
+	 */
+	public synchronized CircuitBreaker setWindowSize(int windowSize) {
+		if (windowSize < 1) {
+			throw new IllegalArgumentException("Window size must be positive");
+		}
+		this.windowSize = windowSize;
+		circuits.clear();
+		return this;
+	}
+
+	/**
+	 * Sets the failure rate at which the circuit for a host opens, and the
+	 * number of requests which must have been made before it may open.
+	 * @param failureRate The fraction of recent requests which must have
+	 * failed, between 0 and 1.
+	 * @param minimumRequests The minimum number of recent requests.
+	 * @return This {@link CircuitBreaker} object to allow for chaining of calls.
+	 */
+	public synchronized CircuitBreaker setFailureRateThreshold(double failureRate, int minimumRequests) {
+		if (failureRate <= 0 || failureRate > 1) {
+			throw new IllegalArgumentException("Failure rate must be greater than 0 and at most 1");
+		}
+		this.failureRateThreshold = failureRate;
+		this.minimumRequests = minimumRequests;
+		return this;
+	}
+
+	/**
+	 * Sets how long the circuit for a host stays open before probing whether
+	 * the host has recovered. This is also how long probes may take before
+	 * new probes are allowed.
+	 * @param openDurationMillis The time, in milliseconds.
+	 * @return This {@link CircuitBreaker} object to allow for chaining of calls.
+	 */
+	public synchronized CircuitBreaker setOpenDuration(long openDurationMillis) {
+		this.openDurationMillis = openDurationMillis;
+		return this;
+	}
+
+	/**
+	 * Sets the number of probe requests which are let through while half open,
+	 * all of which must succeed for the circuit to close.
+	 * @param probeCount The number of probe requests.
+	 * @return This {@link CircuitBreaker} object to allow for chaining of calls.
+	 */
+	public synchronized CircuitBreaker setProbeCount(int probeCount) {
+		if (probeCount < 1) {
+			throw new IllegalArgumentException("There must be at least one probe");
+		}
+		this.probeCount = probeCount;
+		return this;
+	}
+
+	/**
+	 * Gets the current state of the circuit for the given host.
+	 * @param host The key of the host.
+	 * @return The {@link State} of the circuit.
+	 */
+	public synchronized State getState(String host) {
+		HostCircuit circuit = circuits.get(host);
+		if (circuit == null) {
+			return State.CLOSED;
+		}
+		updateState(circuit, QueueDiscipline.now());
+		return circuit.state;
+	}
+
+	/**
+	 * Called before a request is sent to the given host to determine whether
+	 * it may be sent. If this doesn't return {@link #REJECTED}, the outcome
+	 * of the request should be reported with the returned permit via
+	 * {@link #onResult(String, long, boolean)}, or
+	 * {@link #onSkipped(String, long)} if it has none.
+	 * @param host The key of the host.
+	 * @return {@link #REJECTED} if the request should fail fast,
+	 * {@link #ALLOWED} if it may be sent, or a positive permit if it may be
+	 * sent as a probe.
+	 */
+	public synchronized long allowRequest(String host) {
+		HostCircuit circuit = circuits.get(host);
+		if (circuit == null) {
+			return ALLOWED;
+		}
+
+		final long now = QueueDiscipline.now();
+		updateState(circuit, now);
+		switch (circuit.state) {
+		case OPEN:
+			return REJECTED;
+		case HALF_OPEN:
+			if (circuit.probesStarted >= probeCount) {
+				// If the probes haven't reported back in time, allow new ones
+				if (now - circuit.probeStartTime < openDurationMillis) {
+					return REJECTED;
+				}
+				startProbes(circuit, now);
+			}
+			circuit.probesStarted++;
+			return circuit.probePermit;
+		default:
+			return ALLOWED;
+		}
+	}
+
+	/**
+	 * Reports the outcome of a request to the given host.
+	 * @param host The key of the host.
+	 * @param permit The permit the request was given by
+	 * {@link #allowRequest(String)}.
+	 * @param failed True if the request failed in a way which indicates that
+	 * the host is unhealthy.
+	 */
+	public synchronized void onResult(String host, long permit, boolean failed) {
+		HostCircuit circuit = circuits.get(host);
+		if (circuit == null) {
+			if (!failed) {
+				// Don't track healthy hosts until they fail
+				return;
+			}
+			circuit = new HostCircuit(windowSize);
+			circuits.put(host, circuit);
+		}
+
+		final long now = QueueDiscipline.now();
+		switch (circuit.state) {
+		case CLOSED:
+			circuit.record(failed);
+			if (circuit.recorded >= minimumRequests &&
+					circuit.failureCount >= failureRateThreshold * circuit.recorded) {
+				open(circuit, now);
+			}
+			break;
+		case HALF_OPEN:
+			// Only the probes of this round tell us whether the host recovered
+			if (!isCurrentProbe(circuit, permit)) {
+				break;
+			}
+			if (failed) {
+				open(circuit, now);
+			} else if (++circuit.probesSucceeded >= probeCount) {
+				circuit.state = State.CLOSED;
+				circuit.reset();
+			}
+			break;
+		default:
+			// Requests which were sent before the circuit opened don't matter
+			break;
+		}
+	}
+
+	/**
+	 * Reports that a request which was let through by
+	 * {@link #allowRequest(String)} finished without an outcome, such as
+	 * because it was cancelled or passed its deadline before it got a
+	 * response. If it was a probe, another request may probe in its place.
+	 * @param host The key of the host.
+	 * @param permit The permit the request was given by
+	 * {@link #allowRequest(String)}.
+	 */
+	public synchronized void onSkipped(String host, long permit) {
+		HostCircuit circuit = circuits.get(host);
+		if (circuit != null && circuit.state == State.HALF_OPEN && isCurrentProbe(circuit, permit) &&
+				circuit.probesStarted > circuit.probesSucceeded) {
+			circuit.probesStarted--;
+		}
+	}
+
+	/**
+	 * @param host The key of the host.
+	 * @return The time, in milliseconds, until the circuit for the given host
+	 * will let probe requests through, or 0 if it isn't open.
+	 */
+	public synchronized long getTimeUntilProbe(String host) {
+		HostCircuit circuit = circuits.get(host);
+		if (circuit == null || circuit.state != State.OPEN) {
+			return 0;
+		}
+		return Math.max(0, circuit.openedTime + openDurationMillis - QueueDiscipline.now());
+	}
+
+	private void open(HostCircuit circuit, long now) {
+		circuit.state = State.OPEN;
+		circuit.openedTime = now;
+	}
+
+	private void updateState(HostCircuit circuit, long now) {
+		if (circuit.state == State.OPEN && now - circuit.openedTime >= openDurationMillis) {
+			circuit.state = State.HALF_OPEN;
+			startProbes(circuit, now);
+		}
+	}
+
+	/**
+	 * Starts a new round of probes, so that the outcomes of any earlier
+	 * probes no longer count.
+	 */
+	private void startProbes(HostCircuit circuit, long now) {
+		circuit.probeStartTime = now;
+		circuit.probePermit = ++lastProbePermit;
+		circuit.probesStarted = 0;
+		circuit.probesSucceeded = 0;
+	}
+
+	private static boolean isCurrentProbe(HostCircuit circuit, long permit) {
+		return permit > ALLOWED && permit == circuit.probePermit;
+	}
+}
@@ -0,0 +1,43 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import java.util.Date;
+
+/**
+ * {@link FailedResultInfo} for a request which was never sent because the
+ * {@link CircuitBreaker} for its host was open.
+ *
+ * @param <ResultType> The type of the result of the request.
+ */
+public class CircuitOpenResultInfo<ResultType> extends FailedResultInfo<ResultType> {
+
+	private String host;
+	private long retryAfterMillis;
+
+	/**
+	 * Constructs a {@link CircuitOpenResultInfo}.
+	 * @param requestDate The {@link Date} the request was made.
+	 * @param host The key of the host whose circuit was open.
+	 * @param retryAfterMillis The time, in milliseconds, until the circuit
+	 * will let probe requests through.
+	 */
+	public CircuitOpenResultInfo(Date requestDate, String host, long retryAfterMillis) {
+		super(requestDate);
+		this.host = host;
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * @return The key of the host whose circuit was open.
+	 */
+	public String getHost() {
+		return host;
+	}
+
+	/**
+	 * @return The time, in milliseconds, from when the request failed until
+	 * the circuit would let probe requests through.
+	 */
+	public long getRetryAfterMillis() {
+		return retryAfterMillis;
+	}
+}
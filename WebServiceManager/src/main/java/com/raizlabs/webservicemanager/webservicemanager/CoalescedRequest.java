@@ -0,0 +1,158 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.coreutils.listeners.ProgressListener;
+import com.raizlabs.webservicemanager.HttpMethod;
+import com.raizlabs.webservicemanager.requests.ManagedWebServiceRequest;
+import com.raizlabs.webservicemanager.requests.RequestBuilder;
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+import com.raizlabs.webservicemanager.responses.Response;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Date;
+
+/**
+ * {@link WebServiceRequest} which shares a single execution between a set of
+ * equivalent requests. The first request is used to build and translate the
+ * shared execution, and the result is delivered to the listener of every
+ * subscribed request.
+ * <br><br>
+ * Cancellation is reference counted, as described by {@link SharedRequest}.
+ *
+ * @param <ResultType> The type of the result of the requests.
+ */
+class CoalescedRequest<ResultType> extends SharedRequest<ResultType, SharedRequest.Member<ResultType>> {
+
+	private WebServiceManager manager;
+	private WebServiceRequest<ResultType> request;
+
+	/**
+	 * Constructs a {@link CoalescedRequest} which executes the given request on
+	 * behalf of all its subscribers.
+	 * @param manager The {@link WebServiceManager} which describes the request.
+	 * @param request The {@link WebServiceRequest} to build and translate the
+	 * shared execution with.
+	 */
+	public CoalescedRequest(WebServiceManager manager, WebServiceRequest<ResultType> request) {
+		this.manager = manager;
+		this.request = request;
+	}
+
+	/**
+	 * Subscribes the given request to the result of this shared execution.
+	 * @param request The {@link WebServiceRequest} which is subscribing.
+	 * @param listener The {@link WebServiceRequestListener} to call with the
+	 * result. Optional.
+	 * @param priority The priority the request was made with.
+	 * @return True if the request was subscribed, or false if this execution has
+	 * already been abandoned and a new one must be started.
+	 */
+	public boolean addSubscriber(WebServiceRequest<ResultType> request, WebServiceRequestListener<ResultType> listener,
+			int priority) {
+		return join(new Member<ResultType>(request, listener, priority));
+	}
+
+	/**
+	 * Delivers the result of the shared execution to every subscriber. Subscribers
+	 * which have been cancelled receive a cancelled failure instead.
+	 * @param manager The {@link WebServiceManager} which executed the request.
+	 * @param result The result of the shared execution.
+	 */
+	public void onRequestComplete(WebServiceManager manager, ResultInfo<ResultType> result) {
+		for (Member<ResultType> subscriber : finish()) {
+			if (subscriber.listener != null) {
+				ResultInfo<ResultType> subscriberResult = result;
+				if (subscriber.request.isCancelled()) {
+					subscriberResult = new FailedResultInfo<ResultType>(result == null ? new Date() : result.getRequestDate());
+					subscriberResult.setCancelled(true);
+				}
+				subscriber.listener.onRequestComplete(manager, subscriberResult);
+			}
+		}
+	}
+
+	/**
+	 * @return True if the shared request can translate a {@link Response}.
+	 * @see WebServiceManager#canTranslateResponse(WebServiceRequest)
+	 */
+	boolean canTranslateResponse() {
+		return WebServiceManager.canTranslateResponse(request);
+	}
+
+	@Override
+	public URI getURI() {
+		return manager.getURI(request);
+	}
+
+	@Override
+	public Object getCoalescingKey() {
+		return manager.getCoalescingKey(request);
+	}
+
+	@Override
+	public Object getBatchKey() {
+		return manager.getBatchKey(request);
+	}
+
+	@Override
+	public Object getTag() {
+		// Each subscriber is cancelled through its own group
+		return null;
+	}
+
+	@Override
+	public long getDeadlineMillis() {
+		return manager.getDeadlineMillis(request);
+	}
+
+	@Override
+	public RequestBuilder getBuilder() {
+		if (request instanceof ManagedWebServiceRequest) {
+			return ((ManagedWebServiceRequest<ResultType>) request).getBuilder();
+		}
+		return null;
+	}
+
+	@Override
+	public HttpUriRequest getHttpUriRequest() {
+		return request.getHttpUriRequest();
+	}
+
+	@Override
+	public HttpURLConnection getUrlConnection() {
+		return request.getUrlConnection();
+	}
+
+	@Override
+	public void onConnected(HttpURLConnection connection) {
+		request.onConnected(connection);
+	}
+
+	@Override
+	public ResultType translateConnection(HttpURLConnection connection) {
+		return request.translateConnection(connection);
+	}
+
+	@Override
+	public ResultType translateHTTPResponse(HttpResponse response, HttpMethod requestMethod) {
+		return request.translateHTTPResponse(response, requestMethod);
+	}
+
+	@Override
+	public ResultType translateResponse(Response response) {
+		return ((ManagedWebServiceRequest<ResultType>) request).translateResponse(response);
+	}
+
+	@Override
+	public void addProgressListener(ProgressListener listener) {
+		request.addProgressListener(listener);
+	}
+
+	@Override
+	public boolean removeProgressListener(ProgressListener listener) {
+		return request.removeProgressListener(listener);
+	}
+}
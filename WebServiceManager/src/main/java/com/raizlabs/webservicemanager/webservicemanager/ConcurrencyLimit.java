@@ -0,0 +1,33 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+/**
+ * Interface for an algorithm which adjusts the number of concurrent
+ * connections based on the latency and failures of completed requests.
+ * <br><br>
+ * Every method is called while synchronized on the {@link WebServiceManager}'s
+ * scheduler, so implementations don't need to be thread-safe, but they should
+ * return quickly.
+ *
+ * @see AIMDConcurrencyLimit
+ * @see GradientConcurrencyLimit
+ * @see WebServiceManager#setConcurrencyLimit(ConcurrencyLimit)
+ */
+public interface ConcurrencyLimit {
+	/**
+	 * @return The current number of connections which may be used concurrently.
+	 */
+	public int getLimit();
+
+	/**
+	 * Called when a request has finished with its connection, to update the
+	 * limit.
+	 * @param rttMillis The time, in milliseconds, from sending the request until
+	 * the response was received or the request failed.
+	 * @param inFlight The number of connections in use when the request finished,
+	 * including its own.
+	 * @param dropped True if the request failed in a way which indicates
+	 * congestion, such as a timeout, a connection failure or an overloaded
+	 * server.
+	 */
+	public void onSample(long rttMillis, int inFlight, boolean dropped);
+}
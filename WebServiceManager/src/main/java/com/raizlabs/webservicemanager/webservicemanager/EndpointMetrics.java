@@ -0,0 +1,128 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+/**
+ * Snapshot of the metrics of the requests to one endpoint: a host and a
+ * normalized path template, over the interval of a {@link MetricsSnapshot}.
+ *
+ * @see MetricsRegistry
+ */
+public class EndpointMetrics {
+
+	private final String host;
+	private final String path;
+	private final long requestCount;
+	private final long errorCount;
+	private final long retryCount;
+	private final long cancelledCount;
+	private final long cacheHitCount;
+	private final long responseBytes;
+	private final long[] latencyCounts;
+	private final long latencyCount;
+	private final long latencySum;
+	private final long maxLatency;
+
+	EndpointMetrics(String host, String path, long requestCount, long errorCount, long retryCount,
+			long cancelledCount, long cacheHitCount, long responseBytes,
+			long[] latencyCounts, long latencyCount, long latencySum, long maxLatency) {
+		this.host = host;
+		this.path = path;
+		this.requestCount = requestCount;
+		this.errorCount = errorCount;
+		this.retryCount = retryCount;
+		this.cancelledCount = cancelledCount;
+		this.cacheHitCount = cacheHitCount;
+		this.responseBytes = responseBytes;
+		this.latencyCounts = latencyCounts;
+		this.latencyCount = latencyCount;
+		this.latencySum = latencySum;
+		this.maxLatency = maxLatency;
+	}
+
+	/**
+	 * @return The key of the host, or {@link MetricsRegistry#OVERFLOW_KEY} for
+	 * requests which didn't fit in the registry.
+	 */
+	public String getHost() { return host; }
+
+	/**
+	 * @return The normalized path template, or
+	 * {@link MetricsRegistry#OVERFLOW_KEY} for requests which didn't fit in
+	 * the registry.
+	 */
+	public String getPath() { return path; }
+
+	/**
+	 * @return The number of requests which completed.
+	 */
+	public long getRequestCount() { return requestCount; }
+
+	/**
+	 * @return The number of requests which completed without a successful
+	 * response, not counting cancelled requests.
+	 */
+	public long getErrorCount() { return errorCount; }
+
+	/**
+	 * @return The number of times requests were retried.
+	 */
+	public long getRetryCount() { return retryCount; }
+
+	/**
+	 * @return The number of requests which were cancelled.
+	 */
+	public long getCancelledCount() { return cancelledCount; }
+
+	/**
+	 * @return The number of requests whose response told us that our cached
+	 * copy was still valid (304 Not Modified).
+	 */
+	public long getCacheHitCount() { return cacheHitCount; }
+
+	/**
+	 * @return The number of bytes of response bodies which were read, where
+	 * it is known.
+	 * @see RequestTimings#getResponseBytes()
+	 */
+	public long getResponseBytes() { return responseBytes; }
+
+	/**
+	 * @return The number of latencies recorded. This may be less than the
+	 * request count, as requests which were never executed aren't included.
+	 */
+	public long getLatencyCount() { return latencyCount; }
+
+	/**
+	 * @return The mean latency in milliseconds, or 0 if none was recorded.
+	 */
+	public double getMeanLatency() {
+		return (latencyCount == 0) ? 0 : (double) latencySum / latencyCount;
+	}
+
+	/**
+	 * @return The highest latency in milliseconds.
+	 */
+	public long getMaxLatency() { return maxLatency; }
+
+	/**
+	 * Gets the latency at the given percentile, to within about 6%.
+	 * @param percentile The percentile, between 0 and 1.
+	 * @return The latency in milliseconds, or 0 if none was recorded.
+	 */
+	public long getLatencyPercentile(double percentile) {
+		return Math.min(maxLatency, LatencyHistogram.getValueAtPercentile(latencyCounts, latencyCount, percentile));
+	}
+
+	@Override
+	public String toString() {
+		return "EndpointMetrics [" + host + " " + path +
+				", requests=" + requestCount +
+				", errors=" + errorCount +
+				", retries=" + retryCount +
+				", cancelled=" + cancelledCount +
+				", cacheHits=" + cacheHitCount +
+				", bytes=" + responseBytes +
+				", p50=" + getLatencyPercentile(0.5) +
+				", p99=" + getLatencyPercentile(0.99) +
+				", max=" + maxLatency + "]";
+	}
+}
@@ -9,10 +9,13 @@ import java.util.Date;
  *
  * @param <ResultType>
  */
-public class FailedResultInfo<ResultType> implements ResultInfo<ResultType>{
+public class FailedResultInfo<ResultType> implements ManagedResultInfo<ResultType>{
 
 	private Date requestDate;
 	private boolean cancelled;
+	private boolean expired;
+	private boolean rejected;
+	private RequestTimings timings;
 	
 	public FailedResultInfo() {
 		cancelled = false;
@@ -56,4 +59,34 @@ public class FailedResultInfo<ResultType> implements ResultInfo<ResultType>{
 	public boolean wasCancelled() {
 		return cancelled;
 	}
+
+	@Override
+	public void setExpired(boolean expired) {
+		this.expired = expired;
+	}
+
+	@Override
+	public boolean wasExpired() {
+		return expired;
+	}
+
+	@Override
+	public void setRejected(boolean rejected) {
+		this.rejected = rejected;
+	}
+
+	@Override
+	public boolean wasRejected() {
+		return rejected;
+	}
+
+	@Override
+	public void setTimings(RequestTimings timings) {
+		this.timings = timings;
+	}
+
+	@Override
+	public RequestTimings getTimings() {
+		return timings;
+	}
 }
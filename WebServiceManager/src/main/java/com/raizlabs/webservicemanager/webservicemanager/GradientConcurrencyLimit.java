@@ -0,0 +1,76 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+/**
+ * {@link ConcurrencyLimit} which compares the latency of recent requests to
+ * the lowest latency seen, which approximates the latency without any
+ * queueing. While latency stays near the minimum the limit grows, and as
+ * requests start to queue and latency rises, the limit shrinks in proportion.
+ * <br><br>
+ * The minimum latency is forgotten periodically so that the limit can adapt
+ * when the network changes, such as when moving from Wi-Fi to cellular.
+ */
+public class GradientConcurrencyLimit implements ConcurrencyLimit {
+
+	private static final double SMOOTHING = 0.2;
+	private static final double BACKOFF_RATIO = 0.9;
+	private static final int MIN_RTT_RESET_SAMPLES = 500;
+
+	private int minLimit;
+	private int maxLimit;
+
+	private double limit;
+	private long minRttMillis;
+	private double averageRttMillis;
+	private int samplesSinceReset;
+
+	/**
+	 * Constructs a {@link GradientConcurrencyLimit}.
+	 * @param initialLimit The limit to start with.
+	 * @param minLimit The lowest the limit may go.
+	 * @param maxLimit The highest the limit may go.
+	 */
+	public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= maxLimit");
+		}
+
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		this.minRttMillis = -1;
+	}
+
+	@Override
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	@Override
+	public void onSample(long rttMillis, int inFlight, boolean dropped) {
+		if (dropped) {
+			limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+			return;
+		}
+
+		// Don't let zero latencies from very fast responses divide by zero
+		rttMillis = Math.max(rttMillis, 1);
+		if (minRttMillis < 0 || rttMillis < minRttMillis || ++samplesSinceReset >= MIN_RTT_RESET_SAMPLES) {
+			minRttMillis = rttMillis;
+			averageRttMillis = rttMillis;
+			samplesSinceReset = 0;
+		}
+		averageRttMillis = averageRttMillis * (1 - SMOOTHING) + rttMillis * SMOOTHING;
+
+		// Don't grow the limit beyond what is actually being used
+		if (inFlight * 2 < limit) {
+			return;
+		}
+
+		double gradient = Math.max(0.5, Math.min(1.0, minRttMillis / averageRttMillis));
+		// Leave room for some queueing so the limit can grow when latency is flat
+		double queueSize = Math.sqrt(limit);
+		double newLimit = limit * gradient + queueSize;
+		limit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+		limit = Math.max(minLimit, Math.min(maxLimit, limit));
+	}
+}
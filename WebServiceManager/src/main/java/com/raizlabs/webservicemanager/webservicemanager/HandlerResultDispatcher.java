@@ -0,0 +1,99 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ResultDispatcher} which calls listeners on the thread of a
+ * {@link Handler}. Rather than posting a message for every result, results
+ * which arrive close together are collected and delivered by a single message,
+ * at most once per frame. This keeps a burst of results, such as the images
+ * of a scrolling list, from flooding the main thread with messages.
+ */
+public class HandlerResultDispatcher extends ResultDispatcher {
+
+	private static final long DEFAULT_FRAME_INTERVAL_MILLIS = 16;
+
+	private final Handler handler;
+	private long frameIntervalMillis = DEFAULT_FRAME_INTERVAL_MILLIS;
+
+	private final Object lock = new Object();
+	private List<Runnable> pendingCallbacks = new ArrayList<Runnable>();
+	private boolean deliveryPosted;
+	private long lastDeliveryTime;
+
+	private final Runnable deliverPending = new Runnable() {
+		@Override
+		public void run() {
+			List<Runnable> callbacks;
+			synchronized (lock) {
+				callbacks = pendingCallbacks;
+				pendingCallbacks = new ArrayList<Runnable>();
+				deliveryPosted = false;
+				lastDeliveryTime = SystemClock.uptimeMillis();
+			}
+
+			// Run every callback even if one throws, so that one failing
+			// listener doesn't drop the results of the other requests
+			RuntimeException failure = null;
+			for (Runnable callback : callbacks) {
+				try {
+					callback.run();
+				} catch (RuntimeException e) {
+					if (failure == null) {
+						failure = e;
+					}
+				}
+			}
+
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	};
+
+	/**
+	 * Constructs a {@link HandlerResultDispatcher} which calls listeners on the
+	 * thread of the given {@link Handler}.
+	 * @param handler The {@link Handler} to post results to.
+	 */
+	public HandlerResultDispatcher(Handler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * Sets the shortest time between the messages which deliver results.
+	 * Defaults to 16 milliseconds, which is a single frame at 60 frames per
+	 * second.
+	 * @param intervalMillis The interval in milliseconds, or zero to deliver
+	 * results as soon as the thread is free.
+	 * @return This {@link HandlerResultDispatcher} object to allow for chaining
+	 * of calls.
+	 */
+	public HandlerResultDispatcher setFrameInterval(long intervalMillis) {
+		synchronized (lock) {
+			this.frameIntervalMillis = intervalMillis;
+		}
+		return this;
+	}
+
+	@Override
+	public void dispatch(Runnable callback) {
+		boolean post;
+		long deliveryTime;
+		synchronized (lock) {
+			pendingCallbacks.add(callback);
+			post = !deliveryPosted;
+			deliveryPosted = true;
+			deliveryTime = Math.max(SystemClock.uptimeMillis(), lastDeliveryTime + frameIntervalMillis);
+		}
+
+		// Results which arrive before the delivery runs are delivered with it
+		if (post) {
+			handler.postAtTime(deliverPending, deliveryTime);
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class which races an attempt at a request against a hedge: a duplicate
+ * attempt which is started if the first hasn't got a response after a delay.
+ * The first attempt to get a response wins and the other is aborted. Only
+ * getting the response is raced, so that the response is only ever consumed
+ * once.
+ *
+ * @param <Handle> The type which represents a single attempt.
+ * @param <Response> The type of the response of an attempt.
+ */
+abstract class HedgedExecution<Handle, Response> {
+
+	private final long delayMillis;
+	private final Object lock = new Object();
+	private final List<Handle> attempts = new ArrayList<Handle>();
+	private Handle primary;
+	private Handle winner;
+	private Response response;
+	private IOException failure;
+	private int running;
+	private boolean done;
+	private boolean aborted;
+
+	/**
+	 * Constructs a {@link HedgedExecution}.
+	 * @param delayMillis The time to wait for a response from the primary
+	 * attempt before starting the hedge.
+	 */
+	public HedgedExecution(long delayMillis) {
+		this.delayMillis = delayMillis;
+	}
+
+	/**
+	 * Called on a background thread to claim whatever a hedge needs before it
+	 * is started.
+	 * @return True if the hedge may be started.
+	 */
+	protected abstract boolean beginHedge();
+
+	/**
+	 * Called on a background thread to release what was claimed by
+	 * {@link #beginHedge()} once the hedge is done.
+	 */
+	protected abstract void endHedge();
+
+	/**
+	 * Called on a background thread to create the hedge attempt.
+	 * @return The attempt.
+	 */
+	protected abstract Handle createHedge() throws IOException;
+
+	/**
+	 * Executes the given attempt until it has a response. This may be aborted
+	 * from another thread.
+	 * @param attempt The attempt to execute.
+	 * @return The response.
+	 */
+	protected abstract Response executeAttempt(Handle attempt) throws IOException;
+
+	/**
+	 * Aborts the given attempt. This may be called from any thread, whether
+	 * the attempt is running or has completed.
+	 * @param attempt The attempt to abort.
+	 */
+	protected abstract void abortAttempt(Handle attempt);
+
+	/**
+	 * Called when the hedge got a response before the primary attempt.
+	 */
+	protected void onHedgeWon() { }
+
+	/**
+	 * Executes the given primary attempt on the calling thread, and starts a
+	 * hedge if it hasn't got a response by the end of the delay. Returns once
+	 * one of them has a response, or both have failed. If the hedge wins, the
+	 * primary is aborted and this returns as soon as it gives up.
+	 * @param primary The primary attempt.
+	 * @param timer The {@link ScheduledExecutorService} to wait on.
+	 * @param executor The {@link Executor} to run the hedge on.
+	 * @return The response of the winning attempt.
+	 * @throws IOException If the primary attempt failed and no hedge succeeded.
+	 */
+	public Response execute(Handle primary, ScheduledExecutorService timer,
+			final Executor executor) throws IOException {
+		synchronized (lock) {
+			this.primary = primary;
+			attempts.add(primary);
+			running = 1;
+		}
+
+		ScheduledFuture<?> hedgeTimer = timer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						runHedge();
+					}
+				});
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS);
+
+		Response primaryResponse = null;
+		IOException primaryFailure = null;
+		try {
+			primaryResponse = executeAttempt(primary);
+		} catch (IOException e) {
+			primaryFailure = e;
+		}
+		onAttemptComplete(primary, primaryResponse, primaryFailure);
+
+		// Wait for the hedge too, remembering any interrupt rather than
+		// restoring it straight away, which would make every wait throw
+		boolean interrupted = false;
+		synchronized (lock) {
+			while (!done) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		hedgeTimer.cancel(false);
+
+		if (winner == null && failure != null) {
+			throw failure;
+		}
+		return response;
+	}
+
+	/**
+	 * @return The attempt which got the response, or null if none did.
+	 */
+	public Handle getWinner() {
+		synchronized (lock) {
+			return winner;
+		}
+	}
+
+	/**
+	 * Aborts every attempt and stops any more from being started.
+	 */
+	public void abortAll() {
+		List<Handle> toAbort;
+		synchronized (lock) {
+			aborted = true;
+			toAbort = new ArrayList<Handle>(attempts);
+		}
+		for (Handle attempt : toAbort) {
+			abortAttempt(attempt);
+		}
+	}
+
+	private void runHedge() {
+		synchronized (lock) {
+			if (done || aborted) {
+				return;
+			}
+		}
+		if (!beginHedge()) {
+			return;
+		}
+
+		try {
+			Handle hedge;
+			synchronized (lock) {
+				// Keep the primary from giving up while we start the hedge
+				if (done || aborted) {
+					return;
+				}
+				running++;
+			}
+
+			try {
+				hedge = createHedge();
+			} catch (IOException e) {
+				onAttemptComplete(null, null, e);
+				return;
+			}
+
+			boolean abort;
+			synchronized (lock) {
+				abort = done || aborted;
+				attempts.add(hedge);
+			}
+			if (abort) {
+				onAttemptComplete(hedge, null, null);
+				return;
+			}
+
+			Response hedgeResponse = null;
+			IOException hedgeFailure = null;
+			try {
+				hedgeResponse = executeAttempt(hedge);
+			} catch (IOException e) {
+				hedgeFailure = e;
+			}
+			onAttemptComplete(hedge, hedgeResponse, hedgeFailure);
+		} finally {
+			endHedge();
+		}
+	}
+
+	private void onAttemptComplete(Handle attempt, Response attemptResponse, IOException attemptFailure) {
+		List<Handle> losers = null;
+		boolean lost = false;
+		boolean hedgeWon = false;
+		synchronized (lock) {
+			running--;
+			if (done) {
+				lost = true;
+			} else if (attemptResponse != null) {
+				done = true;
+				winner = attempt;
+				response = attemptResponse;
+				hedgeWon = attempt != primary;
+				losers = new ArrayList<Handle>(attempts);
+				losers.remove(attempt);
+				lock.notifyAll();
+			} else {
+				// Report the failure of the primary in preference to the hedge
+				if (attemptFailure != null && (failure == null || attempt == primary)) {
+					failure = attemptFailure;
+				}
+				if (running == 0) {
+					done = true;
+					lock.notifyAll();
+				}
+			}
+		}
+
+		// Release any response which came in too late
+		if (lost && attempt != null) {
+			abortAttempt(attempt);
+		}
+		if (losers != null) {
+			for (Handle loser : losers) {
+				abortAttempt(loser);
+			}
+		}
+		if (hedgeWon) {
+			onHedgeWon();
+		}
+	}
+}
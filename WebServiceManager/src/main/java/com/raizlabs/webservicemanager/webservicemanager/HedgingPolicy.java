@@ -0,0 +1,198 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.HttpMethod;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Class which determines when a slow request should be hedged: sent a second
+ * time while the first attempt is still running, using whichever response
+ * arrives first. This cuts off the long tail of latency caused by the
+ * occasional stalled connection, at the cost of some extra load.
+ * <br><br>
+ * Only {@link HttpMethod#Get} and {@link HttpMethod#Head} requests are hedged,
+ * since they may safely be sent twice. By default, a request is hedged once it
+ * has taken longer than 95% of the recent requests to its host, and hedges are
+ * limited to a budget of 5% of requests so that they can't double the load on
+ * a struggling host.
+ *
+ * @see WebServiceManager#setHedgingPolicy(HedgingPolicy)
+ */
+public class HedgingPolicy {
+
+	/**
+	 * The most recent latencies of a single host, as a ring buffer.
+	 */
+	private static class HostLatencies {
+		final long[] samples;
+		int nextIndex;
+		int recorded;
+
+		public HostLatencies(int size) {
+			samples = new long[size];
+		}
+
+		void record(long latencyMillis) {
+			samples[nextIndex] = latencyMillis;
+			nextIndex = (nextIndex + 1) % samples.length;
+			if (recorded < samples.length) {
+				recorded++;
+			}
+		}
+
+		long getPercentile(double percentile) {
+			long[] sorted = new long[recorded];
+			System.arraycopy(samples, 0, sorted, 0, recorded);
+			Arrays.sort(sorted);
+			int index = (int) Math.ceil(percentile * recorded) - 1;
+			return sorted[Math.max(0, Math.min(recorded - 1, index))];
+		}
+	}
+
+	private static final int SAMPLE_WINDOW = 100;
+
+	private long fixedDelayMillis = -1;
+	private double percentile = 0.95;
+	private long minDelayMillis = 10;
+	private int minSamples = 20;
+	private double budgetRatio = 0.05;
+	private double maxBudget = 10;
+
+	private double budget;
+	private long hedgeCount;
+	private long hedgeWinCount;
+
+	private final HashMap<String, HostLatencies> latencies = new HashMap<String, HostLatencies>();
+
+	/**
+	 * Sets a fixed delay after which requests are hedged, instead of a
+	 * percentile of the observed latencies.
+	 * @param delayMillis The delay in milliseconds.
+	 * @return This {@link HedgingPolicy} object to allow for chaining of calls.
+	 */
+	public synchronized HedgingPolicy setDelay(long delayMillis) {
+		if (delayMillis < 0) {
+			throw new IllegalArgumentException("Delay must not be negative");
+		}
+		this.fixedDelayMillis = delayMillis;
+		return this;
+	}
+
+	/**
+	 * Sets requests to be hedged once they have taken longer than the given
+	 * fraction of recent requests to the same host. Requests to a host aren't
+	 * hedged until enough of its requests have completed.
+	 * @param percentile The percentile of latencies to hedge at, between 0 and 1.
+	 * @param minDelayMillis The shortest delay to hedge at, in milliseconds.
+	 * @param minSamples The number of requests to a host which must have
+	 * completed before requests to it are hedged.
+	 * @return This {@link HedgingPolicy} object to allow for chaining of calls.
+	 */
+	public synchronized HedgingPolicy setDelayPercentile(double percentile, long minDelayMillis, int minSamples) {
+		if (percentile <= 0 || percentile > 1) {
+			throw new IllegalArgumentException("Percentile must be greater than 0 and at most 1");
+		}
+		this.fixedDelayMillis = -1;
+		this.percentile = percentile;
+		this.minDelayMillis = minDelayMillis;
+		this.minSamples = Math.max(1, Math.min(SAMPLE_WINDOW, minSamples));
+		return this;
+	}
+
+	/**
+	 * Sets the budget of hedges. Each eligible request earns the given fraction
+	 * of a hedge, and each hedge spends a whole one, so hedges can never be
+	 * more than that fraction of requests over time.
+	 * @param ratio The fraction of requests which may be hedged, between 0 and 1.
+	 * @param maxBurst The largest number of hedges which may be saved up and
+	 * spent at once.
+	 * @return This {@link HedgingPolicy} object to allow for chaining of calls.
+	 */
+	public synchronized HedgingPolicy setBudget(double ratio, int maxBurst) {
+		if (ratio < 0 || ratio > 1) {
+			throw new IllegalArgumentException("Ratio must be between 0 and 1");
+		}
+		this.budgetRatio = ratio;
+		this.maxBudget = Math.max(1, maxBurst);
+		this.budget = Math.min(budget, maxBudget);
+		return this;
+	}
+
+	/**
+	 * @param method The {@link HttpMethod} of a request.
+	 * @return True if requests with the given method may be hedged.
+	 */
+	public boolean isHedgeable(HttpMethod method) {
+		return method == HttpMethod.Get || method == HttpMethod.Head;
+	}
+
+	/**
+	 * Called when an eligible request is started to earn its share of the
+	 * budget, and gets how long to wait before hedging it.
+	 * @param host The key of the host the request is sent to.
+	 * @return The delay in milliseconds, or -1 if the request shouldn't be
+	 * hedged.
+	 */
+	public synchronized long onRequestStarted(String host) {
+		budget = Math.min(maxBudget, budget + budgetRatio);
+
+		if (fixedDelayMillis >= 0) {
+			return fixedDelayMillis;
+		}
+		HostLatencies hostLatencies = latencies.get(host);
+		if (hostLatencies == null || hostLatencies.recorded < minSamples) {
+			return -1;
+		}
+		return Math.max(minDelayMillis, hostLatencies.getPercentile(percentile));
+	}
+
+	/**
+	 * Spends one hedge from the budget if there is one available.
+	 * @return True if the request may be hedged.
+	 */
+	public synchronized boolean tryStartHedge() {
+		if (budget < 1) {
+			return false;
+		}
+		budget -= 1;
+		hedgeCount++;
+		return true;
+	}
+
+	/**
+	 * Called when a hedged attempt finishes before the attempt it hedged.
+	 */
+	synchronized void onHedgeWon() {
+		hedgeWinCount++;
+	}
+
+	/**
+	 * Records how long a request to the given host took to get a response.
+	 * @param host The key of the host.
+	 * @param latencyMillis The latency in milliseconds.
+	 */
+	public synchronized void recordLatency(String host, long latencyMillis) {
+		HostLatencies hostLatencies = latencies.get(host);
+		if (hostLatencies == null) {
+			hostLatencies = new HostLatencies(SAMPLE_WINDOW);
+			latencies.put(host, hostLatencies);
+		}
+		hostLatencies.record(latencyMillis);
+	}
+
+	/**
+	 * @return The number of hedges which have been sent.
+	 */
+	public synchronized long getHedgeCount() {
+		return hedgeCount;
+	}
+
+	/**
+	 * @return The number of hedges which got a response before the attempt
+	 * they hedged.
+	 */
+	public synchronized long getHedgeWinCount() {
+		return hedgeWinCount;
+	}
+}
@@ -0,0 +1,146 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import android.util.Log;
+
+import com.raizlabs.webservicemanager.HttpMethod;
+import com.raizlabs.webservicemanager.RequestExecutionPool;
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * {@link Transport} which implements {@link RequestMode#HttpClient}, executing
+ * {@link HttpUriRequest}s through the {@link RequestExecutionPool} of the
+ * {@link WebServiceManager}.
+ */
+class HttpClientTransport implements Transport {
+
+	private final WebServiceManager manager;
+
+	public HttpClientTransport(WebServiceManager manager) {
+		this.manager = manager;
+	}
+
+	@Override
+	public <ResultType> ResultInfo<ResultType> execute(WebServiceRequest<ResultType> request, TransportCall call) {
+		final RequestExecutionPool requestQueue = manager.getRequestExectionQueue();
+		final HttpUriRequest httpRequest = request.getHttpUriRequest();
+		if (httpRequest == null) {
+			return null;
+		}
+		HttpMethod method = HttpMethod.fromName(httpRequest.getMethod());
+		call.setMethod(method);
+		final HedgedExecution<HttpUriRequest, HttpResponse> hedge = createHedge(request, call, method);
+
+		// Abort the request if it is cancelled or passes its deadline. This may
+		// be called asynchronously
+		call.setAbortHandler(new Runnable() {
+			@Override
+			public void run() {
+				if (hedge != null) {
+					hedge.abortAll();
+				} else {
+					requestQueue.abortRequest(httpRequest);
+				}
+			}
+		});
+
+		// Don't let the socket timeouts outlast the deadline
+		setTimeouts(httpRequest, call);
+
+		// Execute the request, hedging it if it is slow
+		HttpResponse response = null;
+		call.onConnectStart();
+		call.getTrace().bind();
+		try {
+			if (hedge != null) {
+				response = hedge.execute(httpRequest, manager.getTimerExecutor(), manager.getHedgeExecutor());
+			} else {
+				response = requestQueue.doRequestOrThrow(httpRequest);
+			}
+		} catch (IOException e) {
+			call.onException(e);
+			Log.w(getClass().getName(), "Error executing request", e);
+		} finally {
+			call.getTrace().unbind();
+		}
+		if (response != null) {
+			call.onConnectEnd();
+			call.onResponseHeaders(response.getStatusLine().getStatusCode());
+			call.getTrace().traceBody(response);
+		}
+
+		// Translate the response, or null if we didn't get one. The client
+		// keeps its pooled connection until the body has been consumed, which
+		// translating does, so only release ours once it is done
+		call.onTranslateStart();
+		ResultType result = request.translateHTTPResponse(response, method);
+		call.onTranslateEnd();
+		call.releaseConnection();
+		return new BasicResultInfo<ResultType>(result, new Date(), response);
+	}
+
+	/**
+	 * Creates a {@link HedgedExecution} for the given request.
+	 * @return The {@link HedgedExecution}, or null if the request shouldn't be
+	 * hedged.
+	 */
+	private HedgedExecution<HttpUriRequest, HttpResponse> createHedge(final WebServiceRequest<?> request,
+			final TransportCall call, HttpMethod method) {
+		final HedgingPolicy policy = manager.getHedgingPolicy();
+		long delay = manager.getHedgeDelay(policy, call.getHost(), method);
+		if (delay < 0) {
+			return null;
+		}
+
+		return new HedgedExecution<HttpUriRequest, HttpResponse>(delay) {
+			@Override
+			protected boolean beginHedge() {
+				return manager.beginHedge(policy, call.getHost());
+			}
+
+			@Override
+			protected void endHedge() {
+				manager.endConnection(call.getHost());
+			}
+
+			@Override
+			protected HttpUriRequest createHedge() {
+				HttpUriRequest httpRequest = request.getHttpUriRequest();
+				setTimeouts(httpRequest, call);
+				return httpRequest;
+			}
+
+			@Override
+			protected HttpResponse executeAttempt(HttpUriRequest attempt) throws IOException {
+				return manager.getRequestExectionQueue().doRequestOrThrow(attempt);
+			}
+
+			@Override
+			protected void abortAttempt(HttpUriRequest attempt) {
+				manager.getRequestExectionQueue().abortRequest(attempt);
+			}
+
+			@Override
+			protected void onHedgeWon() {
+				policy.onHedgeWon();
+			}
+		};
+	}
+
+	/**
+	 * Sets the socket timeouts of the given request so that they don't outlast
+	 * the deadline of the call.
+	 */
+	private static void setTimeouts(HttpUriRequest httpRequest, TransportCall call) {
+		HttpParams params = httpRequest.getParams();
+		HttpConnectionParams.setConnectionTimeout(params, call.getConnectionTimeout());
+		HttpConnectionParams.setSoTimeout(params, call.getReadTimeout());
+	}
+}
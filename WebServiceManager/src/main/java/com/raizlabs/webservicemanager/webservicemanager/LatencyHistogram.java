@@ -0,0 +1,130 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size histogram of latencies in milliseconds which may be recorded
+ * into from any thread without locking or allocating. Like an HDR histogram,
+ * values are counted exactly up to {@link #LINEAR_LIMIT}, and beyond that in
+ * buckets which are {@link #SUB_BUCKETS} to each power of two, so every
+ * value is within about 6% of the bucket it is counted in.
+ */
+class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	/**
+	 * The number of buckets each power of two is split into.
+	 */
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/**
+	 * Values below this are each counted in their own bucket.
+	 */
+	static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+	/**
+	 * Values of this or more, a little over four hours, are counted in the
+	 * last bucket.
+	 */
+	static final long MAX_VALUE = 1L << 24;
+
+	static final int BUCKET_COUNT = getIndex(MAX_VALUE - 1) + 1;
+
+	/**
+	 * @param value A non-negative value.
+	 * @return The index of the bucket which counts the given value.
+	 */
+	static int getIndex(long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) Math.max(0, value);
+		}
+		if (value >= MAX_VALUE) {
+			return BUCKET_COUNT - 1;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @param index The index of a bucket.
+	 * @return The highest value counted in the bucket.
+	 */
+	static long getHighestValue(int index) {
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+		int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+		int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+		long lowest = (long) (SUB_BUCKETS + subBucket) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * Gets the value at the given percentile of the given counts.
+	 * @param counts The count of each bucket.
+	 * @param totalCount The sum of the counts.
+	 * @param percentile The percentile, between 0 and 1.
+	 * @return The highest value of the bucket which contains the percentile,
+	 * or 0 if nothing was counted.
+	 */
+	static long getValueAtPercentile(long[] counts, long totalCount, double percentile) {
+		if (totalCount <= 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(percentile * totalCount));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return getHighestValue(i);
+			}
+		}
+		return getHighestValue(counts.length - 1);
+	}
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records the given latency.
+	 * @param value The latency in milliseconds.
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		counts.incrementAndGet(getIndex(value));
+		totalCount.incrementAndGet();
+		sum.addAndGet(value);
+		long currentMax;
+		while (value > (currentMax = max.get())) {
+			if (max.compareAndSet(currentMax, value)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Copies the counts of each bucket into the given array.
+	 * @param into The array to copy into, of {@link #BUCKET_COUNT} length.
+	 * @param reset True to reset each count once it has been copied.
+	 */
+	public void copyCounts(long[] into, boolean reset) {
+		for (int i = 0; i < into.length; i++) {
+			into[i] = reset ? counts.getAndSet(i, 0) : counts.get(i);
+		}
+	}
+
+	public long getTotalCount(boolean reset) {
+		return reset ? totalCount.getAndSet(0) : totalCount.get();
+	}
+
+	public long getSum(boolean reset) {
+		return reset ? sum.getAndSet(0) : sum.get();
+	}
+
+	public long getMax(boolean reset) {
+		return reset ? max.getAndSet(0) : max.get();
+	}
+}
@@ -0,0 +1,51 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+/**
+ * Optional extension of {@link ResultInfo} which the {@link WebServiceManager}
+ * fills in with how the request was handled, such as whether it ran out of
+ * time or was turned away by a full queue, and where its time went. Results
+ * which only implement {@link ResultInfo} are still returned, just without
+ * this information.
+ * <br><br>
+ * {@link BasicResultInfo} and {@link FailedResultInfo} implement this
+ * interface.
+ *
+ * @param <ResultType> The type of the result which will be returned.
+ */
+public interface ManagedResultInfo<ResultType> extends ResultInfo<ResultType> {
+	/**
+	 * Sets whether the deadline of the request passed before it completed.
+	 * @param expired
+	 */
+	void setExpired(boolean expired);
+	/**
+	 * @return True if the deadline of the request passed before it completed,
+	 * in which case it was either never executed or was aborted.
+	 * @see WebServiceManager#getDeadlineMillis(com.raizlabs.webservicemanager.requests.WebServiceRequest)
+	 */
+	boolean wasExpired();
+	
+	/**
+	 * Sets whether the request was rejected without being executed because
+	 * the queue of waiting requests was full.
+	 * @param rejected
+	 */
+	void setRejected(boolean rejected);
+	/**
+	 * @return True if the request was rejected or shed without being executed
+	 * because the queue of waiting requests was full.
+	 * @see WebServiceManager#setMaxQueuedRequests(int, QueueOverflowPolicy)
+	 */
+	boolean wasRejected();
+	
+	/**
+	 * Sets the summary of where the time of the request went.
+	 * @param timings
+	 */
+	void setTimings(RequestTimings timings);
+	/**
+	 * @return The summary of where the time of the request went, or null if
+	 * it wasn't recorded, such as for one part of a batch.
+	 */
+	RequestTimings getTimings();
+}
@@ -0,0 +1,381 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of metrics of the requests executed by a {@link WebServiceManager}:
+ * latency histograms and counters of requests, errors, retries,
+ * cancellations, cache hits and bytes, kept per host and normalized path
+ * template.
+ * <br><br>
+ * The registry is cheap enough to leave enabled in production. Recording a
+ * request takes no locks, and once its endpoint has been seen, allocates
+ * nothing, even if its path has ids: paths are matched segment by segment
+ * against the templates which are already known. Memory is fixed: once the
+ * maximum number of endpoints has been reached, further endpoints are all
+ * counted under {@link #OVERFLOW_KEY}.
+ *
+ * @see WebServiceManager#setMetricsRegistry(MetricsRegistry)
+ */
+public class MetricsRegistry {
+
+	/**
+	 * The host and path of the endpoint which counts requests to endpoints
+	 * which didn't fit in the registry.
+	 */
+	public static final String OVERFLOW_KEY = "*";
+
+	private static final int DEFAULT_MAX_ENDPOINTS = 256;
+	private static final String ID_SEGMENT = "{id}";
+
+	/**
+	 * A segment of the path templates of a host. The templates form a tree,
+	 * which raw paths are matched against without being split into strings.
+	 * Nodes are only added to, so they may be read without locking.
+	 */
+	private static class PathNode {
+		private static final PathNode[] NO_CHILDREN = new PathNode[0];
+
+		final String segment;
+		/**
+		 * The children whose segment is a literal. Replaced as a whole when a
+		 * child is added.
+		 */
+		volatile PathNode[] children = NO_CHILDREN;
+		/**
+		 * The child which matches any id segment.
+		 */
+		volatile PathNode idChild;
+		/**
+		 * The endpoint of the template which ends at this node, if any.
+		 */
+		volatile Endpoint endpoint;
+
+		public PathNode(String segment) {
+			this.segment = segment;
+		}
+
+		PathNode getChild(String path, int start, int end) {
+			int length = end - start;
+			for (PathNode child : children) {
+				if (child.segment.length() == length && path.regionMatches(start, child.segment, 0, length)) {
+					return child;
+				}
+			}
+			return null;
+		}
+
+		synchronized PathNode getOrAddChild(String template, int start, int end) {
+			if (end - start == ID_SEGMENT.length() && template.startsWith(ID_SEGMENT, start)) {
+				if (idChild == null) {
+					idChild = new PathNode(ID_SEGMENT);
+				}
+				return idChild;
+			}
+
+			PathNode child = getChild(template, start, end);
+			if (child == null) {
+				child = new PathNode(template.substring(start, end));
+				PathNode[] added = new PathNode[children.length + 1];
+				System.arraycopy(children, 0, added, 0, children.length);
+				added[children.length] = child;
+				children = added;
+			}
+			return child;
+		}
+	}
+
+	private static class Endpoint {
+		final String host;
+		final String path;
+		final AtomicLong requests = new AtomicLong();
+		final AtomicLong errors = new AtomicLong();
+		final AtomicLong retries = new AtomicLong();
+		final AtomicLong cancellations = new AtomicLong();
+		final AtomicLong cacheHits = new AtomicLong();
+		final AtomicLong bytes = new AtomicLong();
+		final LatencyHistogram latencies = new LatencyHistogram();
+
+		public Endpoint(String host, String path) {
+			this.host = host;
+			this.path = path;
+		}
+
+		EndpointMetrics snapshot(boolean reset) {
+			long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+			latencies.copyCounts(counts, reset);
+			return new EndpointMetrics(host, path,
+					get(requests, reset), get(errors, reset), get(retries, reset),
+					get(cancellations, reset), get(cacheHits, reset), get(bytes, reset),
+					counts, latencies.getTotalCount(reset), latencies.getSum(reset), latencies.getMax(reset));
+		}
+
+		private static long get(AtomicLong counter, boolean reset) {
+			return reset ? counter.getAndSet(0) : counter.get();
+		}
+	}
+
+	private final int maxEndpoints;
+	private final AtomicInteger endpointCount = new AtomicInteger();
+	/**
+	 * Endpoints keyed by their host and path template.
+	 */
+	private final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+	/**
+	 * The roots of the trees of the path templates of each host, so that raw
+	 * paths can be matched to their endpoint without being normalized. Only
+	 * holds the templates of {@link #endpoints}, so it is bounded along with
+	 * them.
+	 */
+	private final ConcurrentHashMap<String, PathNode> pathTrees = new ConcurrentHashMap<String, PathNode>();
+	private final Endpoint overflow = new Endpoint(OVERFLOW_KEY, OVERFLOW_KEY);
+	private final AtomicLong intervalStart = new AtomicLong(QueueDiscipline.now());
+
+	/**
+	 * Constructs a {@link MetricsRegistry} which keeps up to 256 endpoints.
+	 */
+	public MetricsRegistry() {
+		this(DEFAULT_MAX_ENDPOINTS);
+	}
+
+	/**
+	 * Constructs a {@link MetricsRegistry}.
+	 * @param maxEndpoints The most endpoints to keep separate metrics for.
+	 */
+	public MetricsRegistry(int maxEndpoints) {
+		if (maxEndpoints < 1) {
+			throw new IllegalArgumentException("Must allow at least one endpoint");
+		}
+		this.maxEndpoints = maxEndpoints;
+	}
+
+	/**
+	 * Turns the raw path of a request into the template of its endpoint, so
+	 * that requests for different resources of the same kind are counted
+	 * together. Segments which are ids are replaced by "{id}".
+	 * @param rawPath The raw path of the request, which may be empty.
+	 * @return The path template.
+	 * @see #isIdSegment(String, int, int)
+	 */
+	String normalizePath(String rawPath) {
+		if (rawPath == null || rawPath.length() == 0) {
+			return "/";
+		}
+		StringBuilder template = new StringBuilder(rawPath.length());
+		int start = 0;
+		while (start <= rawPath.length()) {
+			int end = rawPath.indexOf('/', start);
+			if (end < 0) {
+				end = rawPath.length();
+			}
+			if (start > 0) {
+				template.append('/');
+			}
+			if (isIdSegment(rawPath, start, end)) {
+				template.append(ID_SEGMENT);
+			} else {
+				template.append(rawPath, start, end);
+			}
+			start = end + 1;
+		}
+		return template.toString();
+	}
+
+	/**
+	 * Called to determine whether a segment of a path is an id, which is
+	 * replaced by "{id}" in the template of its endpoint. By default, segments
+	 * which are numbers, UUIDs or long hexadecimal strings are ids. This must
+	 * not allocate, as it is called for every request.
+	 * @param path The raw path of the request.
+	 * @param start The index of the first character of the segment.
+	 * @param end The index after the last character of the segment.
+	 * @return True if the segment is an id.
+	 */
+	protected boolean isIdSegment(String path, int start, int end) {
+		int length = end - start;
+		if (length == 0) {
+			return false;
+		}
+		boolean allDigits = true;
+		boolean allHex = true;
+		for (int i = start; i < end; i++) {
+			char c = path.charAt(i);
+			boolean digit = c >= '0' && c <= '9';
+			allDigits &= digit;
+			allHex &= digit || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F') || c == '-';
+		}
+		return allDigits || (allHex && length >= 16);
+	}
+
+	private Endpoint getEndpoint(String host, URI uri) {
+		String rawPath = (uri == null) ? null : uri.getRawPath();
+		if (rawPath == null || rawPath.length() == 0) {
+			rawPath = "/";
+		}
+
+		PathNode root = pathTrees.get(host);
+		if (root != null) {
+			Endpoint endpoint = findEndpoint(root, rawPath);
+			if (endpoint != null) {
+				return endpoint;
+			}
+		}
+
+		String template = normalizePath(rawPath);
+		String key = host + " " + template;
+		Endpoint endpoint = endpoints.get(key);
+		if (endpoint == null) {
+			if (endpointCount.incrementAndGet() > maxEndpoints) {
+				endpointCount.decrementAndGet();
+				return overflow;
+			}
+			Endpoint created = new Endpoint(host, template);
+			endpoint = endpoints.putIfAbsent(key, created);
+			if (endpoint == null) {
+				endpoint = created;
+			} else {
+				endpointCount.decrementAndGet();
+			}
+		}
+
+		if (root == null) {
+			PathNode created = new PathNode(null);
+			root = pathTrees.putIfAbsent(host, created);
+			if (root == null) {
+				root = created;
+			}
+		}
+		addTemplate(root, template, endpoint);
+		return endpoint;
+	}
+
+	/**
+	 * Matches the given raw path against the templates under the given root,
+	 * without allocating.
+	 * @return The endpoint of the matching template, or null if none match.
+	 */
+	private Endpoint findEndpoint(PathNode root, String rawPath) {
+		PathNode node = root;
+		int start = 0;
+		while (true) {
+			int end = rawPath.indexOf('/', start);
+			if (end < 0) {
+				end = rawPath.length();
+			}
+			PathNode next = node.getChild(rawPath, start, end);
+			if (next == null) {
+				next = node.idChild;
+				if (next == null || !isIdSegment(rawPath, start, end)) {
+					return null;
+				}
+			}
+			node = next;
+			if (end == rawPath.length()) {
+				return node.endpoint;
+			}
+			start = end + 1;
+		}
+	}
+
+	private static void addTemplate(PathNode root, String template, Endpoint endpoint) {
+		PathNode node = root;
+		int start = 0;
+		while (true) {
+			int end = template.indexOf('/', start);
+			if (end < 0) {
+				end = template.length();
+			}
+			node = node.getOrAddChild(template, start, end);
+			if (end == template.length()) {
+				node.endpoint = endpoint;
+				return;
+			}
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * Records a completed request.
+	 * @param host The key of the host of the request.
+	 * @param uri The {@link URI} of the request, or null if it is unknown.
+	 * @param result The result of the request. May be null.
+	 * @param timings The timings of the request.
+	 * @param attempts The number of times the request was executed.
+	 */
+	void onRequestComplete(String host, URI uri, ResultInfo<?> result, RequestTimings timings, int attempts) {
+		Endpoint endpoint = getEndpoint(host, uri);
+		endpoint.requests.incrementAndGet();
+		if (attempts > 1) {
+			endpoint.retries.addAndGet(attempts - 1);
+		}
+
+		if (result == null || result.wasCancelled()) {
+			if (result != null) {
+				endpoint.cancellations.incrementAndGet();
+			}
+		} else if (result.getResponseCode() == 304) {
+			endpoint.cacheHits.incrementAndGet();
+		} else if (!result.isStatusOK()) {
+			endpoint.errors.incrementAndGet();
+		}
+
+		if (timings.responseBytes > 0) {
+			endpoint.bytes.addAndGet(timings.responseBytes);
+		}
+		// Only count the latency of requests which were executed
+		if (timings.connectionAcquiredTime != RequestTimings.UNSET) {
+			endpoint.latencies.record(timings.getTotalDuration());
+		}
+	}
+
+	/**
+	 * @return A snapshot of the metrics since the registry was created or
+	 * last reset.
+	 */
+	public MetricsSnapshot snapshot() {
+		return snapshot(false);
+	}
+
+	/**
+	 * Takes a snapshot of the metrics and resets them, so that each snapshot
+	 * covers the interval since the previous one. No request is lost or
+	 * counted twice, though one which completes during the snapshot may have
+	 * some of its metrics in each interval.
+	 * @return A snapshot of the metrics since the registry was created or
+	 * last reset.
+	 */
+	public MetricsSnapshot snapshotAndReset() {
+		return snapshot(true);
+	}
+
+	/**
+	 * Resets every metric to zero. Endpoints which have been seen are kept,
+	 * so that memory is not reallocated.
+	 */
+	public void reset() {
+		snapshot(true);
+	}
+
+	private MetricsSnapshot snapshot(boolean reset) {
+		long end = QueueDiscipline.now();
+		long start = reset ? intervalStart.getAndSet(end) : intervalStart.get();
+
+		List<EndpointMetrics> metrics = new ArrayList<EndpointMetrics>();
+		for (Endpoint endpoint : endpoints.values()) {
+			addIfUsed(metrics, endpoint.snapshot(reset));
+		}
+		addIfUsed(metrics, overflow.snapshot(reset));
+		return new MetricsSnapshot(start, end, metrics);
+	}
+
+	private static void addIfUsed(List<EndpointMetrics> metrics, EndpointMetrics endpoint) {
+		if (endpoint.getRequestCount() > 0 || endpoint.getLatencyCount() > 0) {
+			metrics.add(endpoint);
+		}
+	}
+}
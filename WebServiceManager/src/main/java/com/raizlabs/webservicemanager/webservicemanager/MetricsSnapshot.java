@@ -0,0 +1,61 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot of the metrics of a {@link MetricsRegistry} over an interval,
+ * which may be exported to telemetry.
+ *
+ * @see MetricsRegistry#snapshot()
+ * @see MetricsRegistry#snapshotAndReset()
+ */
+public class MetricsSnapshot {
+
+	private final long startTime;
+	private final long endTime;
+	private final List<EndpointMetrics> endpoints;
+
+	MetricsSnapshot(long startTime, long endTime, List<EndpointMetrics> endpoints) {
+		this.startTime = startTime;
+		this.endTime = endTime;
+		this.endpoints = Collections.unmodifiableList(endpoints);
+	}
+
+	/**
+	 * @return The start of the interval, as given by {@link QueueDiscipline#now()}.
+	 */
+	public long getStartTime() { return startTime; }
+
+	/**
+	 * @return The end of the interval, as given by {@link QueueDiscipline#now()}.
+	 */
+	public long getEndTime() { return endTime; }
+
+	/**
+	 * @return The length of the interval in milliseconds, to turn counts into
+	 * throughput.
+	 */
+	public long getIntervalMillis() { return endTime - startTime; }
+
+	/**
+	 * @return The metrics of each endpoint which had requests in the interval.
+	 */
+	public List<EndpointMetrics> getEndpoints() { return endpoints; }
+
+	/**
+	 * Gets the metrics of the given endpoint.
+	 * @param host The key of the host.
+	 * @param path The normalized path template.
+	 * @return The metrics, or null if the endpoint had no requests in the
+	 * interval.
+	 */
+	public EndpointMetrics getEndpoint(String host, String path) {
+		for (EndpointMetrics endpoint : endpoints) {
+			if (endpoint.getHost().equals(host) && endpoint.getPath().equals(path)) {
+				return endpoint;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,133 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.coreutils.concurrent.Prioritized;
+
+import java.util.Comparator;
+
+/**
+ * Class which determines the order in which queued background requests are
+ * run. A {@link QueueDiscipline} orders the requests queued for a single host,
+ * and provides the effective priority used to choose between the hosts which
+ * have queued requests.
+ * <br><br>
+ * @see #FIFO
+ * @see #LIFO
+ * @see #aging(long)
+ */
+public abstract class QueueDiscipline implements Comparator<QueueDiscipline.QueuedRequest> {
+
+	/**
+	 * Interface for a request which is waiting to be run.
+	 */
+	public interface QueuedRequest extends Prioritized {
+		/**
+		 * @return A number which increases with every request that is queued,
+		 * indicating the order in which requests were queued.
+		 */
+		long getSequenceNumber();
+		/**
+		 * @return The time the request was queued, in milliseconds, as measured
+		 * by {@link QueueDiscipline#now()}.
+		 */
+		long getQueueTime();
+	}
+
+	/**
+	 * Runs higher priority requests first, and requests of equal priority in
+	 * the order they were queued.
+	 */
+	public static final QueueDiscipline FIFO = new QueueDiscipline() {
+		@Override
+		public int compare(QueuedRequest first, QueuedRequest second) {
+			int result = comparePriority(first, second);
+			return (result != 0) ? result : compareSequence(first, second);
+		}
+	};
+
+	/**
+	 * Runs higher priority requests first, and the most recently queued of
+	 * requests with equal priority first. This suits requests such as images
+	 * in a scrolling list, where the newest request is the one most likely to
+	 * still be on screen.
+	 */
+	public static final QueueDiscipline LIFO = new QueueDiscipline() {
+		@Override
+		public int compare(QueuedRequest first, QueuedRequest second) {
+			int result = comparePriority(first, second);
+			return (result != 0) ? result : compareSequence(second, first);
+		}
+	};
+
+	/**
+	 * Returns a {@link QueueDiscipline} which raises the priority of a request
+	 * by one for every interval it spends waiting, so that low priority
+	 * requests can't be starved by a steady stream of higher priority ones.
+	 * Requests of equal effective priority are run in the order they were
+	 * queued.
+	 * @param intervalMillis The time, in milliseconds, a request must wait for
+	 * its priority to be raised by one.
+	 * @return The aging {@link QueueDiscipline}.
+	 */
+	public static QueueDiscipline aging(final long intervalMillis) {
+		if (intervalMillis <= 0) {
+			throw new IllegalArgumentException("Aging interval must be positive");
+		}
+
+		return new QueueDiscipline() {
+			@Override
+			public int compare(QueuedRequest first, QueuedRequest second) {
+				// Every queued request ages at the same rate, so comparing the
+				// priority at the time each was queued less the time it was
+				// queued gives an order which doesn't change as they wait.
+				long firstKey = first.getPriority() * intervalMillis - first.getQueueTime();
+				long secondKey = second.getPriority() * intervalMillis - second.getQueueTime();
+				if (firstKey != secondKey) {
+					return firstKey > secondKey ? -1 : 1;
+				}
+				return compareSequence(first, second);
+			}
+
+			@Override
+			public long getEffectivePriority(QueuedRequest request, long now) {
+				return request.getPriority() + (now - request.getQueueTime()) / intervalMillis;
+			}
+		};
+	}
+
+	/**
+	 * @return The current time in milliseconds, as used for queue times.
+	 */
+	public static long now() {
+		return System.nanoTime() / 1000000;
+	}
+
+	/**
+	 * Gets the effective priority of the given request, which is used to
+	 * choose between the next requests of different hosts. Hosts whose next
+	 * requests have equal effective priority are served in round-robin order.
+	 * Defaults to the priority of the request.
+	 * @param request The request to get the effective priority of.
+	 * @param now The current time, as given by {@link #now()}.
+	 * @return The effective priority of the request.
+	 */
+	public long getEffectivePriority(QueuedRequest request, long now) {
+		return request.getPriority();
+	}
+
+	/**
+	 * Compares two requests by priority, with the higher priority first.
+	 */
+	protected static int comparePriority(QueuedRequest first, QueuedRequest second) {
+		return Prioritized.COMPARATOR_HIGH_FIRST.compare(first, second);
+	}
+
+	/**
+	 * Compares two requests by the order they were queued, with the earlier
+	 * request first.
+	 */
+	protected static int compareSequence(QueuedRequest first, QueuedRequest second) {
+		long firstSequence = first.getSequenceNumber();
+		long secondSequence = second.getSequenceNumber();
+		return (firstSequence < secondSequence) ? -1 : ((firstSequence == secondSequence) ? 0 : 1);
+	}
+}
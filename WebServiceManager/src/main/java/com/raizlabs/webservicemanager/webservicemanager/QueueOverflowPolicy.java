@@ -0,0 +1,20 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+/**
+ * Enum which determines what happens when a background request is submitted
+ * while the queue of waiting requests is full.
+ *
+ * @see WebServiceManager#setMaxQueuedRequests(int, QueueOverflowPolicy)
+ */
+public enum QueueOverflowPolicy {
+	/**
+	 * The new request is rejected.
+	 */
+	REJECT_NEW,
+	/**
+	 * The lowest priority queued request is shed to make room, oldest first
+	 * among requests of equal priority. If no queued request has a lower
+	 * priority than the new request, the new request is rejected instead.
+	 */
+	SHED_LOWEST_PRIORITY,
+}
@@ -0,0 +1,305 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.coreutils.listeners.ProgressListener;
+import com.raizlabs.webservicemanager.HttpMethod;
+import com.raizlabs.webservicemanager.requests.ManagedWebServiceRequest;
+import com.raizlabs.webservicemanager.requests.RequestBuilder;
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+import com.raizlabs.webservicemanager.responses.Response;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link WebServiceRequest} which collects batchable requests and executes them
+ * as a single request built by a {@link BatchCodec}. Requests may join the
+ * batch until it is closed, and the combined request is only built once the
+ * batch is executed. If only one request is still wanted by then, it is
+ * executed by itself instead.
+ * <br><br>
+ * Cancellation is reference counted, as described by {@link SharedRequest}.
+ */
+class RequestBatch extends SharedRequest<List<ResultInfo<?>>, RequestBatch.Entry<?>> {
+
+	static class Entry<ResultType> extends SharedRequest.Member<ResultType> {
+		/**
+		 * The index of the request in the combined request, or -1 if it was
+		 * left out.
+		 */
+		int index = -1;
+
+		public Entry(WebServiceRequest<ResultType> request, WebServiceRequestListener<ResultType> listener,
+				int priority) {
+			super(request, listener, priority);
+		}
+
+		@SuppressWarnings("unchecked")
+		void deliver(WebServiceManager manager, ResultInfo<?> result) {
+			if (listener != null) {
+				// The codec is responsible for the part having the right type
+				listener.onRequestComplete(manager, (ResultInfo<ResultType>) result);
+			}
+		}
+	}
+
+	private WebServiceManager manager;
+	private BatchCodec codec;
+	private Object batchKey;
+	private int maxSize;
+
+	/**
+	 * The request which is executed, built when first needed.
+	 */
+	private WebServiceRequest<?> target;
+	private boolean targetIsCombined;
+	private int includedCount;
+
+	/**
+	 * Constructs an empty {@link RequestBatch}.
+	 * @param manager The {@link WebServiceManager} which describes the requests.
+	 * @param codec The {@link BatchCodec} to build the combined request with.
+	 * @param batchKey The batch key of the requests in the batch.
+	 * @param maxSize The maximum number of requests in the batch.
+	 */
+	public RequestBatch(WebServiceManager manager, BatchCodec codec, Object batchKey, int maxSize) {
+		this.manager = manager;
+		this.codec = codec;
+		this.batchKey = batchKey;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Adds the given request to this batch.
+	 * @param request The {@link WebServiceRequest} to add.
+	 * @param listener The {@link WebServiceRequestListener} to call with the
+	 * result of the request. Optional.
+	 * @param priority The priority the request was made with.
+	 * @return True if the request was added, or false if the batch is full or
+	 * closed and a new one must be started.
+	 */
+	public <ResultType> boolean add(WebServiceRequest<ResultType> request, WebServiceRequestListener<ResultType> listener,
+			int priority) {
+		return join(new Entry<ResultType>(request, listener, priority));
+	}
+
+	@Override
+	protected boolean canJoin(int memberCount) {
+		return memberCount < maxSize;
+	}
+
+	/**
+	 * @return True if no more requests may be added to this batch.
+	 */
+	public boolean isFull() {
+		return !isJoinable();
+	}
+
+	/**
+	 * Gets the request which is executed for this batch, building it if
+	 * necessary. This closes the batch.
+	 */
+	private WebServiceRequest<?> getTarget() {
+		synchronized (getMembersLock()) {
+			if (target == null) {
+				close();
+				List<WebServiceRequest<?>> requests = new ArrayList<WebServiceRequest<?>>();
+				for (Entry<?> entry : getMembers()) {
+					if (!entry.request.isCancelled()) {
+						entry.index = requests.size();
+						requests.add(entry.request);
+					}
+				}
+				includedCount = requests.size();
+
+				if (includedCount > 1) {
+					target = codec.createBatchRequest(batchKey, requests);
+					targetIsCombined = true;
+				} else {
+					// There's nothing to combine, so just send the request as it is
+					target = (includedCount == 1) ? requests.get(0) : getMembers().get(0).request;
+					targetIsCombined = false;
+				}
+			}
+			return target;
+		}
+	}
+
+	/**
+	 * Delivers the result of the batch to the listener of each request in it.
+	 * Requests which were cancelled, or whose part of the result is missing,
+	 * receive a failure instead.
+	 * @param manager The {@link WebServiceManager} which executed the batch.
+	 * @param result The result of the batch.
+	 */
+	public void onRequestComplete(WebServiceManager manager, ResultInfo<List<ResultInfo<?>>> result) {
+		List<Entry<?>> currentEntries = finish();
+		int expectedParts;
+		synchronized (getMembersLock()) {
+			expectedParts = includedCount;
+		}
+
+		List<ResultInfo<?>> parts = (result == null) ? null : result.getResult();
+		if (parts != null && parts.size() != expectedParts) {
+			parts = null;
+		}
+
+		for (Entry<?> entry : currentEntries) {
+			ResultInfo<?> part = null;
+			if (parts != null && entry.index >= 0 && !entry.request.isCancelled()) {
+				part = parts.get(entry.index);
+			}
+			if (part == null) {
+				FailedResultInfo<Object> failed =
+						new FailedResultInfo<Object>(result == null ? new Date() : result.getRequestDate());
+				failed.setCancelled(entry.request.isCancelled() || (result != null && result.wasCancelled()));
+				if (result != null) {
+					failed.setExpired(WebServiceManager.wasExpired(result));
+					failed.setRejected(WebServiceManager.wasRejected(result));
+				}
+				part = failed;
+			}
+			entry.deliver(manager, part);
+		}
+	}
+
+	/**
+	 * @return True if the request which is executed for this batch can
+	 * translate a {@link Response}. This closes the batch.
+	 * @see WebServiceManager#canTranslateResponse(WebServiceRequest)
+	 */
+	boolean canTranslateResponse() {
+		return WebServiceManager.canTranslateResponse(getTarget());
+	}
+
+	@Override
+	public URI getURI() {
+		WebServiceRequest<?> request;
+		synchronized (getMembersLock()) {
+			// Every request in the batch goes to the same server
+			request = (target != null) ? target : getMembers().get(0).request;
+		}
+		return manager.getURI(request);
+	}
+
+	@Override
+	public Object getCoalescingKey() {
+		return null;
+	}
+
+	@Override
+	public Object getBatchKey() {
+		return null;
+	}
+
+	@Override
+	public Object getTag() {
+		// Each request in the batch is cancelled through its own group
+		return null;
+	}
+
+	@Override
+	public long getDeadlineMillis() {
+		// The deadline of the batch is tracked by its task
+		return 0;
+	}
+
+	@Override
+	public RequestBuilder getBuilder() {
+		WebServiceRequest<?> target = getTarget();
+		if (target instanceof ManagedWebServiceRequest) {
+			return ((ManagedWebServiceRequest<?>) target).getBuilder();
+		}
+		return null;
+	}
+
+	@Override
+	public HttpUriRequest getHttpUriRequest() {
+		return getTarget().getHttpUriRequest();
+	}
+
+	@Override
+	public HttpURLConnection getUrlConnection() {
+		return getTarget().getUrlConnection();
+	}
+
+	@Override
+	public void onConnected(HttpURLConnection connection) {
+		getTarget().onConnected(connection);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<ResultInfo<?>> translateConnection(HttpURLConnection connection) {
+		WebServiceRequest<?> target = getTarget();
+		if (targetIsCombined) {
+			return ((WebServiceRequest<List<ResultInfo<?>>>) target).translateConnection(connection);
+		}
+		return translateSingle(target, connection);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<ResultInfo<?>> translateHTTPResponse(HttpResponse response, HttpMethod requestMethod) {
+		WebServiceRequest<?> target = getTarget();
+		if (targetIsCombined) {
+			return ((WebServiceRequest<List<ResultInfo<?>>>) target).translateHTTPResponse(response, requestMethod);
+		}
+		return translateSingle(target, response, requestMethod);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<ResultInfo<?>> translateResponse(Response response) {
+		WebServiceRequest<?> target = getTarget();
+		if (targetIsCombined) {
+			return ((ManagedWebServiceRequest<List<ResultInfo<?>>>) target).translateResponse(response);
+		}
+		return translateSingle(target, response);
+	}
+
+	private static <ResultType> List<ResultInfo<?>> translateSingle(WebServiceRequest<ResultType> request,
+			HttpURLConnection connection) {
+		ResultType result = request.translateConnection(connection);
+		ResultInfo<ResultType> resultInfo;
+		try {
+			resultInfo = new BasicResultInfo<ResultType>(result, new Date(), connection);
+		} catch (IOException e) {
+			resultInfo = new FailedResultInfo<ResultType>(new Date());
+		}
+		return Collections.<ResultInfo<?>>singletonList(resultInfo);
+	}
+
+	private static <ResultType> List<ResultInfo<?>> translateSingle(WebServiceRequest<ResultType> request,
+			HttpResponse response, HttpMethod requestMethod) {
+		ResultType result = request.translateHTTPResponse(response, requestMethod);
+		return Collections.<ResultInfo<?>>singletonList(new BasicResultInfo<ResultType>(result, new Date(), response));
+	}
+
+	private static <ResultType> List<ResultInfo<?>> translateSingle(WebServiceRequest<ResultType> request,
+			Response response) {
+		// Read the status first, as translating closes the response
+		int responseCode = response.getResponseCode();
+		String responseMessage = response.getResponseMessage();
+		ResultType result = ((ManagedWebServiceRequest<ResultType>) request).translateResponse(response);
+		return Collections.<ResultInfo<?>>singletonList(
+				new BasicResultInfo<ResultType>(result, new Date(), responseCode, responseMessage));
+	}
+
+	@Override
+	public void addProgressListener(ProgressListener listener) {
+		// The progress of a batch isn't reported
+	}
+
+	@Override
+	public boolean removeProgressListener(ProgressListener listener) {
+		return false;
+	}
+}
@@ -0,0 +1,136 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+
+/**
+ * Interface for a listener which is told when each phase of a request starts
+ * and ends, to find out where the time of slow requests goes. Every time is
+ * given in milliseconds, as given by {@link QueueDiscipline#now()}.
+ * <br><br>
+ * Methods are called synchronously on the thread which is executing the
+ * request, often while it holds a connection, so implementations must be
+ * thread-safe and should return quickly. Requests which share one execution,
+ * through coalescing or batching, are reported under the request which is
+ * actually executed. If a request is retried, the phases of each attempt are
+ * reported again.
+ *
+ * @see BaseRequestEventListener
+ * @see RequestTimings
+ * @see WebServiceManager#setRequestEventListener(RequestEventListener)
+ */
+public interface RequestEventListener {
+	/**
+	 * Called when a request is queued to be executed in the background.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 */
+	public void onRequestQueued(WebServiceRequest<?> request, long time);
+
+	/**
+	 * Called when a background request is taken from the queue to be
+	 * executed.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 */
+	public void onRequestDequeued(WebServiceRequest<?> request, long time);
+
+	/**
+	 * Called when a request has been given one of the connections allowed by
+	 * the {@link WebServiceManager}.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 */
+	public void onConnectionAcquired(WebServiceRequest<?> request, long time);
+
+	/**
+	 * Called when a request starts connecting to its host.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 */
+	public void onConnectStart(WebServiceRequest<?> request, long time);
+
+	/**
+	 * Called when the TLS handshake of a request starts. This is only
+	 * reported for {@link RequestMode#HttpClient} requests which use the
+	 * socket factory installed by
+	 * {@link WebServiceManager#setTrustManager(com.raizlabs.webservicemanager.ssl.TrustManager)},
+	 * and only when a new connection is opened.
+	 * <br><br>
+	 * It is never reported for {@link RequestMode#HttpURLConnection} requests,
+	 * or if no {@link com.raizlabs.webservicemanager.ssl.TrustManager} has
+	 * been set, as those handshakes are run by the platform and can't be
+	 * observed.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 */
+	public void onSecureConnectStart(WebServiceRequest<?> request, long time);
+
+	/**
+	 * Called when the TLS handshake of a request ends, whether or not it
+	 * succeeded. This is reported in the same cases as
+	 * {@link #onSecureConnectStart(WebServiceRequest, long)}.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 */
+	public void onSecureConnectEnd(WebServiceRequest<?> request, long time);
+
+	/**
+	 * Called when a request has connected to its host. In
+	 * {@link RequestMode#HttpClient}, and for hedged requests, connecting
+	 * can't be told apart from waiting for the response, so this is called
+	 * along with {@link #onResponseHeaders(WebServiceRequest, long, int)}.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 */
+	public void onConnectEnd(WebServiceRequest<?> request, long time);
+
+	/**
+	 * Called when the status and headers of the response have been received.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 * @param responseCode The response code.
+	 */
+	public void onResponseHeaders(WebServiceRequest<?> request, long time, int responseCode);
+
+	/**
+	 * Called when the body of the response has been read to the end or
+	 * closed. This is only reported in {@link RequestMode#HttpClient}, as
+	 * requests in {@link RequestMode#HttpURLConnection} read the body directly
+	 * while they are translated.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 * @param byteCount The number of bytes of the body which were read.
+	 */
+	public void onResponseBodyRead(WebServiceRequest<?> request, long time, long byteCount);
+
+	/**
+	 * Called when the response starts being translated into the result of
+	 * the request.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 */
+	public void onTranslateStart(WebServiceRequest<?> request, long time);
+
+	/**
+	 * Called when the response has been translated.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 */
+	public void onTranslateEnd(WebServiceRequest<?> request, long time);
+
+	/**
+	 * Called when a request has given back its connection.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 */
+	public void onConnectionReleased(WebServiceRequest<?> request, long time);
+
+	/**
+	 * Called when a request has completed, including when it was cancelled,
+	 * expired or rejected without being executed.
+	 * @param request The request.
+	 * @param time The time of the event.
+	 * @param result The result of the request.
+	 */
+	public void onRequestComplete(WebServiceRequest<?> request, long time, ResultInfo<?> result);
+}
@@ -0,0 +1,101 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+
+/**
+ * A {@link ResultFuture} for a {@link WebServiceRequest} being executed in
+ * the background by a {@link WebServiceManager}. Its state is guarded by the
+ * status lock of the request, and cancelling it cancels the request.
+ *
+ * @param <ResultType> The type of the result of the request.
+ */
+public class RequestFuture<ResultType> extends ResultFuture<ResultInfo<ResultType>> {
+
+	private WebServiceRequest<ResultType> request;
+
+	private RequestScheduler scheduler;
+	private RequestScheduler.Task task;
+	private SharedExecution sharedExecution;
+
+	/**
+	 * Constructs a {@link RequestFuture} for the given request.
+	 * @param request The {@link WebServiceRequest} whose result this future
+	 * will contain.
+	 */
+	RequestFuture(WebServiceRequest<ResultType> request) {
+		super(request.getStatusLock());
+		this.request = request;
+	}
+
+	/**
+	 * @return The {@link WebServiceRequest} whose result this future will
+	 * contain.
+	 */
+	public WebServiceRequest<ResultType> getRequest() {
+		return request;
+	}
+
+	/**
+	 * Sets the task which was queued to execute the request.
+	 * @param scheduler The {@link RequestScheduler} the task was queued with.
+	 * @param task The queued task.
+	 */
+	void setTask(RequestScheduler scheduler, RequestScheduler.Task task) {
+		this.scheduler = scheduler;
+		this.task = task;
+	}
+
+	/**
+	 * Sets the execution which the request shares with other requests.
+	 * @param scheduler The {@link RequestScheduler} the execution was queued with.
+	 * @param execution The shared execution.
+	 */
+	void setSharedExecution(RequestScheduler scheduler, SharedExecution execution) {
+		setTask(scheduler, execution.getTask());
+		this.sharedExecution = execution;
+	}
+
+	/**
+	 * @return The priority the request was queued with.
+	 */
+	public int getPriority() {
+		return task.getPriority();
+	}
+
+	/**
+	 * Changes the priority of the request. If it is still waiting to be run,
+	 * it is moved to its new place in the queue. If it shares its execution
+	 * with other requests, the shared execution runs at the highest priority
+	 * of the requests which haven't been cancelled, so lowering the priority
+	 * of one request never holds up the others.
+	 * @param priority The new priority. See
+	 * {@link com.raizlabs.coreutils.concurrent.Prioritized.Priority} for
+	 * predefined values.
+	 * @return True if the request was still queued and has been moved, false
+	 * if it has already started.
+	 */
+	public boolean setPriority(int priority) {
+		if (sharedExecution != null) {
+			priority = sharedExecution.setPriority(request, priority);
+		}
+		return scheduler.setPriority(task, priority);
+	}
+
+	/**
+	 * Cancels the request and this future. Any listener of the request will
+	 * still be called with a cancelled result.
+	 * @param mayInterruptIfRunning Unused, the request is always aborted if
+	 * it is running.
+	 * @return True if this call cancelled the future, false if it had already
+	 * completed.
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		// Cancel the future first, as cancelling a queued request completes it
+		if (!super.cancel(mayInterruptIfRunning)) {
+			return false;
+		}
+		request.cancel();
+		return true;
+	}
+}
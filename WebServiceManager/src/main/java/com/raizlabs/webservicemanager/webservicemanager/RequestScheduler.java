@@ -0,0 +1,813 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.webservicemanager.QueueDiscipline.QueuedRequest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Class which limits the number of concurrent connections, both in total and
+ * per host, and dispatches queued background work as connections become
+ * available.
+ * <br><br>
+ * Queued work for a single host is dispatched in the order given by the
+ * {@link QueueDiscipline} of that host. Across hosts, the work with the highest
+ * effective priority is dispatched first and hosts with equally important
+ * work are served in round-robin order, so one slow host cannot take every
+ * connection while others are waiting.
+ * <br><br>
+ * Tasks whose deadline passes while they are queued are dropped without
+ * claiming a connection. The number of queued tasks may be bounded, in which
+ * case tasks are rejected or shed according to a {@link QueueOverflowPolicy}.
+ *
+ */
+class RequestScheduler {
+
+	/**
+	 * Deadline value indicating that there is no deadline.
+	 */
+	public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	/**
+	 * A unit of background work which targets a single host.
+	 */
+	static abstract class Task implements Comparable<Task>, Runnable, QueuedRequest {
+		private String host;
+		private int priority;
+		private long sequenceNumber;
+		private long queueTime;
+		private long deadline;
+		/**
+		 * Whether the task has ever been queued.
+		 */
+		private boolean submitted;
+		/**
+		 * The timer which expires the task if it is still queued at its
+		 * deadline, or null.
+		 */
+		private ScheduledFuture<?> expiryTimer;
+
+		public Task(String host, int priority) {
+			this(host, priority, NO_DEADLINE);
+		}
+
+		/**
+		 * @param host The key of the host the task will connect to.
+		 * @param priority The priority of the task.
+		 * @param deadline The time, as given by {@link QueueDiscipline#now()},
+		 * after which the task should no longer be run, or {@link #NO_DEADLINE}.
+		 */
+		public Task(String host, int priority, long deadline) {
+			this.host = host;
+			this.priority = priority;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * @return The key of the host that this task will connect to.
+		 */
+		public String getHost() {
+			return host;
+		}
+
+		@Override
+		public int getPriority() {
+			return priority;
+		}
+
+		@Override
+		public long getSequenceNumber() {
+			return sequenceNumber;
+		}
+
+		@Override
+		public long getQueueTime() {
+			return queueTime;
+		}
+
+		/**
+		 * @return The time, as given by {@link QueueDiscipline#now()}, after
+		 * which the task should no longer be run, or {@link #NO_DEADLINE}.
+		 */
+		public long getDeadline() {
+			return deadline;
+		}
+
+		/**
+		 * Sets the timer which expires the task if it is still queued at its
+		 * deadline, cancelling the timer it replaces. The timer is cancelled
+		 * once the task leaves the queue.
+		 * @param timer The timer, or null to only cancel the current one.
+		 */
+		void setExpiryTimer(ScheduledFuture<?> timer) {
+			ScheduledFuture<?> replaced;
+			synchronized (this) {
+				replaced = expiryTimer;
+				expiryTimer = timer;
+			}
+			if (replaced != null) {
+				replaced.cancel(false);
+			}
+		}
+
+		/**
+		 * Called instead of {@link #run()} if the deadline of the task passes
+		 * while it is queued. No connection is claimed for the task. This is
+		 * called on whichever thread happened to be dispatching work, so it
+		 * should return quickly. Does nothing by default.
+		 */
+		public void onExpired() { }
+
+		/**
+		 * Called instead of {@link #run()} if the task is rejected because the
+		 * queue is full, or is shed from the queue to make room for a more
+		 * important task. No connection is claimed for the task. This may be
+		 * called on the thread which queued the task. Does nothing by default.
+		 */
+		public void onRejected() { }
+
+		/**
+		 * Called instead of {@link #run()} if the task is removed from the
+		 * queue by {@link RequestScheduler#cancelIfQueued(Task)}. No connection
+		 * is claimed for the task. This is called on the thread which cancelled
+		 * it. Does nothing by default.
+		 */
+		public void onCancelled() { }
+
+		@Override
+		public int compareTo(Task another) {
+			return QueueDiscipline.FIFO.compare(this, another);
+		}
+	}
+
+	/**
+	 * Orders tasks with the lowest priority first, and the oldest first among
+	 * tasks of equal priority.
+	 */
+	private static final Comparator<Task> SHED_ORDER = new Comparator<Task>() {
+		@Override
+		public int compare(Task first, Task second) {
+			int result = QueueDiscipline.comparePriority(second, first);
+			return (result != 0) ? result : QueueDiscipline.compareSequence(first, second);
+		}
+	};
+
+	private final Object lock = new Object();
+
+	private Executor executor;
+
+	private int maxConnections;
+	private int maxConnectionsPerHost;
+	private ConcurrencyLimit concurrencyLimit;
+
+	private int activeConnections;
+	private HashMap<String, Integer> activeHostConnections;
+
+	private QueueDiscipline queueDiscipline;
+	private HashMap<String, QueueDiscipline> hostQueueDisciplines;
+	private long nextSequenceNumber;
+
+	private HashMap<String, PriorityQueue<Task>> hostQueues;
+	/**
+	 * The hosts which currently have queued tasks, in the order they should
+	 * next be served.
+	 */
+	private LinkedList<String> hostRotation;
+	/**
+	 * Every queued task, ordered from the first to be shed to the last.
+	 */
+	private TreeSet<Task> queuedTasks;
+	private int maxQueuedTasks;
+	private QueueOverflowPolicy overflowPolicy;
+	private long shedCount;
+	private long rejectedCount;
+	/**
+	 * Tasks which have expired while queued and have yet to be notified.
+	 */
+	private List<Task> expiredTasks;
+
+	/**
+	 * Constructs a {@link RequestScheduler} which dispatches tasks to the given
+	 * {@link Executor}.
+	 * @param executor The {@link Executor} to run dispatched tasks on.
+	 * @param maxConnections The maximum number of concurrent connections.
+	 */
+	public RequestScheduler(Executor executor, int maxConnections) {
+		this.executor = executor;
+		this.maxConnections = maxConnections;
+		this.activeHostConnections = new HashMap<String, Integer>();
+		this.queueDiscipline = QueueDiscipline.FIFO;
+		this.hostQueueDisciplines = new HashMap<String, QueueDiscipline>();
+		this.hostQueues = new HashMap<String, PriorityQueue<Task>>();
+		this.hostRotation = new LinkedList<String>();
+		this.expiredTasks = new ArrayList<Task>();
+		this.queuedTasks = new TreeSet<Task>(SHED_ORDER);
+		this.overflowPolicy = QueueOverflowPolicy.REJECT_NEW;
+	}
+
+	/**
+	 * Bounds the number of tasks which may be queued at once.
+	 * @param maxQueuedTasks The maximum number of queued tasks, or zero for no
+	 * limit.
+	 * @param policy The {@link QueueOverflowPolicy} which determines which task
+	 * is rejected when the queue is full.
+	 */
+	public void setMaxQueuedTasks(int maxQueuedTasks, QueueOverflowPolicy policy) {
+		synchronized (lock) {
+			this.maxQueuedTasks = maxQueuedTasks;
+			this.overflowPolicy = policy;
+		}
+	}
+
+	/**
+	 * @return The maximum number of tasks which may be queued at once, or zero
+	 * if there is no limit.
+	 */
+	public int getMaxQueuedTasks() {
+		synchronized (lock) {
+			return maxQueuedTasks;
+		}
+	}
+
+	/**
+	 * @return The number of tasks which are currently queued.
+	 */
+	public int getQueuedTaskCount() {
+		synchronized (lock) {
+			return queuedTasks.size();
+		}
+	}
+
+	/**
+	 * @return The number of queued tasks which have been shed to make room for
+	 * more important tasks.
+	 */
+	public long getShedCount() {
+		synchronized (lock) {
+			return shedCount;
+		}
+	}
+
+	/**
+	 * @return The number of tasks which have been rejected because the queue
+	 * was full.
+	 */
+	public long getRejectedCount() {
+		synchronized (lock) {
+			return rejectedCount;
+		}
+	}
+
+	/**
+	 * @return The maximum number of concurrent connections across all hosts.
+	 */
+	public int getMaxConnections() {
+		synchronized (lock) {
+			return maxConnections;
+		}
+	}
+
+	/**
+	 * Sets the maximum number of concurrent connections across all hosts. This
+	 * always returns immediately. If decreasing, no new connections are
+	 * claimed until enough of the current ones have been released.
+	 * @param maxConnections The new maximum number of concurrent connections.
+	 */
+	public void setMaxConnections(int maxConnections) {
+		synchronized (lock) {
+			this.maxConnections = maxConnections;
+			lock.notifyAll();
+		}
+		dispatch();
+	}
+
+	/**
+	 * @return The {@link ConcurrencyLimit} which adjusts the number of
+	 * concurrent connections, or null if only the maximum applies.
+	 */
+	public ConcurrencyLimit getConcurrencyLimit() {
+		synchronized (lock) {
+			return concurrencyLimit;
+		}
+	}
+
+	/**
+	 * Sets the {@link ConcurrencyLimit} which adjusts the number of concurrent
+	 * connections within the maximum. This never blocks: if the limit is
+	 * lowered, no new connections are started until enough of the current
+	 * ones have finished.
+	 * @param limit The {@link ConcurrencyLimit} to use, or null to only apply
+	 * the maximum.
+	 */
+	public void setConcurrencyLimit(ConcurrencyLimit limit) {
+		synchronized (lock) {
+			this.concurrencyLimit = limit;
+		}
+		dispatch();
+	}
+
+	/**
+	 * @return The number of connections which may currently be used
+	 * concurrently across all hosts.
+	 */
+	public int getConnectionLimit() {
+		synchronized (lock) {
+			return getCurrentLimit();
+		}
+	}
+
+	/**
+	 * Reports the outcome of a request to the {@link ConcurrencyLimit}, if
+	 * there is one. This must be called before the connection of the request
+	 * is released.
+	 * @param rttMillis The time, in milliseconds, the request took.
+	 * @param dropped True if the request failed in a way which indicates
+	 * congestion.
+	 */
+	public void onSample(long rttMillis, boolean dropped) {
+		synchronized (lock) {
+			if (concurrencyLimit == null) {
+				return;
+			}
+			concurrencyLimit.onSample(rttMillis, activeConnections, dropped);
+		}
+		// The limit may have grown
+		dispatch();
+	}
+
+	/**
+	 * @return The maximum number of concurrent connections to a single host,
+	 * or zero if only the overall limit applies.
+	 */
+	public int getMaxConnectionsPerHost() {
+		synchronized (lock) {
+			return maxConnectionsPerHost;
+		}
+	}
+
+	/**
+	 * Sets the maximum number of concurrent connections to a single host.
+	 * @param maxConnections The maximum number of connections per host, or zero
+	 * to only apply the overall limit.
+	 */
+	public void setMaxConnectionsPerHost(int maxConnections) {
+		synchronized (lock) {
+			this.maxConnectionsPerHost = maxConnections;
+			lock.notifyAll();
+		}
+		dispatch();
+	}
+
+	/**
+	 * Sets the {@link QueueDiscipline} used to order the queued work of any host
+	 * which doesn't have its own.
+	 * @param discipline The {@link QueueDiscipline} to use.
+	 */
+	public void setQueueDiscipline(QueueDiscipline discipline) {
+		synchronized (lock) {
+			this.queueDiscipline = discipline;
+			for (String host : hostQueues.keySet()) {
+				reorderQueue(host);
+			}
+		}
+	}
+
+	/**
+	 * Sets the {@link QueueDiscipline} used to order the queued work of the
+	 * given host.
+	 * @param host The key of the host.
+	 * @param discipline The {@link QueueDiscipline} to use, or null to use the
+	 * overall discipline.
+	 */
+	public void setQueueDiscipline(String host, QueueDiscipline discipline) {
+		synchronized (lock) {
+			if (discipline == null) {
+				hostQueueDisciplines.remove(host);
+			} else {
+				hostQueueDisciplines.put(host, discipline);
+			}
+			reorderQueue(host);
+		}
+	}
+
+	private QueueDiscipline getQueueDiscipline(String host) {
+		QueueDiscipline discipline = hostQueueDisciplines.get(host);
+		return (discipline == null) ? queueDiscipline : discipline;
+	}
+
+	/**
+	 * Rebuilds the queue of the given host after its discipline has changed.
+	 * Must be called while holding the lock.
+	 */
+	private void reorderQueue(String host) {
+		PriorityQueue<Task> queue = hostQueues.get(host);
+		if (queue != null) {
+			PriorityQueue<Task> reordered = createQueue(host, queue.size());
+			reordered.addAll(queue);
+			hostQueues.put(host, reordered);
+		}
+	}
+
+	private PriorityQueue<Task> createQueue(String host, int initialCapacity) {
+		return new PriorityQueue<Task>(Math.max(initialCapacity, 1), getQueueDiscipline(host));
+	}
+
+	/**
+	 * Blocks until a connection to the given host is available and claims it.
+	 * The connection must be freed via {@link #release(String)}.
+	 * @param host The key of the host to connect to.
+	 */
+	public void acquire(String host) {
+		acquire(host, NO_DEADLINE);
+	}
+
+	/**
+	 * Blocks until a connection to the given host is available and claims it,
+	 * or until the given deadline passes. If claimed, the connection must be
+	 * freed via {@link #release(String)}.
+	 * @param host The key of the host to connect to.
+	 * @param deadline The time, as given by {@link QueueDiscipline#now()}, to
+	 * stop waiting at, or {@link #NO_DEADLINE} to wait indefinitely.
+	 * @return True if the connection was claimed, false if the deadline passed.
+	 */
+	public boolean acquire(String host, long deadline) {
+		boolean interrupted = false;
+		try {
+			synchronized (lock) {
+				while (!hasCapacity(host)) {
+					if (deadline == NO_DEADLINE) {
+						interrupted |= waitUninterruptibly(0);
+					} else {
+						long remaining = deadline - QueueDiscipline.now();
+						if (remaining <= 0) {
+							return false;
+						}
+						interrupted |= waitUninterruptibly(remaining);
+					}
+				}
+				claimConnection(host);
+				return true;
+			}
+		} finally {
+			// Let the caller see any interrupt we waited through
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Claims a connection to the given host only if one is available right
+	 * away and no queued work is waiting for one, so that optional work never
+	 * delays required work. If claimed, the connection must be freed via
+	 * {@link #release(String)}.
+	 * @param host The key of the host to connect to.
+	 * @return True if the connection was claimed.
+	 */
+	public boolean tryAcquire(String host) {
+		synchronized (lock) {
+			if (!queuedTasks.isEmpty() || !hasCapacity(host)) {
+				return false;
+			}
+			claimConnection(host);
+			return true;
+		}
+	}
+
+	/**
+	 * Frees a connection to the given host which was claimed either via
+	 * {@link #acquire(String)} or by dispatching a {@link Task}, and dispatches
+	 * any queued work which may now run.
+	 * @param host The key of the host which was connected to.
+	 */
+	public void release(String host) {
+		synchronized (lock) {
+			freeConnection(host);
+		}
+		dispatch();
+	}
+
+	/**
+	 * Queues the given {@link Task} to be run once a connection to its host is
+	 * available. The connection is claimed on behalf of the task before it is
+	 * run, and the task is responsible for calling {@link #release(String)}
+	 * once it is done with it.
+	 * <br><br>
+	 * If the queue is full, either this task or a less important queued task
+	 * is rejected according to the {@link QueueOverflowPolicy}, and its
+	 * {@link Task#onRejected()} is called on this thread.
+	 * @param task The {@link Task} to queue.
+	 */
+	public void enqueue(Task task) {
+		Task rejected = null;
+		synchronized (lock) {
+			task.sequenceNumber = nextSequenceNumber++;
+			task.queueTime = QueueDiscipline.now();
+			task.submitted = true;
+
+			if (maxQueuedTasks > 0 && queuedTasks.size() >= maxQueuedTasks) {
+				Task lowest = queuedTasks.first();
+				if (overflowPolicy == QueueOverflowPolicy.SHED_LOWEST_PRIORITY &&
+						lowest.getPriority() < task.getPriority()) {
+					removeQueued(lowest);
+					shedCount++;
+					rejected = lowest;
+				} else {
+					rejectedCount++;
+					rejected = task;
+				}
+			}
+
+			if (rejected != task) {
+				addQueued(task);
+			}
+		}
+
+		if (rejected != null) {
+			rejected.setExpiryTimer(null);
+			rejected.onRejected();
+		}
+		dispatch();
+	}
+
+	/**
+	 * Changes the priority of the given {@link Task}, moving it to its new
+	 * place in the queue if it is still waiting to be run.
+	 * @param task The {@link Task} to change the priority of.
+	 * @param priority The new priority.
+	 * @return True if the task was still queued or hasn't been queued yet,
+	 * false if it has already been dispatched, in which case its priority is
+	 * left unchanged.
+	 */
+	public boolean setPriority(Task task, int priority) {
+		synchronized (lock) {
+			if (removeQueued(task)) {
+				task.priority = priority;
+				addQueued(task);
+				return true;
+			}
+			if (!task.submitted) {
+				task.priority = priority;
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Extends the deadline of the given {@link Task} if the given deadline is
+	 * later than its current one.
+	 * @param task The {@link Task} to extend the deadline of.
+	 * @param deadline The new deadline, as given by {@link QueueDiscipline#now()}.
+	 * @return True if the task is currently queued, and so may still expire
+	 * there.
+	 */
+	public boolean extendDeadline(Task task, long deadline) {
+		synchronized (lock) {
+			task.deadline = Math.max(task.deadline, deadline);
+			return queuedTasks.contains(task);
+		}
+	}
+
+	/**
+	 * Drops the given {@link Task} if it is still queued and its deadline has
+	 * passed, calling {@link Task#onExpired()} on the calling thread.
+	 * @param task The {@link Task} to expire.
+	 * @return True if the task was dropped.
+	 */
+	public boolean expireIfQueued(Task task) {
+		synchronized (lock) {
+			if (task.getDeadline() > QueueDiscipline.now() || !removeQueued(task)) {
+				return false;
+			}
+		}
+		task.setExpiryTimer(null);
+		task.onExpired();
+		return true;
+	}
+
+	/**
+	 * Removes the given task from the queue if it hasn't been run yet, so that
+	 * it never claims a connection, and calls {@link Task#onCancelled()}.
+	 * @param task The {@link Task} to cancel.
+	 * @return True if the task was removed.
+	 */
+	public boolean cancelIfQueued(Task task) {
+		synchronized (lock) {
+			if (!removeQueued(task)) {
+				return false;
+			}
+		}
+		task.setExpiryTimer(null);
+		task.onCancelled();
+		return true;
+	}
+
+	/**
+	 * Adds the given task to its host queue. Must be called while holding the
+	 * lock.
+	 */
+	private void addQueued(Task task) {
+		PriorityQueue<Task> queue = hostQueues.get(task.getHost());
+		if (queue == null) {
+			queue = createQueue(task.getHost(), 0);
+			hostQueues.put(task.getHost(), queue);
+			hostRotation.addLast(task.getHost());
+		}
+		queue.add(task);
+		queuedTasks.add(task);
+	}
+
+	/**
+	 * Removes the given task from its host queue. Must be called while holding
+	 * the lock.
+	 * @return True if the task was queued.
+	 */
+	private boolean removeQueued(Task task) {
+		PriorityQueue<Task> queue = hostQueues.get(task.getHost());
+		if (queue == null || !queue.remove(task)) {
+			return false;
+		}
+		queuedTasks.remove(task);
+		if (queue.isEmpty()) {
+			hostQueues.remove(task.getHost());
+			hostRotation.remove(task.getHost());
+		}
+		return true;
+	}
+
+	private void dispatch() {
+		while (true) {
+			Task task;
+			List<Task> expired = null;
+			synchronized (lock) {
+				task = pollNextTask();
+				if (task != null) {
+					claimConnection(task.getHost());
+				}
+				if (!expiredTasks.isEmpty()) {
+					expired = expiredTasks;
+					expiredTasks = new ArrayList<Task>();
+				}
+			}
+
+			// Notify expired tasks outside the lock
+			if (expired != null) {
+				for (Task expiredTask : expired) {
+					expiredTask.setExpiryTimer(null);
+					expiredTask.onExpired();
+				}
+			}
+
+			if (task == null) {
+				return;
+			}
+
+			// The task has left the queue, so it can no longer expire there
+			task.setExpiryTimer(null);
+
+			try {
+				executor.execute(task);
+			} catch (RuntimeException e) {
+				synchronized (lock) {
+					freeConnection(task.getHost());
+				}
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Removes and returns the next task which can run, or null if there is no
+	 * such task. Must be called while holding the lock.
+	 */
+	private Task pollNextTask() {
+		final long now = QueueDiscipline.now();
+		removeExpiredTasks(now);
+
+		if (activeConnections >= getCurrentLimit()) {
+			return null;
+		}
+
+		// Find the most important task whose host has room. Hosts are visited
+		// in rotation order so the least recently served host wins any ties.
+		String nextHost = null;
+		Task nextTask = null;
+		long nextPriority = 0;
+		for (String host : hostRotation) {
+			if (hasCapacity(host)) {
+				Task head = hostQueues.get(host).peek();
+				long priority = getQueueDiscipline(host).getEffectivePriority(head, now);
+				if (nextTask == null || priority > nextPriority) {
+					nextTask = head;
+					nextHost = host;
+					nextPriority = priority;
+				}
+			}
+		}
+
+		if (nextTask != null) {
+			PriorityQueue<Task> queue = hostQueues.get(nextHost);
+			queue.poll();
+			queuedTasks.remove(nextTask);
+			// Move the host to the back of the rotation
+			hostRotation.remove(nextHost);
+			if (queue.isEmpty()) {
+				hostQueues.remove(nextHost);
+			} else {
+				hostRotation.addLast(nextHost);
+			}
+		}
+
+		return nextTask;
+	}
+
+	/**
+	 * Removes the tasks at the front of each host queue whose deadline has
+	 * passed, and adds them to the expired tasks. Must be called while holding
+	 * the lock.
+	 */
+	private void removeExpiredTasks(long now) {
+		Iterator<String> hosts = hostRotation.iterator();
+		while (hosts.hasNext()) {
+			String host = hosts.next();
+			PriorityQueue<Task> queue = hostQueues.get(host);
+			Task head = queue.peek();
+			while (head != null && head.getDeadline() <= now) {
+				queue.poll();
+				queuedTasks.remove(head);
+				expiredTasks.add(head);
+				head = queue.peek();
+			}
+
+			if (queue.isEmpty()) {
+				hostQueues.remove(host);
+				hosts.remove();
+			}
+		}
+	}
+
+	private boolean hasCapacity(String host) {
+		if (activeConnections >= getCurrentLimit()) {
+			return false;
+		}
+
+		return maxConnectionsPerHost <= 0 || getActiveConnections(host) < maxConnectionsPerHost;
+	}
+
+	/**
+	 * Gets the overall number of connections which may currently be used.
+	 * Must be called while holding the lock.
+	 */
+	private int getCurrentLimit() {
+		if (concurrencyLimit == null) {
+			return maxConnections;
+		}
+		// Always allow one connection so work can't stall entirely
+		return Math.max(1, Math.min(maxConnections, concurrencyLimit.getLimit()));
+	}
+
+	private int getActiveConnections(String host) {
+		Integer count = activeHostConnections.get(host);
+		return count == null ? 0 : count;
+	}
+
+	private void claimConnection(String host) {
+		activeConnections++;
+		activeHostConnections.put(host, getActiveConnections(host) + 1);
+	}
+
+	private void freeConnection(String host) {
+		activeConnections--;
+		int remaining = getActiveConnections(host) - 1;
+		if (remaining > 0) {
+			activeHostConnections.put(host, remaining);
+		} else {
+			activeHostConnections.remove(host);
+		}
+		lock.notifyAll();
+	}
+
+	/**
+	 * Waits on the lock, which must be held, without giving up if interrupted.
+	 * @param timeoutMillis The longest time to wait, or 0 to wait until notified.
+	 * @return True if the wait was interrupted, in which case the caller must
+	 * restore the interrupt once it is done waiting.
+	 */
+	private boolean waitUninterruptibly(long timeoutMillis) {
+		try {
+			lock.wait(timeoutMillis);
+			return false;
+		} catch (InterruptedException e) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+/**
+ * Class which summarizes where the time of a request went, to tell whether a
+ * slow request was caused by waiting for a connection, the network, or
+ * translating the response. Every duration is in milliseconds, and is -1 if
+ * the request never went through that phase or it couldn't be observed. If
+ * the request was retried, the phases are those of its last attempt.
+ *
+ * @see ManagedResultInfo#getTimings()
+ * @see RequestEventListener
+ */
+public class RequestTimings {
+
+	static final long UNSET = -1;
+
+	long startTime = UNSET;
+	long connectionAcquiredTime = UNSET;
+	long connectStartTime = UNSET;
+	long secureConnectStartTime = UNSET;
+	long secureConnectEndTime = UNSET;
+	long connectEndTime = UNSET;
+	long responseHeadersTime = UNSET;
+	long responseBodyTime = UNSET;
+	long responseBytes = UNSET;
+	long translateStartTime = UNSET;
+	long translateEndTime = UNSET;
+	long completeTime = UNSET;
+
+	RequestTimings() { }
+
+	private static long between(long start, long end) {
+		return (start == UNSET || end == UNSET) ? UNSET : end - start;
+	}
+
+	/**
+	 * @return The time the request was submitted, as given by
+	 * {@link QueueDiscipline#now()}.
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return How long the request waited, queued or otherwise, before it was
+	 * given a connection.
+	 */
+	public long getQueueDuration() {
+		return between(startTime, connectionAcquiredTime);
+	}
+
+	/**
+	 * @return How long it took to connect to the host, including any TLS
+	 * handshake.
+	 * @see RequestEventListener#onConnectEnd(com.raizlabs.webservicemanager.requests.WebServiceRequest, long)
+	 */
+	public long getConnectDuration() {
+		return between(connectStartTime, connectEndTime);
+	}
+
+	/**
+	 * @return How long the TLS handshake took. This is -1 for
+	 * {@link RequestMode#HttpURLConnection} requests, and for requests made
+	 * without a custom {@link com.raizlabs.webservicemanager.ssl.TrustManager},
+	 * whose handshakes can't be observed.
+	 * @see RequestEventListener#onSecureConnectStart(com.raizlabs.webservicemanager.requests.WebServiceRequest, long)
+	 */
+	public long getSecureConnectDuration() {
+		return between(secureConnectStartTime, secureConnectEndTime);
+	}
+
+	/**
+	 * @return How long it took from starting to connect until the headers of
+	 * the response were received.
+	 */
+	public long getTimeToFirstByte() {
+		return between(connectStartTime, responseHeadersTime);
+	}
+
+	/**
+	 * @return How long it took from receiving the headers of the response
+	 * until its body had been read.
+	 * @see RequestEventListener#onResponseBodyRead(com.raizlabs.webservicemanager.requests.WebServiceRequest, long, long)
+	 */
+	public long getTransferDuration() {
+		return between(responseHeadersTime, responseBodyTime);
+	}
+
+	/**
+	 * @return The number of bytes of the body of the response which were
+	 * read, or -1 if it isn't known.
+	 */
+	public long getResponseBytes() {
+		return responseBytes;
+	}
+
+	/**
+	 * @return How long it took to translate the response into the result.
+	 */
+	public long getTranslateDuration() {
+		return between(translateStartTime, translateEndTime);
+	}
+
+	/**
+	 * @return How long the request took from being submitted until it
+	 * completed.
+	 */
+	public long getTotalDuration() {
+		return between(startTime, completeTime);
+	}
+
+	@Override
+	public String toString() {
+		return "RequestTimings [queue=" + getQueueDuration() +
+				", connect=" + getConnectDuration() +
+				", tls=" + getSecureConnectDuration() +
+				", ttfb=" + getTimeToFirstByte() +
+				", transfer=" + getTransferDuration() +
+				", bytes=" + getResponseBytes() +
+				", translate=" + getTranslateDuration() +
+				", total=" + getTotalDuration() + "]";
+	}
+}
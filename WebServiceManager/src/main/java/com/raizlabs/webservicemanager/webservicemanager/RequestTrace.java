@@ -0,0 +1,250 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * Class which records the phases of a single request into its
+ * {@link RequestTimings}, reports them to a {@link RequestEventListener} and
+ * records the completed request into a {@link MetricsRegistry}.
+ * While a request is connecting, its trace is bound to the executing thread
+ * so that events raised deeper down, such as TLS handshakes, can find it.
+ */
+class RequestTrace {
+
+	private static final ThreadLocal<RequestTrace> current = new ThreadLocal<RequestTrace>();
+
+	/**
+	 * @return The trace bound to the calling thread, or null if there isn't
+	 * one.
+	 */
+	public static RequestTrace getCurrent() {
+		return current.get();
+	}
+
+	private final WebServiceRequest<?> request;
+	private final String host;
+	private final URI uri;
+	private final RequestEventListener listener;
+	private final MetricsRegistry metrics;
+	private final RequestTimings timings;
+	private int attempts;
+
+	/**
+	 * Constructs a {@link RequestTrace}, starting the timings of the request.
+	 * @param request The request to trace.
+	 * @param host The key of the host of the request.
+	 * @param uri The {@link URI} of the request, or null if it is unknown.
+	 * @param listener The {@link RequestEventListener} to report to. Optional.
+	 * @param metrics The {@link MetricsRegistry} to record the request into.
+	 * Optional.
+	 */
+	public RequestTrace(WebServiceRequest<?> request, String host, URI uri, RequestEventListener listener,
+			MetricsRegistry metrics) {
+		this.request = request;
+		this.host = host;
+		this.uri = uri;
+		this.listener = listener;
+		this.metrics = metrics;
+		this.timings = new RequestTimings();
+		this.timings.startTime = QueueDiscipline.now();
+	}
+
+	/**
+	 * @return The timings recorded so far.
+	 */
+	public RequestTimings getTimings() {
+		return timings;
+	}
+
+	/**
+	 * Binds this trace to the calling thread until {@link #unbind()} is called.
+	 */
+	public void bind() {
+		current.set(this);
+	}
+
+	/**
+	 * Unbinds any trace from the calling thread.
+	 */
+	public void unbind() {
+		current.set(null);
+	}
+
+	/**
+	 * Clears the phases of any previous attempt, so that the timings describe
+	 * the attempt which is starting.
+	 */
+	public void beginAttempt() {
+		attempts++;
+		timings.connectionAcquiredTime = RequestTimings.UNSET;
+		timings.connectStartTime = RequestTimings.UNSET;
+		timings.secureConnectStartTime = RequestTimings.UNSET;
+		timings.secureConnectEndTime = RequestTimings.UNSET;
+		timings.connectEndTime = RequestTimings.UNSET;
+		timings.responseHeadersTime = RequestTimings.UNSET;
+		timings.responseBodyTime = RequestTimings.UNSET;
+		timings.responseBytes = RequestTimings.UNSET;
+		timings.translateStartTime = RequestTimings.UNSET;
+		timings.translateEndTime = RequestTimings.UNSET;
+	}
+
+	public void onQueued() {
+		long time = QueueDiscipline.now();
+		if (listener != null) listener.onRequestQueued(request, time);
+	}
+
+	public void onDequeued() {
+		long time = QueueDiscipline.now();
+		if (listener != null) listener.onRequestDequeued(request, time);
+	}
+
+	public void onConnectionAcquired() {
+		long time = timings.connectionAcquiredTime = QueueDiscipline.now();
+		if (listener != null) listener.onConnectionAcquired(request, time);
+	}
+
+	public void onConnectStart() {
+		long time = timings.connectStartTime = QueueDiscipline.now();
+		if (listener != null) listener.onConnectStart(request, time);
+	}
+
+	public void onSecureConnectStart() {
+		long time = timings.secureConnectStartTime = QueueDiscipline.now();
+		if (listener != null) listener.onSecureConnectStart(request, time);
+	}
+
+	public void onSecureConnectEnd() {
+		long time = timings.secureConnectEndTime = QueueDiscipline.now();
+		if (listener != null) listener.onSecureConnectEnd(request, time);
+	}
+
+	public void onConnectEnd() {
+		long time = timings.connectEndTime = QueueDiscipline.now();
+		if (listener != null) listener.onConnectEnd(request, time);
+	}
+
+	public void onResponseHeaders(int responseCode) {
+		long time = timings.responseHeadersTime = QueueDiscipline.now();
+		if (listener != null) listener.onResponseHeaders(request, time, responseCode);
+	}
+
+	public void onResponseBodyRead(long byteCount) {
+		long time = timings.responseBodyTime = QueueDiscipline.now();
+		timings.responseBytes = byteCount;
+		if (listener != null) listener.onResponseBodyRead(request, time, byteCount);
+	}
+
+	public void onTranslateStart() {
+		long time = timings.translateStartTime = QueueDiscipline.now();
+		if (listener != null) listener.onTranslateStart(request, time);
+	}
+
+	public void onTranslateEnd() {
+		long time = timings.translateEndTime = QueueDiscipline.now();
+		if (listener != null) listener.onTranslateEnd(request, time);
+	}
+
+	public void onConnectionReleased() {
+		long time = QueueDiscipline.now();
+		if (listener != null) listener.onConnectionReleased(request, time);
+	}
+
+	/**
+	 * Completes the timings, attaches them to the given result and reports
+	 * the completion.
+	 * @param result The result of the request. May be null.
+	 */
+	public void onComplete(ResultInfo<?> result) {
+		long time = timings.completeTime = QueueDiscipline.now();
+		if (result instanceof ManagedResultInfo) {
+			((ManagedResultInfo<?>) result).setTimings(timings);
+		}
+		if (metrics != null) metrics.onRequestComplete(host, uri, result, timings, attempts);
+		if (listener != null) listener.onRequestComplete(request, time, result);
+	}
+
+	/**
+	 * Wraps the entity of the given response so that the end of its body is
+	 * reported when it has been read.
+	 * @param response The response to trace the body of.
+	 */
+	public void traceBody(HttpResponse response) {
+		HttpEntity entity = response.getEntity();
+		if (entity != null) {
+			response.setEntity(new HttpEntityWrapper(entity) {
+				@Override
+				public InputStream getContent() throws IOException {
+					InputStream content = super.getContent();
+					return (content == null) ? null : new TracedInputStream(content);
+				}
+			});
+		}
+	}
+
+	/**
+	 * {@link InputStream} which counts the bytes read through it, and reports
+	 * the count once the end of the stream is reached or it is closed.
+	 */
+	private class TracedInputStream extends FilterInputStream {
+		private long byteCount;
+		private boolean reported;
+
+		public TracedInputStream(InputStream in) {
+			super(in);
+		}
+
+		private void report() {
+			if (!reported) {
+				reported = true;
+				onResponseBodyRead(byteCount);
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b < 0) {
+				report();
+			} else {
+				byteCount++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int count) throws IOException {
+			int read = super.read(buffer, offset, count);
+			if (read < 0) {
+				report();
+			} else {
+				byteCount += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long count) throws IOException {
+			long skipped = super.skip(count);
+			byteCount += skipped;
+			return skipped;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				report();
+			}
+		}
+	}
+}
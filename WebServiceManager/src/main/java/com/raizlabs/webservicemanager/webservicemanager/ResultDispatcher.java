@@ -0,0 +1,62 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Class which determines the thread the {@link WebServiceRequestListener}s of
+ * background requests are called on. Dispatching results away from the thread
+ * which executed the request frees that thread for the next request as soon
+ * as the result is ready.
+ *
+ * @see #DIRECT
+ * @see #executor(Executor)
+ * @see #mainThread()
+ * @see WebServiceManager#setResultDispatcher(ResultDispatcher)
+ */
+public abstract class ResultDispatcher {
+
+	/**
+	 * Calls listeners directly on the thread which executed the request.
+	 */
+	public static final ResultDispatcher DIRECT = new ResultDispatcher() {
+		@Override
+		public void dispatch(Runnable callback) {
+			callback.run();
+		}
+	};
+
+	/**
+	 * Returns a {@link ResultDispatcher} which calls listeners on the given
+	 * {@link Executor}.
+	 * @param executor The {@link Executor} to call listeners on.
+	 * @return The {@link ResultDispatcher}.
+	 */
+	public static ResultDispatcher executor(final Executor executor) {
+		return new ResultDispatcher() {
+			@Override
+			public void dispatch(Runnable callback) {
+				executor.execute(callback);
+			}
+		};
+	}
+
+	/**
+	 * Returns a {@link HandlerResultDispatcher} which calls listeners on the
+	 * main thread, calling all of the listeners whose results arrive within a
+	 * frame together.
+	 * @return The {@link HandlerResultDispatcher}.
+	 */
+	public static HandlerResultDispatcher mainThread() {
+		return new HandlerResultDispatcher(new Handler(Looper.getMainLooper()));
+	}
+
+	/**
+	 * Called to run the given callback, which calls a listener with the result
+	 * of a request. This is called on the thread which executed the request.
+	 * @param callback The callback to run.
+	 */
+	public abstract void dispatch(Runnable callback);
+}
@@ -0,0 +1,392 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link Future} which may be completed once, notifies callbacks when it
+ * completes, and can be composed with other {@link ResultFuture}s without
+ * blocking any threads.
+ *
+ * @param <V> The type of the result of this future.
+ */
+public class ResultFuture<V> implements Future<V> {
+
+	/**
+	 * Interface for a callback which is called when a {@link ResultFuture}
+	 * completes.
+	 * @param <V> The type of the result of the future.
+	 */
+	public interface Callback<V> {
+		/**
+		 * Called when the future has completed, failed, or been cancelled.
+		 * @param future The future which completed.
+		 */
+		public void onComplete(ResultFuture<V> future);
+	}
+
+	/**
+	 * Interface for a function which transforms the result of one
+	 * {@link ResultFuture} into another value.
+	 * @param <Input> The type of the value to transform.
+	 * @param <Output> The type of the transformed value.
+	 */
+	public interface Transformer<Input, Output> {
+		/**
+		 * Transforms the given value.
+		 * @param input The value to transform.
+		 * @return The transformed value.
+		 * @throws Exception If the transformation fails, in which case the
+		 * resulting future fails with this exception.
+		 */
+		public Output transform(Input input) throws Exception;
+	}
+
+	private static class PendingCallback<V> {
+		Callback<V> callback;
+		Executor executor;
+
+		public PendingCallback(Callback<V> callback, Executor executor) {
+			this.callback = callback;
+			this.executor = executor;
+		}
+	}
+
+	private final Object lock;
+
+	private boolean done;
+	private boolean cancelled;
+	private V result;
+	private Throwable failure;
+	private List<PendingCallback<V>> callbacks;
+
+	/**
+	 * Constructs an incomplete {@link ResultFuture}.
+	 */
+	public ResultFuture() {
+		this(null);
+	}
+
+	/**
+	 * Constructs an incomplete {@link ResultFuture} which uses the given
+	 * object as the lock for its state.
+	 * @param lock The lock to use, or null to use this future.
+	 */
+	protected ResultFuture(Object lock) {
+		this.lock = (lock == null) ? this : lock;
+		this.callbacks = new ArrayList<PendingCallback<V>>();
+	}
+
+	/**
+	 * Completes this future with the given result if it has not already been
+	 * completed.
+	 * @param result The result of the future.
+	 * @return True if this call completed the future.
+	 */
+	public boolean complete(V result) {
+		return finish(result, null, false);
+	}
+
+	/**
+	 * Fails this future with the given exception if it has not already been
+	 * completed.
+	 * @param failure The reason the future failed.
+	 * @return True if this call completed the future.
+	 */
+	public boolean completeExceptionally(Throwable failure) {
+		return finish(null, failure, false);
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return finish(null, null, true);
+	}
+
+	private boolean finish(V result, Throwable failure, boolean cancelled) {
+		List<PendingCallback<V>> pendingCallbacks;
+		synchronized (lock) {
+			if (done) {
+				return false;
+			}
+
+			this.done = true;
+			this.result = result;
+			this.failure = failure;
+			this.cancelled = cancelled;
+			pendingCallbacks = this.callbacks;
+			this.callbacks = null;
+			lock.notifyAll();
+		}
+
+		// Call callbacks outside the lock so they are free to do anything
+		for (PendingCallback<V> pending : pendingCallbacks) {
+			dispatchCallback(pending);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean isDone() {
+		synchronized (lock) {
+			return done;
+		}
+	}
+
+	@Override
+	public boolean isCancelled() {
+		synchronized (lock) {
+			return cancelled;
+		}
+	}
+
+	/**
+	 * @return The result if this future has completed successfully, otherwise
+	 * null. This never blocks.
+	 */
+	public V getValue() {
+		synchronized (lock) {
+			return result;
+		}
+	}
+
+	/**
+	 * @return The exception this future failed with, or null if it has not
+	 * failed. This never blocks.
+	 */
+	public Throwable getFailure() {
+		synchronized (lock) {
+			return failure;
+		}
+	}
+
+	@Override
+	public V get() throws InterruptedException, ExecutionException {
+		synchronized (lock) {
+			while (!done) {
+				lock.wait();
+			}
+			return report();
+		}
+	}
+
+	@Override
+	public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (lock) {
+			while (!done) {
+				long remainingNanos = deadline - System.nanoTime();
+				if (remainingNanos <= 0) {
+					throw new TimeoutException();
+				}
+				TimeUnit.NANOSECONDS.timedWait(lock, remainingNanos);
+			}
+			return report();
+		}
+	}
+
+	private V report() throws ExecutionException {
+		if (cancelled) {
+			throw new CancellationException();
+		} else if (failure != null) {
+			throw new ExecutionException(failure);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a callback which will be called once this future completes. If it
+	 * has already completed, the callback is called immediately.
+	 * @param callback The {@link Callback} to call.
+	 * @param executor The {@link Executor} to call the callback on, or null to
+	 * call it on whichever thread completes the future.
+	 */
+	public void addCallback(Callback<V> callback, Executor executor) {
+		PendingCallback<V> pending = new PendingCallback<V>(callback, executor);
+		synchronized (lock) {
+			if (!done) {
+				callbacks.add(pending);
+				return;
+			}
+		}
+		dispatchCallback(pending);
+	}
+
+	private void dispatchCallback(final PendingCallback<V> pending) {
+		if (pending.executor == null) {
+			pending.callback.onComplete(this);
+		} else {
+			pending.executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					pending.callback.onComplete(ResultFuture.this);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns a future which completes with the result of this future once
+	 * transformed by the given {@link Transformer}. The transformation is run
+	 * on whichever thread completes this future. If this future fails or is
+	 * cancelled, so does the returned future.
+	 * @param transformer The {@link Transformer} to apply to the result.
+	 * @return The future for the transformed result.
+	 */
+	public <Output> ResultFuture<Output> thenApply(Transformer<? super V, ? extends Output> transformer) {
+		return thenApply(transformer, null);
+	}
+
+	/**
+	 * Returns a future which completes with the result of this future once
+	 * transformed by the given {@link Transformer}. If this future fails or is
+	 * cancelled, so does the returned future.
+	 * @param transformer The {@link Transformer} to apply to the result.
+	 * @param executor The {@link Executor} to run the transformation on, or null
+	 * to run it on whichever thread completes this future.
+	 * @return The future for the transformed result.
+	 */
+	public <Output> ResultFuture<Output> thenApply(final Transformer<? super V, ? extends Output> transformer,
+			Executor executor) {
+		final ResultFuture<Output> next = new ResultFuture<Output>();
+		addCallback(new Callback<V>() {
+			@Override
+			public void onComplete(ResultFuture<V> future) {
+				if (next.propagateFailure(future)) {
+					return;
+				}
+				try {
+					next.complete(transformer.transform(future.getValue()));
+				} catch (Exception e) {
+					next.completeExceptionally(e);
+				}
+			}
+		}, executor);
+		return next;
+	}
+
+	/**
+	 * Returns a future which completes with the result of the future produced
+	 * by the given {@link Transformer} from the result of this future. This
+	 * allows dependent requests to be chained without blocking. If either
+	 * future fails or is cancelled, so does the returned future.
+	 * @param transformer The {@link Transformer} which produces the next future.
+	 * @return The future for the result of the produced future.
+	 */
+	public <Output> ResultFuture<Output> thenCompose(
+			Transformer<? super V, ? extends ResultFuture<Output>> transformer) {
+		return thenCompose(transformer, null);
+	}
+
+	/**
+	 * Returns a future which completes with the result of the future produced
+	 * by the given {@link Transformer} from the result of this future. This
+	 * allows dependent requests to be chained without blocking. If either
+	 * future fails or is cancelled, so does the returned future.
+	 * @param transformer The {@link Transformer} which produces the next future.
+	 * @param executor The {@link Executor} to run the transformation on, or null
+	 * to run it on whichever thread completes this future.
+	 * @return The future for the result of the produced future.
+	 */
+	public <Output> ResultFuture<Output> thenCompose(
+			final Transformer<? super V, ? extends ResultFuture<Output>> transformer, Executor executor) {
+		final ResultFuture<Output> next = new ResultFuture<Output>();
+		addCallback(new Callback<V>() {
+			@Override
+			public void onComplete(ResultFuture<V> future) {
+				if (next.propagateFailure(future)) {
+					return;
+				}
+
+				ResultFuture<Output> produced;
+				try {
+					produced = transformer.transform(future.getValue());
+				} catch (Exception e) {
+					next.completeExceptionally(e);
+					return;
+				}
+
+				if (produced == null) {
+					next.complete(null);
+				} else {
+					produced.addCallback(new Callback<Output>() {
+						@Override
+						public void onComplete(ResultFuture<Output> producedFuture) {
+							if (!next.propagateFailure(producedFuture)) {
+								next.complete(producedFuture.getValue());
+							}
+						}
+					}, null);
+				}
+			}
+		}, executor);
+		return next;
+	}
+
+	/**
+	 * Returns a future which completes once all of the given futures have
+	 * completed, with a list of their results in the same order. If any of
+	 * the futures fails or is cancelled, the returned future fails.
+	 * @param futures The futures to wait for.
+	 * @return The future for the list of results.
+	 */
+	public static <V> ResultFuture<List<V>> allOf(final List<? extends ResultFuture<? extends V>> futures) {
+		final ResultFuture<List<V>> combined = new ResultFuture<List<V>>();
+		if (futures.isEmpty()) {
+			combined.complete(Collections.<V>emptyList());
+			return combined;
+		}
+
+		final AtomicInteger remaining = new AtomicInteger(futures.size());
+		for (ResultFuture<? extends V> future : futures) {
+			addAllOfCallback(future, futures, combined, remaining);
+		}
+		return combined;
+	}
+
+	private static <V, T extends V> void addAllOfCallback(ResultFuture<T> future,
+			final List<? extends ResultFuture<? extends V>> futures,
+			final ResultFuture<List<V>> combined, final AtomicInteger remaining) {
+		future.addCallback(new Callback<T>() {
+			@Override
+			public void onComplete(ResultFuture<T> completed) {
+				if (combined.propagateFailure(completed)) {
+					return;
+				}
+
+				if (remaining.decrementAndGet() == 0) {
+					List<V> results = new ArrayList<V>(futures.size());
+					for (ResultFuture<? extends V> future : futures) {
+						results.add(future.getValue());
+					}
+					combined.complete(results);
+				}
+			}
+		}, null);
+	}
+
+	/**
+	 * Fails this future if the given completed future failed or was cancelled.
+	 * @return True if the given future did not complete successfully.
+	 */
+	private boolean propagateFailure(ResultFuture<?> source) {
+		if (source.isCancelled()) {
+			completeExceptionally(new CancellationException());
+			return true;
+		}
+
+		Throwable sourceFailure = source.getFailure();
+		if (sourceFailure != null) {
+			completeExceptionally(sourceFailure);
+			return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,251 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.HttpMethod;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Class which determines whether and when a failed request should be retried.
+ * Retries are delayed with exponential backoff and random jitter so that
+ * clients don't all retry an overloaded server at the same moment.
+ * <br><br>
+ * By default, requests are attempted at most 3 times, only if their
+ * {@link HttpMethod} is idempotent, and only after an {@link IOException}
+ * or a 408, 429, 502, 503 or 504 response. Requests which can't be sent
+ * again, such as those which send the contents of an input stream, are never
+ * retried.
+ *
+ * @see WebServiceManager#setRetryPolicy(RetryPolicy)
+ */
+public class RetryPolicy {
+
+	/**
+	 * Interface which classifies response codes as retryable or not.
+	 */
+	public interface StatusClassifier {
+		/**
+		 * @param responseCode The response code of the failed attempt.
+		 * @return True if a request with this response code should be retried.
+		 */
+		public boolean isRetryable(int responseCode);
+	}
+
+	/**
+	 * Interface which classifies exceptions as retryable or not.
+	 */
+	public interface ExceptionClassifier {
+		/**
+		 * @param exception The exception which caused the attempt to fail.
+		 * @return True if a request which failed with this exception should be
+		 * retried.
+		 */
+		public boolean isRetryable(IOException exception);
+	}
+
+	/**
+	 * {@link StatusClassifier} which retries responses indicating that the
+	 * server is temporarily unavailable or overloaded.
+	 */
+	public static final StatusClassifier DEFAULT_STATUS_CLASSIFIER = new StatusClassifier() {
+		@Override
+		public boolean isRetryable(int responseCode) {
+			switch (responseCode) {
+			case 408:
+			case 429:
+			case 502:
+			case 503:
+			case 504:
+				return true;
+			default:
+				return false;
+			}
+		}
+	};
+
+	/**
+	 * {@link ExceptionClassifier} which retries every exception.
+	 */
+	public static final ExceptionClassifier DEFAULT_EXCEPTION_CLASSIFIER = new ExceptionClassifier() {
+		@Override
+		public boolean isRetryable(IOException exception) {
+			return true;
+		}
+	};
+
+	private static final StatusClassifier NO_STATUS = new StatusClassifier() {
+		@Override
+		public boolean isRetryable(int responseCode) {
+			return false;
+		}
+	};
+
+	private static final ExceptionClassifier NO_EXCEPTION = new ExceptionClassifier() {
+		@Override
+		public boolean isRetryable(IOException exception) {
+			return false;
+		}
+	};
+
+	/**
+	 * Returns a {@link RetryPolicy} which doesn't retry any failures by itself.
+	 * Requests are then only retried when
+	 * {@link WebServiceManager#onURLConnectionException(com.raizlabs.webservicemanager.requests.WebServiceRequest, IOException)}
+	 * asks for it, which is still limited by the maximum attempts and backoff.
+	 * @return The {@link RetryPolicy}.
+	 */
+	public static RetryPolicy none() {
+		return new RetryPolicy()
+				.setStatusClassifier(NO_STATUS)
+				.setExceptionClassifier(NO_EXCEPTION);
+	}
+
+	private int maxAttempts = 3;
+	private long initialDelayMillis = 100;
+	private double multiplier = 2;
+	private long maxDelayMillis = 10000;
+	private double jitter = 0.5;
+	private boolean retryNonIdempotent = false;
+	private StatusClassifier statusClassifier = DEFAULT_STATUS_CLASSIFIER;
+	private ExceptionClassifier exceptionClassifier = DEFAULT_EXCEPTION_CLASSIFIER;
+	private final Random random = new Random();
+
+	/**
+	 * Sets the maximum number of times a request is attempted, including the
+	 * first attempt.
+	 * @param maxAttempts The maximum number of attempts, at least 1.
+	 * @return This {@link RetryPolicy} object to allow for chaining of calls.
+	 */
+	public RetryPolicy setMaxAttempts(int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("There must be at least one attempt");
+		}
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+	/**
+	 * @return The maximum number of times a request is attempted, including the
+	 * first attempt.
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Sets the backoff between attempts. The delay before the nth retry is
+	 * initialDelayMillis * multiplier^(n - 1), up to maxDelayMillis.
+	 * @param initialDelayMillis The delay before the first retry, in milliseconds.
+	 * @param multiplier The factor the delay grows by for each retry.
+	 * @param maxDelayMillis The largest delay, in milliseconds.
+	 * @return This {@link RetryPolicy} object to allow for chaining of calls.
+	 */
+	public RetryPolicy setBackoff(long initialDelayMillis, double multiplier, long maxDelayMillis) {
+		this.initialDelayMillis = initialDelayMillis;
+		this.multiplier = multiplier;
+		this.maxDelayMillis = maxDelayMillis;
+		return this;
+	}
+
+	/**
+	 * Sets how much of each delay is randomized. With a jitter of 0.5, each
+	 * delay is picked uniformly between half and all of the backoff.
+	 * @param jitter The fraction of each delay to randomize, between 0 and 1.
+	 * @return This {@link RetryPolicy} object to allow for chaining of calls.
+	 */
+	public RetryPolicy setJitter(double jitter) {
+		if (jitter < 0 || jitter > 1) {
+			throw new IllegalArgumentException("Jitter must be between 0 and 1");
+		}
+		this.jitter = jitter;
+		return this;
+	}
+
+	/**
+	 * Sets whether requests whose {@link HttpMethod} is not idempotent, such
+	 * as POST, may be retried. Defaults to false, since the server may have
+	 * acted on a request even if the response was lost.
+	 * @param retry True to retry non-idempotent requests.
+	 * @return This {@link RetryPolicy} object to allow for chaining of calls.
+	 */
+	public RetryPolicy setRetryNonIdempotent(boolean retry) {
+		this.retryNonIdempotent = retry;
+		return this;
+	}
+
+	/**
+	 * Sets the {@link StatusClassifier} which decides which response codes
+	 * are retried.
+	 * @param classifier The {@link StatusClassifier} to use.
+	 * @return This {@link RetryPolicy} object to allow for chaining of calls.
+	 */
+	public RetryPolicy setStatusClassifier(StatusClassifier classifier) {
+		this.statusClassifier = classifier;
+		return this;
+	}
+
+	/**
+	 * Sets the {@link ExceptionClassifier} which decides which exceptions are
+	 * retried.
+	 * @param classifier The {@link ExceptionClassifier} to use.
+	 * @return This {@link RetryPolicy} object to allow for chaining of calls.
+	 */
+	public RetryPolicy setExceptionClassifier(ExceptionClassifier classifier) {
+		this.exceptionClassifier = classifier;
+		return this;
+	}
+
+	/**
+	 * Determines whether a failed attempt of a request which can be sent again
+	 * should be retried.
+	 * @param method The {@link HttpMethod} of the request, or null if unknown.
+	 * @param responseCode The response code of the attempt, or -1 if there
+	 * was no response.
+	 * @param exception The exception the attempt failed with, or null if it
+	 * didn't fail with one.
+	 * @param attempts The number of attempts which have been made so far.
+	 * @return True if the request should be attempted again.
+	 */
+	public boolean shouldRetry(HttpMethod method, int responseCode, IOException exception, int attempts) {
+		return shouldRetry(method, true, responseCode, exception, attempts);
+	}
+
+	/**
+	 * Determines whether a failed attempt should be retried.
+	 * @param method The {@link HttpMethod} of the request, or null if unknown.
+	 * @param canResend False if the request can't be sent again, such as
+	 * because its body was an input stream which the attempt consumed.
+	 * @param responseCode The response code of the attempt, or -1 if there
+	 * was no response.
+	 * @param exception The exception the attempt failed with, or null if it
+	 * didn't fail with one.
+	 * @param attempts The number of attempts which have been made so far.
+	 * @return True if the request should be attempted again.
+	 * @see com.raizlabs.webservicemanager.requests.RequestBuilder#canResend()
+	 */
+	public boolean shouldRetry(HttpMethod method, boolean canResend, int responseCode, IOException exception,
+			int attempts) {
+		if (attempts >= maxAttempts || !canResend) {
+			return false;
+		}
+		if (method != null && !method.isIdempotent() && !retryNonIdempotent) {
+			return false;
+		}
+
+		if (exception != null) {
+			return exceptionClassifier.isRetryable(exception);
+		}
+		return responseCode >= 0 && statusClassifier.isRetryable(responseCode);
+	}
+
+	/**
+	 * Gets the time to wait before the next attempt, including jitter.
+	 * @param attempts The number of attempts which have been made so far.
+	 * @return The delay in milliseconds.
+	 */
+	public long getDelayMillis(int attempts) {
+		double delay = initialDelayMillis * Math.pow(multiplier, Math.max(0, attempts - 1));
+		delay = Math.min(delay, maxDelayMillis);
+		return (long) (delay * (1 - jitter * random.nextDouble()));
+	}
+}
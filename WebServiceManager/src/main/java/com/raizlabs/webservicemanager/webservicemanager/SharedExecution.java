@@ -0,0 +1,24 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+
+/**
+ * Interface for a single queued execution which is shared by a set of
+ * requests, such as a {@link CoalescedRequest} or a {@link RequestBatch}.
+ */
+interface SharedExecution {
+	/**
+	 * @return The task which runs this execution.
+	 */
+	RequestScheduler.Task getTask();
+
+	/**
+	 * Records the priority which the given request wants this execution to
+	 * run at.
+	 * @param request The {@link WebServiceRequest} which changed its priority.
+	 * @param priority The new priority of the request.
+	 * @return The priority this execution should now run at, which is the
+	 * highest priority of the requests which are still waiting for it.
+	 */
+	int setPriority(WebServiceRequest<?> request, int priority);
+}
@@ -0,0 +1,257 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.requests.ManagedWebServiceRequest;
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base {@link WebServiceRequest} for a {@link SharedExecution}, which is
+ * executed once on behalf of a set of member requests. This keeps track of the
+ * members, their priorities and the status of the shared request.
+ * <br><br>
+ * Cancellation is reference counted: cancelling a member only detaches it,
+ * and the shared request is cancelled once every member has been cancelled.
+ * After that, or once the shared request is closed, no more members may join.
+ *
+ * @param <ResultType> The type of the result of the shared request.
+ * @param <MemberType> The type which describes each member.
+ */
+abstract class SharedRequest<ResultType, MemberType extends SharedRequest.Member<?>>
+		implements ManagedWebServiceRequest<ResultType>, SharedExecution {
+
+	/**
+	 * A request which is waiting for the result of the shared request.
+	 * @param <MemberResultType> The type of the result of the request.
+	 */
+	static class Member<MemberResultType> {
+		final WebServiceRequest<MemberResultType> request;
+		final WebServiceRequestListener<MemberResultType> listener;
+		int priority;
+		boolean cancelled;
+		/**
+		 * The listener which detaches the member if its request is cancelled.
+		 */
+		CancelListener<MemberResultType> cancelListener;
+
+		public Member(WebServiceRequest<MemberResultType> request, WebServiceRequestListener<MemberResultType> listener,
+				int priority) {
+			this.request = request;
+			this.listener = listener;
+			this.priority = priority;
+		}
+	}
+
+	private RequestScheduler.Task task;
+
+	private final List<MemberType> members = new ArrayList<MemberType>();
+	private int activeMembers;
+	/**
+	 * Set once no more members may join, either because the shared request
+	 * has been closed or every member has been cancelled.
+	 */
+	private boolean closed;
+
+	@Override
+	public RequestScheduler.Task getTask() {
+		return task;
+	}
+
+	/**
+	 * Sets the task which runs this shared request.
+	 * @param task The task which was queued for this request.
+	 */
+	public void setTask(RequestScheduler.Task task) {
+		this.task = task;
+	}
+
+	/**
+	 * @return The lock which guards the members of this request.
+	 */
+	protected Object getMembersLock() {
+		return members;
+	}
+
+	/**
+	 * @return The members of this request. Only access this while holding
+	 * {@link #getMembersLock()}.
+	 */
+	protected List<MemberType> getMembers() {
+		return members;
+	}
+
+	/**
+	 * Called to check whether another member may join this request.
+	 * @param memberCount The number of members which have already joined.
+	 * @return True if another member may join.
+	 */
+	protected boolean canJoin(int memberCount) {
+		return true;
+	}
+
+	/**
+	 * Adds the given member to this request.
+	 * @param member The member to add.
+	 * @return True if the member was added, or false if this request has been
+	 * closed or can't take any more members.
+	 */
+	protected boolean join(MemberType member) {
+		Member<?> joining = member;
+		setCancelListener(joining);
+		synchronized (members) {
+			if (closed || !canJoin(members.size())) {
+				return false;
+			}
+			members.add(member);
+			activeMembers++;
+		}
+
+		// Listen outside of the lock, as the listener is called immediately if
+		// the request has already been cancelled
+		addCancelListener(joining);
+		return true;
+	}
+
+	/**
+	 * @return True if another member may join this request.
+	 */
+	protected boolean isJoinable() {
+		synchronized (members) {
+			return !closed && canJoin(members.size());
+		}
+	}
+
+	/**
+	 * Stops any more members from joining this request.
+	 */
+	public void close() {
+		synchronized (members) {
+			closed = true;
+		}
+	}
+
+	/**
+	 * Closes this request once its result is ready to be delivered, and stops
+	 * listening for its members being cancelled, as that no longer affects it.
+	 * @return The members to deliver the result to.
+	 */
+	protected List<MemberType> finish() {
+		List<MemberType> currentMembers;
+		synchronized (members) {
+			closed = true;
+			currentMembers = new ArrayList<MemberType>(members);
+		}
+
+		for (MemberType member : currentMembers) {
+			Member<?> finished = member;
+			removeCancelListener(finished);
+		}
+		return currentMembers;
+	}
+
+	@Override
+	public int setPriority(WebServiceRequest<?> request, int priority) {
+		synchronized (members) {
+			int highest = priority;
+			boolean found = false;
+			for (MemberType member : members) {
+				if (member.request == request) {
+					member.priority = priority;
+				}
+				if (!member.cancelled) {
+					highest = found ? Math.max(highest, member.priority) : member.priority;
+					found = true;
+				}
+			}
+			return highest;
+		}
+	}
+
+	private <T> void setCancelListener(final Member<T> member) {
+		member.cancelListener = new CancelListener<T>() {
+			@Override
+			public void onCancel(WebServiceRequest<T> request) {
+				request.removeOnCancelListener(this);
+				onMemberCancelled(member);
+			}
+		};
+	}
+
+	private static <T> void addCancelListener(Member<T> member) {
+		member.request.addOnCancelListener(member.cancelListener);
+	}
+
+	private static <T> void removeCancelListener(Member<T> member) {
+		member.request.removeOnCancelListener(member.cancelListener);
+	}
+
+	private void onMemberCancelled(Member<?> member) {
+		boolean cancelShared;
+		synchronized (members) {
+			member.cancelled = true;
+			activeMembers--;
+			cancelShared = activeMembers == 0;
+			closed |= cancelShared;
+		}
+
+		if (cancelShared) {
+			cancel();
+		}
+	}
+
+	@Override
+	public Object getStatusLock() {
+		return this;
+	}
+
+	private boolean isStarted = false;
+	@Override
+	public boolean isStarted() {
+		synchronized (getStatusLock()) {
+			return isStarted;
+		}
+	}
+
+	@Override
+	public void onStart() {
+		synchronized (getStatusLock()) {
+			isStarted = true;
+		}
+	}
+
+	private boolean cancelled = false;
+	private CancelListenerSet<ResultType> cancelListeners = new CancelListenerSet<ResultType>();
+
+	@Override
+	public void cancel() {
+		synchronized (getStatusLock()) {
+			cancelled = true;
+			cancelListeners.onCancel(this);
+		}
+	}
+
+	@Override
+	public boolean isCancelled() {
+		synchronized (getStatusLock()) {
+			return cancelled;
+		}
+	}
+
+	@Override
+	public void addOnCancelListener(CancelListener<ResultType> listener) {
+		synchronized (getStatusLock()) {
+			cancelListeners.add(listener);
+			if (cancelled) {
+				listener.onCancel(this);
+			}
+		}
+	}
+
+	@Override
+	public boolean removeOnCancelListener(CancelListener<ResultType> listener) {
+		synchronized (getStatusLock()) {
+			return cancelListeners.remove(listener);
+		}
+	}
+}
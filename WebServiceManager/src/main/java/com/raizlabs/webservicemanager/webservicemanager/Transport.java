@@ -0,0 +1,53 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+
+import java.io.IOException;
+
+/**
+ * Interface for a transport which sends a {@link WebServiceRequest} over the
+ * network and translates its response. The {@link WebServiceManager} takes
+ * care of everything around a single execution: it queues the request, claims
+ * one of its connections for it, starts it, enforces its deadline, retries it
+ * and reports its result. The transport only has to send it.
+ * <br><br>
+ * A transport will usually:
+ * <ul>
+ * <li>Encode the request, using
+ * {@link WebServiceRequest#getHttpUriRequest()},
+ * {@link WebServiceRequest#getUrlConnection()}, or the transport neutral
+ * description given by
+ * {@link com.raizlabs.webservicemanager.requests.ManagedWebServiceRequest#getBuilder()}.</li>
+ * <li>Set an abort handler through
+ * {@link TransportCall#setAbortHandler(Runnable)}, which is run if the
+ * request is cancelled or passes its deadline.</li>
+ * <li>Report each phase of the request through the {@link TransportCall},
+ * in particular {@link TransportCall#onResponseHeaders(int)}, which feeds
+ * the concurrency limit, circuit breaker and hedging policy.</li>
+ * <li>Wrap the response in a
+ * {@link com.raizlabs.webservicemanager.responses.Response} and pass it to
+ * {@link com.raizlabs.webservicemanager.requests.ManagedWebServiceRequest#translateResponse(com.raizlabs.webservicemanager.responses.Response)}.</li>
+ * </ul>
+ * The transports for each {@link RequestMode} are built on this interface,
+ * and may be replaced through
+ * {@link WebServiceManager#setTransport(RequestMode, Transport)}. Any other
+ * transport may be used by passing it to
+ * {@link WebServiceManager#doRequest(WebServiceRequest, Transport)} or
+ * {@link WebServiceManager#setDefaultTransport(Transport)}.
+ * <br><br>
+ * Implementations must be thread-safe, as many requests are executed at once.
+ */
+public interface Transport {
+	/**
+	 * Executes the given request once, on the calling thread, and translates
+	 * its response. This is only called once the request has been started and
+	 * holds one of the connections of the {@link WebServiceManager}.
+	 * @param request The {@link WebServiceRequest} to execute.
+	 * @param call The {@link TransportCall} which tracks this execution.
+	 * @return The result of the request, or null if there was none.
+	 * @throws IOException if the request failed. The failure is reported
+	 * to the {@link RetryPolicy} of the {@link WebServiceManager}.
+	 */
+	public <ResultType> ResultInfo<ResultType> execute(WebServiceRequest<ResultType> request, TransportCall call)
+			throws IOException;
+}
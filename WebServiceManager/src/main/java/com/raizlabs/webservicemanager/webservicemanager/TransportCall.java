@@ -0,0 +1,329 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import android.util.Log;
+
+import com.raizlabs.webservicemanager.HttpMethod;
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+import com.raizlabs.webservicemanager.responses.Response;
+
+import java.io.IOException;
+
+/**
+ * Class which tracks a single execution of a request by a {@link Transport},
+ * through which the transport reports its progress back to the
+ * {@link WebServiceManager}.
+ * <br><br>
+ * The request holds one of the connections of the manager while it is
+ * executing. This is released once the transport returns, but transports
+ * should release it through {@link #releaseConnection()} as soon as they
+ * have finished with the network, so that other requests can be sent while
+ * this one is translated.
+ */
+public class TransportCall {
+	private final WebServiceManager manager;
+	private final WebServiceRequest<?> request;
+	private final String host;
+	private final long deadline;
+	private final WebServiceManager.Attempt attempt;
+	private final long circuitPermit;
+
+	private boolean holdsConnection;
+	private volatile boolean aborted;
+	private volatile boolean expired;
+	private Runnable abortHandler;
+	private long startTime = -1;
+	private boolean sampled;
+
+	TransportCall(WebServiceManager manager, WebServiceRequest<?> request, String host, long deadline,
+			WebServiceManager.Attempt attempt, boolean holdsConnection, long circuitPermit) {
+		this.manager = manager;
+		this.request = request;
+		this.host = host;
+		this.deadline = deadline;
+		this.attempt = attempt;
+		this.holdsConnection = holdsConnection;
+		this.circuitPermit = circuitPermit;
+	}
+
+	/**
+	 * @return The key of the host of the request.
+	 * @see WebServiceManager#getHostKey(WebServiceRequest)
+	 */
+	public String getHost() {
+		return host;
+	}
+
+	/**
+	 * @return The time, as given by {@link QueueDiscipline#now()}, by which
+	 * the request must complete, or {@link RequestScheduler#NO_DEADLINE}.
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * @return The connection timeout to use, in milliseconds, which doesn't
+	 * extend past the deadline of the request.
+	 */
+	public int getConnectionTimeout() {
+		return WebServiceManager.getTimeoutBefore(manager.getConnectionTimeout(), deadline);
+	}
+
+	/**
+	 * @return The read timeout to use, in milliseconds, which doesn't extend
+	 * past the deadline of the request.
+	 */
+	public int getReadTimeout() {
+		return WebServiceManager.getTimeoutBefore(manager.getReadTimeout(), deadline);
+	}
+
+	/**
+	 * @return True if the request has been cancelled or has passed its
+	 * deadline, and so should be given up.
+	 */
+	public boolean isAborted() {
+		return aborted;
+	}
+
+	/**
+	 * @return True if the request has passed its deadline.
+	 */
+	public boolean isExpired() {
+		return expired;
+	}
+
+	/**
+	 * Sets the action which aborts the request if it is cancelled or passes
+	 * its deadline. This may be run asynchronously, from any thread. If the
+	 * request has already been aborted, the action is run immediately.
+	 * <br><br>
+	 * Transports should clear the action once the network is no longer in use,
+	 * so that a late abort doesn't close a connection which could be reused.
+	 * @param handler The action to run, or null to do nothing.
+	 */
+	public void setAbortHandler(Runnable handler) {
+		synchronized (this) {
+			this.abortHandler = handler;
+			if (!aborted || handler == null) {
+				return;
+			}
+		}
+		handler.run();
+	}
+
+	/**
+	 * Sets the method of the request, which decides whether it may be retried.
+	 * @param method The {@link HttpMethod} of the request.
+	 */
+	public void setMethod(HttpMethod method) {
+		attempt.method = method;
+	}
+
+	/**
+	 * Sets whether the request should be retried, regardless of whether the
+	 * {@link RetryPolicy} considers its failure retryable. Retries are still
+	 * limited to the maximum attempts of the policy and delayed by its backoff.
+	 * @param retry True to retry the request.
+	 */
+	public void setRetryRequested(boolean retry) {
+		attempt.retryRequested = retry;
+	}
+
+	/**
+	 * Releases the connection which the request holds, so that another request
+	 * may be sent. Does nothing if it has already been released.
+	 */
+	public void releaseConnection() {
+		synchronized (this) {
+			if (!holdsConnection) {
+				return;
+			}
+			holdsConnection = false;
+		}
+		manager.endConnection(host);
+		attempt.trace.onConnectionReleased();
+	}
+
+	/**
+	 * Called when the request starts connecting to its host.
+	 */
+	public void onConnectStart() {
+		startTime = QueueDiscipline.now();
+		attempt.trace.onConnectStart();
+	}
+
+	/**
+	 * Called when the TLS handshake of the request starts.
+	 */
+	public void onSecureConnectStart() {
+		attempt.trace.onSecureConnectStart();
+	}
+
+	/**
+	 * Called when the TLS handshake of the request has completed.
+	 */
+	public void onSecureConnectEnd() {
+		attempt.trace.onSecureConnectEnd();
+	}
+
+	/**
+	 * Called when the request has connected to its host.
+	 */
+	public void onConnectEnd() {
+		attempt.trace.onConnectEnd();
+	}
+
+	/**
+	 * Called when the status and headers of the response have been received.
+	 * This records how long the request took and whether it succeeded.
+	 * @param responseCode The response code.
+	 */
+	public void onResponseHeaders(int responseCode) {
+		attempt.trace.onResponseHeaders(responseCode);
+		onSample(responseCode);
+	}
+
+	/**
+	 * Called when the body of the response has been read to its end.
+	 * @param byteCount The number of bytes in the body.
+	 */
+	public void onResponseBodyRead(long byteCount) {
+		attempt.trace.onResponseBodyRead(byteCount);
+	}
+
+	/**
+	 * Called when the response starts being translated.
+	 */
+	public void onTranslateStart() {
+		attempt.trace.onTranslateStart();
+	}
+
+	/**
+	 * Called when the response has been translated.
+	 */
+	public void onTranslateEnd() {
+		attempt.trace.onTranslateEnd();
+	}
+
+	/**
+	 * Called when the request failed, for transports which still return a
+	 * result for it rather than throwing the exception from
+	 * {@link Transport#execute(WebServiceRequest, TransportCall)}. The failure
+	 * is reported to the {@link RetryPolicy}.
+	 * @param e The exception which caused the failure.
+	 */
+	public void onException(IOException e) {
+		attempt.exception = e;
+		onSample(-1);
+	}
+
+	/**
+	 * @return True if the manager can complete the request after the
+	 * transport returns, so that its response may be translated off the
+	 * thread executing it.
+	 * @see #deferTranslation(Runnable, Response)
+	 */
+	boolean canDeferTranslation() {
+		return attempt.translationDeferrable;
+	}
+
+	/**
+	 * Leaves the translation of the response to the manager, which runs it
+	 * on its translation executor before completing the request, or closes
+	 * the response instead if the request is retried or passes its deadline
+	 * first. The result returned by
+	 * the transport must be filled in by the translation.
+	 * @param translation Translates the response into the result.
+	 * @param response The response the translation reads.
+	 */
+	void deferTranslation(Runnable translation, Response response) {
+		attempt.translation = translation;
+		attempt.translatedResponse = response;
+	}
+
+	/**
+	 * @return The permit the {@link CircuitBreaker} let the request through
+	 * with, or {@link CircuitBreaker#ALLOWED} if there is none.
+	 */
+	long getCircuitPermit() {
+		return circuitPermit;
+	}
+
+	/**
+	 * @return True if the outcome of the request has been reported to the
+	 * manager.
+	 */
+	boolean wasSampled() {
+		return sampled;
+	}
+
+	/**
+	 * @return The trace of the request, for the built in transports to bind
+	 * while connecting.
+	 */
+	RequestTrace getTrace() {
+		return attempt.trace;
+	}
+
+	/**
+	 * Claims a connection for the request if it doesn't already hold one,
+	 * waiting no later than its deadline.
+	 * @return True if the request holds a connection.
+	 */
+	boolean acquireConnection() {
+		synchronized (this) {
+			if (holdsConnection) {
+				return true;
+			}
+		}
+		boolean acquired = manager.beginConnection(host, deadline);
+		if (acquired) {
+			synchronized (this) {
+				holdsConnection = true;
+			}
+			attempt.trace.onConnectionAcquired();
+		}
+		return acquired;
+	}
+
+	/**
+	 * Aborts the request, running the abort handler if there is one.
+	 */
+	void abort() {
+		Runnable handler;
+		synchronized (this) {
+			if (aborted) {
+				return;
+			}
+			aborted = true;
+			handler = abortHandler;
+		}
+		if (handler != null) {
+			try {
+				handler.run();
+			} catch (RuntimeException e) {
+				Log.w(getClass().getName(), "Error aborting request", e);
+			}
+		}
+	}
+
+	/**
+	 * Marks the request as having passed its deadline, and aborts it.
+	 */
+	void expire() {
+		expired = true;
+		abort();
+	}
+
+	/**
+	 * Reports the outcome of the request to the manager, once, unless it was
+	 * cancelled or passed its deadline, or never started connecting.
+	 */
+	private void onSample(int responseCode) {
+		if (sampled || startTime < 0 || request.isCancelled() || expired) {
+			return;
+		}
+		sampled = true;
+		manager.onConnectionSample(host, circuitPermit, startTime, responseCode);
+	}
+}
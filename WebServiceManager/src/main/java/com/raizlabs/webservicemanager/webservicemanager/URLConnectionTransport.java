@@ -0,0 +1,267 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import android.util.Log;
+
+import com.raizlabs.webservicemanager.HttpMethod;
+import com.raizlabs.webservicemanager.requests.ManagedWebServiceRequest;
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+import com.raizlabs.webservicemanager.responses.BufferedResponse;
+import com.raizlabs.webservicemanager.responses.HttpURLConnectionResponse;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Date;
+
+/**
+ * {@link Transport} which implements {@link RequestMode#HttpURLConnection},
+ * executing the {@link HttpURLConnection}s given by requests.
+ */
+class URLConnectionTransport implements Transport {
+
+	private final WebServiceManager manager;
+
+	public URLConnectionTransport(WebServiceManager manager) {
+		this.manager = manager;
+	}
+
+	@Override
+	public <ResultType> ResultInfo<ResultType> execute(WebServiceRequest<ResultType> request, TransportCall call)
+			throws IOException {
+		// Get the connection from the request. This should not actually open
+		// the connection, merely set it up.
+		final HttpURLConnection primaryConnection = request.getUrlConnection();
+		if (primaryConnection == null) {
+			return null;
+		}
+		HttpMethod method = HttpMethod.fromName(primaryConnection.getRequestMethod());
+		call.setMethod(method);
+		manager.setupConnection(primaryConnection);
+		// Don't let the socket timeouts outlast the deadline
+		setTimeouts(primaryConnection, call);
+		final HedgedExecution<HttpURLConnection, Integer> hedge = createHedge(request, call, method);
+
+		// Disconnect the connection if the request is cancelled or passes its
+		// deadline. From here on, the connection may be dead.
+		call.setAbortHandler(new Runnable() {
+			@Override
+			public void run() {
+				if (hedge != null) {
+					hedge.abortAll();
+				} else {
+					primaryConnection.disconnect();
+				}
+			}
+		});
+
+		HttpURLConnection connection = primaryConnection;
+		boolean released = false;
+		boolean failed = false;
+		BufferedResponse bufferedResponse = null;
+		ResultInfo<ResultType> resultInfo = null;
+		try {
+			// Double check the request is still wanted
+			if (call.isAborted()) {
+				return null;
+			}
+
+			// Connect. Failures to connect, or to get a response, are thrown to
+			// the manager, which reports them and decides whether to retry.
+			call.onConnectStart();
+			call.getTrace().bind();
+			try {
+				if (hedge != null) {
+					// Race for the response code, continuing with whichever
+					// connection gets it first
+					Integer responseCode = hedge.execute(primaryConnection,
+							manager.getTimerExecutor(), manager.getHedgeExecutor());
+					if (hedge.getWinner() != null) {
+						connection = hedge.getWinner();
+						call.onConnectEnd();
+						call.onResponseHeaders(responseCode);
+					}
+				} else {
+					primaryConnection.connect();
+					call.onConnectEnd();
+				}
+			} finally {
+				call.getTrace().unbind();
+			}
+
+			// If the request wasn't cancelled, execute it
+			if (!request.isCancelled()) {
+				// Let the request handle the connection, unless that was part
+				// of the hedged race
+				if (hedge == null) {
+					request.onConnected(connection);
+					call.onResponseHeaders(connection.getResponseCode());
+				}
+				ResultType result = null;
+				if (manager.isPipelinedTranslationEnabled() && WebServiceManager.canTranslateResponse(request)) {
+					// Read the whole response now, so that the connection can
+					// be released before it is translated
+					bufferedResponse = BufferedResponse.read(connection, manager.getResponseBufferPool(),
+							manager.getMaxDrainBytes());
+					call.onResponseBodyRead(bufferedResponse.getBufferedLength());
+				} else {
+					// Try to translate the connection
+					call.onTranslateStart();
+					try {
+						if (manager.isURLConnectionReuseEnabled() && WebServiceManager.canTranslateResponse(request)) {
+							// Release the connection rather than disconnecting it
+							// once the response is translated
+							result = ((ManagedWebServiceRequest<ResultType>) request).translateResponse(
+									new HttpURLConnectionResponse(connection, true, manager.getMaxDrainBytes()));
+						} else {
+							result = request.translateConnection(connection);
+						}
+					} catch (RuntimeException ex) {
+						// The response arrived, so this isn't a network failure.
+						// It may not have been read to the end though, so don't
+						// keep the connection alive.
+						failed = true;
+						Log.w(getClass().getName(), "Error translating response", ex);
+					}
+					call.onTranslateEnd();
+				}
+				// Reading or translating closes the response, which releases
+				// the connection
+				released = true;
+
+				if (bufferedResponse == null) {
+					resultInfo = new BasicResultInfo<ResultType>(result, new Date(), connection);
+				}
+			}
+		} catch (IOException e) {
+			failed = true;
+			// Subclasses may ask for a retry, which is still limited by the retry policy.
+			// Don't retry once the deadline has passed.
+			boolean retry = !call.isExpired() && manager.onURLConnectionException(request, e);
+			call.setRetryRequested(retry);
+			Log.w(getClass().getName(), "Error in a URLConnection. Retry: " + retry, e);
+			throw e;
+		} finally {
+			// The connection may be reused once we're done with it, so a later
+			// abort must not disconnect it
+			call.setAbortHandler(null);
+			manager.tearDownConnection(connection);
+			// Leave a released connection to be kept alive, but disconnect it
+			// if anything went wrong
+			boolean reusable = manager.isURLConnectionReuseEnabled() && released && !failed &&
+					!request.isCancelled() && !call.isExpired();
+			if (!reusable) {
+				connection.disconnect();
+			}
+		}
+
+		// Translate a buffered response once the connection is released
+		if (bufferedResponse != null) {
+			call.releaseConnection();
+			resultInfo = translate(request, bufferedResponse, call);
+		}
+		return resultInfo;
+	}
+
+	/**
+	 * Translates the given {@link BufferedResponse} into the returned result.
+	 * If the manager can complete the request later, the translation is left
+	 * for it to run off this thread, so that it can move on to another
+	 * request. Otherwise the response is translated before returning. The
+	 * response is closed once it has been translated, or skipped if the
+	 * request has been cancelled.
+	 */
+	private <ResultType> ResultInfo<ResultType> translate(final WebServiceRequest<ResultType> request,
+			final BufferedResponse response, final TransportCall call) {
+		final BasicResultInfo<ResultType> resultInfo = new BasicResultInfo<ResultType>(null, new Date(),
+				response.getResponseCode(), response.getResponseMessage());
+		Runnable translation = new Runnable() {
+			@Override
+			public void run() {
+				if (request.isCancelled()) {
+					response.close();
+					resultInfo.setCancelled(true);
+					return;
+				}
+				call.onTranslateStart();
+				try {
+					resultInfo.Result = ((ManagedWebServiceRequest<ResultType>) request).translateResponse(response);
+				} catch (RuntimeException e) {
+					// The response arrived, so this isn't a network failure
+					Log.w(URLConnectionTransport.class.getName(), "Error translating response", e);
+				} finally {
+					response.close();
+					call.onTranslateEnd();
+				}
+			}
+		};
+		if (call.canDeferTranslation()) {
+			call.deferTranslation(translation, response);
+		} else {
+			translation.run();
+		}
+		return resultInfo;
+	}
+
+	/**
+	 * Creates a {@link HedgedExecution} for the given request, which races
+	 * connecting and reading the response code.
+	 * @return The {@link HedgedExecution}, or null if the request shouldn't be
+	 * hedged.
+	 */
+	private HedgedExecution<HttpURLConnection, Integer> createHedge(final WebServiceRequest<?> request,
+			final TransportCall call, HttpMethod method) {
+		final HedgingPolicy policy = manager.getHedgingPolicy();
+		long delay = manager.getHedgeDelay(policy, call.getHost(), method);
+		if (delay < 0) {
+			return null;
+		}
+
+		return new HedgedExecution<HttpURLConnection, Integer>(delay) {
+			@Override
+			protected boolean beginHedge() {
+				return manager.beginHedge(policy, call.getHost());
+			}
+
+			@Override
+			protected void endHedge() {
+				manager.endConnection(call.getHost());
+			}
+
+			@Override
+			protected HttpURLConnection createHedge() throws IOException {
+				HttpURLConnection connection = request.getUrlConnection();
+				if (connection == null) {
+					throw new IOException("Request did not provide a connection");
+				}
+				manager.setupConnection(connection);
+				setTimeouts(connection, call);
+				return connection;
+			}
+
+			@Override
+			protected Integer executeAttempt(HttpURLConnection attempt) throws IOException {
+				attempt.connect();
+				request.onConnected(attempt);
+				return attempt.getResponseCode();
+			}
+
+			@Override
+			protected void abortAttempt(HttpURLConnection attempt) {
+				attempt.disconnect();
+			}
+
+			@Override
+			protected void onHedgeWon() {
+				policy.onHedgeWon();
+			}
+		};
+	}
+
+	/**
+	 * Sets the socket timeouts of the given connection so that they don't
+	 * outlast the deadline of the call.
+	 */
+	private static void setTimeouts(HttpURLConnection connection, TransportCall call) {
+		connection.setConnectTimeout(call.getConnectionTimeout());
+		connection.setReadTimeout(call.getReadTimeout());
+	}
+}
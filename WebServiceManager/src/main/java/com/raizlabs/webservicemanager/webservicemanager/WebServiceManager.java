@@ -2,39 +2,57 @@ package com.raizlabs.webservicemanager.webservicemanager;
 
 import android.os.Process;
 import android.support.annotation.NonNull;
-import android.util.Log;
 
-import com.raizlabs.coreutils.concurrent.Prioritized;
 import com.raizlabs.coreutils.concurrent.Prioritized.Priority;
+import com.raizlabs.webservicemanager.BasicHttpClientProvider;
 import com.raizlabs.webservicemanager.Constants;
 import com.raizlabs.webservicemanager.HttpClientProvider;
 import com.raizlabs.webservicemanager.HttpMethod;
 import com.raizlabs.webservicemanager.RequestExecutionPool;
+import com.raizlabs.webservicemanager.requests.ManagedWebServiceRequest;
+import com.raizlabs.webservicemanager.requests.RequestBuilder;
 import com.raizlabs.webservicemanager.requests.WebServiceRequest;
 import com.raizlabs.webservicemanager.requests.WebServiceRequest.CancelListener;
+import com.raizlabs.webservicemanager.responses.Response;
+import com.raizlabs.webservicemanager.responses.ResponseBufferPool;
 import com.raizlabs.webservicemanager.ssl.SimpleSSLSocketFactory;
 import com.raizlabs.webservicemanager.ssl.TLS;
 import com.raizlabs.webservicemanager.ssl.TrustManager;
 import com.raizlabs.webservicemanager.ssl.TrustManagerFactory;
 
-import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
-import java.net.SocketTimeoutException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocket;
 
 /**
  * Class which executes requests and manages a set of maximum connections.
+ * Connections may be limited both overall and per host, in which case queued
+ * background requests for other hosts are dispatched while a host is at its
+ * limit.
  * 
  * @author Dylan James
  *
@@ -59,8 +77,27 @@ public class WebServiceManager {
 		onReadTimeoutChanged(getReadTimeout());
 	}
 
-	private Semaphore connectionSemaphore;
+	private RequestScheduler scheduler;
 	private ThreadPoolExecutor backgroundPoolExecutor;
+	/**
+	 * Executor which enforces request deadlines and delays retries. Created
+	 * when first needed.
+	 */
+	private ScheduledExecutorService timerExecutor;
+	/**
+	 * Executor which runs hedged attempts. Created when first needed.
+	 */
+	private ExecutorService hedgeExecutor;
+	/**
+	 * Executor which translates buffered responses when translation is
+	 * pipelined. Created when first needed.
+	 */
+	private ExecutorService translationExecutor;
+	/**
+	 * Executor which preconnects and warms up off the calling thread. Created
+	 * when first needed.
+	 */
+	private ExecutorService warmUpExecutor;
 	
 	private SimpleSSLSocketFactory sslSocketFactory;
 	
@@ -70,33 +107,142 @@ public class WebServiceManager {
 	 */
 	public int getMaxConnection() { return maxConnections; }
 	/**
-	 * Sets the maximum number of concurrent connections. This will return
-	 * immediately if increasing, but will block until adequate connections
-	 * have finished if decreasing. This method is synchronized, so
-	 * this may also block if another thread is waiting on a decrease.
+	 * Sets the maximum number of concurrent connections. This returns
+	 * immediately: if decreasing, requests which are already running are
+	 * left to finish, and no new ones are started until enough of them have.
+	 * Open connections are kept, so changing the maximum doesn't force new
+	 * connections to be made, unless the connection pool of the
+	 * {@link HttpClientProvider} is too small for the new maximum.
 	 * @param maxConnections The new number of maximum concurrent connections.
+	 * @see com.raizlabs.webservicemanager.BasicHttpClientProvider#setPoolCapacity(int)
 	 */
 	public synchronized void setMaxConnections(int maxConnections) {
-		if (connectionSemaphore == null) {
-			connectionSemaphore = new Semaphore(maxConnections);
-		} else {
-			int deltaConnections = maxConnections - this.maxConnections;
-			if (deltaConnections > 0) {
-				connectionSemaphore.release(deltaConnections);
-			} else if (deltaConnections < 0) {
-				connectionSemaphore.acquireUninterruptibly(-deltaConnections);
-			}
-		}
+		scheduler.setMaxConnections(maxConnections);
 		
 		this.maxConnections = maxConnections;
 		if (getRequestExectionQueue() != null && getRequestExectionQueue().getClientProvider() != null) {
 			getRequestExectionQueue().getClientProvider().setMaxConnections(maxConnections);
 		}
 		if (backgroundPoolExecutor != null) {
-			backgroundPoolExecutor.setMaximumPoolSize(maxConnections);
-			backgroundPoolExecutor.setCorePoolSize(maxConnections);
+			// The maximum pool size may never be below the core size
+			if (maxConnections > backgroundPoolExecutor.getMaximumPoolSize()) {
+				backgroundPoolExecutor.setMaximumPoolSize(maxConnections);
+				backgroundPoolExecutor.setCorePoolSize(maxConnections);
+			} else {
+				backgroundPoolExecutor.setCorePoolSize(maxConnections);
+				backgroundPoolExecutor.setMaximumPoolSize(maxConnections);
+			}
 		}
 	}
+	
+	/**
+	 * @return The current maximum number of allowed connections to a single
+	 * host, or zero if only the overall maximum applies.
+	 */
+	public int getMaxConnectionsPerHost() { return scheduler.getMaxConnectionsPerHost(); }
+	/**
+	 * Sets the maximum number of concurrent connections to a single host. This
+	 * applies in addition to the overall maximum so that one slow host cannot
+	 * take every connection. While a host is at its limit, queued background
+	 * requests for other hosts will be run instead, serving hosts in
+	 * round-robin order.
+	 * @param maxConnections The maximum number of concurrent connections per
+	 * host, or zero to only apply the overall maximum.
+	 */
+	public void setMaxConnectionsPerHost(int maxConnections) {
+		scheduler.setMaxConnectionsPerHost(maxConnections);
+	}
+	
+	/**
+	 * @return The {@link ConcurrencyLimit} which adjusts the number of
+	 * concurrent connections, or null if a fixed maximum is used.
+	 * @see #setConcurrencyLimit(ConcurrencyLimit)
+	 */
+	public ConcurrencyLimit getConcurrencyLimit() { return scheduler.getConcurrencyLimit(); }
+	/**
+	 * Sets a {@link ConcurrencyLimit} which adjusts the number of concurrent
+	 * connections automatically, based on the latency and failures of
+	 * completed requests. The limit never exceeds the maximum set via
+	 * {@link #setMaxConnections(int)}, so that should be set to the highest
+	 * number of connections which should ever be used. Changes to the limit
+	 * never block and don't resize the thread or connection pools: when it
+	 * drops, no new connections are started until enough of the current ones
+	 * have finished.
+	 * @param limit The {@link ConcurrencyLimit} to use, or null to always
+	 * allow the maximum number of connections.
+	 * @see AIMDConcurrencyLimit
+	 * @see GradientConcurrencyLimit
+	 */
+	public void setConcurrencyLimit(ConcurrencyLimit limit) {
+		scheduler.setConcurrencyLimit(limit);
+	}
+	/**
+	 * @return The number of connections which may currently be used
+	 * concurrently, taking into account any {@link ConcurrencyLimit}.
+	 */
+	public int getCurrentConnectionLimit() { return scheduler.getConnectionLimit(); }
+	
+	/**
+	 * Bounds the number of background requests which may be waiting for a
+	 * connection at once, so that bursts of requests can't grow memory and
+	 * latency without limit. When the queue is full, either the new request
+	 * or a less important queued request is rejected according to the given
+	 * {@link QueueOverflowPolicy}. The listener of a rejected request is called
+	 * with a {@link ManagedResultInfo} for which
+	 * {@link ManagedResultInfo#wasRejected()} is true.
+	 * @param maxRequests The maximum number of queued requests, or zero for no
+	 * limit.
+	 * @param policy The {@link QueueOverflowPolicy} to apply when the queue is
+	 * full.
+	 */
+	public void setMaxQueuedRequests(int maxRequests, QueueOverflowPolicy policy) {
+		scheduler.setMaxQueuedTasks(maxRequests, policy);
+	}
+	/**
+	 * @return The maximum number of background requests which may be waiting
+	 * for a connection at once, or zero if there is no limit.
+	 */
+	public int getMaxQueuedRequests() { return scheduler.getMaxQueuedTasks(); }
+	/**
+	 * @return The number of background requests which are currently waiting
+	 * for a connection.
+	 */
+	public int getQueuedRequestCount() { return scheduler.getQueuedTaskCount(); }
+	/**
+	 * @return The number of queued background requests which have been shed to
+	 * make room for more important requests.
+	 * @see QueueOverflowPolicy#SHED_LOWEST_PRIORITY
+	 */
+	public long getShedRequestCount() { return scheduler.getShedCount(); }
+	/**
+	 * @return The number of background requests which have been rejected
+	 * because the queue was full.
+	 */
+	public long getRejectedRequestCount() { return scheduler.getRejectedCount(); }
+	
+	/**
+	 * Sets the {@link QueueDiscipline} which determines the order in which
+	 * queued background requests are run. Defaults to {@link QueueDiscipline#FIFO}.
+	 * @param discipline The {@link QueueDiscipline} to use for any host which
+	 * doesn't have its own.
+	 * @see #setQueueDiscipline(String, QueueDiscipline)
+	 */
+	public void setQueueDiscipline(QueueDiscipline discipline) {
+		scheduler.setQueueDiscipline(discipline);
+	}
+	
+	/**
+	 * Sets the {@link QueueDiscipline} which determines the order in which
+	 * queued background requests to the given host are run. For example,
+	 * {@link QueueDiscipline#LIFO} may be used for an image host so that the
+	 * most recently requested images load first.
+	 * @param host The key of the host, as returned by {@link #getHostKey(WebServiceRequest)}.
+	 * @param discipline The {@link QueueDiscipline} to use for the host, or null
+	 * to use the overall discipline.
+	 */
+	public void setQueueDiscipline(String host, QueueDiscipline discipline) {
+		scheduler.setQueueDiscipline(host, discipline);
+	}
 
 	
 	private int connectionTimeout;
@@ -163,20 +309,407 @@ public class WebServiceManager {
 	private RequestMode defaultRequestMode;
 	/**
 	 * Sets the {@link RequestMode} which will be used by default when
-	 * no method is specified.
+	 * no method is specified. This replaces any default {@link Transport}.
 	 * <br><br>
 	 * @see #doRequest(WebServiceRequest)
 	 * @param mode The default {@link RequestMode}.
 	 */
 	public void setDefaultRequestMode(RequestMode mode) {
 		this.defaultRequestMode = mode;
+		this.defaultTransport = null;
+	}
+	
+	private Transport defaultTransport;
+	/**
+	 * @return The {@link Transport} which is used by default when no
+	 * {@link RequestMode} or {@link Transport} is specified.
+	 * @see #setDefaultTransport(Transport)
+	 */
+	public synchronized Transport getDefaultTransport() {
+		return (defaultTransport != null) ? defaultTransport : getTransport(defaultRequestMode);
+	}
+	/**
+	 * Sets the {@link Transport} which will be used by default when no
+	 * {@link RequestMode} or {@link Transport} is specified.
+	 * @see #doRequest(WebServiceRequest)
+	 * @param transport The default {@link Transport}, or null to use the
+	 * transport of the default {@link RequestMode}.
+	 */
+	public synchronized void setDefaultTransport(Transport transport) {
+		this.defaultTransport = transport;
+	}
+	
+	private final HashMap<RequestMode, Transport> transports = new HashMap<RequestMode, Transport>();
+	/**
+	 * Gets the {@link Transport} which executes requests in the given
+	 * {@link RequestMode}.
+	 * @param mode The {@link RequestMode}, or null to get the default
+	 * {@link Transport}.
+	 * @return The {@link Transport} for the mode.
+	 * @see #setTransport(RequestMode, Transport)
+	 */
+	public synchronized Transport getTransport(RequestMode mode) {
+		if (mode == null) {
+			return getDefaultTransport();
+		}
+		Transport transport = transports.get(mode);
+		if (transport == null) {
+			transport = createTransport(mode);
+			transports.put(mode, transport);
+		}
+		return transport;
+	}
+	/**
+	 * Sets the {@link Transport} which executes requests in the given
+	 * {@link RequestMode}, replacing the built in one. This may be used to
+	 * decorate the built in {@link Transport}, as given by
+	 * {@link #getTransport(RequestMode)}, or to move every request in a mode
+	 * onto a different one.
+	 * @param mode The {@link RequestMode} to set the {@link Transport} of.
+	 * @param transport The {@link Transport} to use, or null to restore the
+	 * built in one.
+	 */
+	public synchronized void setTransport(RequestMode mode, Transport transport) {
+		if (transport == null) {
+			transports.remove(mode);
+		} else {
+			transports.put(mode, transport);
+		}
+	}
+	
+	/**
+	 * Called to create the built in {@link Transport} for the given
+	 * {@link RequestMode}.
+	 * @param mode The {@link RequestMode} to create the {@link Transport} for.
+	 * @return The {@link Transport} to use for the mode.
+	 */
+	protected Transport createTransport(RequestMode mode) {
+		switch (mode) {
+		case HttpURLConnection:
+			return new URLConnectionTransport(this);
+		case HttpClient:
+		default:
+			return new HttpClientTransport(this);
+		}
+	}
+
+	private boolean urlConnectionReuseEnabled;
+	/**
+	 * @return True if {@link HttpURLConnection}s are left for the platform to
+	 * keep alive and reuse once their response has been read.
+	 * @see #setURLConnectionReuseEnabled(boolean)
+	 */
+	public boolean isURLConnectionReuseEnabled() { return urlConnectionReuseEnabled; }
+	/**
+	 * Sets whether {@link HttpURLConnection}s should be left for the platform
+	 * to keep alive and reuse once their response has been read, instead of
+	 * always being disconnected. This saves a new TCP connection and TLS
+	 * handshake for each request to a host in
+	 * {@link RequestMode#HttpURLConnection}. Connections are still
+	 * disconnected if the request is cancelled, fails, or passes its
+	 * deadline.
+	 * <br><br>
+	 * A connection is only reusable once its body has been read to the end,
+	 * so the rest of a body which was only partly read is drained, up to
+	 * {@link #getMaxDrainBytes()}.
+	 * Connections whose body was never opened are still disconnected.
+	 * <br><br>
+	 * Only requests which implement
+	 * {@link com.raizlabs.webservicemanager.requests.ManagedWebServiceRequest}
+	 * can reuse their connection; others translate their connection, which
+	 * disconnects it.
+	 * @param enabled True to reuse connections.
+	 */
+	public void setURLConnectionReuseEnabled(boolean enabled) {
+		this.urlConnectionReuseEnabled = enabled;
+	}
+
+	private volatile long maxDrainBytes = Constants.Defaults.MaxDrainBytes;
+	/**
+	 * @return The most bytes of an unread response body which are drained so
+	 * that its connection may be reused in {@link RequestMode#HttpURLConnection}.
+	 * @see #setMaxDrainBytes(long)
+	 */
+	public long getMaxDrainBytes() { return maxDrainBytes; }
+	/**
+	 * Sets the most bytes of an unread response body which are drained so
+	 * that its connection may be reused. If more than this is left, the
+	 * connection is disconnected instead of downloading the rest only to throw
+	 * it away. This applies to {@link RequestMode#HttpURLConnection}, and is
+	 * also set on the current {@link RequestExecutionPool} so that both modes
+	 * behave the same.
+	 * @param maxBytes The most bytes to drain, or zero to only reuse
+	 * connections whose body has been read to the end.
+	 * @see #setURLConnectionReuseEnabled(boolean)
+	 * @see RequestExecutionPool#setMaxDrainBytes(long)
+	 */
+	public void setMaxDrainBytes(long maxBytes) {
+		this.maxDrainBytes = maxBytes;
+		if (getRequestExectionQueue() != null) {
+			getRequestExectionQueue().setMaxDrainBytes(maxBytes);
+		}
+	}
+
+	private boolean pipelinedTranslationEnabled;
+	/**
+	 * @return True if responses in {@link RequestMode#HttpURLConnection} are
+	 * read in full and their connection released before they are translated.
+	 * @see #setPipelinedTranslationEnabled(boolean)
+	 */
+	public boolean isPipelinedTranslationEnabled() { return pipelinedTranslationEnabled; }
+	/**
+	 * Sets whether responses in {@link RequestMode#HttpURLConnection} should
+	 * be read in full and their connection released before they are
+	 * translated. The body is read into the {@link ResponseBufferPool} of this
+	 * manager. Requests executed in the background are then translated and
+	 * completed on a separate executor with one thread per processor, leaving
+	 * their worker free to execute the next request, while requests executed
+	 * directly are translated on the calling thread. This stops slow
+	 * translations, such as decoding large JSON or images, from holding a
+	 * connection and so holding up other requests.
+	 * <br><br>
+	 * Note that this means requests see their whole body at once, so progress
+	 * reported while translating no longer reflects the download. Only
+	 * requests which implement
+	 * {@link com.raizlabs.webservicemanager.requests.ManagedWebServiceRequest}
+	 * can be translated this way; others still translate their connection.
+	 * @param enabled True to release connections before translating.
+	 * @see #setResponseBufferPool(ResponseBufferPool)
+	 */
+	public void setPipelinedTranslationEnabled(boolean enabled) {
+		this.pipelinedTranslationEnabled = enabled;
+	}
+	
+	private ResponseBufferPool responseBufferPool = new ResponseBufferPool();
+	/**
+	 * @return The {@link ResponseBufferPool} which responses are read into
+	 * when translation is pipelined.
+	 * @see #setPipelinedTranslationEnabled(boolean)
+	 */
+	public ResponseBufferPool getResponseBufferPool() { return responseBufferPool; }
+	/**
+	 * Sets the {@link ResponseBufferPool} which responses are read into when
+	 * translation is pipelined.
+	 * @param pool The {@link ResponseBufferPool} to use.
+	 * @see #setPipelinedTranslationEnabled(boolean)
+	 */
+	public void setResponseBufferPool(ResponseBufferPool pool) {
+		this.responseBufferPool = pool;
+	}
+
+	private boolean requestCoalescingEnabled;
+	/**
+	 * @return True if equivalent background requests share a single execution.
+	 * @see #setRequestCoalescingEnabled(boolean)
+	 */
+	public boolean isRequestCoalescingEnabled() { return requestCoalescingEnabled; }
+	/**
+	 * Sets whether equivalent background requests which are in flight at the
+	 * same time should share a single execution. When enabled, a request
+	 * whose {@link #getCoalescingKey(WebServiceRequest)} matches one which is
+	 * already queued or executing will not be executed itself. Instead, the
+	 * result of the existing execution will be delivered to its listener as
+	 * well. Note that this means the same result object may be delivered to
+	 * multiple listeners.
+	 * <br><br>
+	 * Cancelling one of the requests only detaches it. The shared execution
+	 * is only cancelled once all of its requests have been cancelled.
+	 * @param enabled True to share executions between equivalent requests.
+	 */
+	public void setRequestCoalescingEnabled(boolean enabled) {
+		this.requestCoalescingEnabled = enabled;
+	}
+	
+	private CircuitBreaker circuitBreaker;
+	/**
+	 * @return The {@link CircuitBreaker} which stops requests being sent to
+	 * hosts which appear to be down, or null if there is none.
+	 */
+	public CircuitBreaker getCircuitBreaker() { return circuitBreaker; }
+	/**
+	 * Sets the {@link CircuitBreaker} which stops requests being sent to hosts
+	 * which appear to be down. While the circuit for a host is open, requests
+	 * to it fail immediately, without waiting for a connection timeout, with a
+	 * {@link CircuitOpenResultInfo}.
+	 * @param breaker The {@link CircuitBreaker} to use, or null to always send
+	 * requests.
+	 */
+	public void setCircuitBreaker(CircuitBreaker breaker) {
+		this.circuitBreaker = breaker;
+	}
+	
+	private RetryPolicy retryPolicy = RetryPolicy.none();
+	/**
+	 * @return The {@link RetryPolicy} which determines whether failed requests
+	 * are retried.
+	 */
+	public RetryPolicy getRetryPolicy() { return retryPolicy; }
+	/**
+	 * Sets the {@link RetryPolicy} which determines whether and when failed
+	 * requests are retried. Background requests wait for their retries without
+	 * holding a thread or a connection, and their listener is only called with
+	 * the result of the final attempt. Defaults to {@link RetryPolicy#none()}.
+	 * @param policy The {@link RetryPolicy} to use.
+	 */
+	public void setRetryPolicy(RetryPolicy policy) {
+		this.retryPolicy = (policy == null) ? RetryPolicy.none() : policy;
+	}
+	
+	private ResultDispatcher resultDispatcher = ResultDispatcher.DIRECT;
+	/**
+	 * @return The {@link ResultDispatcher} which calls the listeners of
+	 * background requests.
+	 */
+	public ResultDispatcher getResultDispatcher() { return resultDispatcher; }
+	/**
+	 * Sets the {@link ResultDispatcher} which determines the thread that the
+	 * {@link WebServiceRequestListener}s of background requests are called on.
+	 * The {@link RequestFuture} of a request is always completed before its
+	 * result is dispatched. Defaults to {@link ResultDispatcher#DIRECT}, which
+	 * calls listeners on the background thread which executed the request.
+	 * @param dispatcher The {@link ResultDispatcher} to use.
+	 * @see ResultDispatcher#mainThread()
+	 */
+	public void setResultDispatcher(ResultDispatcher dispatcher) {
+		this.resultDispatcher = (dispatcher == null) ? ResultDispatcher.DIRECT : dispatcher;
 	}
+	
+	private RequestEventListener requestEventListener;
+	/**
+	 * @return The {@link RequestEventListener} which is told about the phases
+	 * of each request, or null if there isn't one.
+	 */
+	public RequestEventListener getRequestEventListener() { return requestEventListener; }
+	/**
+	 * Sets the {@link RequestEventListener} to tell about the phases of each
+	 * request, from being queued to being completed. The timings of each
+	 * request are recorded into its {@link ManagedResultInfo#getTimings()}
+	 * whether or not a listener is set. Only requests which are submitted after this is
+	 * called are reported.
+	 * @param listener The {@link RequestEventListener} to call, or null.
+	 */
+	public void setRequestEventListener(RequestEventListener listener) {
+		this.requestEventListener = listener;
+	}
+	
+	private MetricsRegistry metricsRegistry;
+	/**
+	 * @return The {@link MetricsRegistry} which requests are recorded into, or
+	 * null if there isn't one.
+	 */
+	public MetricsRegistry getMetricsRegistry() { return metricsRegistry; }
+	/**
+	 * Sets the {@link MetricsRegistry} to record the latency and outcome of
+	 * each request into. Only requests which are submitted after this is
+	 * called are recorded.
+	 * @param registry The {@link MetricsRegistry} to use, or null to stop
+	 * recording.
+	 */
+	public void setMetricsRegistry(MetricsRegistry registry) {
+		this.metricsRegistry = registry;
+	}
+	
+	/**
+	 * Reports the TLS handshakes of the socket factory to the request which is
+	 * connecting on the same thread. This is only attached to the factory used
+	 * by {@link RequestMode#HttpClient}, as {@link HttpsURLConnection} runs
+	 * the handshake itself, after configuring the socket.
+	 */
+	private static final SimpleSSLSocketFactory.HandshakeListener HANDSHAKE_TRACER =
+			new SimpleSSLSocketFactory.HandshakeListener() {
+		@Override
+		public void onHandshakeStart(String host) {
+			RequestTrace trace = RequestTrace.getCurrent();
+			if (trace != null) trace.onSecureConnectStart();
+		}
+		
+		@Override
+		public void onHandshakeEnd(String host, boolean succeeded) {
+			RequestTrace trace = RequestTrace.getCurrent();
+			if (trace != null) trace.onSecureConnectEnd();
+		}
+	};
+	
+	private BatchCodec batchCodec;
+	private long batchWindowMillis;
+	private int maxBatchSize;
+	/**
+	 * @return The {@link BatchCodec} which combines batchable background
+	 * requests, or null if requests aren't batched.
+	 */
+	public BatchCodec getBatchCodec() { return batchCodec; }
+	/**
+	 * Sets up batching of background requests. Background requests with the
+	 * same {@link #getBatchKey(WebServiceRequest)} which are made within the
+	 * given window of each other are combined into a single request by the
+	 * given {@link BatchCodec}, and the result of that request is split back
+	 * into the result of each request for its listener. A batch is sent as
+	 * soon as it is full, or once the window has passed since its first
+	 * request was made.
+	 * <br><br>
+	 * Batched requests share a single queued execution with the highest
+	 * priority and latest deadline of its requests, and their results are
+	 * delivered on the same thread. If the combined request fails, each
+	 * request receives a {@link FailedResultInfo}. Requests executed on the
+	 * calling thread are never batched.
+	 * @param codec The {@link BatchCodec} to use, or null to disable batching.
+	 * @param windowMillis The time, in milliseconds, to wait for more requests
+	 * to join a batch.
+	 * @param maxBatchSize The maximum number of requests in a batch.
+	 */
+	public void setBatching(BatchCodec codec, long windowMillis, int maxBatchSize) {
+		synchronized (openBatches) {
+			this.batchCodec = codec;
+			this.batchWindowMillis = windowMillis;
+			this.maxBatchSize = Math.max(1, maxBatchSize);
+		}
+	}
+	
+	private HedgingPolicy hedgingPolicy;
+	/**
+	 * @return The {@link HedgingPolicy} which determines when slow requests are
+	 * hedged, or null if requests are never hedged.
+	 */
+	public HedgingPolicy getHedgingPolicy() { return hedgingPolicy; }
+	/**
+	 * Sets the {@link HedgingPolicy} which determines when slow GET and HEAD
+	 * requests are hedged. A hedged request is sent a second time if it hasn't
+	 * got a response after a delay, and whichever attempt gets a response first
+	 * is used while the other is aborted. Hedges only use connections which
+	 * aren't wanted by queued requests, and are limited by the budget of the
+	 * policy.
+	 * <br><br>
+	 * Only the attempt to get a response is duplicated: in
+	 * {@link RequestMode#HttpURLConnection} this includes
+	 * {@link WebServiceRequest#onConnected(HttpURLConnection)}, but only the
+	 * winning response is ever translated. Defaults to null.
+	 * @param policy The {@link HedgingPolicy} to use, or null to never hedge.
+	 */
+	public void setHedgingPolicy(HedgingPolicy policy) {
+		this.hedgingPolicy = policy;
+	}
+	
+	/**
+	 * The shared executions of coalesced requests which are in flight, keyed
+	 * by their coalescing key.
+	 */
+	private final HashMap<Object, CoalescedRequest<?>> coalescedRequests = new HashMap<Object, CoalescedRequest<?>>();
+	/**
+	 * The batches which are still waiting for more requests, keyed by their
+	 * batch key.
+	 */
+	private final HashMap<Object, RequestBatch> openBatches = new HashMap<Object, RequestBatch>();
+	/**
+	 * The requests which are queued or executing, keyed by their tag.
+	 */
+	private final HashMap<Object, HashSet<WebServiceRequest<?>>> taggedRequests =
+			new HashMap<Object, HashSet<WebServiceRequest<?>>>();
 
 	/**
 	 * Constructs a new {@link WebServiceManager} with default values.
 	 */
 	public WebServiceManager() {
-		this(new RequestExecutionPool(DEFAULT_MAX_CONNECTIONS));
+		this(createRequestExecutionPool(DEFAULT_MAX_CONNECTIONS));
 	}
 
 	/**
@@ -185,7 +718,7 @@ public class WebServiceManager {
 	 * @param maxConnections The maximum number of concurrent connections.
 	 */
 	public WebServiceManager(int maxConnections) {
-		this(new RequestExecutionPool(maxConnections));
+		this(createRequestExecutionPool(maxConnections));
 		init(maxConnections);
 	}
 
@@ -218,8 +751,17 @@ public class WebServiceManager {
 		this.defaultRequestMode = RequestMode.HttpClient;
 	}
 	
+	private static RequestExecutionPool createRequestExecutionPool(int maxConnections) {
+		BasicHttpClientProvider clientProvider = new BasicHttpClientProvider(maxConnections);
+		// Leave room in the pool so that the maximum can be raised without
+		// replacing the client. The scheduler limits how many requests run.
+		clientProvider.setPoolCapacity(Constants.Defaults.ConnectionPoolCapacity);
+		return new RequestExecutionPool(clientProvider);
+	}
+	
 	private void init(int maxConnections) {
 		backgroundPoolExecutor = createBackgroundThreadPool(maxConnections);
+		scheduler = new RequestScheduler(backgroundPoolExecutor, maxConnections);
 		setMaxConnections(maxConnections);
 		
 		setConnectionTimeout(Constants.Defaults.ConnectionTimeoutMillis);
@@ -251,241 +793,790 @@ public class WebServiceManager {
 		return executor;
 	}
 
-	private void beginConnection() {
-		connectionSemaphore.acquireUninterruptibly();
+	boolean beginConnection(String host, long deadline) {
+		return scheduler.acquire(host, deadline);
 	}
 
-	private void endConnection() {
-		connectionSemaphore.release();
-	}
-
-	/**
-	 * Sets the {@link TrustManager} to use to verify SSL connections. It'll use by default TLSv1.2
-	 * @see TrustManagerFactory
-	 * @param manager The manager to use to verify SSL connections.
-	 */
-	public void setTrustManager(TrustManager manager) {
-		setTrustManager(manager, TLS.VERSION_1_2);
+	void endConnection(String host) {
+		scheduler.release(host);
 	}
-
+	
 	/**
-	 * Sets the {@link TrustManager} to use to verify SSL connections.
-	 * @see TrustManagerFactory
-	 * @param manager The manager to use to verify SSL connections.
-	 * @param tls The TLS version to use
+	 * Reports the outcome of a request which was sent to any
+	 * {@link ConcurrencyLimit}, {@link CircuitBreaker} and {@link HedgingPolicy}.
+	 * Must be called before the connection is ended.
+	 * @param host The key of the host the request was sent to.
+	 * @param circuitPermit The permit the {@link CircuitBreaker} let the
+	 * request through with.
+	 * @param startTime The time the request was sent, as given by
+	 * {@link QueueDiscipline#now()}.
+	 * @param responseCode The response code, or -1 if no response was received.
 	 */
-	public void setTrustManager(TrustManager manager, @NonNull TLS tls) {
-		// Default to the default trust manager if nothing else was given
-		if (manager == null) {
-			manager = TrustManagerFactory.getDefaultTrustManager(null);
+	void onConnectionSample(String host, long circuitPermit, long startTime, int responseCode) {
+		boolean failed = responseCode < 0 || responseCode >= 500;
+		CircuitBreaker breaker = getCircuitBreaker();
+		if (breaker != null) {
+			breaker.onResult(host, circuitPermit, failed);
 		}
-		// Set the SSL Socket Factory to use this manager
-		if (sslSocketFactory == null) {
-			sslSocketFactory = new SimpleSSLSocketFactory(manager, tls);
-		} else {
-			sslSocketFactory.setTrustManager(manager, tls);
+		long rtt = QueueDiscipline.now() - startTime;
+		HedgingPolicy hedging = getHedgingPolicy();
+		if (hedging != null && responseCode >= 0) {
+			hedging.recordLatency(host, rtt);
 		}
-		// Bind the socket factory
-		getRequestExectionQueue().getClientProvider().setHttpsSocketFactory(sslSocketFactory);
-		HttpsURLConnection.setDefaultHostnameVerifier(manager);
-		HttpsURLConnection.setDefaultSSLSocketFactory(sslSocketFactory.getSSLContext().getSocketFactory());
+		// Treat servers which are throttling us the same as failures
+		scheduler.onSample(rtt, failed || responseCode == 429);
 	}
-
+	
 	/**
-	 * Performs the given {@link WebServiceRequest} using the default request mode
-	 * and returns the result.
-	 * <br><br>
-	 * @see #setDefaultRequestMode(RequestMode)
-	 * @param request The {@link WebServiceRequest} to execute.
-	 * @return The result of the request.
+	 * Gets the time at which the given request expires if it is submitted now.
+	 * @param request The {@link WebServiceRequest} to get the deadline of.
+	 * @return The deadline, as given by {@link QueueDiscipline#now()}, or
+	 * {@link RequestScheduler#NO_DEADLINE} if the request has none.
 	 */
-	public <ResultType> ResultInfo<ResultType> doRequest(WebServiceRequest<ResultType> request) {
-		return doRequest(request, null);
+	private long getDeadline(WebServiceRequest<?> request) {
+		long deadlineMillis = getDeadlineMillis(request);
+		return (deadlineMillis > 0) ? QueueDiscipline.now() + deadlineMillis : RequestScheduler.NO_DEADLINE;
 	}
-
+	
+	private static boolean hasPassed(long deadline) {
+		return deadline != RequestScheduler.NO_DEADLINE && QueueDiscipline.now() >= deadline;
+	}
+	
 	/**
-	 * Performs the given {@link WebServiceRequest} using the given {@link RequestMode}
-	 * and returns the result.
-	 * @param request The {@link WebServiceRequest} to execute.
-	 * @param mode The {@link RequestMode} to use, or null to use the default.
-	 * @return The result of the request.
+	 * Gets the socket timeout to use so that it doesn't extend past the given
+	 * deadline.
+	 * @param timeoutMillis The configured timeout, where zero means no timeout.
+	 * @param deadline The deadline of the request.
+	 * @return The timeout to use, in milliseconds.
 	 */
-	public <ResultType> ResultInfo<ResultType> doRequest(WebServiceRequest<ResultType> request, RequestMode mode) {
-		if (mode == null) {
-			mode = defaultRequestMode;
-		}
-
-		switch(mode) {
-		case HttpClient:
-			return doRequestViaClient(request);
-		case HttpURLConnection:
-			return doRequestViaURLConnection(request);
-		default:
-			return null;
+	static int getTimeoutBefore(int timeoutMillis, long deadline) {
+		if (deadline == RequestScheduler.NO_DEADLINE) {
+			return timeoutMillis;
 		}
+		// Zero means no timeout, so always leave at least a millisecond
+		long remaining = Math.max(1, Math.min(Integer.MAX_VALUE, deadline - QueueDiscipline.now()));
+		return (timeoutMillis <= 0) ? (int) remaining : (int) Math.min(timeoutMillis, remaining);
 	}
 	
 	/**
-	 * Performs the given {@link WebServiceRequest} using {@link RequestMode#HttpClient}
-	 * and the {@link RequestExecutionPool} and returns the result.
-	 * @param request The {@link WebServiceRequest} to execute.
-	 * @return The result.
+	 * Schedules the given action to be run once the given deadline passes.
+	 * @param deadline The deadline, as given by {@link QueueDiscipline#now()}.
+	 * @param action The action to run.
+	 * @return The scheduled action, which should be cancelled if it is no
+	 * longer needed, or null if there is no deadline.
 	 */
-	public <ResultType> ResultInfo<ResultType> doRequestViaClient(final WebServiceRequest<ResultType> request) {
-		HttpResponse response = null;
-		final HttpUriRequest httpRequest = request.getHttpUriRequest();
-
-		// If the request isn't cancelled, run it
-		if (!request.isCancelled()) {
-			// Wait for a connection to be available.
-			beginConnection();
-			
-			boolean isCancelled = false;
-			// Lock on the status lock so that we know the status won't change
-			synchronized (request.getStatusLock()) {
-				// Indicate whether the request has been cancelled
-				isCancelled = request.isCancelled();
-				if (!isCancelled) {
-					// If it hasn't been cancelled, we're about to start it, so tell it
-					request.onStart();
-
-					// Listen for future cancels
-					CancelListener<ResultType> cancelListener = new CancelListener<ResultType>() {
+	private ScheduledFuture<?> scheduleExpiry(long deadline, Runnable action) {
+		if (deadline == RequestScheduler.NO_DEADLINE) {
+			return null;
+		}
+		return getTimerExecutor().schedule(action, Math.max(0, deadline - QueueDiscipline.now()), TimeUnit.MILLISECONDS);
+	}
+	
+	synchronized ScheduledExecutorService getTimerExecutor() {
+		if (timerExecutor == null) {
+			timerExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "WebServiceManager Timer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return timerExecutor;
+	}
+	
+	synchronized ExecutorService getHedgeExecutor() {
+		if (hedgeExecutor == null) {
+			hedgeExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable r) {
+					Thread thread = new Thread(new Runnable() {
 						@Override
-						public void onCancel(WebServiceRequest<ResultType> request) {
-							// If the request is cancelled, abort the request. This may be called
-							// asynchronously
-							requestQueue.abortRequest(httpRequest);
-							// Remove this listener so we don't get called twice
-							request.removeOnCancelListener(this);
+						public void run() {
+							Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+							r.run();
 						}
-					};
-					request.addOnCancelListener(cancelListener);
-				}
-			}
-			
-			// If the request wasn't cancelled, execute it
-			if (!isCancelled) {
-				try {
-					// Execute the request
-					response = requestQueue.doRequest(httpRequest);
-				} finally {
-					// Free the connection
-					endConnection();
+					}, "WebServiceManager Hedge");
+					thread.setDaemon(true);
+					return thread;
 				}
-			} else {
-				// Free the connection
-				endConnection();
-			}
+			});
 		}
-		
-		// Translate the response, or null if we didn't get one
-		ResultType result = request.translateHTTPResponse(response, HttpMethod.fromName(httpRequest.getMethod()));
-		BasicResultInfo<ResultType> resultInfo = new BasicResultInfo<ResultType>(result, new Date(), response);
-		// If the request was cancelled, indicate it in the result info
-		if (request.isCancelled()) {
-			resultInfo.setCancelled(true);
-		}
-		// Return the result info
-		return resultInfo;
+		return hedgeExecutor;
 	}
-
-	/**
-	 * Performs the given {@link WebServiceRequest} using {@link RequestMode#HttpURLConnection}
+	
+	private static int getTranslationThreadCount() {
+		return Math.max(1, Runtime.getRuntime().availableProcessors());
+	}
+	
+	synchronized ExecutorService getTranslationExecutor() {
+		if (translationExecutor == null) {
+			translationExecutor = Executors.newFixedThreadPool(getTranslationThreadCount(), new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable r) {
+					Thread thread = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+							r.run();
+						}
+					}, "WebServiceManager Translate");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return translationExecutor;
+	}
+	
+	private synchronized ExecutorService getWarmUpExecutor() {
+		if (warmUpExecutor == null) {
+			warmUpExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable r) {
+					Thread thread = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+							r.run();
+						}
+					}, "WebServiceManager Warm Up");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return warmUpExecutor;
+	}
+	
+	/**
+	 * Gets how long to wait for a response before hedging a request, and
+	 * counts the request towards the hedging budget.
+	 * @return The delay in milliseconds, or -1 if the request shouldn't be hedged.
+	 */
+	long getHedgeDelay(HedgingPolicy policy, String host, HttpMethod method) {
+		if (policy == null || !policy.isHedgeable(method)) {
+			return -1;
+		}
+		return policy.onRequestStarted(host);
+	}
+	
+	/**
+	 * Claims a spare connection and a hedge from the budget of the given
+	 * {@link HedgingPolicy}.
+	 * @return True if the hedge may be started, in which case the connection
+	 * must be released via {@link #endConnection(String)}.
+	 */
+	boolean beginHedge(HedgingPolicy policy, String host) {
+		if (!scheduler.tryAcquire(host)) {
+			return false;
+		}
+		if (!policy.tryStartHedge()) {
+			endConnection(host);
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Queues the given task, and drops it if its deadline passes before it is run.
+	 */
+	private void enqueue(final RequestScheduler.Task task) {
+		if (task instanceof DownloadRunnable) {
+			((DownloadRunnable<?>) task).getTrace().onQueued();
+		}
+		// Start the timer first, so that it is cancelled if the task is
+		// dispatched straight away
+		scheduleQueueExpiry(task);
+		scheduler.enqueue(task);
+	}
+	
+	private void scheduleQueueExpiry(final RequestScheduler.Task task) {
+		// Replaces any earlier timer, such as when the deadline is extended
+		task.setExpiryTimer(scheduleExpiry(task.getDeadline(), new Runnable() {
+			@Override
+			public void run() {
+				scheduler.expireIfQueued(task);
+			}
+		}));
+	}
+	
+	/**
+	 * Called to get the key of the host that the given request will connect to.
+	 * Requests with the same key share the per host connection limit.
+	 * @param request The {@link WebServiceRequest} to get the host key of.
+	 * @return The key of the host, which may not be null.
+	 * @see #setMaxConnectionsPerHost(int)
+	 */
+	protected String getHostKey(WebServiceRequest<?> request) {
+		URI uri = getURI(request);
+		if (uri != null && uri.getHost() != null) {
+			return uri.getHost();
+		}
+		return "";
+	}
+	
+	/**
+	 * Called to get the {@link URI} that the given request targets. By default
+	 * this is given by {@link ManagedWebServiceRequest#getURI()}, and is null
+	 * for other requests.
+	 * @param request The {@link WebServiceRequest} to get the {@link URI} of.
+	 * @return The {@link URI}, or null if it is unknown.
+	 */
+	protected URI getURI(WebServiceRequest<?> request) {
+		if (request instanceof ManagedWebServiceRequest) {
+			return ((ManagedWebServiceRequest<?>) request).getURI();
+		}
+		return null;
+	}
+	
+	/**
+	 * Called to get the key which identifies the result of the given request,
+	 * so that equivalent requests may share one execution. By default this is
+	 * given by {@link ManagedWebServiceRequest#getCoalescingKey()}, and is null
+	 * for other requests.
+	 * @param request The {@link WebServiceRequest} to get the key of.
+	 * @return The key, or null if the request may not share its execution.
+	 * @see #setRequestCoalescingEnabled(boolean)
+	 */
+	protected Object getCoalescingKey(WebServiceRequest<?> request) {
+		if (request instanceof ManagedWebServiceRequest) {
+			return ((ManagedWebServiceRequest<?>) request).getCoalescingKey();
+		}
+		return null;
+	}
+	
+	/**
+	 * Called to get the key of the batch endpoint the given request may be sent
+	 * through. By default this is given by
+	 * {@link ManagedWebServiceRequest#getBatchKey()}, and is null for other
+	 * requests.
+	 * @param request The {@link WebServiceRequest} to get the key of.
+	 * @return The key, or null if the request may not be batched.
+	 * @see #setBatching(BatchCodec, long, int)
+	 */
+	protected Object getBatchKey(WebServiceRequest<?> request) {
+		if (request instanceof ManagedWebServiceRequest) {
+			return ((ManagedWebServiceRequest<?>) request).getBatchKey();
+		}
+		return null;
+	}
+	
+	/**
+	 * Called to get the tag which groups the given request with others. By
+	 * default this is given by {@link ManagedWebServiceRequest#getTag()}, and
+	 * is null for other requests.
+	 * @param request The {@link WebServiceRequest} to get the tag of.
+	 * @return The tag, or null if the request isn't in a group.
+	 * @see #cancelGroup(Object)
+	 */
+	protected Object getTag(WebServiceRequest<?> request) {
+		if (request instanceof ManagedWebServiceRequest) {
+			return ((ManagedWebServiceRequest<?>) request).getTag();
+		}
+		return null;
+	}
+	
+	/**
+	 * Called to get the total time the given request may take from when it is
+	 * submitted. By default this is given by
+	 * {@link ManagedWebServiceRequest#getDeadlineMillis()}, and is zero for
+	 * other requests.
+	 * @param request The {@link WebServiceRequest} to get the deadline of.
+	 * @return The time in milliseconds, or zero if the request has no deadline.
+	 */
+	protected long getDeadlineMillis(WebServiceRequest<?> request) {
+		if (request instanceof ManagedWebServiceRequest) {
+			return ((ManagedWebServiceRequest<?>) request).getDeadlineMillis();
+		}
+		return 0;
+	}
+
+	/**
+	 * Called to determine whether the given request can be sent again after a
+	 * failed attempt. By default this is given by the
+	 * {@link RequestBuilder#canResend()} of a {@link ManagedWebServiceRequest},
+	 * and is true for other requests.
+	 * @param request The {@link WebServiceRequest} to check.
+	 * @return True if the request may be retried.
+	 */
+	protected boolean canResend(WebServiceRequest<?> request) {
+		if (request instanceof ManagedWebServiceRequest) {
+			RequestBuilder builder = ((ManagedWebServiceRequest<?>) request).getBuilder();
+			return builder == null || builder.canResend();
+		}
+		return true;
+	}
+
+	/**
+	 * @param result The result to check.
+	 * @return True if the given result is a {@link ManagedResultInfo} whose
+	 * request passed its deadline before it completed.
+	 */
+	static boolean wasExpired(ResultInfo<?> result) {
+		return result instanceof ManagedResultInfo && ((ManagedResultInfo<?>) result).wasExpired();
+	}
+
+	/**
+	 * @param result The result to check.
+	 * @return True if the given result is a {@link ManagedResultInfo} whose
+	 * request was rejected because the queue was full.
+	 */
+	static boolean wasRejected(ResultInfo<?> result) {
+		return result instanceof ManagedResultInfo && ((ManagedResultInfo<?>) result).wasRejected();
+	}
+
+	/**
+	 * @param request The request to check.
+	 * @return True if the given request can translate a
+	 * {@link com.raizlabs.webservicemanager.responses.Response}, looking
+	 * through coalesced requests and batches to the request which is executed.
+	 */
+	static boolean canTranslateResponse(WebServiceRequest<?> request) {
+		if (request instanceof CoalescedRequest) {
+			return ((CoalescedRequest<?>) request).canTranslateResponse();
+		} else if (request instanceof RequestBatch) {
+			return ((RequestBatch) request).canTranslateResponse();
+		}
+		return request instanceof ManagedWebServiceRequest;
+	}
+
+	/**
+	 * Cancels every request which has the given tag and hasn't completed yet.
+	 * Requests which are still queued are removed from the queue before they
+	 * claim a connection, and requests which are executing are aborted,
+	 * whichever {@link RequestMode} they use. The listeners of the requests are
+	 * still called with cancelled results.
+	 * <br><br>
+	 * This is useful to stop the work of a screen which is closed, by tagging
+	 * all of its requests with the screen.
+	 * @see #getTag(WebServiceRequest)
+	 * @param tag The tag of the requests to cancel.
+	 * @return The number of requests which were cancelled.
+	 */
+	public int cancelGroup(Object tag) {
+		HashSet<WebServiceRequest<?>> requests;
+		synchronized (taggedRequests) {
+			requests = taggedRequests.remove(tag);
+		}
+		if (requests == null) {
+			return 0;
+		}
+		
+		// Cancel outside the lock, as cancelling may complete the requests
+		for (WebServiceRequest<?> request : requests) {
+			request.cancel();
+		}
+		return requests.size();
+	}
+	
+	private void addTagged(WebServiceRequest<?> request) {
+		Object tag = getTag(request);
+		if (tag != null) {
+			synchronized (taggedRequests) {
+				HashSet<WebServiceRequest<?>> requests = taggedRequests.get(tag);
+				if (requests == null) {
+					requests = new HashSet<WebServiceRequest<?>>();
+					taggedRequests.put(tag, requests);
+				}
+				requests.add(request);
+			}
+		}
+	}
+	
+	private void removeTagged(WebServiceRequest<?> request) {
+		Object tag = getTag(request);
+		if (tag != null) {
+			synchronized (taggedRequests) {
+				HashSet<WebServiceRequest<?>> requests = taggedRequests.get(tag);
+				if (requests != null && requests.remove(request) && requests.isEmpty()) {
+					taggedRequests.remove(tag);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Sets the {@link TrustManager} to use to verify SSL connections. It'll use by default TLSv1.2
+	 * @see TrustManagerFactory
+	 * @param manager The manager to use to verify SSL connections.
+	 */
+	public void setTrustManager(TrustManager manager) {
+		setTrustManager(manager, TLS.VERSION_1_2);
+	}
+
+	/**
+	 * Sets the {@link TrustManager} to use to verify SSL connections.
+	 * @see TrustManagerFactory
+	 * @param manager The manager to use to verify SSL connections.
+	 * @param tls The TLS version to use
+	 */
+	public void setTrustManager(TrustManager manager, @NonNull TLS tls) {
+		// Default to the default trust manager if nothing else was given
+		if (manager == null) {
+			manager = TrustManagerFactory.getDefaultTrustManager(null);
+		}
+		// Set the SSL Socket Factory to use this manager
+		if (sslSocketFactory == null) {
+			sslSocketFactory = new SimpleSSLSocketFactory(manager, tls);
+			sslSocketFactory.setHandshakeListener(HANDSHAKE_TRACER);
+		} else {
+			sslSocketFactory.setTrustManager(manager, tls);
+		}
+		// Bind the socket factory
+		getRequestExectionQueue().getClientProvider().setHttpsSocketFactory(sslSocketFactory);
+		HttpsURLConnection.setDefaultHostnameVerifier(manager);
+		HttpsURLConnection.setDefaultSSLSocketFactory(sslSocketFactory.getSSLContext().getSocketFactory());
+	}
+	
+	/**
+	 * Does the work which the first request would otherwise do, on a background
+	 * thread: builds the {@link org.apache.http.client.HttpClient} and its
+	 * connection pool, creates the SSL contexts of both request modes and
+	 * starts the background threads. Calling this at start up, after any
+	 * {@link TrustManager} has been set, takes this off the time to the first
+	 * response.
+	 * @return A {@link Future} which completes once everything is ready.
+	 * @see #preconnect(String, int)
+	 */
+	public Future<?> warmUp() {
+		return getWarmUpExecutor().submit(new Runnable() {
+			@Override
+			public void run() {
+				getRequestExectionQueue().getClientProvider().getClient();
+				SimpleSSLSocketFactory factory = sslSocketFactory;
+				if (factory != null) {
+					factory.getSSLContext();
+				}
+				HttpsURLConnection.getDefaultSSLSocketFactory();
+				backgroundPoolExecutor.prestartAllCoreThreads();
+			}
+		});
+	}
+	
+	/**
+	 * Opens connections to the host of the given URL on a background thread,
+	 * using the default {@link RequestMode}.
+	 * @see #preconnect(String, int, RequestMode)
+	 * @param url The URL of the host, such as "https://example.com".
+	 * @param count The number of connections to open.
+	 * @return A {@link Future} which contains the number of connections which
+	 * are open and idle, ready for requests.
+	 */
+	public Future<Integer> preconnect(String url, int count) {
+		return preconnect(url, count, defaultRequestMode);
+	}
+	
+	/**
+	 * Opens connections to the host of the given URL on a background thread,
+	 * including resolving the host and any TLS handshake, so that requests to
+	 * it don't have to wait for them. The connections are left idle for up to
+	 * {@link Constants.Defaults#PreconnectKeepAliveMillis}. No more are opened
+	 * than the maximum connections, or the maximum per host if there is one.
+	 * <br><br>
+	 * {@link RequestMode#HttpURLConnection} can't open a connection without
+	 * sending a request, so in that mode the host is only resolved and, for
+	 * HTTPS, a single handshake is made so that the first request may resume
+	 * its TLS session instead of doing a full handshake. No connections are
+	 * left open.
+	 * @param url The URL of the host, such as "https://example.com". Only the
+	 * scheme, host and port are used. HTTPS is assumed if there is no scheme.
+	 * @param count The number of connections to open.
+	 * @param mode The {@link RequestMode} which the requests will use.
+	 * @return A {@link Future} which contains the number of connections which
+	 * are open and idle, ready for requests. This fails if the host can't be
+	 * connected to.
+	 */
+	public Future<Integer> preconnect(String url, int count, final RequestMode mode) {
+		final URI uri = URI.create(url.contains("://") ? url : "https://" + url);
+		int limit = getMaxConnection();
+		if (getMaxConnectionsPerHost() > 0) {
+			limit = Math.min(limit, getMaxConnectionsPerHost());
+		}
+		final int connections = Math.min(count, limit);
+		return getWarmUpExecutor().submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws IOException {
+				if (mode == RequestMode.HttpURLConnection) {
+					primeSecureSession(uri);
+					return 0;
+				}
+				return getRequestExectionQueue().preconnect(uri, connections,
+						Constants.Defaults.PreconnectKeepAliveMillis);
+			}
+		});
+	}
+	
+	/**
+	 * Resolves the host of the given {@link URI} and, for HTTPS, completes a
+	 * handshake with it using the default socket factory of
+	 * {@link HttpsURLConnection}, so that its TLS session is cached.
+	 */
+	private void primeSecureSession(URI uri) throws IOException {
+		InetAddress address = InetAddress.getByName(uri.getHost());
+		if (!"https".equalsIgnoreCase(uri.getScheme())) {
+			return;
+		}
+		int port = (uri.getPort() < 0) ? 443 : uri.getPort();
+		Socket socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(address, port), getConnectionTimeout());
+			socket.setSoTimeout(getReadTimeout());
+			SSLSocket sslSocket = (SSLSocket) HttpsURLConnection.getDefaultSSLSocketFactory()
+					.createSocket(socket, uri.getHost(), port, true);
+			socket = sslSocket;
+			sslSocket.startHandshake();
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) { }
+		}
+	}
+
+	/**
+	 * Performs the given {@link WebServiceRequest} using the default request mode
 	 * and returns the result.
+	 * <br><br>
+	 * @see #setDefaultRequestMode(RequestMode)
 	 * @param request The {@link WebServiceRequest} to execute.
-	 * @return The result.
+	 * @return The result of the request.
 	 */
-	public <ResultType> ResultInfo<ResultType> doRequestViaURLConnection(final WebServiceRequest<ResultType> request) {
-		HttpURLConnection outerConnection = null;
-		ResultInfo<ResultType> resultInfo = null;
+	public <ResultType> ResultInfo<ResultType> doRequest(WebServiceRequest<ResultType> request) {
+		return doRequestWithRetries(request, null);
+	}
+
+	/**
+	 * Performs the given {@link WebServiceRequest} using the given {@link RequestMode}
+	 * and returns the result.
+	 * @param request The {@link WebServiceRequest} to execute.
+	 * @param mode The {@link RequestMode} to use, or null to use the default.
+	 * @return The result of the request.
+	 */
+	public <ResultType> ResultInfo<ResultType> doRequest(WebServiceRequest<ResultType> request, RequestMode mode) {
+		return doRequestWithRetries(request, getTransport(mode));
+	}
+
+	/**
+	 * Performs the given {@link WebServiceRequest} using the given {@link Transport}
+	 * and returns the result.
+	 * @param request The {@link WebServiceRequest} to execute.
+	 * @param transport The {@link Transport} to use, or null to use the default.
+	 * @return The result of the request.
+	 */
+	public <ResultType> ResultInfo<ResultType> doRequest(WebServiceRequest<ResultType> request, Transport transport) {
+		return doRequestWithRetries(request, transport);
+	}
+	
+	/**
+	 * Performs the given {@link WebServiceRequest} on the calling thread, retrying it
+	 * according to the {@link RetryPolicy}. No connection is held while waiting to retry.
+	 */
+	private <ResultType> ResultInfo<ResultType> doRequestWithRetries(WebServiceRequest<ResultType> request,
+			Transport transport) {
+		if (transport == null) {
+			transport = getDefaultTransport();
+		}
+		final long deadline = getDeadline(request);
+		RequestTrace trace = new RequestTrace(request, getHostKey(request), getURI(request),
+				getRequestEventListener(), getMetricsRegistry());
+		addTagged(request);
+		try {
+			for (int attemptNumber = 1; ; attemptNumber++) {
+				Attempt attempt = new Attempt(attemptNumber, trace);
+				trace.beginAttempt();
+				ResultInfo<ResultType> result = doRequest(request, transport, false, deadline, attempt);
+				long delay = getRetryDelay(request, result, attempt, deadline);
+				if (delay < 0) {
+					trace.onComplete(result);
+					return result;
+				}
+				
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					// Give up and let the caller see the interrupt
+					Thread.currentThread().interrupt();
+					trace.onComplete(result);
+					return result;
+				}
+			}
+		} finally {
+			removeTagged(request);
+		}
+	}
+	
+	/**
+	 * Information about a single attempt at executing a request, used to decide
+	 * whether it should be retried.
+	 */
+	static class Attempt {
+		final int number;
+		HttpMethod method;
+		IOException exception;
+		/**
+		 * Whether {@link WebServiceManager#onURLConnectionException(WebServiceRequest, IOException)}
+		 * asked for a retry.
+		 */
+		boolean retryRequested;
+		/**
+		 * Whether the request is completed by a runner which can translate
+		 * its response after the transport returns.
+		 */
+		boolean translationDeferrable;
+		/**
+		 * The translation left by the transport, and the response it reads.
+		 * @see TransportCall#deferTranslation(Runnable, Response)
+		 */
+		Runnable translation;
+		Response translatedResponse;
+		final RequestTrace trace;
 		
-		boolean needsRetry = false;
+		public Attempt(int number, RequestTrace trace) {
+			this.number = number;
+			this.trace = trace;
+		}
+		
+		/**
+		 * Closes the response of a deferred translation which won't be run.
+		 */
+		void discardTranslation() {
+			if (translatedResponse != null) {
+				translatedResponse.close();
+			}
+			translation = null;
+			translatedResponse = null;
+		}
+	}
+	
+	/**
+	 * Gets how long to wait before retrying the given attempt.
+	 * @return The delay in milliseconds, or -1 if the request shouldn't be retried.
+	 */
+	private long getRetryDelay(WebServiceRequest<?> request, ResultInfo<?> result, Attempt attempt, long deadline) {
+		if (result == null || result.wasCancelled() || wasExpired(result) || wasRejected(result) ||
+				request.isCancelled()) {
+			return -1;
+		}
+		
+		RetryPolicy policy = getRetryPolicy();
+		boolean canResend = canResend(request);
+		boolean retry;
+		if (attempt.retryRequested) {
+			retry = canResend && attempt.number < policy.getMaxAttempts();
+		} else {
+			retry = policy.shouldRetry(attempt.method, canResend, result.getResponseCode(), attempt.exception,
+					attempt.number);
+		}
+		if (!retry) {
+			return -1;
+		}
+		
+		long delay = policy.getDelayMillis(attempt.number);
+		// Don't bother if we'd be out of time before even trying again
+		if (deadline != RequestScheduler.NO_DEADLINE && QueueDiscipline.now() + delay >= deadline) {
+			return -1;
+		}
+		return delay;
+	}
+	
+	/**
+	 * Performs the given {@link WebServiceRequest} using the given {@link Transport}.
+	 * @param connectionReserved True if a connection to the host of the request has
+	 * already been claimed for it. The connection is released once it is no longer
+	 * needed, whether or not the request is actually executed.
+	 * @param deadline The time, as given by {@link QueueDiscipline#now()}, by which
+	 * the request must complete, or {@link RequestScheduler#NO_DEADLINE}.
+	 * @param attempt The {@link Attempt} to record the outcome in.
+	 */
+	private <ResultType> ResultInfo<ResultType> doRequest(WebServiceRequest<ResultType> request, Transport transport,
+			boolean connectionReserved, long deadline, Attempt attempt) {
+		// Fail fast if the host is known to be down
+		CircuitBreaker breaker = getCircuitBreaker();
+		long circuitPermit = CircuitBreaker.ALLOWED;
+		if (breaker != null) {
+			String host = getHostKey(request);
+			circuitPermit = breaker.allowRequest(host);
+			if (circuitPermit == CircuitBreaker.REJECTED) {
+				if (connectionReserved) {
+					endConnection(host);
+					attempt.trace.onConnectionReleased();
+				}
+				ResultInfo<ResultType> result =
+						new CircuitOpenResultInfo<ResultType>(new Date(), host, breaker.getTimeUntilProbe(host));
+				if (request.isCancelled()) {
+					result.setCancelled(true);
+				}
+				return result;
+			}
+		}
+		
+		final TransportCall call = new TransportCall(this, request, getHostKey(request), deadline, attempt,
+				connectionReserved, circuitPermit);
+		ScheduledFuture<?> expiry = null;
+		CancelListener<ResultType> cancelListener = null;
+		ResultInfo<ResultType> resultInfo = null;
 		try {
-			// If the request hasn't been cancelled yet, start the connection
+			// If the request hasn't been cancelled yet, start it
 			if (!request.isCancelled()) {
-				// Wait for a connection
-				beginConnection();
+				// Wait for a connection, but not past the deadline
+				if (!call.acquireConnection() || hasPassed(deadline)) {
+					call.expire();
+				}
 				
+				boolean isCancelled = false;
 				// Lock on the status lock so that we know the status won't change
 				synchronized (request.getStatusLock()) {
-					if (!request.isCancelled()) {
+					// Indicate whether the request has been cancelled
+					isCancelled = request.isCancelled();
+					if (!isCancelled && !call.isExpired()) {
 						// If it hasn't been cancelled, we're about to start it, so tell it
 						request.onStart();
+						
+						// Listen for future cancels
+						cancelListener = new CancelListener<ResultType>() {
+							@Override
+							public void onCancel(WebServiceRequest<ResultType> request) {
+								// Remove this listener so we don't get called twice
+								request.removeOnCancelListener(this);
+								// Abort the request. This may be called asynchronously
+								call.abort();
+							}
+						};
+						request.addOnCancelListener(cancelListener);
 					}
 				}
 				
-				// Get the connection from the request. This should not actually open
-				// the connection, merely set it up.
-				final HttpURLConnection connection = request.getUrlConnection();
-				setupConnection(connection);
-				connection.setConnectTimeout(getConnectionTimeout());
-				connection.setReadTimeout(getReadTimeout());
-				outerConnection = connection;
-				// Double check the request is still not cancelled.
-				if (!request.isCancelled()) {
-					try {
-						// Connect
-						connection.connect();
-					} catch (SocketTimeoutException e) {
-						Log.e(WebServiceManager.class.getName(), "Socket timed out. Connection failed.");
-					}
-					
-					
-					boolean isCancelled = false;
-					// Lock on the status lock so that we know the status won't change
-					synchronized(request.getStatusLock()) {
-						// Indicate whether the request has been cancelled
-						isCancelled = request.isCancelled();
-						if (!isCancelled) {		
-							// List for future cancels
-							CancelListener<ResultType> cancelListener = new CancelListener<ResultType>() {
-								@Override
-								public void onCancel(WebServiceRequest<ResultType> request) {
-									// If cancelled, disconnect the connection. From here on, the
-									// connection may be dead.
-									connection.disconnect();
-									request.removeOnCancelListener(this);
-								}
-							};
-							request.addOnCancelListener(cancelListener);
-						}
-					}
-					
-					// If the request wasn't cancelled, execute it
-					if (!isCancelled) {
-						ResultType result = null;
-						try {
-							// Try to allow the request to handle the connection
-							request.onConnected(connection);
-							// Try to translate the connection
-							result = request.translateConnection(connection);
-						} catch (Exception ex) {
-							// We may hit errors if the connection is closed etc.
-							Log.w(getClass().getName(), "Error executing request", ex);
+				// If the request wasn't cancelled, execute it
+				if (!isCancelled && !call.isExpired()) {
+					// Abort the request if it is still running when the deadline passes
+					expiry = scheduleExpiry(deadline, new Runnable() {
+						@Override
+						public void run() {
+							call.expire();
 						}
-
-						resultInfo = new BasicResultInfo<ResultType>(result, new Date(), connection);
-					}
+					});
+					resultInfo = transport.execute(request, call);
 				}
 			}
 		} catch (IOException e) {
-			needsRetry = onURLConnectionException(request, e);
-			Log.w(getClass().getName(), "Error in a URLConnection. Retry: " + needsRetry, e);
+			call.onException(e);
 		} finally {
-			// No matter what, disconnect the connection if we have one
-			if (outerConnection != null) {
-				tearDownConnection(outerConnection);
-				outerConnection.disconnect();
+			if (expiry != null) {
+				expiry.cancel(false);
+			}
+			if (cancelListener != null) {
+				request.removeOnCancelListener(cancelListener);
 			}
 			// Release the connection
-			endConnection();
+			call.releaseConnection();
+			// Let another request probe the host if this one was a probe but
+			// never got an outcome
+			if (breaker != null && !call.wasSampled()) {
+				breaker.onSkipped(call.getHost(), call.getCircuitPermit());
+			}
 		}
 		
-		if (needsRetry) {
-			return doRequestViaURLConnection(request);
-		}
-
 		// If we never created a result, create a nulled on
 		if (resultInfo == null) {
 			resultInfo = new FailedResultInfo<ResultType>(new Date());
@@ -495,15 +1586,41 @@ public class WebServiceManager {
 		if (request.isCancelled()) {
 			resultInfo.setCancelled(true);
 		}
+		// If the deadline passed, indicate it in the result info
+		if (call.isExpired() && resultInfo instanceof ManagedResultInfo) {
+			((ManagedResultInfo<ResultType>) resultInfo).setExpired(true);
+		}
 		
 		return resultInfo;
 	}
 	
+	/**
+	 * Performs the given {@link WebServiceRequest} using {@link RequestMode#HttpClient}
+	 * and the {@link RequestExecutionPool} and returns the result.
+	 * @param request The {@link WebServiceRequest} to execute.
+	 * @return The result.
+	 */
+	public <ResultType> ResultInfo<ResultType> doRequestViaClient(final WebServiceRequest<ResultType> request) {
+		return doRequestWithRetries(request, getTransport(RequestMode.HttpClient));
+	}
+	
+	/**
+	 * Performs the given {@link WebServiceRequest} using {@link RequestMode#HttpURLConnection}
+	 * and returns the result.
+	 * @param request The {@link WebServiceRequest} to execute.
+	 * @return The result.
+	 */
+	public <ResultType> ResultInfo<ResultType> doRequestViaURLConnection(final WebServiceRequest<ResultType> request) {
+		return doRequestWithRetries(request, getTransport(RequestMode.HttpURLConnection));
+	}
+	
 	/**
 	 * Called when an exception is caught in an {@link HttpURLConnection} request.
 	 * @param request The {@link WebServiceRequest} that caused the exception.
 	 * @param e The raised exception.
-	 * @return True to retry the request, false to fail immediately.
+	 * @return True to retry the request, or false to leave it to the {@link RetryPolicy}.
+	 * Retries requested this way are still limited to the maximum attempts of the
+	 * {@link RetryPolicy} and delayed by its backoff.
 	 */
 	protected <ResultType> boolean onURLConnectionException(WebServiceRequest<ResultType> request, IOException e) {
 		return false;
@@ -528,10 +1645,10 @@ public class WebServiceManager {
 	 * calling the given {@link WebServiceRequestListener} when completed.
 	 * @param request The {@link WebServiceRequest} to execute.
 	 * @param listener The {@link WebServiceRequestListener} to call when the request completes. Optional.
-	 * predefined values.
+	 * @return A {@link RequestFuture} which will contain the result of the request.
 	 */
-	public <T> void doRequestInBackground(WebServiceRequest<T> request, WebServiceRequestListener<T> listener) {
-		doRequestInBackground(request, listener, Priority.NORMAL);
+	public <T> RequestFuture<T> doRequestInBackground(WebServiceRequest<T> request, WebServiceRequestListener<T> listener) {
+		return doRequestInBackground(request, listener, Priority.NORMAL);
 	}
 	
 	/**
@@ -541,64 +1658,408 @@ public class WebServiceManager {
 	 * @param listener The {@link WebServiceRequestListener} to call when the request completes. Optional.
 	 * @param priority The priority to execute the request with. See {@link Priority} for
 	 * predefined values.
+	 * @return A {@link RequestFuture} which will contain the result of the request.
 	 */
-	public <T> void doRequestInBackground(
+	public <T> RequestFuture<T> doRequestInBackground(
 			WebServiceRequest<T> request,
 			WebServiceRequestListener<T> listener,
 			int priority) {
 		
-		doRequestInBackground(request, defaultRequestMode, listener, priority);
+		return doRequestInBackground(request, getDefaultTransport(), listener, priority);
 	}
 	
 	/**
 	 * Performs the given {@link WebServiceRequest} on a background thread, with the given priority,
 	 * calling the given {@link WebServiceRequestListener} when completed.
+	 * <br><br>
+	 * If the deadline of the request passes while it is still queued, it is dropped without
+	 * being executed, and the listener is called with a {@link ManagedResultInfo} for which
+	 * {@link ManagedResultInfo#wasExpired()} is true. Similarly, if the request is rejected or shed
+	 * because the queue is full, the listener is called with a {@link ManagedResultInfo} for
+	 * which {@link ManagedResultInfo#wasRejected()} is true. This may happen before this method returns.
+	 * <br><br>
+	 * The listener is called via the {@link ResultDispatcher} of this manager.
+	 * @see #setResultDispatcher(ResultDispatcher)
 	 * @param request The {@link WebServiceRequest} to execute.
 	 * @param mode The {@link RequestMode} to use to execute the request.
 	 * @param listener The {@link WebServiceRequestListener} to call when the request completes. Optional.
 	 * @param priority The priority to execute the request with. See {@link Priority} for
 	 * predefined values.
+	 * @return A {@link RequestFuture} which will contain the result of the request.
 	 */
-	public <T> void doRequestInBackground(
+	public <T> RequestFuture<T> doRequestInBackground(
 			WebServiceRequest<T> request,
 			RequestMode mode,
 			WebServiceRequestListener<T> listener,
 			int priority) {
-		backgroundPoolExecutor.execute(createRunnable(request, mode, listener, priority));
+		return doRequestInBackground(request, getTransport(mode), listener, priority);
 	}
 	
-	private <T> Runnable createRunnable(
+	/**
+	 * Performs the given {@link WebServiceRequest} on a background thread using the
+	 * given {@link Transport}, with the given priority, calling the given
+	 * {@link WebServiceRequestListener} when completed.
+	 * @see #doRequestInBackground(WebServiceRequest, RequestMode, WebServiceRequestListener, int)
+	 * @param request The {@link WebServiceRequest} to execute.
+	 * @param transport The {@link Transport} to use to execute the request, or null to
+	 * use the default.
+	 * @param listener The {@link WebServiceRequestListener} to call when the request completes. Optional.
+	 * @param priority The priority to execute the request with. See {@link Priority} for
+	 * predefined values.
+	 * @return A {@link RequestFuture} which will contain the result of the request.
+	 */
+	public <T> RequestFuture<T> doRequestInBackground(
 			final WebServiceRequest<T> request,
-			final RequestMode mode,
+			Transport transport,
 			final WebServiceRequestListener<T> listener,
 			int priority) {
+		if (transport == null) {
+			transport = getDefaultTransport();
+		}
+		final RequestFuture<T> future = new RequestFuture<T>(request);
+		final long deadline = getDeadline(request);
+		WebServiceRequestListener<T> completionListener = new WebServiceRequestListener<T>() {
+			@Override
+			public void onRequestComplete(WebServiceManager manager, final ResultInfo<T> result) {
+				removeTagged(request);
+				// Complete the future first so that the listener sees it as done
+				future.complete(result);
+				if (listener != null) {
+					getResultDispatcher().dispatch(new Runnable() {
+						@Override
+						public void run() {
+							listener.onRequestComplete(WebServiceManager.this, result);
+						}
+					});
+				}
+			}
+		};
+		addTagged(request);
+		
+		if (isRequestCoalescingEnabled()) {
+			Object key = getCoalescingKey(request);
+			if (key != null) {
+				future.setSharedExecution(scheduler,
+						doCoalescedRequestInBackground(key, request, transport, completionListener, priority, deadline));
+				return future;
+			}
+		}
+		
+		if (getBatchCodec() != null) {
+			Object key = getBatchKey(request);
+			if (key != null) {
+				future.setSharedExecution(scheduler,
+						doBatchedRequestInBackground(key, request, transport, completionListener, priority, deadline));
+				return future;
+			}
+		}
+		
+		DownloadRunnable<T> runnable = createRunnable(request, transport, completionListener, priority, deadline);
+		future.setTask(scheduler, runnable);
+		enqueue(runnable);
+		return future;
+	}
+	
+	/**
+	 * Adds the given request to the open batch for the given key, starting one
+	 * if necessary.
+	 * @return The batch the request was added to.
+	 */
+	private <T> SharedExecution doBatchedRequestInBackground(
+			final Object key,
+			WebServiceRequest<T> request,
+			Transport transport,
+			WebServiceRequestListener<T> listener,
+			int priority,
+			long deadline) {
+		// Decide which batches to join, close and start under the lock, but
+		// queue them outside, as that may complete them and call their listeners
+		RequestBatch abandoned = null;
+		RequestBatch joined = null;
+		RequestBatch started = null;
+		boolean full = false;
+		synchronized (openBatches) {
+			RequestBatch existing = openBatches.get(key);
+			if (existing != null) {
+				if (existing.add(request, listener, priority)) {
+					joined = existing;
+				} else {
+					// The batch was abandoned, so let it complete
+					closeBatch(key, existing);
+					abandoned = existing;
+				}
+			}
+			
+			if (joined == null) {
+				// Otherwise, start a new batch
+				final RequestBatch batch = new RequestBatch(this, getBatchCodec(), key, maxBatchSize);
+				batch.add(request, listener, priority);
+				openBatches.put(key, batch);
+				
+				WebServiceRequestListener<List<ResultInfo<?>>> completionListener =
+						new WebServiceRequestListener<List<ResultInfo<?>>>() {
+					@Override
+					public void onRequestComplete(WebServiceManager manager, ResultInfo<List<ResultInfo<?>>> result) {
+						batch.onRequestComplete(manager, result);
+					}
+				};
+				batch.setTask(createRunnable(batch, transport, completionListener, priority, deadline));
+				started = batch;
+			}
+			
+			RequestBatch current = (joined != null) ? joined : started;
+			full = current.isFull();
+			if (full) {
+				closeBatch(key, current);
+			}
+		}
+		
+		if (abandoned != null) {
+			enqueue(abandoned.getTask());
+		}
+		if (joined != null) {
+			// The batch inherits the highest priority of its requests
+			RequestScheduler.Task task = joined.getTask();
+			if (priority > task.getPriority()) {
+				scheduler.setPriority(task, priority);
+			}
+			// ...and the latest deadline
+			scheduler.extendDeadline(task, deadline);
+			if (full) {
+				enqueue(task);
+			}
+			return joined;
+		}
+		
+		final RequestBatch batch = started;
+		if (full) {
+			enqueue(batch.getTask());
+		} else {
+			// Send the batch once the window has passed
+			getTimerExecutor().schedule(new Runnable() {
+				@Override
+				public void run() {
+					boolean send = false;
+					synchronized (openBatches) {
+						if (openBatches.get(key) == batch) {
+							closeBatch(key, batch);
+							send = true;
+						}
+					}
+					if (send) {
+						enqueue(batch.getTask());
+					}
+				}
+			}, batchWindowMillis, TimeUnit.MILLISECONDS);
+		}
+		return batch;
+	}
+	
+	/**
+	 * Closes the given batch so that no more requests join it. Must be called
+	 * while holding the lock on the open batches, and the batch must then be
+	 * queued once the lock is released.
+	 */
+	private void closeBatch(Object key, RequestBatch batch) {
+		if (openBatches.get(key) == batch) {
+			openBatches.remove(key);
+		}
+		batch.close();
+	}
+	
+	/**
+	 * Subscribes the given request to the shared execution for the given key,
+	 * starting one if necessary.
+	 * @return The shared execution the request was subscribed to.
+	 */
+	private <T> SharedExecution doCoalescedRequestInBackground(
+			final Object key,
+			WebServiceRequest<T> request,
+			Transport transport,
+			WebServiceRequestListener<T> listener,
+			int priority,
+			long deadline) {
+		// Decide whether to join or start an execution under the lock, but
+		// queue it outside, as that may complete it and call its listeners
+		CoalescedRequest<T> joined = null;
+		CoalescedRequest<T> started = null;
+		synchronized (coalescedRequests) {
+			// Join the existing execution if there is one which is still wanted
+			@SuppressWarnings("unchecked")
+			CoalescedRequest<T> existing = (CoalescedRequest<T>) coalescedRequests.get(key);
+			if (existing != null && existing.addSubscriber(request, listener, priority)) {
+				joined = existing;
+			} else {
+				// Otherwise, start a new shared execution
+				final CoalescedRequest<T> coalescedRequest = new CoalescedRequest<T>(this, request);
+				coalescedRequest.addSubscriber(request, listener, priority);
+				coalescedRequests.put(key, coalescedRequest);
+				
+				WebServiceRequestListener<T> completionListener = new WebServiceRequestListener<T>() {
+					@Override
+					public void onRequestComplete(WebServiceManager manager, ResultInfo<T> result) {
+						// Stop anyone else from joining before we deliver the result
+						synchronized (coalescedRequests) {
+							if (coalescedRequests.get(key) == coalescedRequest) {
+								coalescedRequests.remove(key);
+							}
+						}
+						coalescedRequest.onRequestComplete(manager, result);
+					}
+				};
+				coalescedRequest.setTask(
+						createRunnable(coalescedRequest, transport, completionListener, priority, deadline));
+				started = coalescedRequest;
+			}
+		}
+		
+		if (joined != null) {
+			// The shared execution inherits the highest priority of its requests
+			RequestScheduler.Task task = joined.getTask();
+			if (priority > task.getPriority()) {
+				scheduler.setPriority(task, priority);
+			}
+			// ...and the latest deadline
+			if (deadline > task.getDeadline() && scheduler.extendDeadline(task, deadline)) {
+				// Move the expiry timer of the queued execution to the new deadline
+				scheduleQueueExpiry(task);
+			}
+			return joined;
+		}
+		enqueue(started.getTask());
+		return started;
+	}
+	
+	private <T> DownloadRunnable<T> createRunnable(
+			final WebServiceRequest<T> request,
+			final Transport transport,
+			final WebServiceRequestListener<T> listener,
+			int priority,
+			long deadline) {
 		
-		return new DownloadRunnable(priority) {
+		String host = getHostKey(request);
+		RequestTrace trace = new RequestTrace(request, host, getURI(request), getRequestEventListener(),
+				getMetricsRegistry());
+		DownloadRunnable<T> runnable = new DownloadRunnable<T>(host, priority, deadline, trace) {
+			private int attempts = 0;
+			
 			@Override
 			public void run() {
 				Process.setThreadPriority(getPriority());
-				ResultInfo<T> result = WebServiceManager.this.doRequest(request, mode);
+				// The scheduler has already claimed a connection for us
+				getTrace().beginAttempt();
+				getTrace().onDequeued();
+				getTrace().onConnectionAcquired();
+				Attempt attempt = new Attempt(++attempts, getTrace());
+				attempt.translationDeferrable = true;
+				final ResultInfo<T> result = WebServiceManager.this.doRequest(request, transport, true, getDeadline(), attempt);
+				
+				long delay = getRetryDelay(request, result, attempt, getDeadline());
+				if (delay >= 0) {
+					attempt.discardTranslation();
+					// Queue the retry once the backoff has passed, without holding
+					// on to this thread or a connection in the meantime
+					final DownloadRunnable<T> retry = this;
+					getTimerExecutor().schedule(new Runnable() {
+						@Override
+						public void run() {
+							enqueue(retry);
+						}
+					}, delay, TimeUnit.MILLISECONDS);
+					return;
+				}
+				
+				if (attempt.translation != null) {
+					// Translate the response on the translation executor, and
+					// complete the request from there, so that this thread is
+					// free to execute the next request
+					// The deadline covers translating, but the expiry timer has
+					// already been cancelled, so check it here
+					final Attempt translated = attempt;
+					getTranslationExecutor().execute(new Runnable() {
+						@Override
+						public void run() {
+							if (hasPassed(getDeadline())) {
+								// Don't bother translating a result that is
+								// already too late
+								translated.discardTranslation();
+							} else {
+								translated.translation.run();
+							}
+							if (hasPassed(getDeadline()) && result instanceof ManagedResultInfo) {
+								((ManagedResultInfo<T>) result).setExpired(true);
+							}
+							onComplete(result);
+						}
+					});
+					return;
+				}
+				
+				onComplete(result);
+			}
+			
+			@Override
+			public void onExpired() {
+				// The request was never run, so report that it ran out of time
+				FailedResultInfo<T> result = new FailedResultInfo<T>(new Date());
+				result.setExpired(true);
+				onComplete(result);
+			}
+			
+			@Override
+			public void onRejected() {
+				// The request was never run because the queue was full
+				FailedResultInfo<T> result = new FailedResultInfo<T>(new Date());
+				result.setRejected(true);
+				onComplete(result);
+			}
+			
+			@Override
+			public void onCancelled() {
+				// The request was cancelled before it was run. This is called
+				// from its cancel listener, under its status lock, so complete
+				// it from elsewhere rather than calling listeners under the lock
+				getTimerExecutor().execute(new Runnable() {
+					@Override
+					public void run() {
+						ResultInfo<T> result = new FailedResultInfo<T>(new Date());
+						result.setCancelled(true);
+						onComplete(result);
+					}
+				});
+			}
+			
+			@Override
+			public void onCancel(WebServiceRequest<T> cancelledRequest) {
+				cancelledRequest.removeOnCancelListener(this);
+				// Don't let the request take a connection if it is still queued
+				scheduler.cancelIfQueued(this);
+			}
+			
+			private void onComplete(ResultInfo<T> result) {
+				request.removeOnCancelListener(this);
+				getTrace().onComplete(result);
 				if (listener != null) listener.onRequestComplete(WebServiceManager.this, result);
 			}
 		};
+		request.addOnCancelListener(runnable);
+		return runnable;
 	}
 	
-	private static abstract class DownloadRunnable implements Comparable<DownloadRunnable>, Runnable, Prioritized {
-		
-		private int priority;
+	/**
+	 * A task which executes a request, and which listens for the request being
+	 * cancelled while it is queued.
+	 */
+	private static abstract class DownloadRunnable<T> extends RequestScheduler.Task implements CancelListener<T> {
+		private final RequestTrace trace;
 		
-		public DownloadRunnable(int priority) {
-			this.priority = priority;
+		public DownloadRunnable(String host, int priority, long deadline, RequestTrace trace) {
+			super(host, priority, deadline);
+			this.trace = trace;
 		}
 		
-		@Override
-		public int compareTo(DownloadRunnable another) {
-			return Prioritized.COMPARATOR_HIGH_FIRST.compare(this, another);
-		}
-
-		@Override
-		public int getPriority() {
-			return priority;
+		public RequestTrace getTrace() {
+			return trace;
 		}
 	}
 }
\ No newline at end of file
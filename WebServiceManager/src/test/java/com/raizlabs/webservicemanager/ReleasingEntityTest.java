@@ -0,0 +1,144 @@
+package com.raizlabs.webservicemanager;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.BasicHttpEntity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReleasingEntityTest {
+
+	/**
+	 * {@link ByteArrayInputStream} which remembers whether it was closed.
+	 */
+	private static class TrackingInputStream extends ByteArrayInputStream {
+		boolean closed;
+
+		TrackingInputStream(int length) {
+			super(new byte[length]);
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+			super.close();
+		}
+	}
+
+	private RequestExecutionPool pool;
+	private HttpGet request;
+
+	@Before
+	public void setUp() {
+		pool = new RequestExecutionPool();
+		pool.setAbortExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		});
+		pool.setMaxDrainBytes(100);
+		request = new HttpGet("http://example.com/");
+	}
+
+	private ReleasingEntity createEntity(TrackingInputStream stream, long length) {
+		BasicHttpEntity entity = new BasicHttpEntity();
+		entity.setContent(stream);
+		entity.setContentLength(length);
+		return new ReleasingEntity(entity, pool, request);
+	}
+
+	@Test
+	public void drainsShortRemainder() throws IOException {
+		TrackingInputStream stream = new TrackingInputStream(50);
+		ReleasingEntity entity = createEntity(stream, 50);
+
+		entity.consumeContent();
+
+		assertEquals(0, stream.available());
+		assertFalse(request.isAborted());
+		assertEquals(1, pool.getDrainedResponseCount());
+		assertEquals(0, pool.getAbortedResponseCount());
+	}
+
+	@Test
+	public void abortsLongRemainderWithoutReadingIt() throws IOException {
+		TrackingInputStream stream = new TrackingInputStream(500);
+		ReleasingEntity entity = createEntity(stream, 500);
+
+		entity.consumeContent();
+
+		assertEquals(500, stream.available());
+		assertFalse(stream.closed);
+		assertTrue(request.isAborted());
+		assertEquals(0, pool.getDrainedResponseCount());
+		assertEquals(1, pool.getAbortedResponseCount());
+	}
+
+	@Test
+	public void countsBytesAlreadyRead() throws IOException {
+		TrackingInputStream stream = new TrackingInputStream(500);
+		ReleasingEntity entity = createEntity(stream, 500);
+		InputStream content = entity.getContent();
+		content.read(new byte[450]);
+
+		entity.consumeContent();
+
+		assertFalse(request.isAborted());
+		assertEquals(1, pool.getDrainedResponseCount());
+	}
+
+	@Test
+	public void abortsUnknownLengthBodyLongerThanMaximum() throws IOException {
+		TrackingInputStream stream = new TrackingInputStream(500);
+		ReleasingEntity entity = createEntity(stream, -1);
+
+		entity.consumeContent();
+
+		assertTrue(request.isAborted());
+		assertEquals(1, pool.getAbortedResponseCount());
+	}
+
+	@Test
+	public void drainsUnknownLengthBodyWithinMaximum() throws IOException {
+		TrackingInputStream stream = new TrackingInputStream(50);
+		ReleasingEntity entity = createEntity(stream, -1);
+
+		entity.consumeContent();
+
+		assertFalse(request.isAborted());
+		assertEquals(1, pool.getDrainedResponseCount());
+	}
+
+	@Test
+	public void abortsAbortedRequest() throws IOException {
+		TrackingInputStream stream = new TrackingInputStream(10);
+		ReleasingEntity entity = createEntity(stream, 10);
+		request.abort();
+
+		entity.consumeContent();
+
+		assertEquals(10, stream.available());
+		assertEquals(1, pool.getAbortedResponseCount());
+	}
+
+	@Test
+	public void releasesOnlyOnce() throws IOException {
+		TrackingInputStream stream = new TrackingInputStream(50);
+		ReleasingEntity entity = createEntity(stream, 50);
+
+		entity.consumeContent();
+		entity.consumeContent();
+
+		assertEquals(1, pool.getDrainedResponseCount());
+		assertEquals(0, pool.getAbortedResponseCount());
+	}
+}
@@ -0,0 +1,257 @@
+package com.raizlabs.webservicemanager.responses;
+
+import com.raizlabs.webservicemanager.HttpMethod;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BufferedResponseTest {
+
+	/**
+	 * {@link HttpURLConnection} which returns a canned response.
+	 */
+	private static class FakeConnection extends HttpURLConnection {
+		int responseCode = 200;
+		byte[] body = new byte[0];
+		InputStream errorStream;
+		boolean disconnected;
+		final Map<String, List<String>> headerFields = new HashMap<String, List<String>>();
+
+		FakeConnection() throws IOException {
+			super(new URL("http://example.com/"));
+		}
+
+		@Override
+		public int getResponseCode() {
+			return responseCode;
+		}
+
+		@Override
+		public String getResponseMessage() {
+			return "Message";
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			if (responseCode >= 400) {
+				throw new IOException("Error response");
+			}
+			return new ByteArrayInputStream(body);
+		}
+
+		@Override
+		public InputStream getErrorStream() {
+			return errorStream;
+		}
+
+		@Override
+		public int getContentLength() {
+			return body.length;
+		}
+
+		@Override
+		public String getContentType() {
+			return "text/plain";
+		}
+
+		@Override
+		public Map<String, List<String>> getHeaderFields() {
+			return headerFields;
+		}
+
+		@Override
+		public void disconnect() {
+			disconnected = true;
+		}
+
+		@Override
+		public boolean usingProxy() {
+			return false;
+		}
+
+		@Override
+		public void connect() { }
+	}
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private ResponseBufferPool pool;
+	private FakeConnection connection;
+
+	@Before
+	public void setUp() throws IOException {
+		pool = new ResponseBufferPool(16, 4);
+		pool.setMaxMemoryBytes(64);
+		pool.setTempDirectory(tempFolder.getRoot());
+		connection = new FakeConnection();
+	}
+
+	private static byte[] createBody(int length) {
+		byte[] body = new byte[length];
+		for (int i = 0; i < length; i++) {
+			body[i] = (byte) i;
+		}
+		return body;
+	}
+
+	private static byte[] readFully(InputStream stream) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[7];
+		int read;
+		while ((read = stream.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		stream.close();
+		return out.toByteArray();
+	}
+
+	@Test
+	public void copiesResponseDetails() throws IOException {
+		connection.headerFields.put("X-Test", Arrays.asList("first", "second"));
+		connection.headerFields.put(null, Arrays.asList("HTTP/1.1 200 OK"));
+		BufferedResponse response = BufferedResponse.read(connection, pool);
+
+		assertEquals(200, response.getResponseCode());
+		assertEquals("Message", response.getResponseMessage());
+		assertEquals("text/plain", response.getContentType());
+		assertEquals(HttpMethod.Get, response.getRequestMethod());
+		assertEquals("second", response.getHeaderValue("x-test"));
+		assertNull(response.getHeaderValue("Missing"));
+		response.close();
+	}
+
+	@Test
+	public void holdsSmallBodyInMemory() throws IOException {
+		connection.body = createBody(40);
+		BufferedResponse response = BufferedResponse.read(connection, pool);
+
+		assertEquals(40, response.getBufferedLength());
+		assertArrayEquals(connection.body, readFully(response.getContentStream()));
+		// The content may be read more than once
+		assertArrayEquals(connection.body, readFully(response.getContentStream()));
+		assertEquals(0, tempFolder.getRoot().list().length);
+		response.close();
+	}
+
+	@Test
+	public void holdsBodyOfExactlyWholeChunks() throws IOException {
+		connection.body = createBody(64);
+		BufferedResponse response = BufferedResponse.read(connection, pool);
+
+		assertArrayEquals(connection.body, readFully(response.getContentStream()));
+		assertEquals(0, tempFolder.getRoot().list().length);
+		response.close();
+	}
+
+	@Test
+	public void movesLargeBodyToFile() throws IOException {
+		connection.body = createBody(200);
+		BufferedResponse response = BufferedResponse.read(connection, pool);
+
+		assertEquals(200, response.getBufferedLength());
+		assertEquals(1, tempFolder.getRoot().list().length);
+		assertArrayEquals(connection.body, readFully(response.getContentStream()));
+
+		response.close();
+		assertEquals(0, tempFolder.getRoot().list().length);
+	}
+
+	@Test
+	public void readsSingleBytesAndSkips() throws IOException {
+		connection.body = createBody(40);
+		BufferedResponse response = BufferedResponse.read(connection, pool);
+		InputStream stream = response.getContentStream();
+
+		assertEquals(0, stream.read());
+		assertEquals(20, stream.skip(20));
+		assertEquals(21, stream.read());
+		assertEquals(18, stream.available());
+		assertEquals(18, stream.skip(100));
+		assertEquals(-1, stream.read());
+		response.close();
+	}
+
+	@Test
+	public void contentIsUnavailableOnceClosed() throws IOException {
+		connection.body = createBody(10);
+		BufferedResponse response = BufferedResponse.read(connection, pool);
+
+		response.close();
+		assertNull(response.getContentStream());
+	}
+
+	@Test
+	public void reportsFailureOfErrorResponseWhenContentIsRequested() throws IOException {
+		connection.responseCode = 500;
+		connection.errorStream = new ByteArrayInputStream(createBody(10));
+		BufferedResponse response = BufferedResponse.read(connection, pool);
+
+		assertEquals(500, response.getResponseCode());
+		assertFalse(connection.disconnected);
+		try {
+			response.getContentStream();
+			fail("Expected an IOException");
+		} catch (IOException e) {
+			assertEquals("Error response", e.getMessage());
+		}
+		response.close();
+	}
+
+	@Test
+	public void disconnectsWhenErrorBodyCantBeDrained() throws IOException {
+		connection.responseCode = 500;
+		BufferedResponse response = BufferedResponse.read(connection, pool);
+
+		assertTrue(connection.disconnected);
+		response.close();
+	}
+
+	@Test
+	public void releasesBufferWhenReadingFails() throws IOException {
+		FakeConnection failing = new FakeConnection() {
+			@Override
+			public InputStream getInputStream() {
+				return new InputStream() {
+					int count;
+
+					@Override
+					public int read() throws IOException {
+						if (++count > 100) {
+							throw new IOException("Connection reset");
+						}
+						return 0;
+					}
+				};
+			}
+		};
+
+		try {
+			BufferedResponse.read(failing, pool);
+			fail("Expected an IOException");
+		} catch (IOException e) {
+			assertEquals("Connection reset", e.getMessage());
+		}
+		assertEquals(0, tempFolder.getRoot().list().length);
+	}
+}
@@ -0,0 +1,58 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AIMDConcurrencyLimitTest {
+
+	@Test
+	public void clampsInitialLimit() {
+		assertEquals(2, new AIMDConcurrencyLimit(0, 2, 8, 1000).getLimit());
+		assertEquals(8, new AIMDConcurrencyLimit(20, 2, 8, 1000).getLimit());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInvalidLimits() {
+		new AIMDConcurrencyLimit(4, 4, 2, 1000);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInvalidBackoffRatio() {
+		new AIMDConcurrencyLimit(4, 1, 8, 1000, 1.0);
+	}
+
+	@Test
+	public void growsByOneWhileLimitIsUsed() {
+		AIMDConcurrencyLimit limit = new AIMDConcurrencyLimit(4, 1, 6, 1000);
+		limit.onSample(10, 4, false);
+		assertEquals(5, limit.getLimit());
+		limit.onSample(10, 5, false);
+		limit.onSample(10, 6, false);
+		assertEquals(6, limit.getLimit());
+	}
+
+	@Test
+	public void doesNotGrowWhileMostlyIdle() {
+		AIMDConcurrencyLimit limit = new AIMDConcurrencyLimit(10, 1, 20, 1000);
+		limit.onSample(10, 1, false);
+		assertEquals(10, limit.getLimit());
+	}
+
+	@Test
+	public void backsOffOnDropOrTimeout() {
+		AIMDConcurrencyLimit limit = new AIMDConcurrencyLimit(10, 1, 20, 1000, 0.5);
+		limit.onSample(10, 10, true);
+		assertEquals(5, limit.getLimit());
+		limit.onSample(2000, 5, false);
+		assertEquals(2, limit.getLimit());
+	}
+
+	@Test
+	public void neverBacksOffBelowMinimum() {
+		AIMDConcurrencyLimit limit = new AIMDConcurrencyLimit(3, 2, 20, 1000, 0.5);
+		limit.onSample(10, 3, true);
+		limit.onSample(10, 3, true);
+		assertEquals(2, limit.getLimit());
+	}
+}
@@ -0,0 +1,166 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+	private static final long OPEN_DURATION = 50;
+
+	private static CircuitBreaker createBreaker() {
+		return new CircuitBreaker()
+				.setWindowSize(4)
+				.setFailureRateThreshold(0.5, 4)
+				.setOpenDuration(OPEN_DURATION);
+	}
+
+	private static void open(CircuitBreaker breaker, String host) {
+		for (int i = 0; i < 4; i++) {
+			breaker.onResult(host, CircuitBreaker.ALLOWED, true);
+		}
+	}
+
+	private static void waitForProbe() throws InterruptedException {
+		Thread.sleep(OPEN_DURATION * 2);
+	}
+
+	@Test
+	public void staysClosedUntilMinimumRequests() {
+		CircuitBreaker breaker = createBreaker();
+		for (int i = 0; i < 3; i++) {
+			breaker.onResult("a", CircuitBreaker.ALLOWED, true);
+		}
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("a"));
+		assertEquals(CircuitBreaker.ALLOWED, breaker.allowRequest("a"));
+	}
+
+	@Test
+	public void staysClosedBelowFailureRate() {
+		CircuitBreaker breaker = createBreaker();
+		breaker.onResult("a", CircuitBreaker.ALLOWED, true);
+		breaker.onResult("a", CircuitBreaker.ALLOWED, false);
+		breaker.onResult("a", CircuitBreaker.ALLOWED, false);
+		breaker.onResult("a", CircuitBreaker.ALLOWED, false);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("a"));
+	}
+
+	@Test
+	public void opensAtFailureRate() {
+		CircuitBreaker breaker = createBreaker().setOpenDuration(60000);
+		open(breaker, "a");
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState("a"));
+		assertEquals(CircuitBreaker.REJECTED, breaker.allowRequest("a"));
+		assertTrue(breaker.getTimeUntilProbe("a") > 0);
+	}
+
+	@Test
+	public void tracksHostsIndependently() {
+		CircuitBreaker breaker = createBreaker().setOpenDuration(60000);
+		open(breaker, "a");
+
+		assertEquals(CircuitBreaker.ALLOWED, breaker.allowRequest("b"));
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("b"));
+		assertEquals(0, breaker.getTimeUntilProbe("b"));
+	}
+
+	@Test
+	public void successfulProbeClosesCircuit() throws InterruptedException {
+		CircuitBreaker breaker = createBreaker();
+		open(breaker, "a");
+		waitForProbe();
+
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState("a"));
+		long probe = breaker.allowRequest("a");
+		assertTrue(probe > CircuitBreaker.ALLOWED);
+		// Only one probe at a time
+		assertEquals(CircuitBreaker.REJECTED, breaker.allowRequest("a"));
+
+		breaker.onResult("a", probe, false);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("a"));
+		assertEquals(CircuitBreaker.ALLOWED, breaker.allowRequest("a"));
+	}
+
+	@Test
+	public void failedProbeReopensCircuit() throws InterruptedException {
+		CircuitBreaker breaker = createBreaker();
+		open(breaker, "a");
+		waitForProbe();
+
+		long probe = breaker.allowRequest("a");
+		breaker.onResult("a", probe, true);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState("a"));
+	}
+
+	@Test
+	public void requestsWhichArentProbesDontCloseCircuit() throws InterruptedException {
+		CircuitBreaker breaker = createBreaker();
+		long before = breaker.allowRequest("a");
+		open(breaker, "a");
+		waitForProbe();
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState("a"));
+		// Keep the probe from timing out on its own
+		breaker.setOpenDuration(60000);
+
+		long probe = breaker.allowRequest("a");
+		// A request let through before the circuit opened finishes now
+		breaker.onResult("a", before, false);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState("a"));
+		breaker.onSkipped("a", before);
+		assertEquals(CircuitBreaker.REJECTED, breaker.allowRequest("a"));
+
+		breaker.onResult("a", probe, false);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("a"));
+	}
+
+	@Test
+	public void probesOfEarlierRoundsDontCount() throws InterruptedException {
+		CircuitBreaker breaker = createBreaker();
+		open(breaker, "a");
+		waitForProbe();
+
+		long stale = breaker.allowRequest("a");
+		// Let the probe time out so that a new round starts
+		waitForProbe();
+		long probe = breaker.allowRequest("a");
+		assertTrue(probe > stale);
+
+		breaker.onResult("a", stale, false);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState("a"));
+		breaker.onResult("a", probe, false);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("a"));
+	}
+
+	@Test
+	public void skippedProbeIsReleased() throws InterruptedException {
+		CircuitBreaker breaker = createBreaker().setProbeCount(1);
+		open(breaker, "a");
+		waitForProbe();
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState("a"));
+		// Keep the probe from timing out on its own
+		breaker.setOpenDuration(60000);
+
+		long probe = breaker.allowRequest("a");
+		assertTrue(probe > CircuitBreaker.ALLOWED);
+		assertEquals(CircuitBreaker.REJECTED, breaker.allowRequest("a"));
+
+		breaker.onSkipped("a", probe);
+		assertEquals(probe, breaker.allowRequest("a"));
+	}
+
+	@Test
+	public void skippingOutsideHalfOpenDoesNothing() {
+		CircuitBreaker breaker = createBreaker().setOpenDuration(60000);
+		breaker.onSkipped("a", CircuitBreaker.ALLOWED);
+		open(breaker, "a");
+		breaker.onSkipped("a", CircuitBreaker.ALLOWED);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState("a"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInvalidFailureRate() {
+		new CircuitBreaker().setFailureRateThreshold(0, 1);
+	}
+}
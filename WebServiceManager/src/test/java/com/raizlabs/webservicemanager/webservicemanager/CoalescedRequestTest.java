@@ -0,0 +1,107 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CoalescedRequestTest {
+
+	private static CoalescedRequest<String> createShared(List<TestRequest<String>> subscribers) {
+		CoalescedRequest<String> shared = new CoalescedRequest<String>(null, subscribers.get(0));
+		for (TestRequest<String> subscriber : subscribers) {
+			assertTrue(subscribe(shared, subscriber));
+		}
+		return shared;
+	}
+
+	private static boolean subscribe(CoalescedRequest<String> shared, TestRequest<String> request) {
+		return shared.addSubscriber(request, request.listener, 0);
+	}
+
+	private static ResultInfo<String> result(String result) {
+		return new BasicResultInfo<String>(result, new Date(), 200, "OK");
+	}
+
+	@Test
+	public void cancellingOneSubscriberOnlyDetachesIt() {
+		TestRequest<String> first = new TestRequest<String>("first");
+		TestRequest<String> second = new TestRequest<String>("second");
+		TestRequest<String> third = new TestRequest<String>("third");
+		CoalescedRequest<String> shared = createShared(Arrays.asList(first, second, third));
+
+		second.cancel();
+		assertFalse(shared.isCancelled());
+		assertTrue(subscribe(shared, new TestRequest<String>("late")));
+
+		ResultInfo<String> result = result("shared");
+		shared.onRequestComplete(null, result);
+		assertSame(result, first.getResult());
+		assertSame(result, third.getResult());
+		assertTrue(second.getResult().wasCancelled());
+		assertNull(second.getResult().getResult());
+	}
+
+	@Test
+	public void cancellingTheLastSubscriberCancelsTheExecution() {
+		TestRequest<String> first = new TestRequest<String>("first");
+		TestRequest<String> second = new TestRequest<String>("second");
+		CoalescedRequest<String> shared = createShared(Arrays.asList(first, second));
+
+		first.cancel();
+		assertFalse(shared.isCancelled());
+		second.cancel();
+		assertTrue(shared.isCancelled());
+	}
+
+	@Test
+	public void cannotSubscribeOnceAbandoned() {
+		TestRequest<String> first = new TestRequest<String>("first");
+		CoalescedRequest<String> shared = createShared(Arrays.asList(first));
+		first.cancel();
+
+		TestRequest<String> late = new TestRequest<String>("late");
+		assertFalse(subscribe(shared, late));
+		assertEquals(0, late.getCancelListenerCount());
+
+		shared.onRequestComplete(null, new FailedResultInfo<String>(new Date()));
+		assertTrue(late.results.isEmpty());
+	}
+
+	@Test
+	public void stopsListeningForCancelsOnceComplete() {
+		TestRequest<String> first = new TestRequest<String>("first");
+		TestRequest<String> second = new TestRequest<String>("second");
+		CoalescedRequest<String> shared = createShared(Arrays.asList(first, second));
+		assertEquals(1, first.getCancelListenerCount());
+		assertEquals(1, second.getCancelListenerCount());
+
+		shared.onRequestComplete(null, result("shared"));
+		assertEquals(0, first.getCancelListenerCount());
+		assertEquals(0, second.getCancelListenerCount());
+
+		// Cancelling after the result was delivered no longer affects the execution
+		first.cancel();
+		second.cancel();
+		assertFalse(shared.isCancelled());
+	}
+
+	@Test
+	public void runsAtTheHighestPriorityOfItsSubscribers() {
+		TestRequest<String> low = new TestRequest<String>("low");
+		TestRequest<String> high = new TestRequest<String>("high");
+		CoalescedRequest<String> shared = createShared(Arrays.asList(low, high));
+
+		assertEquals(1, shared.setPriority(low, 1));
+		assertEquals(10, shared.setPriority(high, 10));
+		high.cancel();
+		assertEquals(2, shared.setPriority(low, 2));
+	}
+}
@@ -0,0 +1,69 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GradientConcurrencyLimitTest {
+
+	@Test
+	public void clampsInitialLimit() {
+		assertEquals(2, new GradientConcurrencyLimit(0, 2, 8).getLimit());
+		assertEquals(8, new GradientConcurrencyLimit(20, 2, 8).getLimit());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInvalidLimits() {
+		new GradientConcurrencyLimit(4, 0, 8);
+	}
+
+	@Test
+	public void growsWhileLatencyIsFlat() {
+		GradientConcurrencyLimit limit = new GradientConcurrencyLimit(10, 1, 100);
+		for (int i = 0; i < 50; i++) {
+			limit.onSample(20, limit.getLimit(), false);
+		}
+		assertTrue(limit.getLimit() > 10);
+	}
+
+	@Test
+	public void doesNotGrowWhileMostlyIdle() {
+		GradientConcurrencyLimit limit = new GradientConcurrencyLimit(10, 1, 100);
+		for (int i = 0; i < 50; i++) {
+			limit.onSample(20, 1, false);
+		}
+		assertEquals(10, limit.getLimit());
+	}
+
+	@Test
+	public void shrinksWhenLatencyRises() {
+		GradientConcurrencyLimit limit = new GradientConcurrencyLimit(50, 1, 100);
+		limit.onSample(10, 50, false);
+		int before = limit.getLimit();
+		for (int i = 0; i < 50; i++) {
+			limit.onSample(100, limit.getLimit(), false);
+		}
+		assertTrue(limit.getLimit() < before);
+	}
+
+	@Test
+	public void backsOffOnDrop() {
+		GradientConcurrencyLimit limit = new GradientConcurrencyLimit(10, 1, 100);
+		limit.onSample(10, 10, true);
+		assertEquals(9, limit.getLimit());
+	}
+
+	@Test
+	public void staysWithinBounds() {
+		GradientConcurrencyLimit limit = new GradientConcurrencyLimit(4, 2, 6);
+		for (int i = 0; i < 100; i++) {
+			limit.onSample(10, limit.getLimit(), true);
+		}
+		assertEquals(2, limit.getLimit());
+		for (int i = 0; i < 1000; i++) {
+			limit.onSample(10, limit.getLimit(), false);
+		}
+		assertEquals(6, limit.getLimit());
+	}
+}
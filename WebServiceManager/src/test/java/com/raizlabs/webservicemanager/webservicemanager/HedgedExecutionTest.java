@@ -0,0 +1,231 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HedgedExecutionTest {
+
+	private static final String PRIMARY = "primary";
+	private static final String HEDGE = "hedge";
+
+	/**
+	 * {@link HedgedExecution} whose attempts are named by strings. Attempts
+	 * either respond with their name, fail, or block until they are aborted.
+	 */
+	private static class TestExecution extends HedgedExecution<String, String> {
+		final Set<String> blocking = new HashSet<String>();
+		final Set<String> failing = new HashSet<String>();
+		final Set<String> aborted = Collections.synchronizedSet(new HashSet<String>());
+		final Map<String, CountDownLatch> abortLatches = new HashMap<String, CountDownLatch>();
+		boolean allowHedge = true;
+		volatile boolean hedgeBegun;
+		volatile boolean hedgeCreated;
+		volatile boolean hedgeEnded;
+		volatile boolean hedgeWon;
+
+		TestExecution(long delayMillis) {
+			super(delayMillis);
+			abortLatches.put(PRIMARY, new CountDownLatch(1));
+			abortLatches.put(HEDGE, new CountDownLatch(1));
+		}
+
+		@Override
+		protected boolean beginHedge() {
+			hedgeBegun = true;
+			return allowHedge;
+		}
+
+		@Override
+		protected void endHedge() {
+			hedgeEnded = true;
+		}
+
+		@Override
+		protected String createHedge() throws IOException {
+			hedgeCreated = true;
+			return HEDGE;
+		}
+
+		@Override
+		protected String executeAttempt(String attempt) throws IOException {
+			if (blocking.contains(attempt)) {
+				try {
+					abortLatches.get(attempt).await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				throw new IOException(attempt + " aborted");
+			}
+			if (failing.contains(attempt)) {
+				throw new IOException(attempt + " failed");
+			}
+			return attempt;
+		}
+
+		@Override
+		protected void abortAttempt(String attempt) {
+			aborted.add(attempt);
+			abortLatches.get(attempt).countDown();
+		}
+
+		@Override
+		protected void onHedgeWon() {
+			hedgeWon = true;
+		}
+	}
+
+	private ScheduledExecutorService timer;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		timer = Executors.newSingleThreadScheduledExecutor();
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		timer.shutdownNow();
+		executor.shutdownNow();
+		executor.awaitTermination(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void fastPrimaryNeverStartsHedge() throws IOException, InterruptedException {
+		TestExecution execution = new TestExecution(50);
+
+		assertEquals(PRIMARY, execution.execute(PRIMARY, timer, executor));
+		assertEquals(PRIMARY, execution.getWinner());
+
+		Thread.sleep(100);
+		assertFalse(execution.hedgeBegun);
+		assertFalse(execution.hedgeWon);
+	}
+
+	@Test
+	public void hedgeWinsWhenPrimaryIsSlow() throws IOException, InterruptedException {
+		TestExecution execution = new TestExecution(10);
+		execution.blocking.add(PRIMARY);
+
+		assertEquals(HEDGE, execution.execute(PRIMARY, timer, executor));
+		assertEquals(HEDGE, execution.getWinner());
+		assertTrue(execution.aborted.contains(PRIMARY));
+
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.SECONDS);
+		assertTrue(execution.hedgeWon);
+		assertTrue(execution.hedgeEnded);
+	}
+
+	@Test
+	public void primaryWinsWhenHedgeIsSlower() throws IOException, InterruptedException {
+		final TestExecution execution = new TestExecution(10) {
+			@Override
+			protected String executeAttempt(String attempt) throws IOException {
+				if (PRIMARY.equals(attempt)) {
+					// Respond only once the hedge has started
+					while (!hedgeCreated) {
+						Thread.yield();
+					}
+				}
+				return super.executeAttempt(attempt);
+			}
+		};
+		execution.blocking.add(HEDGE);
+
+		assertEquals(PRIMARY, execution.execute(PRIMARY, timer, executor));
+		assertFalse(execution.hedgeWon);
+		assertTrue(execution.aborted.contains(HEDGE));
+
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.SECONDS);
+		assertTrue(execution.hedgeEnded);
+	}
+
+	@Test
+	public void reportsPrimaryFailureWhenBothFail() {
+		TestExecution execution = new TestExecution(0);
+		execution.failing.add(PRIMARY);
+		execution.failing.add(HEDGE);
+
+		try {
+			execution.execute(PRIMARY, timer, executor);
+			fail("Expected an IOException");
+		} catch (IOException e) {
+			assertEquals("primary failed", e.getMessage());
+		}
+	}
+
+	@Test
+	public void waitsOnlyForPrimaryWhenHedgeIsRefused() throws IOException {
+		TestExecution execution = new TestExecution(0) {
+			@Override
+			protected String executeAttempt(String attempt) throws IOException {
+				while (!hedgeBegun) {
+					Thread.yield();
+				}
+				return super.executeAttempt(attempt);
+			}
+		};
+		execution.allowHedge = false;
+
+		assertEquals(PRIMARY, execution.execute(PRIMARY, timer, executor));
+		assertFalse(execution.hedgeEnded);
+	}
+
+	@Test
+	public void restoresInterruptAfterWaiting() throws IOException {
+		final Thread caller = Thread.currentThread();
+		final CountDownLatch hedgeStarted = new CountDownLatch(1);
+		final CountDownLatch primaryFailed = new CountDownLatch(1);
+		TestExecution execution = new TestExecution(0) {
+			@Override
+			protected String createHedge() throws IOException {
+				hedgeStarted.countDown();
+				return super.createHedge();
+			}
+
+			@Override
+			protected String executeAttempt(String attempt) throws IOException {
+				try {
+					if (PRIMARY.equals(attempt)) {
+						// Fail once the caller has to wait for the hedge
+						hedgeStarted.await();
+						primaryFailed.countDown();
+						throw new IOException("primary failed");
+					}
+					primaryFailed.await();
+					caller.interrupt();
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					throw new IOException(e.getMessage());
+				}
+				return attempt;
+			}
+		};
+
+		try {
+			assertEquals(HEDGE, execution.execute(PRIMARY, timer, executor));
+		} finally {
+			assertTrue(Thread.interrupted());
+		}
+	}
+}
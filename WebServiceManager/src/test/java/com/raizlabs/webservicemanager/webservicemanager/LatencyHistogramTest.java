@@ -0,0 +1,96 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void smallValuesHaveTheirOwnBuckets() {
+		for (int value = 0; value < LatencyHistogram.LINEAR_LIMIT; value++) {
+			assertEquals(value, LatencyHistogram.getIndex(value));
+			assertEquals(value, LatencyHistogram.getHighestValue(value));
+		}
+	}
+
+	@Test
+	public void bucketsContainTheirValues() {
+		for (long value = 0; value < LatencyHistogram.MAX_VALUE; value += 1 + value / 64) {
+			int index = LatencyHistogram.getIndex(value);
+			assertTrue(LatencyHistogram.getHighestValue(index) >= value);
+			if (index > 0) {
+				assertTrue(LatencyHistogram.getHighestValue(index - 1) < value);
+			}
+		}
+	}
+
+	@Test
+	public void bucketsArePrecise() {
+		for (long value = 1; value < LatencyHistogram.MAX_VALUE; value += 1 + value / 64) {
+			long highest = LatencyHistogram.getHighestValue(LatencyHistogram.getIndex(value));
+			assertTrue((highest - value) <= value / LatencyHistogram.SUB_BUCKETS);
+		}
+	}
+
+	@Test
+	public void clampsOutOfRangeValues() {
+		assertEquals(0, LatencyHistogram.getIndex(-5));
+		assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.getIndex(LatencyHistogram.MAX_VALUE));
+		assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.getIndex(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void findsValueAtPercentile() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int value = 1; value <= 1000; value++) {
+			histogram.record(value);
+		}
+		long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+		histogram.copyCounts(counts, false);
+		long total = histogram.getTotalCount(false);
+
+		long median = LatencyHistogram.getValueAtPercentile(counts, total, 0.5);
+		assertTrue(median >= 500 && median <= 500 + 500 / LatencyHistogram.SUB_BUCKETS);
+		long p99 = LatencyHistogram.getValueAtPercentile(counts, total, 0.99);
+		assertTrue(p99 >= 990 && p99 <= 990 + 990 / LatencyHistogram.SUB_BUCKETS);
+		assertTrue(LatencyHistogram.getValueAtPercentile(counts, total, 1) >= 1000);
+	}
+
+	@Test
+	public void emptyPercentileIsZero() {
+		long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+		assertEquals(0, LatencyHistogram.getValueAtPercentile(counts, 0, 0.5));
+	}
+
+	@Test
+	public void tracksCountSumAndMax() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10);
+		histogram.record(30);
+		histogram.record(-1);
+
+		assertEquals(3, histogram.getTotalCount(false));
+		assertEquals(40, histogram.getSum(false));
+		assertEquals(30, histogram.getMax(false));
+	}
+
+	@Test
+	public void resetsWhenRead() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10);
+		long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+		histogram.copyCounts(counts, true);
+		assertEquals(1, counts[10]);
+		assertEquals(1, histogram.getTotalCount(true));
+		assertEquals(10, histogram.getSum(true));
+		assertEquals(10, histogram.getMax(true));
+
+		histogram.copyCounts(counts, false);
+		assertEquals(0, counts[10]);
+		assertEquals(0, histogram.getTotalCount(false));
+		assertEquals(0, histogram.getSum(false));
+		assertEquals(0, histogram.getMax(false));
+	}
+}
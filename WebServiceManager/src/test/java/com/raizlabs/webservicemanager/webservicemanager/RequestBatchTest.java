@@ -0,0 +1,169 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RequestBatchTest {
+
+	private static final Object BATCH_KEY = "batch";
+
+	/**
+	 * {@link BatchCodec} which records the requests it combines.
+	 */
+	private static class TestCodec implements BatchCodec {
+		final List<List<WebServiceRequest<?>>> batches = new ArrayList<List<WebServiceRequest<?>>>();
+		final TestRequest<List<ResultInfo<?>>> combined = new TestRequest<List<ResultInfo<?>>>("combined");
+
+		@Override
+		public WebServiceRequest<List<ResultInfo<?>>> createBatchRequest(Object batchKey,
+				List<WebServiceRequest<?>> requests) {
+			batches.add(new ArrayList<WebServiceRequest<?>>(requests));
+			return combined;
+		}
+	}
+
+	private static ResultInfo<List<ResultInfo<?>>> resultOf(ResultInfo<?>... parts) {
+		return new BasicResultInfo<List<ResultInfo<?>>>(Arrays.<ResultInfo<?>>asList(parts), new Date(), 200, "OK");
+	}
+
+	private static ResultInfo<String> part(String result) {
+		return new BasicResultInfo<String>(result, new Date(), 200, "OK");
+	}
+
+	private static RequestBatch createBatch(TestCodec codec, int maxSize, TestRequest<?>... requests) {
+		RequestBatch batch = new RequestBatch(null, codec, BATCH_KEY, maxSize);
+		for (TestRequest<?> request : requests) {
+			assertTrue(add(batch, request));
+		}
+		return batch;
+	}
+
+	private static <T> boolean add(RequestBatch batch, TestRequest<T> request) {
+		return batch.add(request, request.listener, 0);
+	}
+
+	@Test
+	public void cancellingOneRequestOnlyDetachesIt() {
+		TestRequest<String> first = new TestRequest<String>("first");
+		TestRequest<String> second = new TestRequest<String>("second");
+		RequestBatch batch = createBatch(new TestCodec(), 5, first, second);
+
+		first.cancel();
+		assertFalse(batch.isCancelled());
+		assertFalse(batch.isFull());
+
+		second.cancel();
+		assertTrue(batch.isCancelled());
+		assertTrue(batch.isFull());
+		assertFalse(add(batch, new TestRequest<String>("late")));
+	}
+
+	@Test
+	public void cancelledRequestsNoLongerRaisePriority() {
+		TestRequest<String> low = new TestRequest<String>("low");
+		TestRequest<String> high = new TestRequest<String>("high");
+		RequestBatch batch = createBatch(new TestCodec(), 5, low, high);
+
+		assertEquals(1, batch.setPriority(low, 1));
+		assertEquals(10, batch.setPriority(high, 10));
+		high.cancel();
+		assertEquals(2, batch.setPriority(low, 2));
+	}
+
+	@Test
+	public void stopsTakingRequestsOnceFull() {
+		RequestBatch batch = createBatch(new TestCodec(), 2,
+				new TestRequest<String>("first"), new TestRequest<String>("second"));
+
+		assertTrue(batch.isFull());
+		assertFalse(add(batch, new TestRequest<String>("third")));
+	}
+
+	@Test
+	public void combinesRequestsWhichAreStillWanted() {
+		TestCodec codec = new TestCodec();
+		TestRequest<String> first = new TestRequest<String>("first");
+		TestRequest<String> second = new TestRequest<String>("second");
+		TestRequest<String> third = new TestRequest<String>("third");
+		RequestBatch batch = createBatch(codec, 5, first, second, third);
+
+		second.cancel();
+		batch.onConnected(null);
+		assertTrue(codec.combined.connected);
+		assertEquals(1, codec.batches.size());
+		assertEquals(Arrays.<WebServiceRequest<?>>asList(first, third), codec.batches.get(0));
+		assertFalse(add(batch, new TestRequest<String>("late")));
+
+		batch.onRequestComplete(null, resultOf(part("a"), part("c")));
+		assertEquals("a", first.getResult().getResult());
+		assertTrue(second.getResult().wasCancelled());
+		assertNull(second.getResult().getResult());
+		assertEquals("c", third.getResult().getResult());
+	}
+
+	@Test
+	public void sendsTheLastWantedRequestByItself() {
+		TestCodec codec = new TestCodec();
+		TestRequest<String> first = new TestRequest<String>("first");
+		TestRequest<String> second = new TestRequest<String>("second");
+		TestRequest<String> third = new TestRequest<String>("third");
+		RequestBatch batch = createBatch(codec, 5, first, second, third);
+
+		first.cancel();
+		third.cancel();
+		batch.onConnected(null);
+		assertTrue(second.connected);
+		assertFalse(first.connected);
+		assertTrue(codec.batches.isEmpty());
+
+		ResultInfo<String> result = part("b");
+		batch.onRequestComplete(null, resultOf(result));
+		assertSame(result, second.getResult());
+		assertTrue(first.getResult().wasCancelled());
+		assertTrue(third.getResult().wasCancelled());
+	}
+
+	@Test
+	public void failsEveryRequestWhenThePartsDontMatch() {
+		TestCodec codec = new TestCodec();
+		TestRequest<String> first = new TestRequest<String>("first");
+		TestRequest<String> second = new TestRequest<String>("second");
+		RequestBatch batch = createBatch(codec, 5, first, second);
+
+		batch.onConnected(null);
+		batch.onRequestComplete(null, resultOf(part("a")));
+		for (TestRequest<String> request : Arrays.asList(first, second)) {
+			ResultInfo<String> result = request.getResult();
+			assertNull(result.getResult());
+			assertFalse(result.wasCancelled());
+		}
+	}
+
+	@Test
+	public void failsEveryRequestWithoutAResult() {
+		TestRequest<String> first = new TestRequest<String>("first");
+		TestRequest<String> second = new TestRequest<String>("second");
+		RequestBatch batch = createBatch(new TestCodec(), 5, first, second);
+
+		batch.onConnected(null);
+		FailedResultInfo<List<ResultInfo<?>>> failed = new FailedResultInfo<List<ResultInfo<?>>>(new Date());
+		failed.setExpired(true);
+		batch.onRequestComplete(null, failed);
+		for (TestRequest<String> request : Arrays.asList(first, second)) {
+			assertNull(request.getResult().getResult());
+			assertTrue(WebServiceManager.wasExpired(request.getResult()));
+		}
+	}
+}
@@ -0,0 +1,304 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RequestSchedulerTest {
+
+	/**
+	 * {@link Executor} which records the tasks it is given without running
+	 * them.
+	 */
+	private static class RecordingExecutor implements Executor {
+		final List<Runnable> executed = new ArrayList<Runnable>();
+
+		@Override
+		public void execute(Runnable command) {
+			executed.add(command);
+		}
+	}
+
+	private static class TestTask extends RequestScheduler.Task {
+		boolean expired;
+		boolean rejected;
+		boolean cancelled;
+
+		TestTask(String host, int priority) {
+			super(host, priority);
+		}
+
+		TestTask(String host, int priority, long deadline) {
+			super(host, priority, deadline);
+		}
+
+		@Override
+		public void run() { }
+
+		@Override
+		public void onExpired() {
+			expired = true;
+		}
+
+		@Override
+		public void onRejected() {
+			rejected = true;
+		}
+
+		@Override
+		public void onCancelled() {
+			cancelled = true;
+		}
+	}
+
+	private RecordingExecutor executor;
+
+	@Before
+	public void setUp() {
+		executor = new RecordingExecutor();
+	}
+
+	@Test
+	public void dispatchesUpToMaxConnections() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 2);
+		TestTask first = new TestTask("a", 0);
+		TestTask second = new TestTask("b", 0);
+		TestTask third = new TestTask("c", 0);
+		scheduler.enqueue(first);
+		scheduler.enqueue(second);
+		scheduler.enqueue(third);
+
+		assertEquals(2, executor.executed.size());
+		assertEquals(1, scheduler.getQueuedTaskCount());
+
+		scheduler.release(first.getHost());
+		assertEquals(3, executor.executed.size());
+		assertEquals(third, executor.executed.get(2));
+		assertEquals(0, scheduler.getQueuedTaskCount());
+	}
+
+	@Test
+	public void limitsConnectionsPerHost() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 4);
+		scheduler.setMaxConnectionsPerHost(1);
+		TestTask first = new TestTask("a", 0);
+		TestTask second = new TestTask("a", 0);
+		TestTask other = new TestTask("b", 0);
+		scheduler.enqueue(first);
+		scheduler.enqueue(second);
+		scheduler.enqueue(other);
+
+		assertEquals(2, executor.executed.size());
+		assertEquals(first, executor.executed.get(0));
+		assertEquals(other, executor.executed.get(1));
+
+		scheduler.release("a");
+		assertEquals(second, executor.executed.get(2));
+	}
+
+	@Test
+	public void dispatchesHighestPriorityFirst() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 1);
+		scheduler.acquire("a");
+		TestTask low = new TestTask("a", 0);
+		TestTask high = new TestTask("a", 5);
+		scheduler.enqueue(low);
+		scheduler.enqueue(high);
+		assertEquals(0, executor.executed.size());
+
+		scheduler.release("a");
+		assertEquals(high, executor.executed.get(0));
+		scheduler.release("a");
+		assertEquals(low, executor.executed.get(1));
+	}
+
+	@Test
+	public void rotatesBetweenHostsOfEqualPriority() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 1);
+		scheduler.acquire("a");
+		TestTask a1 = new TestTask("a", 0);
+		TestTask a2 = new TestTask("a", 0);
+		TestTask b1 = new TestTask("b", 0);
+		scheduler.enqueue(a1);
+		scheduler.enqueue(a2);
+		scheduler.enqueue(b1);
+
+		scheduler.release("a");
+		assertEquals(a1, executor.executed.get(0));
+		scheduler.release("a");
+		assertEquals(b1, executor.executed.get(1));
+		scheduler.release("b");
+		assertEquals(a2, executor.executed.get(2));
+	}
+
+	@Test
+	public void setPriorityReordersQueuedTask() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 1);
+		scheduler.acquire("a");
+		TestTask first = new TestTask("a", 0);
+		TestTask second = new TestTask("a", 0);
+		scheduler.enqueue(first);
+		scheduler.enqueue(second);
+
+		assertTrue(scheduler.setPriority(second, 10));
+		scheduler.release("a");
+		assertEquals(second, executor.executed.get(0));
+		assertEquals(10, second.getPriority());
+
+		// Already dispatched, so left unchanged
+		assertFalse(scheduler.setPriority(second, 20));
+		assertEquals(10, second.getPriority());
+	}
+
+	@Test
+	public void rejectsNewTaskWhenQueueIsFull() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 1);
+		scheduler.acquire("a");
+		scheduler.setMaxQueuedTasks(1, QueueOverflowPolicy.REJECT_NEW);
+		TestTask queued = new TestTask("a", 0);
+		TestTask overflow = new TestTask("a", 10);
+		scheduler.enqueue(queued);
+		scheduler.enqueue(overflow);
+
+		assertTrue(overflow.rejected);
+		assertFalse(queued.rejected);
+		assertEquals(1, scheduler.getRejectedCount());
+		assertEquals(1, scheduler.getQueuedTaskCount());
+	}
+
+	@Test
+	public void shedsLowestPriorityTaskWhenQueueIsFull() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 1);
+		scheduler.acquire("a");
+		scheduler.setMaxQueuedTasks(2, QueueOverflowPolicy.SHED_LOWEST_PRIORITY);
+		TestTask low = new TestTask("a", 0);
+		TestTask medium = new TestTask("a", 5);
+		TestTask high = new TestTask("a", 10);
+		TestTask lower = new TestTask("a", -1);
+		scheduler.enqueue(low);
+		scheduler.enqueue(medium);
+		scheduler.enqueue(high);
+
+		assertTrue(low.rejected);
+		assertEquals(1, scheduler.getShedCount());
+
+		// Nothing queued is less important, so the new task is rejected
+		scheduler.enqueue(lower);
+		assertTrue(lower.rejected);
+		assertEquals(1, scheduler.getRejectedCount());
+		assertEquals(2, scheduler.getQueuedTaskCount());
+	}
+
+	@Test
+	public void cancelIfQueuedRemovesTask() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 1);
+		scheduler.acquire("a");
+		TestTask task = new TestTask("a", 0);
+		scheduler.enqueue(task);
+
+		assertTrue(scheduler.cancelIfQueued(task));
+		assertTrue(task.cancelled);
+		assertFalse(scheduler.cancelIfQueued(task));
+
+		scheduler.release("a");
+		assertEquals(0, executor.executed.size());
+	}
+
+	@Test
+	public void dropsTasksWhoseDeadlinePassed() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 1);
+		scheduler.acquire("a");
+		TestTask expiring = new TestTask("a", 0, QueueDiscipline.now() - 1);
+		TestTask live = new TestTask("a", 0);
+		scheduler.enqueue(expiring);
+		scheduler.enqueue(live);
+
+		scheduler.release("a");
+		assertTrue(expiring.expired);
+		assertEquals(1, executor.executed.size());
+		assertEquals(live, executor.executed.get(0));
+	}
+
+	@Test
+	public void expireIfQueuedOnlyDropsTasksPastTheirDeadline() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 1);
+		scheduler.acquire("a");
+		TestTask task = new TestTask("a", 0, QueueDiscipline.now() + 60000);
+		scheduler.enqueue(task);
+
+		assertFalse(scheduler.expireIfQueued(task));
+		assertFalse(task.expired);
+		assertTrue(scheduler.extendDeadline(task, QueueDiscipline.now() + 120000));
+	}
+
+	@Test
+	public void tryAcquireYieldsToQueuedWork() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 2);
+		scheduler.setMaxConnectionsPerHost(1);
+		scheduler.acquire("a");
+		scheduler.enqueue(new TestTask("a", 0));
+
+		assertFalse(scheduler.tryAcquire("b"));
+
+		scheduler.release("a");
+		assertTrue(scheduler.tryAcquire("b"));
+	}
+
+	@Test
+	public void acquireGivesUpAtDeadline() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 1);
+		scheduler.acquire("a");
+
+		assertFalse(scheduler.acquire("a", QueueDiscipline.now() + 20));
+	}
+
+	@Test
+	public void acquireRestoresInterrupt() throws InterruptedException {
+		final RequestScheduler scheduler = new RequestScheduler(executor, 1);
+		scheduler.acquire("a");
+
+		Thread releaser = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					return;
+				}
+				scheduler.release("a");
+			}
+		});
+		releaser.start();
+
+		Thread.currentThread().interrupt();
+		scheduler.acquire("a");
+		assertTrue(Thread.interrupted());
+		releaser.join();
+	}
+
+	@Test
+	public void concurrencyLimitBoundsConnections() {
+		RequestScheduler scheduler = new RequestScheduler(executor, 4);
+		scheduler.setConcurrencyLimit(new ConcurrencyLimit() {
+			@Override
+			public int getLimit() {
+				return 1;
+			}
+
+			@Override
+			public void onSample(long rttMillis, int inFlight, boolean dropped) { }
+		});
+		scheduler.enqueue(new TestTask("a", 0));
+		scheduler.enqueue(new TestTask("b", 0));
+
+		assertEquals(1, scheduler.getConnectionLimit());
+		assertEquals(1, executor.executed.size());
+	}
+}
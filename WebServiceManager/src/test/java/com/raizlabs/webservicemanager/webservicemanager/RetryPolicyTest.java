@@ -0,0 +1,107 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.HttpMethod;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+	@Test
+	public void retriesTransientStatusCodes() {
+		RetryPolicy policy = new RetryPolicy();
+		assertTrue(policy.shouldRetry(HttpMethod.Get, 503, null, 1));
+		assertTrue(policy.shouldRetry(HttpMethod.Get, 429, null, 1));
+		assertFalse(policy.shouldRetry(HttpMethod.Get, 404, null, 1));
+		assertFalse(policy.shouldRetry(HttpMethod.Get, 500, null, 1));
+		assertFalse(policy.shouldRetry(HttpMethod.Get, -1, null, 1));
+	}
+
+	@Test
+	public void retriesExceptions() {
+		RetryPolicy policy = new RetryPolicy();
+		assertTrue(policy.shouldRetry(HttpMethod.Get, -1, new IOException(), 1));
+	}
+
+	@Test
+	public void stopsAfterMaxAttempts() {
+		RetryPolicy policy = new RetryPolicy().setMaxAttempts(2);
+		assertTrue(policy.shouldRetry(HttpMethod.Get, 503, null, 1));
+		assertFalse(policy.shouldRetry(HttpMethod.Get, 503, null, 2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsZeroAttempts() {
+		new RetryPolicy().setMaxAttempts(0);
+	}
+
+	@Test
+	public void onlyRetriesNonIdempotentMethodsWhenAllowed() {
+		RetryPolicy policy = new RetryPolicy();
+		assertFalse(policy.shouldRetry(HttpMethod.Post, 503, null, 1));
+		assertFalse(policy.shouldRetry(HttpMethod.Post, -1, new IOException(), 1));
+
+		policy.setRetryNonIdempotent(true);
+		assertTrue(policy.shouldRetry(HttpMethod.Post, 503, null, 1));
+	}
+
+	@Test
+	public void neverRetriesRequestsWhichCantBeResent() {
+		RetryPolicy policy = new RetryPolicy().setRetryNonIdempotent(true);
+		assertFalse(policy.shouldRetry(HttpMethod.Put, false, 503, null, 1));
+		assertFalse(policy.shouldRetry(HttpMethod.Put, false, -1, new IOException(), 1));
+		assertTrue(policy.shouldRetry(HttpMethod.Put, true, 503, null, 1));
+	}
+
+	@Test
+	public void noneNeverRetries() {
+		RetryPolicy policy = RetryPolicy.none();
+		assertFalse(policy.shouldRetry(HttpMethod.Get, 503, null, 1));
+		assertFalse(policy.shouldRetry(HttpMethod.Get, -1, new IOException(), 1));
+	}
+
+	@Test
+	public void usesCustomClassifiers() {
+		RetryPolicy policy = new RetryPolicy()
+				.setStatusClassifier(new RetryPolicy.StatusClassifier() {
+					@Override
+					public boolean isRetryable(int responseCode) {
+						return responseCode == 500;
+					}
+				});
+		assertTrue(policy.shouldRetry(HttpMethod.Get, 500, null, 1));
+		assertFalse(policy.shouldRetry(HttpMethod.Get, 503, null, 1));
+	}
+
+	@Test
+	public void backsOffExponentiallyUpToMaximum() {
+		RetryPolicy policy = new RetryPolicy()
+				.setBackoff(100, 2, 500)
+				.setJitter(0);
+		assertEquals(100, policy.getDelayMillis(1));
+		assertEquals(200, policy.getDelayMillis(2));
+		assertEquals(400, policy.getDelayMillis(3));
+		assertEquals(500, policy.getDelayMillis(4));
+	}
+
+	@Test
+	public void jitterOnlyShortensDelay() {
+		RetryPolicy policy = new RetryPolicy()
+				.setBackoff(1000, 2, 10000)
+				.setJitter(0.5);
+		for (int i = 0; i < 100; i++) {
+			long delay = policy.getDelayMillis(1);
+			assertTrue(delay >= 500 && delay <= 1000);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInvalidJitter() {
+		new RetryPolicy().setJitter(1.5);
+	}
+}
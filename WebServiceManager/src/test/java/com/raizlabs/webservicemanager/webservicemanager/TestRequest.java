@@ -0,0 +1,146 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.coreutils.listeners.ProgressListener;
+import com.raizlabs.webservicemanager.HttpMethod;
+import com.raizlabs.webservicemanager.requests.WebServiceRequest;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link WebServiceRequest} for tests of shared executions, which never
+ * touches the network and records the results delivered to its listener.
+ *
+ * @param <ResultType> The type of the result of the request.
+ */
+class TestRequest<ResultType> implements WebServiceRequest<ResultType> {
+
+	final String name;
+	final List<ResultInfo<ResultType>> results = new ArrayList<ResultInfo<ResultType>>();
+	boolean connected;
+
+	private boolean cancelled;
+	private final Set<CancelListener<ResultType>> cancelListeners = new LinkedHashSet<CancelListener<ResultType>>();
+
+	final WebServiceRequestListener<ResultType> listener = new WebServiceRequestListener<ResultType>() {
+		@Override
+		public void onRequestComplete(WebServiceManager manager, ResultInfo<ResultType> result) {
+			results.add(result);
+		}
+	};
+
+	TestRequest(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return The number of cancel listeners currently added to this request.
+	 */
+	int getCancelListenerCount() {
+		synchronized (getStatusLock()) {
+			return cancelListeners.size();
+		}
+	}
+
+	/**
+	 * @return The only result delivered to this request.
+	 */
+	ResultInfo<ResultType> getResult() {
+		if (results.size() != 1) {
+			throw new AssertionError(name + " received " + results.size() + " results");
+		}
+		return results.get(0);
+	}
+
+	@Override
+	public HttpUriRequest getHttpUriRequest() {
+		return null;
+	}
+
+	@Override
+	public HttpURLConnection getUrlConnection() {
+		return null;
+	}
+
+	@Override
+	public void onConnected(HttpURLConnection connection) {
+		connected = true;
+	}
+
+	@Override
+	public ResultType translateConnection(HttpURLConnection connection) {
+		return null;
+	}
+
+	@Override
+	public ResultType translateHTTPResponse(HttpResponse response, HttpMethod requestMethod) {
+		return null;
+	}
+
+	@Override
+	public Object getStatusLock() {
+		return this;
+	}
+
+	@Override
+	public void onStart() {
+	}
+
+	@Override
+	public boolean isStarted() {
+		return false;
+	}
+
+	@Override
+	public void cancel() {
+		List<CancelListener<ResultType>> listeners;
+		synchronized (getStatusLock()) {
+			cancelled = true;
+			listeners = new ArrayList<CancelListener<ResultType>>(cancelListeners);
+		}
+		for (CancelListener<ResultType> listener : listeners) {
+			listener.onCancel(this);
+		}
+	}
+
+	@Override
+	public boolean isCancelled() {
+		synchronized (getStatusLock()) {
+			return cancelled;
+		}
+	}
+
+	@Override
+	public void addOnCancelListener(CancelListener<ResultType> listener) {
+		boolean alreadyCancelled;
+		synchronized (getStatusLock()) {
+			cancelListeners.add(listener);
+			alreadyCancelled = cancelled;
+		}
+		if (alreadyCancelled) {
+			listener.onCancel(this);
+		}
+	}
+
+	@Override
+	public boolean removeOnCancelListener(CancelListener<ResultType> listener) {
+		synchronized (getStatusLock()) {
+			return cancelListeners.remove(listener);
+		}
+	}
+
+	@Override
+	public void addProgressListener(ProgressListener listener) {
+	}
+
+	@Override
+	public boolean removeProgressListener(ProgressListener listener) {
+		return false;
+	}
+}
@@ -0,0 +1,68 @@
+package com.raizlabs.webservicemanager;
+
+import com.raizlabs.coreutils.listeners.ProgressListener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Benchmarks writing a {@link ProgressInputStreamEntity}, as is done to send
+ * the body of an upload.
+ */
+@State(Scope.Thread)
+public class ProgressInputStreamEntityBenchmark {
+
+	/**
+	 * {@link OutputStream} which discards what is written, but counts it so
+	 * that the writes can't be optimized away.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+		long count;
+
+		@Override
+		public void write(int oneByte) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] buffer, int offset, int length) {
+			count += length;
+		}
+	}
+
+	@Param({"4096", "262144"})
+	public int size;
+
+	@Param({"128", "8192"})
+	public int updateInterval;
+
+	private byte[] data;
+	private long progress;
+	private final ProgressListener listener = new ProgressListener() {
+		@Override
+		public void onProgressUpdate(long currentProgress, long maxProgress) {
+			progress = currentProgress;
+		}
+	};
+
+	@Setup
+	public void setUp() {
+		data = new byte[size];
+	}
+
+	@Benchmark
+	public long writeTo() throws IOException {
+		ProgressInputStreamEntity entity =
+				new ProgressInputStreamEntity(new ByteArrayInputStream(data), size, listener, updateInterval);
+		CountingOutputStream out = new CountingOutputStream();
+		entity.writeTo(out);
+		return out.count + progress;
+	}
+}
@@ -0,0 +1,15 @@
+package com.raizlabs.webservicemanager.benchmarks;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a benchmark whose operation must not allocate. {@link RegressionCheck}
+ * fails if such a benchmark allocated anything, whatever the baseline.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface AllocationFree {
+}
@@ -0,0 +1,169 @@
+package com.raizlabs.webservicemanager.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares the JSON results of a JMH run against a baseline run, and exits
+ * with a failure if any benchmark's score, or the memory it allocates per
+ * operation, regressed by more than the allowed fraction. Benchmarks marked
+ * {@link AllocationFree} also fail if they allocated anything at all.
+ * <br><br>
+ * Usage: RegressionCheck &lt;baseline.json&gt; &lt;results.json&gt; [maxRegression]
+ */
+public class RegressionCheck {
+
+	private static final String ALLOCATION_METRIC = "\u00b7gc.alloc.rate.norm";
+	/**
+	 * Allocation changes smaller than this many bytes per operation are
+	 * ignored, so that benchmarks which allocate almost nothing don't fail on
+	 * noise.
+	 */
+	private static final double ALLOCATION_SLACK_BYTES = 16;
+	/**
+	 * The most bytes per operation an {@link AllocationFree} benchmark may
+	 * report. Benchmarks which allocate nothing still report a tiny fraction
+	 * of a byte, from the allocations of the harness itself.
+	 */
+	private static final double ALLOCATION_FREE_BYTES = 1;
+
+	public static void main(String[] args) throws IOException, JSONException {
+		if (args.length < 2) {
+			System.err.println("Usage: RegressionCheck <baseline.json> <results.json> [maxRegression]");
+			System.exit(2);
+		}
+		File baselineFile = new File(args[0]);
+		if (!baselineFile.exists()) {
+			System.err.println("No baseline at " + baselineFile + ", run jmhSaveBaseline first");
+			System.exit(2);
+		}
+		double maxRegression = (args.length > 2) ? Double.parseDouble(args[2]) : 0.1;
+
+		Map<String, JSONObject> baseline = read(baselineFile);
+		Map<String, JSONObject> results = read(new File(args[1]));
+
+		int regressions = 0;
+		for (Map.Entry<String, JSONObject> entry : results.entrySet()) {
+			regressions += checkAllocationFree(entry.getKey(), entry.getValue());
+
+			JSONObject previous = baseline.get(entry.getKey());
+			if (previous == null) {
+				System.out.println("NEW        " + entry.getKey());
+				continue;
+			}
+			JSONObject current = entry.getValue();
+
+			boolean higherIsBetter = "thrpt".equals(current.getString("mode"));
+			double before = previous.getJSONObject("primaryMetric").getDouble("score");
+			double after = current.getJSONObject("primaryMetric").getDouble("score");
+			double change = (before == 0) ? 0 : (after - before) / before;
+			boolean regressed = higherIsBetter ? (change < -maxRegression) : (change > maxRegression);
+			regressions += report(regressed, entry.getKey(), before, after, change,
+					current.getJSONObject("primaryMetric").getString("scoreUnit"));
+
+			double allocationBefore = getAllocation(previous);
+			double allocationAfter = getAllocation(current);
+			if (allocationBefore >= 0 && allocationAfter >= 0) {
+				double allocationChange = (allocationBefore == 0) ? 0 :
+						(allocationAfter - allocationBefore) / allocationBefore;
+				boolean allocationRegressed = allocationAfter - allocationBefore > ALLOCATION_SLACK_BYTES &&
+						(allocationBefore == 0 || allocationChange > maxRegression);
+				regressions += report(allocationRegressed, entry.getKey() + " (allocation)",
+						allocationBefore, allocationAfter, allocationChange, "B/op");
+			}
+		}
+
+		if (regressions > 0) {
+			System.out.println(regressions + " regression(s) beyond " + Math.round(maxRegression * 100) + "%");
+			System.exit(1);
+		}
+		System.out.println("No regressions beyond " + Math.round(maxRegression * 100) + "%");
+	}
+
+	private static int report(boolean regressed, String name, double before, double after, double change,
+			String unit) {
+		System.out.println(String.format("%-10s %s: %.3f -> %.3f %s (%+.1f%%)",
+				regressed ? "REGRESSED" : "OK", name, before, after, unit, change * 100));
+		return regressed ? 1 : 0;
+	}
+
+	private static int checkAllocationFree(String name, JSONObject result) throws JSONException {
+		if (!isAllocationFree(result.getString("benchmark"))) {
+			return 0;
+		}
+		double allocation = getAllocation(result);
+		if (allocation < 0) {
+			System.out.println("UNCHECKED  " + name + " (allocation free, but allocation wasn't profiled)");
+			return 0;
+		}
+		boolean allocated = allocation > ALLOCATION_FREE_BYTES;
+		System.out.println(String.format("%-10s %s (allocation free): %.3f B/op",
+				allocated ? "ALLOCATES" : "OK", name, allocation));
+		return allocated ? 1 : 0;
+	}
+
+	/**
+	 * @param benchmark The fully qualified name of the benchmark method.
+	 * @return True if the benchmark is marked {@link AllocationFree}.
+	 */
+	private static boolean isAllocationFree(String benchmark) {
+		int separator = benchmark.lastIndexOf('.');
+		try {
+			Class<?> type = Class.forName(benchmark.substring(0, separator));
+			String methodName = benchmark.substring(separator + 1);
+			for (Method method : type.getMethods()) {
+				if (method.getName().equals(methodName) && method.isAnnotationPresent(AllocationFree.class)) {
+					return true;
+				}
+			}
+		} catch (ClassNotFoundException e) {
+			// Results from benchmarks which no longer exist aren't checked
+		}
+		return false;
+	}
+
+	private static double getAllocation(JSONObject result) {
+		JSONObject secondary = result.optJSONObject("secondaryMetrics");
+		JSONObject allocation = (secondary == null) ? null : secondary.optJSONObject(ALLOCATION_METRIC);
+		return (allocation == null) ? -1 : allocation.optDouble("score", -1);
+	}
+
+	/**
+	 * Reads the results of a JMH run, keyed by the benchmark, its parameters
+	 * and its thread count.
+	 */
+	private static Map<String, JSONObject> read(File file) throws IOException, JSONException {
+		String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		JSONArray array = new JSONArray(json);
+		Map<String, JSONObject> results = new LinkedHashMap<String, JSONObject>();
+		for (int i = 0; i < array.length(); i++) {
+			JSONObject result = array.getJSONObject(i);
+			StringBuilder key = new StringBuilder(result.getString("benchmark"));
+			JSONObject params = result.optJSONObject("params");
+			if (params != null) {
+				// Sort the parameters so the key doesn't depend on their order
+				Map<String, String> sorted = new TreeMap<String, String>();
+				Iterator<String> names = params.keys();
+				while (names.hasNext()) {
+					String name = names.next();
+					sorted.put(name, params.getString(name));
+				}
+				key.append(sorted);
+			}
+			key.append(" x").append(result.optInt("threads", 1));
+			results.put(key.toString(), result);
+		}
+		return results;
+	}
+}
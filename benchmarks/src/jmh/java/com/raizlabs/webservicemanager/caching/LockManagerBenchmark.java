@@ -0,0 +1,59 @@
+package com.raizlabs.webservicemanager.caching;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Benchmarks the per-key lock bookkeeping of {@link WebFileCache}, which is
+ * done for every cache lookup. Keys are URLs, as for a
+ * {@link SimpleWebFileCache}. The rest of {@link WebFileCache} needs Android,
+ * so isn't benchmarked.
+ */
+@State(Scope.Benchmark)
+public class LockManagerBenchmark {
+
+	@Param({"64", "4096"})
+	public int keyCount;
+
+	private String[] keys;
+	private LockManager<String> locks;
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int index;
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		keys = new String[keyCount];
+		locks = new LockManager<String>();
+		for (int i = 0; i < keyCount; i++) {
+			keys[i] = "//images.example.com/photos/" + i + "/large.jpg";
+			locks.getLockForKey(keys[i]);
+		}
+	}
+
+	@Benchmark
+	public Object getLockForKey(Cursor cursor) {
+		int index = cursor.index;
+		cursor.index = (index + 1 == keyCount) ? 0 : index + 1;
+		return locks.getLockForKey(keys[index]);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Object getLockForKeyContended(Cursor cursor) {
+		return getLockForKey(cursor);
+	}
+
+	@Benchmark
+	public Object getLockForNewKey(Cursor cursor) {
+		// Locks are never removed, so this also measures the growth of the map
+		return locks.getLockForKey("//images.example.com/new/" + cursor.index++);
+	}
+}
@@ -0,0 +1,52 @@
+package com.raizlabs.webservicemanager.json;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks parsing a {@link JSONNameValuesMap} and looking values up in it.
+ */
+@State(Scope.Thread)
+public class JSONNameValuesMapBenchmark {
+
+	@Param({"8", "128"})
+	public int entryCount;
+
+	private String json;
+	private JSONNameValuesMap map;
+	private String lastName;
+
+	@Setup
+	public void setUp() throws JSONException {
+		JSONArray array = new JSONArray();
+		for (int i = 0; i < entryCount; i++) {
+			JSONArray values = new JSONArray();
+			for (int j = 0; j < 4; j++) {
+				values.put("value" + i + "-" + j);
+			}
+			JSONObject entry = new JSONObject();
+			entry.put("name", "name" + i);
+			entry.put("values", values);
+			array.put(entry);
+		}
+		json = array.toString();
+		map = new JSONNameValuesMap(json);
+		lastName = "name" + (entryCount - 1);
+	}
+
+	@Benchmark
+	public JSONNameValuesMap parse() throws JSONException {
+		return new JSONNameValuesMap(json);
+	}
+
+	@Benchmark
+	public String optFirstString() {
+		return map.optFirstString(lastName);
+	}
+}
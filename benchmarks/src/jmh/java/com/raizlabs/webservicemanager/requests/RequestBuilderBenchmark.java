@@ -0,0 +1,40 @@
+package com.raizlabs.webservicemanager.requests;
+
+import com.raizlabs.webservicemanager.HttpMethod;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks building the URL of a {@link RequestBuilder}, including its
+ * query string.
+ */
+@State(Scope.Thread)
+public class RequestBuilderBenchmark {
+
+	@Param({"0", "4", "16"})
+	public int paramCount;
+
+	private RequestBuilder builder;
+
+	@Setup
+	public void setUp() {
+		builder = new RequestBuilder(HttpMethod.Get, "https://api.example.com/v1/users/12345/items");
+		for (int i = 0; i < paramCount; i++) {
+			builder.addParam("param" + i, "value " + i + " & more/" + i);
+		}
+	}
+
+	@Benchmark
+	public String getUrl() {
+		return builder.getUrl();
+	}
+
+	@Benchmark
+	public Object getRequestKey() {
+		return builder.getRequestKey();
+	}
+}
@@ -0,0 +1,41 @@
+package com.raizlabs.webservicemanager.responses;
+
+import com.raizlabs.webservicemanager.HttpMethod;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+
+/**
+ * Benchmarks reading the body of an {@link HttpClientResponse} as a string.
+ */
+@State(Scope.Thread)
+public class HttpClientResponseBenchmark {
+
+	@Param({"256", "16384", "262144"})
+	public int bodySize;
+
+	private HttpClientResponse response;
+
+	@Setup
+	public void setUp() {
+		byte[] body = new byte[bodySize];
+		Arrays.fill(body, (byte) 'a');
+		BasicHttpResponse httpResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		// A byte array entity may be read any number of times
+		httpResponse.setEntity(new ByteArrayEntity(body));
+		response = new HttpClientResponse(httpResponse, HttpMethod.Get);
+	}
+
+	@Benchmark
+	public String getContentAsString() {
+		return response.getContentAsString();
+	}
+}
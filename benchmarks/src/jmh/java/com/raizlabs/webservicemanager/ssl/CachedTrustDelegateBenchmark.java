@@ -0,0 +1,69 @@
+package com.raizlabs.webservicemanager.ssl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.InputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+import javax.net.ssl.SSLSession;
+
+/**
+ * Benchmarks the cached lookups of a {@link CachedTrustDelegate}, which are
+ * done for every TLS handshake once a host has been seen.
+ */
+@State(Scope.Benchmark)
+public class CachedTrustDelegateBenchmark {
+
+	private static final String HOST = "api.example.com";
+
+	private CachedTrustDelegate delegate;
+	private X509Certificate[] chain;
+
+	@Setup
+	public void setUp() throws Exception {
+		InputStream certificate = getClass().getResourceAsStream("/benchmark-cert.pem");
+		try {
+			CertificateFactory factory = CertificateFactory.getInstance("X.509");
+			chain = new X509Certificate[] { (X509Certificate) factory.generateCertificate(certificate) };
+		} finally {
+			certificate.close();
+		}
+
+		delegate = new CachedTrustDelegate() {
+			@Override
+			public boolean isCertificateTrusted(X509Certificate[] chain, String authType, boolean isServer) {
+				return true;
+			}
+
+			@Override
+			public boolean isHostNameTrusted(String hostname, SSLSession session) {
+				return true;
+			}
+		};
+		// Warm the caches, so that only hits are measured
+		delegate.checkCertificateTrusted(chain, "RSA", true);
+		delegate.checkHostnameTrusted(HOST, null);
+	}
+
+	@Benchmark
+	public boolean checkHostnameTrusted() {
+		return delegate.checkHostnameTrusted(HOST, null);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public boolean checkHostnameTrustedContended() {
+		return delegate.checkHostnameTrusted(HOST, null);
+	}
+
+	@Benchmark
+	public boolean checkCertificateTrusted() {
+		// Each handshake presents its own array of the same certificates
+		return delegate.checkCertificateTrusted(chain.clone(), "RSA", true);
+	}
+}
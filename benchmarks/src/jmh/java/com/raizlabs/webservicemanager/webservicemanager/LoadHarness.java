@@ -0,0 +1,420 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.requests.StringRequest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import org.apache.http.conn.ssl.SSLSocketFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Load harness which drives a {@link WebServiceManager} against an HTTP or
+ * HTTPS server embedded in the same process, in each {@link RequestMode} and
+ * at several levels of concurrency, and reports the throughput, latency
+ * distribution, connection reuse and bytes allocated per request of each.
+ * <br><br>
+ * Each client thread makes synchronous requests in a closed loop, so the
+ * concurrency is the number of requests in flight. Latencies are measured
+ * around {@link WebServiceManager#doRequest(com.raizlabs.webservicemanager.requests.WebServiceRequest)}.
+ * The connection reuse ratio is the fraction of requests which the server
+ * received on a connection it had already seen. Allocation is counted on
+ * every thread except the server's, and only while the threads are alive,
+ * so it is approximate.
+ * <br><br>
+ * Note that on the JVM, {@link RequestMode#HttpURLConnection} uses the JDK's
+ * implementation rather than Android's, so its results only indicate how the
+ * library uses it.
+ * <br><br>
+ * Options, given as --name=value:
+ * <ul>
+ * <li>modes: The {@link RequestMode}s to run, comma separated. Defaults to all.</li>
+ * <li>concurrency: The numbers of concurrent requests to run, comma separated. Defaults to 1,4,16,64.</li>
+ * <li>maxConnections: The maximum connections of the manager, or 0 to match the concurrency. Defaults to 0.</li>
+ * <li>latency: The time the server takes to respond, in milliseconds. Defaults to 0.</li>
+ * <li>size: The size of the response bodies, in bytes. Defaults to 1024.</li>
+ * <li>errorRate: The fraction of requests the server fails with a 500. Defaults to 0.</li>
+ * <li>https: Whether to serve HTTPS. Defaults to false.</li>
+ * <li>warmup: The time to run before measuring, in seconds. Defaults to 2.</li>
+ * <li>duration: The time to measure, in seconds. Defaults to 5.</li>
+ * </ul>
+ */
+public class LoadHarness {
+
+	private static final String SERVER_THREAD_NAME = "LoadHarness Server";
+	private static final String KEY_STORE = "/localhost.p12";
+	private static final char[] KEY_STORE_PASSWORD = "benchmark".toCharArray();
+
+	private static class Options {
+		List<RequestMode> modes = new ArrayList<RequestMode>();
+		List<Integer> concurrency = new ArrayList<Integer>();
+		int maxConnections = 0;
+		int latency = 0;
+		int size = 1024;
+		double errorRate = 0;
+		boolean https = false;
+		int warmup = 2;
+		int duration = 5;
+
+		Options(String[] args) {
+			Map<String, String> values = new HashMap<String, String>();
+			for (String arg : args) {
+				int equals = arg.indexOf('=');
+				if (!arg.startsWith("--") || equals < 0) {
+					throw new IllegalArgumentException("Expected --name=value but got " + arg);
+				}
+				values.put(arg.substring(2, equals), arg.substring(equals + 1));
+			}
+
+			String modeNames = remove(values, "modes", "HttpClient,HttpURLConnection");
+			for (String mode : modeNames.split(",")) {
+				modes.add(RequestMode.valueOf(mode.trim()));
+			}
+			String concurrencyLevels = remove(values, "concurrency", "1,4,16,64");
+			for (String level : concurrencyLevels.split(",")) {
+				concurrency.add(Integer.parseInt(level.trim()));
+			}
+			maxConnections = Integer.parseInt(remove(values, "maxConnections", "0"));
+			latency = Integer.parseInt(remove(values, "latency", "0"));
+			size = Integer.parseInt(remove(values, "size", "1024"));
+			errorRate = Double.parseDouble(remove(values, "errorRate", "0"));
+			https = Boolean.parseBoolean(remove(values, "https", "false"));
+			warmup = Integer.parseInt(remove(values, "warmup", "2"));
+			duration = Integer.parseInt(remove(values, "duration", "5"));
+			if (!values.isEmpty()) {
+				throw new IllegalArgumentException("Unknown options " + values.keySet());
+			}
+		}
+
+		private static String remove(Map<String, String> values, String name, String defaultValue) {
+			String value = values.remove(name);
+			return (value == null) ? defaultValue : value;
+		}
+	}
+
+	/**
+	 * Server which responds to every request with a body of the configured
+	 * size after the configured latency, failing some of them, and counts the
+	 * connections requests arrive on.
+	 */
+	private static class Server implements HttpHandler {
+		private final Options options;
+		private final byte[] body;
+		private final HttpServer server;
+		private final ExecutorService executor;
+		private final ConcurrentHashMap<InetSocketAddress, Boolean> connections =
+				new ConcurrentHashMap<InetSocketAddress, Boolean>();
+		final AtomicLong requests = new AtomicLong();
+		final AtomicLong newConnections = new AtomicLong();
+
+		Server(Options options, KeyStore keyStore) throws Exception {
+			this.options = options;
+			this.body = new byte[options.size];
+			for (int i = 0; i < body.length; i++) {
+				body[i] = (byte) ('a' + (i % 26));
+			}
+
+			InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+			if (options.https) {
+				KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+				keyManagers.init(keyStore, KEY_STORE_PASSWORD);
+				SSLContext context = SSLContext.getInstance("TLS");
+				context.init(keyManagers.getKeyManagers(), null, null);
+				HttpsServer httpsServer = HttpsServer.create(address, 1024);
+				httpsServer.setHttpsConfigurator(new HttpsConfigurator(context));
+				server = httpsServer;
+			} else {
+				server = HttpServer.create(address, 1024);
+			}
+			server.createContext("/", this);
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, SERVER_THREAD_NAME + " " + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			server.setExecutor(executor);
+			server.start();
+		}
+
+		String getUrl() {
+			return (options.https ? "https" : "http") + "://localhost:" + server.getAddress().getPort() + "/load";
+		}
+
+		/**
+		 * Starts counting again, keeping track of the connections which were
+		 * already open.
+		 */
+		void resetCounts() {
+			requests.set(0);
+			newConnections.set(0);
+		}
+
+		/**
+		 * Forgets every connection, for a new client.
+		 */
+		void resetConnections() {
+			connections.clear();
+			resetCounts();
+		}
+
+		void stop() {
+			server.stop(0);
+			executor.shutdownNow();
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				requests.incrementAndGet();
+				if (connections.putIfAbsent(exchange.getRemoteAddress(), Boolean.TRUE) == null) {
+					newConnections.incrementAndGet();
+				}
+				InputStream requestBody = exchange.getRequestBody();
+				while (requestBody.read() >= 0) { }
+
+				if (options.latency > 0) {
+					try {
+						Thread.sleep(options.latency);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+
+				boolean fail = options.errorRate > 0 && ThreadLocalRandom.current().nextDouble() < options.errorRate;
+				exchange.sendResponseHeaders(fail ? 500 : 200, body.length);
+				OutputStream responseBody = exchange.getResponseBody();
+				responseBody.write(body);
+				responseBody.close();
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+
+	/**
+	 * Measures the bytes allocated by every thread except the server's.
+	 */
+	private static class AllocationCounter {
+		private final com.sun.management.ThreadMXBean threads;
+		private final Map<Long, Long> startBytes = new HashMap<Long, Long>();
+
+		AllocationCounter() {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if (bean instanceof com.sun.management.ThreadMXBean &&
+					((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+				threads = (com.sun.management.ThreadMXBean) bean;
+				threads.setThreadAllocatedMemoryEnabled(true);
+			} else {
+				threads = null;
+			}
+		}
+
+		private Map<Long, Long> read() {
+			Map<Long, Long> bytes = new HashMap<Long, Long>();
+			for (Thread thread : Thread.getAllStackTraces().keySet()) {
+				String name = thread.getName();
+				if (thread == Thread.currentThread() || name.startsWith(SERVER_THREAD_NAME) ||
+						name.startsWith("HTTP-Dispatcher") || name.startsWith("server-timer")) {
+					continue;
+				}
+				long allocated = threads.getThreadAllocatedBytes(thread.getId());
+				if (allocated >= 0) {
+					bytes.put(thread.getId(), allocated);
+				}
+			}
+			return bytes;
+		}
+
+		void start() {
+			if (threads != null) {
+				startBytes.clear();
+				startBytes.putAll(read());
+			}
+		}
+
+		/**
+		 * @return The bytes allocated since {@link #start()}, or -1 if they
+		 * can't be measured.
+		 */
+		long stop() {
+			if (threads == null) {
+				return -1;
+			}
+			long total = 0;
+			for (Map.Entry<Long, Long> entry : read().entrySet()) {
+				Long start = startBytes.get(entry.getKey());
+				total += entry.getValue() - ((start == null) ? 0 : start);
+			}
+			return total;
+		}
+	}
+
+	private static final int WARMING_UP = 0;
+	private static final int MEASURING = 1;
+	private static final int STOPPED = 2;
+
+	private static class Client implements Runnable {
+		private final WebServiceManager manager;
+		private final String url;
+		private final LatencyHistogram latencies;
+		private final AtomicLong errors;
+		volatile int phase = WARMING_UP;
+
+		Client(WebServiceManager manager, String url, LatencyHistogram latencies, AtomicLong errors) {
+			this.manager = manager;
+			this.url = url;
+			this.latencies = latencies;
+			this.errors = errors;
+		}
+
+		@Override
+		public void run() {
+			int currentPhase;
+			while ((currentPhase = phase) != STOPPED) {
+				long start = System.nanoTime();
+				ResultInfo<String> result = manager.doRequest(new StringRequest(url));
+				if (currentPhase == MEASURING && phase == MEASURING) {
+					latencies.record((System.nanoTime() - start) / 1000);
+					if (result == null || !result.isStatusOK()) {
+						errors.incrementAndGet();
+					}
+				}
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new Options(args);
+		// Otherwise the server's separate header and body writes wait on
+		// delayed ACKs, adding ~40 ms to every request
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		KeyStore keyStore = KeyStore.getInstance("PKCS12");
+		InputStream keyStoreStream = LoadHarness.class.getResourceAsStream(KEY_STORE);
+		try {
+			keyStore.load(keyStoreStream, KEY_STORE_PASSWORD);
+		} finally {
+			keyStoreStream.close();
+		}
+		if (options.https) {
+			TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+			trustManagers.init(keyStore);
+			SSLContext context = SSLContext.getInstance("TLS");
+			context.init(null, trustManagers.getTrustManagers(), null);
+			HttpsURLConnection.setDefaultSSLSocketFactory(context.getSocketFactory());
+		}
+
+		Server server = new Server(options, keyStore);
+		System.out.println(String.format("%s, latency %d ms, %d byte bodies, %.1f%% errors, %d s per run",
+				server.getUrl(), options.latency, options.size, options.errorRate * 100, options.duration));
+		System.out.println(String.format("%-18s %5s %5s %10s %9s %9s %9s %9s %7s %7s %10s",
+				"mode", "conc", "max", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors", "reuse", "bytes/req"));
+
+		try {
+			for (RequestMode mode : options.modes) {
+				for (int concurrency : options.concurrency) {
+					run(options, server, keyStore, mode, concurrency);
+				}
+			}
+		} finally {
+			server.stop();
+		}
+		System.exit(0);
+	}
+
+	private static void run(Options options, Server server, KeyStore keyStore, RequestMode mode, int concurrency)
+			throws Exception {
+		int maxConnections = (options.maxConnections > 0) ? options.maxConnections : concurrency;
+		WebServiceManager manager = new WebServiceManager(maxConnections);
+		manager.setDefaultRequestMode(mode);
+		if (options.https) {
+			manager.getRequestExectionQueue().getClientProvider().setHttpsSocketFactory(new SSLSocketFactory(keyStore));
+		}
+		server.resetConnections();
+
+		LatencyHistogram latencies = new LatencyHistogram();
+		AtomicLong errors = new AtomicLong();
+		List<Client> clients = new ArrayList<Client>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < concurrency; i++) {
+			Client client = new Client(manager, server.getUrl(), latencies, errors);
+			Thread thread = new Thread(client, "LoadHarness Client " + i);
+			thread.setDaemon(true);
+			clients.add(client);
+			threads.add(thread);
+			thread.start();
+		}
+
+		Thread.sleep(options.warmup * 1000L);
+
+		AllocationCounter allocations = new AllocationCounter();
+		allocations.start();
+		server.resetCounts();
+		long start = System.nanoTime();
+		for (Client client : clients) {
+			client.phase = MEASURING;
+		}
+		Thread.sleep(options.duration * 1000L);
+		// Read the allocations while the client threads are still alive
+		long allocated = allocations.stop();
+		for (Client client : clients) {
+			client.phase = STOPPED;
+		}
+		long elapsed = System.nanoTime() - start;
+		long serverRequests = server.requests.get();
+		long newConnections = server.newConnections.get();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+		latencies.copyCounts(counts, false);
+		long count = latencies.getTotalCount(false);
+		double reuse = (serverRequests == 0) ? 0 : 1 - (double) newConnections / serverRequests;
+		System.out.println(String.format("%-18s %5d %5d %10.0f %9.3f %9.3f %9.3f %9.3f %7d %6.1f%% %10s",
+				mode, concurrency, maxConnections,
+				count / (elapsed / 1e9),
+				getPercentileMillis(counts, count, latencies, 0.5),
+				getPercentileMillis(counts, count, latencies, 0.9),
+				getPercentileMillis(counts, count, latencies, 0.99),
+				latencies.getMax(false) / 1000.0,
+				errors.get(),
+				reuse * 100,
+				(allocated < 0 || count == 0) ? "n/a" : Long.toString(allocated / count)));
+	}
+
+	private static double getPercentileMillis(long[] counts, long count, LatencyHistogram latencies, double percentile) {
+		long micros = Math.min(latencies.getMax(false), LatencyHistogram.getValueAtPercentile(counts, count, percentile));
+		return micros / 1000.0;
+	}
+}
@@ -0,0 +1,80 @@
+package com.raizlabs.webservicemanager.webservicemanager;
+
+import com.raizlabs.webservicemanager.benchmarks.AllocationFree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.net.URI;
+import java.util.Date;
+
+/**
+ * Benchmarks recording completed requests into a {@link MetricsRegistry},
+ * which is done for every request when metrics are enabled.
+ */
+@State(Scope.Benchmark)
+public class MetricsRegistryBenchmark {
+
+	private static final String HOST = "https://api.example.com";
+
+	private MetricsRegistry registry;
+	private LatencyHistogram histogram;
+	private URI uri;
+	/**
+	 * Paths of one endpoint with different ids, so that the endpoint has to
+	 * be found by matching its template rather than the exact path.
+	 */
+	private URI[] idUris;
+	private int nextIdUri;
+	private ResultInfo<String> result;
+	private RequestTimings timings;
+
+	@Setup
+	public void setUp() {
+		registry = new MetricsRegistry();
+		histogram = new LatencyHistogram();
+		uri = URI.create(HOST + "/v1/users/12345/items");
+		idUris = new URI[1024];
+		for (int i = 0; i < idUris.length; i++) {
+			idUris[i] = URI.create(HOST + "/v1/users/" + (10000 + i) + "/items/9f86d081884c7d659a2feaa0c55ad015");
+		}
+		result = new BasicResultInfo<String>("", new Date(), 200, "OK");
+		timings = new RequestTimings();
+		timings.startTime = 1000;
+		timings.connectionAcquiredTime = 1010;
+		timings.responseBytes = 2048;
+		timings.completeTime = 1150;
+	}
+
+	@Benchmark
+	@AllocationFree
+	public void onRequestComplete() {
+		registry.onRequestComplete(HOST, uri, result, timings, 1);
+	}
+
+	@Benchmark
+	@AllocationFree
+	public void onRequestCompleteWithIds() {
+		URI idUri = idUris[nextIdUri++ & (idUris.length - 1)];
+		registry.onRequestComplete(HOST, idUri, result, timings, 1);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void onRequestCompleteContended() {
+		registry.onRequestComplete(HOST, uri, result, timings, 1);
+	}
+
+	@Benchmark
+	public void recordLatency() {
+		histogram.record(150);
+	}
+
+	@Benchmark
+	public String normalizePath() {
+		return registry.normalizePath("/v1/users/12345/items/9f86d081884c7d659a2feaa0c55ad015");
+	}
+}
@@ -0,0 +1,12 @@
+package android.os;
+
+/**
+ * JVM stand-in for the Android class, so that the library may be run off of
+ * a device. Thread priorities are ignored.
+ */
+public final class Process {
+	public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+	public static void setThreadPriority(int priority) {
+	}
+}
@@ -0,0 +1,11 @@
+package android.os;
+
+/**
+ * JVM stand-in for the Android class, so that the library may be run off of
+ * a device.
+ */
+public final class SystemClock {
+	public static long uptimeMillis() {
+		return System.nanoTime() / 1000000;
+	}
+}
@@ -0,0 +1,11 @@
+package android.text;
+
+/**
+ * JVM stand-in for the Android class, so that the library may be run off of
+ * a device.
+ */
+public final class TextUtils {
+	public static boolean isEmpty(CharSequence str) {
+		return str == null || str.length() == 0;
+	}
+}
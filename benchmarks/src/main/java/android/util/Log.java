@@ -0,0 +1,44 @@
+package android.util;
+
+/**
+ * JVM stand-in for the Android class, so that the library may be run off of
+ * a device. Warnings and errors are written to standard error.
+ */
+public final class Log {
+	public static int v(String tag, String msg) {
+		return 0;
+	}
+
+	public static int d(String tag, String msg) {
+		return 0;
+	}
+
+	public static int i(String tag, String msg) {
+		return 0;
+	}
+
+	public static int i(String tag, String msg, Throwable tr) {
+		return 0;
+	}
+
+	public static int w(String tag, String msg) {
+		return println("W", tag, msg, null);
+	}
+
+	public static int w(String tag, String msg, Throwable tr) {
+		return println("W", tag, msg, tr);
+	}
+
+	public static int e(String tag, String msg) {
+		return println("E", tag, msg, null);
+	}
+
+	public static int e(String tag, String msg, Throwable tr) {
+		return println("E", tag, msg, tr);
+	}
+
+	private static int println(String level, String tag, String msg, Throwable tr) {
+		System.err.println(level + "/" + tag + ": " + msg + ((tr == null) ? "" : " (" + tr + ")"));
+		return 0;
+	}
+}
@@ -0,0 +1,9 @@
+package com.raizlabs.webservicemanager;
+
+/**
+ * Stand-in for the BuildConfig which the Android build generates for the
+ * library, so that its sources compile on the JVM.
+ */
+public final class BuildConfig {
+	public static final boolean DEBUG = false;
+}